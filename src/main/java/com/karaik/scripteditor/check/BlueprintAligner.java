@@ -0,0 +1,200 @@
+package com.karaik.scripteditor.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把译文文件的 ○ 行与蓝本对齐，找出真正插入、缺失和改动的行，而不是按行号逐行比较。
+ * <p>
+ * 每行先换成整数编号（相同文本同一编号），再在编号序列上跑 Myers 差分：
+ * 去掉公共首尾后用线性空间的中点二分（与 diff-match-patch 的 bisect 相同），时间 O((N+M)·D)。
+ * 单次二分超过 {@link #MAX_EDIT} 步时放弃精确对齐，该区间整体视为逐行改动，
+ * 因此两份差异极大的文件也不会退化成平方时间。
+ * <p>
+ * 同一段落内被删掉的蓝本行和新出现的行按顺序两两配成“改动”，多出的部分才算插入或缺失。
+ */
+public final class BlueprintAligner {
+
+    /** 单次二分最多探索的编辑步数 */
+    static final int MAX_EDIT = 4096;
+
+    public enum Kind {
+        /** 译文文件多出的行 */
+        INSERTED,
+        /** 蓝本有、译文文件缺少的行 */
+        DELETED,
+        /** 同一位置上文本不同 */
+        MODIFIED
+    }
+
+    /**
+     * 一处差异。lineIndex 为译文文件中 ○ 行的序号，blueprintIndex 为蓝本 ○ 行的序号；
+     * 缺失的行没有 lineIndex，取其后一行在译文中的位置（可能等于行数）。
+     */
+    public record Change(Kind kind, int lineIndex, int blueprintIndex, String line, String blueprintLine) {
+
+        /** 优先取当前行的锚点 ID，没有时取蓝本行的。 */
+        public String id() {
+            String id = line != null ? SptLineUtils.extractId(line).orElse(null) : null;
+            return id != null ? id : (blueprintLine != null ? SptLineUtils.extractId(blueprintLine).orElse(null) : null);
+        }
+    }
+
+    private BlueprintAligner() {
+    }
+
+    public static List<Change> align(List<String> lines, List<String> blueprint) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = encode(blueprint, ids);
+        int[] b = encode(lines, ids);
+        boolean[] deleted = new boolean[a.length];
+        boolean[] inserted = new boolean[b.length];
+        diff(a, 0, a.length, b, 0, b.length, deleted, inserted);
+
+        List<Change> changes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int i0 = i;
+            int j0 = j;
+            while (i < a.length && deleted[i]) {
+                i++;
+            }
+            while (j < b.length && inserted[j]) {
+                j++;
+            }
+            int paired = Math.min(i - i0, j - j0);
+            for (int p = 0; p < paired; p++) {
+                changes.add(new Change(Kind.MODIFIED, j0 + p, i0 + p, lines.get(j0 + p), blueprint.get(i0 + p)));
+            }
+            for (int p = i0 + paired; p < i; p++) {
+                changes.add(new Change(Kind.DELETED, j, p, null, blueprint.get(p)));
+            }
+            for (int p = j0 + paired; p < j; p++) {
+                changes.add(new Change(Kind.INSERTED, p, -1, lines.get(p), null));
+            }
+        }
+        return changes;
+    }
+
+    private static int[] encode(List<String> lines, Map<String, Integer> ids) {
+        int[] codes = new int[lines.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Integer next = ids.size();
+            Integer id = ids.putIfAbsent(lines.get(i), next);
+            codes[i] = id != null ? id : next;
+        }
+        return codes;
+    }
+
+    /** 比较 a[aLo, aHi) 与 b[bLo, bHi)，在 deleted / inserted 中标出不属于公共子序列的位置。 */
+    private static void diff(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi,
+                             boolean[] deleted, boolean[] inserted) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi) {
+            Arrays.fill(inserted, bLo, bHi, true);
+            return;
+        }
+        if (bLo == bHi) {
+            Arrays.fill(deleted, aLo, aHi, true);
+            return;
+        }
+        long split = bisect(a, aLo, aHi, b, bLo, bHi);
+        if (split < 0) {
+            Arrays.fill(deleted, aLo, aHi, true);
+            Arrays.fill(inserted, bLo, bHi, true);
+            return;
+        }
+        int x = aLo + (int) (split >>> 32);
+        int y = bLo + (int) split;
+        diff(a, aLo, x, b, bLo, y, deleted, inserted);
+        diff(a, x, aHi, b, y, bHi, deleted, inserted);
+    }
+
+    /**
+     * 找最短编辑路径的中点，返回 (x << 32 | y)（相对区间起点）；没有公共部分或超过 {@link #MAX_EDIT} 步时返回 -1。
+     */
+    private static long bisect(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = Math.min((n + m + 1) / 2, MAX_EDIT);
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] v1 = new int[length];
+        int[] v2 = new int[length];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[offset + 1] = 0;
+        v2[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta & 1) != 0;
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])
+                        ? v1[k1Offset + 1] : v1[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aLo + x1] == b[bLo + y1]) {
+                    x1++;
+                    y1++;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && v2[k2Offset] != -1 && x1 >= n - v2[k2Offset]) {
+                        return (long) x1 << 32 | y1;
+                    }
+                }
+            }
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])
+                        ? v2[k2Offset + 1] : v2[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aHi - x2 - 1] == b[bHi - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return (long) x1 << 32 | y1;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,32 @@
+package com.karaik.scripteditor.check;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字符集校验：正文各行只能使用 GB2312 字符（游戏字库只包含这些字）。
+ * 以 {@link CharsetRule}（规则名 charset）接入 {@link RuleSet}，暂时不需要时在 rules.properties 中设 charset.enabled=false。
+ */
+public final class CharsetChecker {
+
+    private CharsetChecker() {
+    }
+
+    public static List<String> sptCheckCharset(String line, String originalLine) {
+        return sptCheckCharset(LineAnalysis.of(line, originalLine));
+    }
+
+    public static List<String> sptCheckCharset(LineAnalysis analysis) {
+        List<String> errors = new ArrayList<>();
+        if (!analysis.hasContent()) {
+            return errors;
+        }
+        for (int i = 0; i < analysis.segmentCount; i++) {
+            String bad = Gb2312.distinctIllegal(analysis.content, analysis.segmentStart[i], analysis.segmentEnd[i]);
+            if (!bad.isEmpty()) {
+                errors.add("错误：第 " + (i + 1) + " 行包含 GB2312 以外的字符 ‘ " + bad.replace(" ", "（半角空格）") + " ’ ");
+            }
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,17 @@
+package com.karaik.scripteditor.check;
+
+import java.util.List;
+
+/** GB2312 字符集规则，见 {@link CharsetChecker}。 */
+public final class CharsetRule implements Rule {
+
+    @Override
+    public String id() {
+        return "charset";
+    }
+
+    @Override
+    public List<String> check(LineAnalysis analysis) {
+        return CharsetChecker.sptCheckCharset(analysis);
+    }
+}
@@ -0,0 +1,251 @@
+package com.karaik.scripteditor.check;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 批量检查结果的持久缓存（结果目录下的 check.cache），文件没改过就不再重新检查。
+ * <p>
+ * 每个文件的键是译文文件、蓝本和规则集版本（{@link RuleSet#version()}）一起算出的 SHA-1；
+ * 同时记下两者的大小和修改时间，都没变时直接沿用上次的哈希，不必再读内容。
+ * 结果（报告片段和 {@link Violation} 列表）以长度前缀的二进制写出并整体压缩。
+ * 缓存只是加速手段，缺失、版本不符或损坏时一律当作没有。
+ */
+public final class CheckResultCache {
+
+    private static final int MAGIC = 0x53504352; // "SPCR"
+    /** 缓存格式或 {@link CheckerRunner} 报告内容变化时递增 */
+    private static final int VERSION = 2;
+
+    /** 译文文件和蓝本的大小、修改时间；蓝本不存在时为 -1。 */
+    record Stamp(long fileSize, long fileModified, long blueprintSize, long blueprintModified) {
+    }
+
+    /** 一个文件的缓存键。 */
+    public static final class Key {
+        final Stamp stamp;
+        final byte[] sha1;
+
+        Key(Stamp stamp, byte[] sha1) {
+            this.stamp = stamp;
+            this.sha1 = sha1;
+        }
+
+        boolean sameContent(Key other) {
+            return other != null && Arrays.equals(sha1, other.sha1);
+        }
+    }
+
+    private record Entry(Key key, CheckerRunner.FileResult result) {
+    }
+
+    private final Path file;
+    private final String rulesVersion;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private CheckResultCache(Path file, String rulesVersion, Map<String, Entry> previous) {
+        this.file = file;
+        this.rulesVersion = rulesVersion;
+        this.previous = previous;
+    }
+
+    /** 打开缓存；规则集版本不同时旧内容全部作废。 */
+    public static CheckResultCache open(Path file, String rulesVersion) {
+        return new CheckResultCache(file, rulesVersion, read(file, rulesVersion));
+    }
+
+    /** 计算 relativePath 当前的键；大小和修改时间与上次一致时不读文件。 */
+    public Key keyOf(String relativePath, Path sptFile, Path blueprint) throws IOException {
+        Stamp stamp = stampOf(sptFile, blueprint);
+        Entry old = previous.get(relativePath);
+        if (old != null && old.key.stamp.equals(stamp)) {
+            return old.key;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(rulesVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        update(digest, sptFile);
+        digest.update((byte) 0);
+        if (stamp.blueprintSize() >= 0) {
+            digest.update((byte) 1);
+            update(digest, blueprint);
+        }
+        return new Key(stamp, digest.digest());
+    }
+
+    /** 键对得上时返回上次的结果，并保留到下次保存；否则返回 null。 */
+    public CheckerRunner.FileResult get(String relativePath, Key key) {
+        Entry old = previous.get(relativePath);
+        if (old == null || !old.key.sameContent(key)) {
+            return null;
+        }
+        current.put(relativePath, new Entry(key, old.result));
+        return old.result;
+    }
+
+    public void put(String relativePath, Key key, CheckerRunner.FileResult result) {
+        current.put(relativePath, new Entry(key, result));
+    }
+
+    /** 只保存本次用到或新算出的结果（临时文件 + 改名）；失败只打日志。 */
+    public void save() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, rulesVersion);
+                Map<String, Entry> sorted = new TreeMap<>(current);
+                out.writeInt(sorted.size());
+                for (Map.Entry<String, Entry> e : sorted.entrySet()) {
+                    writeString(out, e.getKey());
+                    writeEntry(out, e.getValue());
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("写入检查结果缓存失败: " + file + " " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+        }
+    }
+
+    private static Map<String, Entry> read(Path file, String rulesVersion) {
+        if (!Files.isRegularFile(file)) {
+            return Map.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !readString(in).equals(rulesVersion)) {
+                return Map.of();
+            }
+            int n = in.readInt();
+            Map<String, Entry> entries = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                String relativePath = readString(in);
+                entries.put(relativePath, readEntry(in, relativePath));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("忽略无法读取的检查结果缓存 " + file + ": " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        Stamp s = entry.key.stamp;
+        out.writeLong(s.fileSize());
+        out.writeLong(s.fileModified());
+        out.writeLong(s.blueprintSize());
+        out.writeLong(s.blueprintModified());
+        out.write(entry.key.sha1);
+        writeString(out, entry.result.report());
+        out.writeInt(entry.result.violations().size());
+        for (Violation v : entry.result.violations()) {
+            out.writeBoolean(v.id() != null);
+            if (v.id() != null) {
+                writeString(out, v.id());
+            }
+            out.writeBoolean(v.translateLine());
+            writeString(out, v.rawLine());
+            out.writeInt(v.lineIndex());
+            out.writeInt(v.messages().size());
+            for (String message : v.messages()) {
+                writeString(out, message);
+            }
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in, String relativePath) throws IOException {
+        Stamp stamp = new Stamp(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+        byte[] sha1 = new byte[20];
+        in.readFully(sha1);
+        String report = readString(in);
+        int count = readCount(in);
+        List<Violation> violations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = in.readBoolean() ? readString(in) : null;
+            boolean translateLine = in.readBoolean();
+            String rawLine = readString(in);
+            int lineIndex = in.readInt();
+            int messageCount = readCount(in);
+            List<String> messages = new ArrayList<>(messageCount);
+            for (int m = 0; m < messageCount; m++) {
+                messages.add(readString(in));
+            }
+            violations.add(new Violation(id, translateLine, rawLine, lineIndex, messages));
+        }
+        return new Entry(new Key(stamp, sha1), new CheckerRunner.FileResult(relativePath, report, List.copyOf(violations)));
+    }
+
+    private static Stamp stampOf(Path sptFile, Path blueprint) throws IOException {
+        BasicFileAttributes spt = Files.readAttributes(sptFile, BasicFileAttributes.class);
+        if (blueprint == null || !Files.isRegularFile(blueprint)) {
+            return new Stamp(spt.size(), spt.lastModifiedTime().toMillis(), -1, -1);
+        }
+        BasicFileAttributes blue = Files.readAttributes(blueprint, BasicFileAttributes.class);
+        return new Stamp(spt.size(), spt.lastModifiedTime().toMillis(), blue.size(), blue.lastModifiedTime().toMillis());
+    }
+
+    private static void update(MessageDigest digest, Path path) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 读一个长度字段，负数视为损坏。 */
+    private static int readCount(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > (64 << 20)) {
+            throw new IOException("检查结果缓存中的长度字段无效: " + n);
+        }
+        return n;
+    }
+}
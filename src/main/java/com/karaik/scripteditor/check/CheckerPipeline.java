@@ -0,0 +1,47 @@
+package com.karaik.scripteditor.check;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 校验管线的统一入口。
+ * 执行哪些规则由 {@link RuleSet} 决定：规则通过 ServiceLoader 发现，在 rules.properties 中开关，不必改代码。
+ */
+public final class CheckerPipeline {
+
+    private static volatile RuleSet defaultRules;
+
+    private CheckerPipeline() {
+    }
+
+    /** 按默认配置加载的规则集，首次使用时加载；编辑器和未指定规则集的调用共用它的统计。 */
+    public static RuleSet defaultRules() {
+        RuleSet rules = defaultRules;
+        if (rules == null) {
+            synchronized (CheckerPipeline.class) {
+                rules = defaultRules;
+                if (rules == null) {
+                    rules = RuleSet.load();
+                    defaultRules = rules;
+                }
+            }
+        }
+        return rules;
+    }
+
+    public static Optional<Violation> evaluateTranslateLine(String line, String originalLine, int lineIndex) {
+        return evaluateTranslateLine(defaultRules(), line, originalLine, lineIndex);
+    }
+
+    public static Optional<Violation> evaluateTranslateLine(RuleSet rules, String line, String originalLine,
+                                                            int lineIndex) {
+        // 切分、结构判断和字符扫描只做一次，各条规则共用
+        List<String> messages = rules.evaluate(LineAnalysis.of(line, originalLine));
+        if (messages.isEmpty()) {
+            return Optional.empty();
+        }
+        String id = SptLineUtils.extractId(line).orElse(null);
+        return Optional.of(new Violation(id, true, line, lineIndex, messages));
+    }
+
+}
@@ -0,0 +1,433 @@
+package com.karaik.scripteditor.check;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 整个语料的检查入口：逐文件跑 {@link CheckerPipeline}，把报告写入 report.all.txt，补丁写入 patch.*.spt.txt，
+ * 各规则的调用次数、命中次数和耗时写入 rule.metrics.txt。
+ * <p>
+ * 并行模式下文件之间、大文件内部的行对区间都在 fork-join 池里并行检查；
+ * 补丁文件各自独立，检查完立即写出；报告按文件顺序接到已写出的前缀后面，
+ * 因此报告和补丁与 {@link #sequential(Path, Map, boolean)} 逐字节相同（耗时统计除外）。
+ * <p>
+ * 用 {@link #withCache(Path)} 开启结果缓存后，内容、蓝本和规则集都没变的文件直接沿用上次的结果，
+ * 照常拼进报告、写出补丁，只有改过的文件重新检查。
+ */
+public final class CheckerRunner {
+
+    /** 行对数超过这个值的文件拆成多段并行检查 */
+    static final int PAIR_CHUNK = 2048;
+
+    private static final String SEPARATOR = System.lineSeparator();
+
+    /** 单个文件的检查结果。 */
+    public record FileResult(String relativePath, String report, List<Violation> violations) {
+    }
+
+    private final Path resultDir;
+    private final Map<String, Path> blueprints;
+    private final boolean writePatches;
+    private final int parallelism;
+    private final RuleSet rules;
+    private final Path cacheFile;
+    private final AtomicInteger reusedFiles = new AtomicInteger();
+
+    private CheckerRunner(Path resultDir, Map<String, Path> blueprints, boolean writePatches, int parallelism,
+                          RuleSet rules, Path cacheFile) {
+        this.resultDir = resultDir;
+        this.blueprints = blueprints;
+        this.writePatches = writePatches;
+        this.parallelism = parallelism;
+        this.rules = rules;
+        this.cacheFile = cacheFile;
+    }
+
+    /** 按 CPU 核数并行检查。 */
+    public static CheckerRunner parallel(Path resultDir, Map<String, Path> blueprints, boolean writePatches) {
+        return parallel(resultDir, blueprints, writePatches, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static CheckerRunner parallel(Path resultDir, Map<String, Path> blueprints, boolean writePatches,
+                                         int parallelism) {
+        return new CheckerRunner(resultDir, blueprints, writePatches, Math.max(1, parallelism), RuleSet.load(), null);
+    }
+
+    /** 在调用线程上逐个文件检查，作为并行结果的对照。 */
+    public static CheckerRunner sequential(Path resultDir, Map<String, Path> blueprints, boolean writePatches) {
+        return new CheckerRunner(resultDir, blueprints, writePatches, 0, RuleSet.load(), null);
+    }
+
+    /** 换用指定的规则集（例如快速模式），其余设置不变。 */
+    public CheckerRunner withRules(RuleSet rules) {
+        return new CheckerRunner(resultDir, blueprints, writePatches, parallelism, rules, cacheFile);
+    }
+
+    /** 使用 cacheFile 作为结果缓存，其余设置不变。 */
+    public CheckerRunner withCache(Path cacheFile) {
+        return new CheckerRunner(resultDir, blueprints, writePatches, parallelism, rules, cacheFile);
+    }
+
+    public RuleSet rules() {
+        return rules;
+    }
+
+    /** 最近一次 {@link #run(Map)} 中直接沿用缓存结果的文件数。 */
+    public int reusedFiles() {
+        return reusedFiles.get();
+    }
+
+    /**
+     * 检查 files（相对路径 → 文件，按迭代顺序输出），返回报告文件路径。
+     */
+    public Path run(Map<String, Path> files) throws IOException {
+        Files.createDirectories(resultDir);
+        Path reportFile = resultDir.resolve(SptConstants.REPORT_FILE_NAME);
+        List<Map.Entry<String, Path>> ordered = new ArrayList<>(files.entrySet());
+        CheckResultCache cache = cacheFile == null ? null : CheckResultCache.open(cacheFile, rules.version());
+        reusedFiles.set(0);
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OrderedReport report = new OrderedReport(writer, ordered.size());
+            if (parallelism == 0) {
+                for (int i = 0; i < ordered.size(); i++) {
+                    report.publish(i, checkAndPatch(cache, ordered.get(i).getKey(), ordered.get(i).getValue(), false));
+                }
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            List<RecursiveAction> tasks = new ArrayList<>(ordered.size());
+                            for (int i = 0; i < ordered.size(); i++) {
+                                int slot = i;
+                                Map.Entry<String, Path> entry = ordered.get(i);
+                                tasks.add(new RecursiveAction() {
+                                    @Override
+                                    protected void compute() {
+                                        try {
+                                            report.publish(slot, checkAndPatch(cache, entry.getKey(), entry.getValue(), true));
+                                        } catch (IOException e) {
+                                            throw new UncheckedIOException(e);
+                                        }
+                                    }
+                                });
+                            }
+                            invokeAll(tasks);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+        if (cache != null) {
+            cache.save();
+        }
+        Files.writeString(resultDir.resolve(SptConstants.METRICS_FILE_NAME), rules.metricsReport(),
+                StandardCharsets.UTF_8);
+        return reportFile;
+    }
+
+    private FileResult checkAndPatch(CheckResultCache cache, String relativePath, Path file, boolean forkPairs)
+            throws IOException {
+        Path blueprint = blueprints.get(relativePath);
+        FileResult result;
+        if (cache == null) {
+            result = checkFile(rules, relativePath, file, blueprint, forkPairs);
+        } else {
+            CheckResultCache.Key key = cache.keyOf(relativePath, file, blueprint);
+            result = cache.get(relativePath, key);
+            if (result != null) {
+                reusedFiles.incrementAndGet();
+            } else {
+                result = checkFile(rules, relativePath, file, blueprint, forkPairs);
+                cache.put(relativePath, key, result);
+            }
+        }
+        if (writePatches) {
+            writePatchFile(resultDir, result);
+        }
+        return result;
+    }
+
+    /**
+     * 检查一个文件；forkPairs 为 true 时必须在 fork-join 池里调用，大文件的行对会分段并行检查。
+     */
+    static FileResult checkFile(RuleSet rules, String relativePath, Path file, Path blueprint, boolean forkPairs)
+            throws IOException {
+        List<String> allLines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<String> originalLines = new ArrayList<>();
+        List<String> translateLines = new ArrayList<>();
+        for (String line : allLines) {
+            if (SptLineUtils.isOriginalLine(line)) {
+                originalLines.add(line);
+            } else if (SptLineUtils.isTranslateLine(line)) {
+                translateLines.add(line);
+            }
+        }
+
+        List<String> reportLines = new ArrayList<>();
+        reportLines.add("");
+        reportLines.add("====================================");
+        reportLines.add(relativePath);
+        reportLines.add("====================================");
+
+        List<Violation> violations = new ArrayList<>();
+
+        List<Violation> originViolations = validateOriginSpt(blueprint, originalLines);
+        if (!originViolations.isEmpty()) {
+            reportLines.add("× 原文列与蓝本不一致");
+            for (Violation v : originViolations) {
+                violations.add(v);
+                reportLines.addAll(v.messages());
+                reportLines.add("");
+            }
+        }
+
+        int pairCount = Math.min(translateLines.size(), originalLines.size());
+        List<Violation> pairViolations = forkPairs && pairCount > PAIR_CHUNK
+                ? new PairRange(rules, translateLines, originalLines, 0, pairCount).invoke()
+                : checkPairs(rules, translateLines, originalLines, 0, pairCount);
+        for (Violation v : pairViolations) {
+            violations.add(v);
+            reportLines.add(v.rawLine());
+            reportLines.addAll(v.messages());
+            reportLines.add("");
+        }
+
+        if (translateLines.size() != originalLines.size()) {
+            String message = "译文与原文行数不一致：译文 " + translateLines.size() + " 行，原文 " + originalLines.size() + " 行";
+            reportLines.add(message);
+        }
+
+        return new FileResult(relativePath, String.join(SEPARATOR, reportLines), List.copyOf(violations));
+    }
+
+    private static List<Violation> checkPairs(RuleSet rules, List<String> translateLines, List<String> originalLines,
+                                              int from, int to) {
+        List<Violation> violations = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            CheckerPipeline.evaluateTranslateLine(rules, translateLines.get(i), originalLines.get(i), i)
+                    .ifPresent(violations::add);
+        }
+        return violations;
+    }
+
+    /** 行对区间 [from, to)，超过 {@link #PAIR_CHUNK} 就对半拆开，结果按行号顺序拼接。 */
+    private static final class PairRange extends RecursiveTask<List<Violation>> {
+        private final RuleSet rules;
+        private final List<String> translateLines;
+        private final List<String> originalLines;
+        private final int from;
+        private final int to;
+
+        PairRange(RuleSet rules, List<String> translateLines, List<String> originalLines, int from, int to) {
+            this.rules = rules;
+            this.translateLines = translateLines;
+            this.originalLines = originalLines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Violation> compute() {
+            if (to - from <= PAIR_CHUNK) {
+                return checkPairs(rules, translateLines, originalLines, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            PairRange right = new PairRange(rules, translateLines, originalLines, mid, to);
+            right.fork();
+            List<Violation> result = new PairRange(rules, translateLines, originalLines, from, mid).compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+
+    private static List<Violation> validateOriginSpt(Path originFile, List<String> originSpt) throws IOException {
+        List<Violation> violations = new ArrayList<>();
+        if (originFile == null || !Files.exists(originFile)) {
+            violations.add(new Violation(null, false, "", -1, List.of("未找到对应的蓝本文件")));
+            return violations;
+        }
+
+        List<String> blueprintLines = Files.readAllLines(originFile, StandardCharsets.UTF_8).stream()
+                .filter(SptLineUtils::isOriginalLine)
+                .collect(Collectors.toList());
+
+        if (originSpt.size() != blueprintLines.size()) {
+            violations.add(new Violation(null, false, "", -1,
+                    List.of("原文行数不一致：译文文件 " + originSpt.size() + " 行，蓝本 " + blueprintLines.size() + " 行")));
+        }
+
+        // 按差分对齐，插入或删除一行只报这一行，不会让后面的行全部错位
+        for (BlueprintAligner.Change change : BlueprintAligner.align(originSpt, blueprintLines)) {
+            String id = change.id();
+            switch (change.kind()) {
+                case DELETED -> violations.add(new Violation(id, false, change.blueprintLine(), change.blueprintIndex(),
+                        List.of("译文文件缺少蓝本第 " + (change.blueprintIndex() + 1) + " 行原文（应在译文第 "
+                                + (change.lineIndex() + 1) + " 行处），请补齐。")));
+                case INSERTED -> violations.add(new Violation(id, false, change.line(), change.lineIndex(),
+                        List.of("蓝本缺少译文第 " + (change.lineIndex() + 1) + " 行原文，请核对蓝本或译文。")));
+                case MODIFIED -> violations.add(new Violation(id, false, change.line(), change.lineIndex(), List.of(
+                        "原文行与蓝本不一致",
+                        "蓝本：" + change.blueprintLine(),
+                        "当前：" + change.line()
+                )));
+            }
+        }
+
+        return violations;
+    }
+
+    /**
+     * 报告按文件顺序写出：结果先放进槽位，再把从 next 开始连续完成的一段写入并释放，
+     * 内存里只留乱序完成、还轮不到写的那部分。
+     */
+    private static final class OrderedReport {
+        private final BufferedWriter writer;
+        private final FileResult[] pending;
+        private int next;
+
+        OrderedReport(BufferedWriter writer, int size) {
+            this.writer = writer;
+            this.pending = new FileResult[size];
+        }
+
+        synchronized void publish(int slot, FileResult result) throws IOException {
+            pending[slot] = result;
+            while (next < pending.length && pending[next] != null) {
+                if (next > 0) {
+                    writer.write(SEPARATOR);
+                    writer.write(SEPARATOR);
+                }
+                writer.write(pending[next].report());
+                pending[next++] = null;
+            }
+        }
+    }
+
+    private static void writePatchFile(Path resultDir, FileResult result) throws IOException {
+        Path patchFile = resultDir.resolve(buildPatchFileName(result.relativePath()));
+        StringBuilder builder = new StringBuilder();
+        builder.append("# FILE: ").append(result.relativePath()).append(SEPARATOR);
+
+        List<Violation> violations = result.violations();
+        if (violations.isEmpty()) {
+            builder.append("# STATUS: CLEAN").append(SEPARATOR);
+        } else {
+            for (Violation violation : violations) {
+                if (!violation.hasId()) {
+                    builder.append("# WARN: 缺少可用的锚点ID，无法生成补丁项").append(SEPARATOR);
+                    builder.append("# RAW: ").append(violation.rawLine()).append(SEPARATOR);
+                    builder.append(SEPARATOR);
+                    continue;
+                }
+
+                // 默认用原行，若触发“！？”修正规则则替换为修正后的整行
+                String lineOut = violation.rawLine();
+
+                builder.append("# ID: ").append(violation.id()).append(SEPARATOR);
+                for (String message : violation.messages()) {
+                    builder.append("# ERR: ").append(message).append(SEPARATOR);
+
+                    // 命中该错误 -> 生成修正行（只移动全角“？”）
+                    if (message.contains("问号应该在感叹号前且应该都为全角")) {
+                        String fixed = rewriteBangQuestion(lineOut);
+                        if (!fixed.equals(lineOut)) {
+                            lineOut = fixed; // 用修正后的整行写入补丁
+                        }
+                    }
+                }
+
+                builder.append(lineOut).append(SEPARATOR).append(SEPARATOR);
+            }
+        }
+
+        Files.writeString(patchFile, builder.toString(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    // 只移动“？”到其左侧连续“！”之前；只处理全角字符，不做其他归一化
+    private static String rewriteBangQuestion(String fullLine) {
+        int headerEnd = fullLine.indexOf(SptConstants.MARK_TRANSLATE_CHAR, 1);
+        if (headerEnd == -1 || fullLine.length() <= headerEnd + 2) return fullLine;
+
+        String prefix  = fullLine.substring(0, headerEnd + 2);
+        String content = fullLine.substring(headerEnd + 2);
+
+        String fixed = moveQBeforeBangRuns(content);
+        return fixed.equals(content) ? fullLine : (prefix + fixed);
+    }
+
+    private static String moveQBeforeBangRuns(String s) {
+        StringBuilder sb = new StringBuilder(s);
+        int from = 0;
+        boolean changed = false;
+
+        while (true) {
+
+            // 找下一枚全角问号
+            int q = sb.indexOf("？", from);
+            if (q == -1) break;
+
+            int p = q - 1;
+
+            // 左侧是感叹号串
+            if (p >= 0 && sb.charAt(p) == '！') {
+                int left = p;
+
+                // 找到串起点前一个位置
+                while (left >= 0 && sb.charAt(left) == '！') {
+                    left--;
+                }
+
+                // 串起点
+                int insertPos = left + 1;
+
+                // 在串起点插入问号
+                sb.insert(insertPos, '？');
+
+                // 删除原问号（考虑插入位移）
+                int removeIndex = q + (insertPos <= q ? 1 : 0);
+                sb.deleteCharAt(removeIndex);
+
+                changed = true;
+
+                // 继续向后处理下一组
+                from = insertPos + 1;
+            } else {
+
+                // 这枚问号不属于“！…？”组
+                from = q + 1;
+            }
+        }
+        return changed ? sb.toString() : s;
+    }
+
+    static String buildPatchFileName(String relativePath) {
+        String normalized = relativePath.replace('\\', '/');
+        String base = normalized;
+        if (base.endsWith(SptConstants.PATCH_FILE_SUFFIX)) {
+            base = base.substring(0, base.length() - SptConstants.PATCH_FILE_SUFFIX.length());
+        }
+        String safe = base.replace("/", SptConstants.PATCH_PATH_SEPARATOR);
+        return SptConstants.PATCH_FILE_PREFIX + safe + SptConstants.PATCH_FILE_SUFFIX;
+    }
+}
@@ -0,0 +1,17 @@
+package com.karaik.scripteditor.check;
+
+import java.util.List;
+
+/** 格式规则，见 {@link FormatChecker}。 */
+public final class FormatRule implements Rule {
+
+    @Override
+    public String id() {
+        return "format";
+    }
+
+    @Override
+    public List<String> check(LineAnalysis analysis) {
+        return FormatChecker.sptCheckFormat(analysis);
+    }
+}
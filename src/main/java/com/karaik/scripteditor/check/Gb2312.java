@@ -0,0 +1,160 @@
+package com.karaik.scripteditor.check;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * GB2312 合法字符表：65536 位的位图，一个 char 一位，判断只需一次数组读取和移位，不装箱、不查哈希表。
+ * <p>
+ * 位图由 gb2312_valid_characters.txt 预先生成为 8 KiB 的 gb2312.bitmap（{@link #main(String[])}），
+ * 随资源一起发布；Gb2312Test 会核对两者一致。位图缺失或损坏时退回到读取文本。
+ * 批量接口直接扫描 CharSequence，不复制；长文本每次并行判断 4 个字符，全部合法才继续。
+ */
+public final class Gb2312 {
+
+    static final String SOURCE_RESOURCE = "/com/karaik/scripteditor/gb2312_valid_characters.txt";
+    static final String BITMAP_RESOURCE = "/com/karaik/scripteditor/gb2312.bitmap";
+    static final int BITMAP_BYTES = 65536 / 8;
+
+    private static final long[] BITS = load();
+
+    private Gb2312() {
+    }
+
+    public static boolean isLegal(char c) {
+        return (BITS[c >>> 6] >>> c & 1L) != 0;
+    }
+
+    /** text 全部由合法字符组成；null 视为不合法。 */
+    public static boolean isLegal(CharSequence text) {
+        return text != null && indexOfIllegal(text, 0, text.length()) < 0;
+    }
+
+    /** [from, to) 中第一个非法字符的位置，没有时返回 -1。 */
+    public static int indexOfIllegal(CharSequence text, int from, int to) {
+        long[] bits = BITS;
+        int i = from;
+        // 四个一组：四位相与仍为 1 说明全部合法，绝大多数文本只走这一支
+        for (; i + 4 <= to; i += 4) {
+            char c0 = text.charAt(i);
+            char c1 = text.charAt(i + 1);
+            char c2 = text.charAt(i + 2);
+            char c3 = text.charAt(i + 3);
+            long all = (bits[c0 >>> 6] >>> c0) & (bits[c1 >>> 6] >>> c1)
+                    & (bits[c2 >>> 6] >>> c2) & (bits[c3 >>> 6] >>> c3);
+            if ((all & 1L) == 0) {
+                break;
+            }
+        }
+        for (; i < to; i++) {
+            char c = text.charAt(i);
+            if ((bits[c >>> 6] >>> c & 1L) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** [from, to) 中所有非法字符的位置，按出现顺序。 */
+    public static int[] illegalPositions(CharSequence text, int from, int to) {
+        int at = indexOfIllegal(text, from, to);
+        if (at < 0) {
+            return new int[0];
+        }
+        int[] positions = new int[4];
+        int n = 0;
+        while (at >= 0) {
+            if (n == positions.length) {
+                positions = Arrays.copyOf(positions, n * 2);
+            }
+            positions[n++] = at;
+            at = indexOfIllegal(text, at + 1, to);
+        }
+        return Arrays.copyOf(positions, n);
+    }
+
+    /** [from, to) 中出现的非法字符，去重并保持首次出现的顺序；没有时返回空串。 */
+    public static String distinctIllegal(CharSequence text, int from, int to) {
+        int at = indexOfIllegal(text, from, to);
+        if (at < 0) {
+            return "";
+        }
+        StringBuilder distinct = new StringBuilder();
+        long[] seen = new long[1024];
+        while (at >= 0) {
+            char c = text.charAt(at);
+            if ((seen[c >>> 6] >>> c & 1L) == 0) {
+                seen[c >>> 6] |= 1L << c;
+                distinct.append(c);
+            }
+            at = indexOfIllegal(text, at + 1, to);
+        }
+        return distinct.toString();
+    }
+
+    /** 从文本资源建位图：每行第一个字符，遇到空行为止（与原先的读取方式一致）。 */
+    static long[] fromText(Reader source) throws IOException {
+        long[] bits = new long[1024];
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            char c = line.charAt(0);
+            bits[c >>> 6] |= 1L << c;
+        }
+        return bits;
+    }
+
+    static byte[] toBytes(long[] bits) {
+        ByteBuffer buffer = ByteBuffer.allocate(BITMAP_BYTES);
+        buffer.asLongBuffer().put(bits);
+        return buffer.array();
+    }
+
+    private static long[] load() {
+        try (InputStream in = Gb2312.class.getResourceAsStream(BITMAP_RESOURCE)) {
+            if (in != null) {
+                byte[] bytes = in.readAllBytes();
+                if (bytes.length == BITMAP_BYTES) {
+                    long[] bits = new long[1024];
+                    ByteBuffer.wrap(bytes).asLongBuffer().get(bits);
+                    return bits;
+                }
+                System.err.println("GB2312 位图长度不对，改为读取字符表: " + bytes.length);
+            }
+        } catch (IOException e) {
+            System.err.println("读取 GB2312 位图失败，改为读取字符表: " + e.getMessage());
+        }
+        try (InputStream in = Gb2312.class.getResourceAsStream(SOURCE_RESOURCE)) {
+            return fromText(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            System.err.println("加载GB2312字符集失败: " + e.getMessage());
+            return new long[1024];
+        }
+    }
+
+    /**
+     * 由字符表重新生成位图：{@code Gb2312 [字符表] [输出位图]}，
+     * 默认读写 src/main/resources 下的两个文件。字符表变动后运行一次并提交生成的位图。
+     */
+    public static void main(String[] args) throws IOException {
+        Path resources = Paths.get("src/main/resources");
+        Path source = args.length > 0 ? Paths.get(args[0]) : resources.resolve(SOURCE_RESOURCE.substring(1));
+        Path target = args.length > 1 ? Paths.get(args[1]) : resources.resolve(BITMAP_RESOURCE.substring(1));
+        long[] bits;
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            bits = fromText(reader);
+        }
+        Files.write(target, toBytes(bits));
+        System.out.println("已生成 " + target.toAbsolutePath() + "，共 "
+                + Arrays.stream(bits).map(Long::bitCount).sum() + " 个字符");
+    }
+}
@@ -0,0 +1,388 @@
+package com.karaik.scripteditor.check;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 术语表：namecol.xtx.txt 里的人名，加上一份“日文→中文”的术语对照。
+ * <p>
+ * 日文术语建成一台 Aho-Corasick 自动机，一趟扫描就能找出原文里出现的全部术语，
+ * 耗时只与原文长度有关，与术语条数无关。转移表放在一张以（状态, 字符）为键的开放寻址表里，
+ * 不为每个状态建 Map；建好后只读，可多线程共用。
+ * <p>
+ * namecol.xtx.txt（GB2312）依次取系统属性 spt.glossary.namecol 指定的文件、当前工作区目录下的同名文件、
+ * 类路径下与 glossary.tsv 同目录的 namecol.xtx.txt；术语对照默认读类路径下的 glossary.tsv，可用系统属性 spt.glossary.terms 指向其他文件。
+ * 都找不到时对应部分为空，并在 stderr 说明。
+ */
+public final class Glossary {
+
+    public static final String NAMECOL_PROPERTY = "spt.glossary.namecol";
+    public static final String TERMS_PROPERTY = "spt.glossary.terms";
+    static final String NAMECOL_FILE = "namecol.xtx.txt";
+    static final String NAMECOL_RESOURCE = "/com/karaik/scripteditor/check/" + NAMECOL_FILE;
+    static final Charset NAMECOL_CHARSET = Charset.forName("GB2312");
+    static final String TERMS_RESOURCE = "/com/karaik/scripteditor/check/glossary.tsv";
+
+    private static final Glossary EMPTY = new Glossary(Set.of(), Map.of());
+
+    /** 原文中命中的一个术语，[start, end) 为在扫描文本中的位置。 */
+    public record Match(String term, List<String> translations, int start, int end) {
+    }
+
+    private final Set<String> names;
+    private final String[] terms;
+    private final List<String>[] translations;
+    private final String fingerprint;
+
+    // 自动机：状态 0 为根
+    private long[] edgeKeys;
+    private int[] edgeTargets;
+    private int[] fail;
+    /** 以该状态结尾的最长术语下标，没有时为 -1 */
+    private int[] output;
+    /** 沿失败链往下第一个有术语的状态，没有时为 -1 */
+    private int[] outputLink;
+    private int[] depth;
+    /** 从父状态走到该状态的字符 */
+    private char[] label;
+    private int states;
+
+    @SuppressWarnings("unchecked")
+    private Glossary(Set<String> names, Map<String, List<String>> termMap) {
+        this.names = Set.copyOf(names);
+        List<Map.Entry<String, List<String>>> usable = termMap.entrySet().stream()
+                .filter(e -> !e.getKey().isEmpty() && !e.getValue().isEmpty()).toList();
+        this.terms = usable.stream().map(Map.Entry::getKey).toArray(String[]::new);
+        this.translations = usable.stream().map(e -> List.copyOf(e.getValue())).toArray(List[]::new);
+        this.fingerprint = digest();
+        build();
+    }
+
+    public static Glossary empty() {
+        return EMPTY;
+    }
+
+    /** names 为已知人名（说话人），terms 为日文术语到可接受译法的对照，译法任一出现即可。 */
+    public static Glossary of(Set<String> names, Map<String, List<String>> terms) {
+        return new Glossary(names, terms);
+    }
+
+    /** 按系统属性或类路径加载，不看工作区。 */
+    public static Glossary load() {
+        return load(null);
+    }
+
+    /** 按系统属性、工作区目录 workspace（可为 null）、类路径的顺序找 namecol 后加载。 */
+    public static Glossary load(Path workspace) {
+        Set<String> names = loadNamecol(workspace);
+        Map<String, List<String>> terms = new LinkedHashMap<>();
+        String external = System.getProperty(TERMS_PROPERTY);
+        if (external != null && !external.isBlank()) {
+            Path path = Paths.get(external);
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                readTerms(reader, terms);
+            } catch (IOException e) {
+                System.err.println("读取术语表失败: " + path + " " + e.getMessage());
+            }
+        } else {
+            try (InputStream in = Glossary.class.getResourceAsStream(TERMS_RESOURCE)) {
+                if (in != null) {
+                    readTerms(new InputStreamReader(in, StandardCharsets.UTF_8), terms);
+                }
+            } catch (IOException e) {
+                System.err.println("读取默认术语表失败: " + e.getMessage());
+            }
+        }
+        return names.isEmpty() && terms.isEmpty() ? EMPTY : new Glossary(names, terms);
+    }
+
+    static Set<String> loadNamecol(Path workspace) {
+        String configured = System.getProperty(NAMECOL_PROPERTY);
+        if (configured != null && !configured.isBlank()) {
+            // 显式指定的文件不存在多半是配错了，不再往下找，免得悄悄用了别的名单
+            return readNamecol(Paths.get(configured));
+        }
+        if (workspace != null) {
+            Path path = workspace.resolve(NAMECOL_FILE);
+            if (Files.exists(path)) {
+                return readNamecol(path);
+            }
+        }
+        try (InputStream in = Glossary.class.getResourceAsStream(NAMECOL_RESOURCE)) {
+            if (in != null) {
+                return readNamecol(new InputStreamReader(in, NAMECOL_CHARSET));
+            }
+        } catch (IOException e) {
+            System.err.println("读取默认 namecol 失败: " + e.getMessage());
+            return Set.of();
+        }
+        System.err.println("未找到 " + NAMECOL_FILE + (workspace != null ? "（工作区 " + workspace + "）" : "")
+                + "，说话人检查已关闭");
+        return Set.of();
+    }
+
+    static Set<String> readNamecol(Path path) {
+        if (!Files.exists(path)) {
+            System.err.println("namecol 文件不存在: " + path.toAbsolutePath() + "，说话人检查已关闭");
+            return Set.of();
+        }
+        try (Reader reader = Files.newBufferedReader(path, NAMECOL_CHARSET)) {
+            return readNamecol(reader);
+        } catch (IOException e) {
+            System.err.println("读取 namecol 失败: " + path + " " + e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /** 每行第一个空白前的部分是人名，空行跳过。 */
+    static Set<String> readNamecol(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        Set<String> names = new LinkedHashSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                names.add(line.split("\\s+", 2)[0]);
+            }
+        }
+        return names;
+    }
+
+    /** 每行“日文<Tab>译法[<Tab>译法…]”，# 开头为注释；同一术语出现多次时译法合并。 */
+    static void readTerms(Reader source, Map<String, List<String>> terms) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t");
+            if (parts.length < 2 || parts[0].isBlank()) {
+                System.err.println("术语表格式不对，已跳过: " + line);
+                continue;
+            }
+            List<String> list = terms.computeIfAbsent(parts[0].trim(), k -> new ArrayList<>());
+            for (int i = 1; i < parts.length; i++) {
+                String zh = parts[i].trim();
+                if (!zh.isEmpty() && !list.contains(zh)) {
+                    list.add(zh);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty() && terms.length == 0;
+    }
+
+    public boolean hasNames() {
+        return !names.isEmpty();
+    }
+
+    public boolean isKnownName(String name) {
+        return names.contains(name);
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    /** 人名和术语对照内容的摘要（SHA-1 十六进制），内容相同则相同，与来源文件无关。 */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    private String digest() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // 人名集合无序，排序后再算；各段之间用 0 分隔
+        for (String name : names.stream().sorted().toList()) {
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        digest.update((byte) 1);
+        for (int i = 0; i < terms.length; i++) {
+            digest.update(terms[i].getBytes(StandardCharsets.UTF_8));
+            for (String zh : translations[i]) {
+                digest.update((byte) 0);
+                digest.update(zh.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 1);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 一趟扫描 [from, to)，按出现位置返回命中的术语；被更长术语完全盖住的短术语不单独返回
+     * （“直枝理樹”里的“理樹”）。
+     */
+    public List<Match> find(CharSequence text, int from, int to) {
+        if (terms.length == 0) {
+            return List.of();
+        }
+        List<Match> raw = new ArrayList<>();
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = edge(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int term = output[s];
+                raw.add(new Match(terms[term], translations[term], i + 1 - depth[s], i + 1));
+            }
+        }
+        if (raw.size() < 2) {
+            return raw;
+        }
+        // 按起点排序、同起点长的在前，结尾没有超过已收下最远结尾的就是被盖住的
+        raw.sort(Comparator.comparingInt(Match::start).thenComparing(Match::end, Comparator.reverseOrder()));
+        List<Match> found = new ArrayList<>(raw.size());
+        int reach = -1;
+        for (Match m : raw) {
+            if (m.end() > reach) {
+                found.add(m);
+                reach = m.end();
+            }
+        }
+        return found;
+    }
+
+    public List<Match> find(CharSequence text) {
+        return find(text, 0, text.length());
+    }
+
+    private void build() {
+        int capacity = 1;
+        for (String term : terms) {
+            capacity += term.length();
+        }
+        int tableSize = Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+        edgeKeys = new long[tableSize];
+        Arrays.fill(edgeKeys, -1L);
+        edgeTargets = new int[tableSize];
+        fail = new int[capacity];
+        output = new int[capacity];
+        outputLink = new int[capacity];
+        depth = new int[capacity];
+        label = new char[capacity];
+        Arrays.fill(output, -1);
+        Arrays.fill(outputLink, -1);
+        states = 1;
+
+        for (int t = 0; t < terms.length; t++) {
+            String term = terms[t];
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int next = edge(state, term.charAt(i));
+                if (next < 0) {
+                    next = states++;
+                    depth[next] = i + 1;
+                    label[next] = term.charAt(i);
+                    putEdge(state, term.charAt(i), next);
+                }
+                state = next;
+            }
+            output[state] = t;
+        }
+
+        // 按层求失败链：状态 s 经字符 c 到 u，则 u 的失败状态是沿 s 的失败链第一个能走 c 的状态
+        int[][] children = childrenByState();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : children[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int u : children[s]) {
+                char c = label[u];
+                int f = fail[s];
+                int next;
+                while ((next = edge(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[u] = Math.max(next, 0);
+                outputLink[u] = output[fail[u]] >= 0 ? fail[u] : outputLink[fail[u]];
+                queue.add(u);
+            }
+        }
+    }
+
+    private int[][] childrenByState() {
+        int[] counts = new int[states];
+        for (int i = 0; i < edgeKeys.length; i++) {
+            if (edgeKeys[i] >= 0) {
+                counts[(int) (edgeKeys[i] >>> 16)]++;
+            }
+        }
+        int[][] children = new int[states][];
+        for (int s = 0; s < states; s++) {
+            children[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int i = 0; i < edgeKeys.length; i++) {
+            if (edgeKeys[i] >= 0) {
+                int s = (int) (edgeKeys[i] >>> 16);
+                children[s][counts[s]++] = edgeTargets[i];
+            }
+        }
+        return children;
+    }
+
+    private int edge(int state, char c) {
+        long key = (long) state << 16 | c;
+        int mask = edgeKeys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = edgeKeys[i];
+            if (k == key) {
+                return edgeTargets[i];
+            }
+            if (k < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void putEdge(int state, char c, int target) {
+        long key = (long) state << 16 | c;
+        int mask = edgeKeys.length - 1;
+        int i = slot(key, mask);
+        while (edgeKeys[i] >= 0) {
+            i = (i + 1) & mask;
+        }
+        edgeKeys[i] = key;
+        edgeTargets[i] = target;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,104 @@
+package com.karaik.scripteditor.check;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.karaik.scripteditor.check.SptConstants.MARK_ORIGINAL_CHAR;
+
+/**
+ * 术语规则，见 {@link Glossary}：
+ *  1. 对话的说话人须是 namecol.xtx.txt 中的人名；不是对话格式的行首却是已知人名时，提示格式可能有误；
+ *  2. 原文里出现的术语，译文中须出现对照表给的某个译法。
+ * 术语表为空时不报错。
+ */
+public final class GlossaryRule implements Rule {
+
+    private static Path workspace;
+    private static volatile Glossary defaultGlossary;
+
+    private final Glossary glossary;
+
+    /** ServiceLoader 使用，术语表按 {@link Glossary#load(Path)} 在第一次校验时加载。 */
+    public GlossaryRule() {
+        this(null);
+    }
+
+    public GlossaryRule(Glossary glossary) {
+        this.glossary = glossary;
+    }
+
+    @Override
+    public String id() {
+        return "glossary";
+    }
+
+    /** 切换工作区后调用，默认术语表在下次校验时按新目录重新加载。 */
+    public static synchronized void useWorkspace(Path root) {
+        workspace = root;
+        defaultGlossary = null;
+    }
+
+    static Glossary defaultGlossary() {
+        Glossary g = defaultGlossary;
+        if (g == null) {
+            synchronized (GlossaryRule.class) {
+                g = defaultGlossary;
+                if (g == null) {
+                    defaultGlossary = g = Glossary.load(workspace);
+                }
+            }
+        }
+        return g;
+    }
+
+    /** 名单和术语对照的摘要，换了 namecol、glossary.tsv 或相应系统属性后随之改变。 */
+    @Override
+    public String fingerprint() {
+        return glossary().fingerprint();
+    }
+
+    private Glossary glossary() {
+        return glossary != null ? glossary : defaultGlossary();
+    }
+
+    @Override
+    public List<String> check(LineAnalysis analysis) {
+        Glossary g = glossary();
+        if (g.isEmpty() || !analysis.hasContent()) {
+            return List.of();
+        }
+        List<String> errors = new ArrayList<>();
+
+        if (g.hasNames() && analysis.segmentCount > 0) {
+            String speaker = analysis.segment(0);
+            if (analysis.dialogWithSpeaker) {
+                if (!speaker.isEmpty() && !g.isKnownName(speaker)) {
+                    errors.add("错误：说话人 “ " + speaker + " ” 未在 namecol.xtx.txt 中定义");
+                }
+            } else if (g.isKnownName(speaker)) {
+                errors.add("错误：匹配到 namecol.xtx.txt 中定义的人物 “ " + speaker
+                        + " ” 但文本格式似乎有误，没有被识别为对话文本，请检查括号的匹配情况或文本格式");
+            }
+        }
+
+        String original = analysis.originalLine;
+        int headerEnd = g.termCount() == 0 || original == null ? -1 : original.indexOf(MARK_ORIGINAL_CHAR, 1);
+        if (headerEnd != -1 && headerEnd + 2 < original.length()) {
+            List<Glossary.Match> matches = g.find(original, headerEnd + 2, original.length());
+            if (!matches.isEmpty()) {
+                String text = analysis.fullText();
+                Set<String> reported = new HashSet<>();
+                for (Glossary.Match match : matches) {
+                    if (match.translations().stream().noneMatch(text::contains) && reported.add(match.term())) {
+                        errors.add("错误：原文术语 “ " + match.term() + " ” 应译为 “ "
+                                + String.join(" ” 或 “ ", match.translations()) + " ”，译文中没有找到");
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,272 @@
+package com.karaik.scripteditor.check;
+
+import java.util.Arrays;
+
+import static com.karaik.scripteditor.check.SptConstants.MARK_TRANSLATE_CHAR;
+import static com.karaik.scripteditor.check.SptConstants.SPLIT_TOKEN;
+
+/**
+ * 一条译文行的共享分析：{@link FormatChecker} 与 {@link SymbolChecker} 都从这里取数据，
+ * 正文只按 [\r][\n] 切一次、对话/独白结构只判断一次。
+ * <p>
+ * 字符级规则合并成一趟扫描：每个字符查一次 64K 项的类别表，绝大多数汉字类别为 0 直接跳过，
+ * 命中的字符按类别记下来，由各规则按原来的顺序生成报错。
+ * 切分语义与 {@code content.split(SPLIT_REGEX)} 一致（去掉末尾空段），分析结果构造后只读。
+ */
+public final class LineAnalysis {
+
+    static final int BAD_TILDE = 1;
+    static final int BAD_DASH = 1 << 1;
+    static final int HALF_SYMBOL = 1 << 2;
+    static final int BAD_QUOTE = 1 << 3;
+    static final int LINE_END_PUNCT = 1 << 4;
+    /** 需要单独计数或配对的字符：感叹号/问号、引号、对话框、括号和空格 */
+    static final int SPECIAL = 1 << 5;
+
+    /** 非法破折号，报错按此顺序 */
+    static final String BAD_DASHES = "‐-–—ー";
+
+    private static final char[] CLASSES = new char[65536];
+
+    static {
+        mark("~∼˜﹏〰", BAD_TILDE);
+        mark(BAD_DASHES, BAD_DASH);
+        mark("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~", HALF_SYMBOL);
+        mark("「」『』【】\"'‘’", BAD_QUOTE);
+        mark("，。……～！？―」』）”、", LINE_END_PUNCT);
+        mark("！？!?“”「『」』（） ", SPECIAL);
+    }
+
+    final String line;
+    final String originalLine;
+    /** 译文行第二个 ● 的位置，没有时为 -1 */
+    final int headerEnd;
+    /** ● 之后隔一个字符开始的正文；行不够长时为 null */
+    final String content;
+
+    int segmentCount;
+    int[] segmentStart;
+    int[] segmentEnd;
+    /** 各段开头的全角空格数 */
+    int[] leadingSpaces;
+    /** 各段是否含半角空格 */
+    boolean[] halfSpace;
+
+    /** 第二行以「/『开头、末行以」/』结尾 */
+    boolean dialog;
+    /** 同上，另外也认（） */
+    boolean dialogWithSpeaker;
+    /** 首行以（开头、末行以）结尾，且不是带名字的对话 */
+    boolean monologue;
+
+    boolean bangQuestion;
+    /** 出现过的非法破折号，第 k 位对应 {@link #BAD_DASHES} 的第 k 个 */
+    int dashMask;
+    StringBuilder badTildes;
+    StringBuilder halfSymbols;
+    /** 非法引号在正文中的位置 */
+    int[] badQuotes;
+    int badQuoteCount;
+    int quoteOpen;
+    int quoteClose;
+    /** 「『 与 」』 的个数 */
+    int boxOpen;
+    int boxClose;
+    /** 对话开头被跳过、不检查非法引号的区间 [skipFrom, skipTo]，没有时为 -1 */
+    int skipFrom = -1;
+    int skipTo = -1;
+
+    private LineAnalysis(String line, String originalLine) {
+        this.line = line;
+        this.originalLine = originalLine;
+        this.headerEnd = line == null ? -1 : line.indexOf(MARK_TRANSLATE_CHAR, 1);
+        this.content = headerEnd == -1 || line.length() < headerEnd + 2 ? null : line.substring(headerEnd + 2);
+        if (content != null) {
+            split();
+            classify();
+            scan();
+        }
+    }
+
+    public static LineAnalysis of(String line, String originalLine) {
+        return new LineAnalysis(line, originalLine);
+    }
+
+    boolean hasContent() {
+        return content != null && !content.isEmpty();
+    }
+
+    String segment(int i) {
+        return content.substring(segmentStart[i], segmentEnd[i]);
+    }
+
+    int segmentLength(int i) {
+        return segmentEnd[i] - segmentStart[i];
+    }
+
+    /** 去掉分行标记后的正文，只在需要整段文本的规则里使用。 */
+    String fullText() {
+        StringBuilder sb = new StringBuilder(content.length());
+        for (int i = 0; i < segmentCount; i++) {
+            sb.append(content, segmentStart[i], segmentEnd[i]);
+        }
+        return sb.toString();
+    }
+
+    static boolean isLineEndPunct(char c) {
+        return (CLASSES[c] & LINE_END_PUNCT) != 0;
+    }
+
+    private void split() {
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int n = 0;
+        int from = 0;
+        int at;
+        while ((at = content.indexOf(SPLIT_TOKEN, from)) != -1) {
+            if (n + 1 >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+                ends = Arrays.copyOf(ends, ends.length * 2);
+            }
+            starts[n] = from;
+            ends[n++] = at;
+            from = at + SPLIT_TOKEN.length();
+        }
+        starts[n] = from;
+        ends[n++] = content.length();
+        if (n > 1) {
+            // 与 String.split 相同：有分隔符时去掉末尾的空段
+            while (n > 0 && starts[n - 1] == ends[n - 1]) {
+                n--;
+            }
+        }
+        segmentCount = n;
+        segmentStart = starts;
+        segmentEnd = ends;
+        leadingSpaces = new int[n];
+        halfSpace = new boolean[n];
+    }
+
+    private void classify() {
+        int n = segmentCount;
+        if (n >= 2) {
+            char first = trimmedFirst(1);
+            char last = trimmedLast(n - 1);
+            dialog = (first == '「' && last == '」') || (first == '『' && last == '』');
+            dialogWithSpeaker = dialog || (first == '（' && last == '）');
+        }
+        if (!dialogWithSpeaker && n > 0) {
+            monologue = trimmedFirst(0) == '（' && trimmedLast(n - 1) == '）';
+        }
+    }
+
+    /** 与 String.trim() 后取首字符一致；整段为空白时返回 0。 */
+    private char trimmedFirst(int i) {
+        for (int p = segmentStart[i]; p < segmentEnd[i]; p++) {
+            char c = content.charAt(p);
+            if (c > ' ') return c;
+        }
+        return 0;
+    }
+
+    private char trimmedLast(int i) {
+        for (int p = segmentEnd[i] - 1; p >= segmentStart[i]; p--) {
+            char c = content.charAt(p);
+            if (c > ' ') return c;
+        }
+        return 0;
+    }
+
+    private void scan() {
+        char prev = 0;
+        int firstCorner = -1;   // 第一个「
+        int firstOther = -1;    // 第一个『（）
+        int lastCornerClose = -1;
+        int lastWhiteClose = -1;
+        for (int k = 0; k < segmentCount; k++) {
+            int end = segmentEnd[k];
+            int p = segmentStart[k];
+            while (p < end && content.charAt(p) == '　') {
+                p++;
+            }
+            leadingSpaces[k] = p - segmentStart[k];
+            if (p > segmentStart[k]) {
+                prev = '　';
+            }
+            for (; p < end; p++) {
+                char c = content.charAt(p);
+                int cls = CLASSES[c];
+                if (cls != 0) {
+                    if ((cls & BAD_TILDE) != 0) {
+                        (badTildes == null ? badTildes = new StringBuilder() : badTildes).append(c);
+                    }
+                    if ((cls & BAD_DASH) != 0) {
+                        dashMask |= 1 << BAD_DASHES.indexOf(c);
+                    }
+                    if ((cls & HALF_SYMBOL) != 0) {
+                        (halfSymbols == null ? halfSymbols = new StringBuilder() : halfSymbols).append(c);
+                    }
+                    if ((cls & BAD_QUOTE) != 0) {
+                        if (badQuotes == null) {
+                            badQuotes = new int[4];
+                        } else if (badQuoteCount == badQuotes.length) {
+                            badQuotes = Arrays.copyOf(badQuotes, badQuoteCount * 2);
+                        }
+                        badQuotes[badQuoteCount++] = p;
+                    }
+                    if ((cls & SPECIAL) != 0) {
+                        switch (c) {
+                            case '？' -> bangQuestion |= prev == '！';
+                            case '?' -> bangQuestion |= prev == '!';
+                            case '!' -> bangQuestion |= prev == '?';
+                            case '“' -> quoteOpen++;
+                            case '”' -> quoteClose++;
+                            case '「' -> {
+                                boxOpen++;
+                                if (firstCorner == -1) firstCorner = p;
+                            }
+                            case '『' -> {
+                                boxOpen++;
+                                if (firstOther == -1) firstOther = p;
+                            }
+                            case '」' -> {
+                                boxClose++;
+                                lastCornerClose = p;
+                            }
+                            case '』' -> {
+                                boxClose++;
+                                lastWhiteClose = p;
+                            }
+                            case '（', '）' -> {
+                                if (firstOther == -1) firstOther = p;
+                            }
+                            case ' ' -> halfSpace[k] = true;
+                            default -> {
+                            }
+                        }
+                    }
+                }
+                prev = c;
+            }
+        }
+
+        // 带名字的对话：第一个后面还有对应结尾符的「『（）到该结尾符为止不检查引号
+        // （「 找 」，其余找 』，与逐字扫描的旧实现一致）
+        if (dialogWithSpeaker) {
+            int from = firstCorner != -1 && firstCorner < lastCornerClose ? firstCorner : -1;
+            if (firstOther != -1 && firstOther < lastWhiteClose && (from == -1 || firstOther < from)) {
+                from = firstOther;
+            }
+            if (from != -1) {
+                skipFrom = from;
+                skipTo = content.indexOf(content.charAt(from) == '「' ? '」' : '』', from + 1);
+            }
+        }
+    }
+
+    private static void mark(String chars, int flag) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] |= (char) flag;
+        }
+    }
+}
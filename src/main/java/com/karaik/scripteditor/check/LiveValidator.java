@@ -0,0 +1,145 @@
+package com.karaik.scripteditor.check;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编辑器里的实时校验：在后台线程对整条 ● 行跑与批量报告相同的规则（{@link CheckerPipeline#defaultRules()}），
+ * 把报错按“第 N 行”分到各译文段。
+ * <p>
+ * 同一个请求方（一般是一个条目视图）连续编辑时只校验最后一次；结果按行文本缓存，
+ * 翻页回来或撤销到旧文本时直接命中。结果通过构造时给的 executor（界面线程）交回，
+ * 请求方被取消或又发了新请求时旧结果丢弃。
+ */
+public final class LiveValidator {
+
+    public static final long DEBOUNCE_MILLIS = 150;
+    private static final int CACHE_SIZE = 4096;
+    private static final Pattern ROW_REFERENCE = Pattern.compile("第 ?(\\d+) ?行");
+
+    /** 一条译文的校验结果，按译文段分组；没有指明段号的报错归到第一段。 */
+    public record Report(List<List<String>> segments) {
+        public List<String> messagesFor(int segment) {
+            return segment < segments.size() ? segments.get(segment) : List.of();
+        }
+
+        public boolean isClean() {
+            return segments.stream().allMatch(List::isEmpty);
+        }
+    }
+
+    private record Key(String translateLine, String originalLine) {
+    }
+
+    private final Executor resultExecutor;
+    private final long debounceMillis;
+    private final ScheduledThreadPoolExecutor worker;
+    private final Map<Object, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final Map<Key, Report> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Report> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public LiveValidator(Executor resultExecutor) {
+        this(resultExecutor, DEBOUNCE_MILLIS);
+    }
+
+    public LiveValidator(Executor resultExecutor, long debounceMillis) {
+        this.resultExecutor = resultExecutor;
+        this.debounceMillis = debounceMillis;
+        this.worker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "spt-live-validation");
+            t.setDaemon(true);
+            return t;
+        });
+        this.worker.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 为 owner 校验一条译文。缓存命中时在调用线程直接回调；否则 debounce 为 true 时等一小段时间，
+     * 期间 owner 的新请求会替换掉这一个。
+     */
+    public void request(Object owner, String translateLine, String originalLine, boolean debounce,
+                        Consumer<Report> callback) {
+        Key key = new Key(translateLine, originalLine);
+        Report cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            cancel(owner);
+            callback.accept(cached);
+            return;
+        }
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        Runnable task = () -> {
+            Report report = validate(translateLine, originalLine);
+            synchronized (cache) {
+                cache.put(key, report);
+            }
+            ScheduledFuture<?> ticket;
+            synchronized (self) {
+                ticket = self[0]; // 等 request 登记完，即使延迟为 0 也不会读到空值
+            }
+            resultExecutor.execute(() -> {
+                if (pending.remove(owner, ticket)) {
+                    callback.accept(report);
+                }
+            });
+        };
+        synchronized (self) {
+            self[0] = worker.schedule(task, debounce ? debounceMillis : 0, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> previous = pending.put(owner, self[0]);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+    }
+
+    /** 放弃 owner 尚未交回的结果。 */
+    public void cancel(Object owner) {
+        ScheduledFuture<?> previous = pending.remove(owner);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /** 规则依赖的数据（如术语表）变了，丢掉已缓存的结果。 */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /** 同步校验，规则与批量报告一致。 */
+    public static Report validate(String translateLine, String originalLine) {
+        LineAnalysis analysis = LineAnalysis.of(translateLine, originalLine);
+        List<List<String>> segments = new ArrayList<>();
+        int rows = Math.max(1, analysis.content == null ? 0 : analysis.segmentCount);
+        for (int i = 0; i < rows; i++) {
+            segments.add(new ArrayList<>());
+        }
+        for (String message : CheckerPipeline.defaultRules().evaluate(analysis)) {
+            Matcher m = ROW_REFERENCE.matcher(message);
+            int row = m.find() ? Integer.parseInt(m.group(1)) - 1 : 0;
+            segments.get(row >= 0 && row < rows ? row : 0).add(message);
+        }
+        return new Report(segments.stream().map(List::copyOf).toList());
+    }
+}
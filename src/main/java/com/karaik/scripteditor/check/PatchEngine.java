@@ -0,0 +1,326 @@
+package com.karaik.scripteditor.check;
+
+import com.karaik.scripteditor.helper.CrashSafeFileSaver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 把 {@link CheckerRunner} 导出的 patch.*.spt.txt 批量写回脚本。
+ * <p>
+ * 补丁文件逐行流式解析，按目标文件分组后并行应用；每个目标只扫描一遍，只为补丁里出现的 ID 建索引，
+ * 换行符原样保留。有改动时通过 {@link CrashSafeFileSaver} 写临时文件、落盘后原子替换，
+ * 中途失败不会留下写了一半的脚本；没有改动的文件不重写。
+ * <p>
+ * 默认在改写前把原文件复制为 {@code <目标>}{@value #BACKUP_SUFFIX}，成功后也保留，批量补丁可据此回退；
+ * 再次打补丁会覆盖上一次的备份。不用 {@code .bak} 是因为它是 {@link CrashSafeFileSaver} 的崩溃恢复标记，
+ * 编辑器打开时会提示恢复、下次保存时会删掉。不需要备份时用 {@link #PatchEngine(Path, int, boolean)} 关闭。
+ * <p>
+ * 同一 ID 在目标中出现多次时只改第一处（与原先一致），并在汇总中列为重复。
+ */
+public final class PatchEngine {
+
+    private static final String FILE_PREFIX = "# FILE:";
+    private static final String ID_PREFIX = "# ID:";
+    private static final String ERR_PREFIX = "# ERR:";
+    public static final String BACKUP_SUFFIX = ".patch.bak";
+
+    /** 补丁里的一行替换。 */
+    public record PatchEntry(String id, boolean translate, String rawLine, List<String> messages) {
+    }
+
+    public record PatchFile(String relativePath, List<PatchEntry> entries, Path path) {
+    }
+
+    /** 单个目标文件的结果。 */
+    public record Outcome(String relativePath, boolean targetFound, int updated, int unchanged,
+                          List<String> missingIds, List<String> duplicateIds) {
+    }
+
+    /** 全部目标的汇总，按相对路径排序。 */
+    public record Summary(List<Outcome> outcomes) {
+
+        public int updated() {
+            return outcomes.stream().mapToInt(Outcome::updated).sum();
+        }
+
+        public int missing() {
+            return outcomes.stream().mapToInt(o -> o.missingIds().size()).sum();
+        }
+
+        public int duplicates() {
+            return outcomes.stream().mapToInt(o -> o.duplicateIds().size()).sum();
+        }
+
+        public String format() {
+            String separator = System.lineSeparator();
+            StringBuilder sb = new StringBuilder();
+            sb.append("补丁完成：").append(outcomes.size()).append(" 个文件，更新 ").append(updated())
+                    .append(" 条，未找到 ").append(missing()).append(" 条，重复 ID ").append(duplicates()).append(" 个")
+                    .append(separator);
+            for (Outcome o : outcomes) {
+                if (!o.targetFound()) {
+                    sb.append("目标文件不存在: ").append(o.relativePath()).append(separator);
+                }
+            }
+            appendIds(sb, "未找到的 ID:", outcomes, Outcome::missingIds, separator);
+            appendIds(sb, "重复的 ID（只改了第一处）:", outcomes, Outcome::duplicateIds, separator);
+            return sb.toString();
+        }
+
+        private static void appendIds(StringBuilder sb, String title, List<Outcome> outcomes,
+                                      Function<Outcome, List<String>> ids, String separator) {
+            if (outcomes.stream().allMatch(o -> ids.apply(o).isEmpty())) {
+                return;
+            }
+            sb.append(title).append(separator);
+            for (Outcome o : outcomes) {
+                for (String id : ids.apply(o)) {
+                    sb.append(" - ").append(o.relativePath()).append(": ").append(id).append(separator);
+                }
+            }
+        }
+    }
+
+    private final Path targetRoot;
+    private final int parallelism;
+    private final boolean keepBackup;
+
+    public PatchEngine(Path targetRoot) {
+        this(targetRoot, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PatchEngine(Path targetRoot, int parallelism) {
+        this(targetRoot, parallelism, true);
+    }
+
+    public PatchEngine(Path targetRoot, int parallelism, boolean keepBackup) {
+        this.targetRoot = targetRoot;
+        this.parallelism = Math.max(1, parallelism);
+        this.keepBackup = keepBackup;
+    }
+
+    public static Path backupOf(Path target) {
+        return target.resolveSibling(target.getFileName().toString() + BACKUP_SUFFIX);
+    }
+
+    /** 应用 resultDir 下的全部补丁文件。 */
+    public Summary applyAll(Path resultDir) throws IOException {
+        return apply(findPatchFiles(resultDir));
+    }
+
+    public Summary apply(List<Path> patchFiles) throws IOException {
+        // 同一目标的补丁合并成一组，避免并行写同一个文件
+        Map<String, List<PatchEntry>> byTarget = new TreeMap<>();
+        for (Path patchFile : patchFiles) {
+            PatchFile parsed = parse(patchFile);
+            if (!parsed.entries().isEmpty()) {
+                byTarget.computeIfAbsent(parsed.relativePath(), k -> new ArrayList<>()).addAll(parsed.entries());
+            }
+        }
+        List<Callable<Outcome>> tasks = new ArrayList<>(byTarget.size());
+        byTarget.forEach((relativePath, entries) -> tasks.add(() -> applyTo(relativePath, entries)));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Outcome> outcomes = new ArrayList<>(tasks.size());
+            for (Future<Outcome> future : pool.invokeAll(tasks)) {
+                outcomes.add(future.get());
+            }
+            return new Summary(List.copyOf(outcomes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("应用补丁被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static List<Path> findPatchFiles(Path resultDir) throws IOException {
+        if (!Files.isDirectory(resultDir)) {
+            return List.of();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(resultDir,
+                SptConstants.PATCH_FILE_PREFIX + "*" + SptConstants.PATCH_FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /** 逐行解析补丁文件；没有 # FILE 头时从文件名还原目标路径。 */
+    public static PatchFile parse(Path patchFile) throws IOException {
+        String targetPath = null;
+        List<PatchEntry> entries = new ArrayList<>();
+        String currentId = null;
+        List<String> currentMessages = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(patchFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(FILE_PREFIX)) {
+                    if (targetPath == null) {
+                        targetPath = line.substring(FILE_PREFIX.length()).trim();
+                    }
+                } else if (line.startsWith(ID_PREFIX)) {
+                    currentId = line.substring(ID_PREFIX.length()).trim();
+                    currentMessages = new ArrayList<>();
+                } else if (line.startsWith(ERR_PREFIX)) {
+                    if (currentId != null) {
+                        currentMessages.add(line.substring(ERR_PREFIX.length()).trim());
+                    }
+                } else if (!line.startsWith("#") && !line.isBlank()) {
+                    String id = currentId;
+                    if (id == null || id.isEmpty()) {
+                        id = SptLineUtils.extractId(line).orElse(null);
+                    }
+                    if (id != null && !id.isBlank()) {
+                        entries.add(new PatchEntry(id, SptLineUtils.isTranslateLine(line), line,
+                                List.copyOf(currentMessages)));
+                    }
+                    currentId = null;
+                    currentMessages = new ArrayList<>();
+                }
+            }
+        }
+        if (targetPath == null || targetPath.isEmpty()) {
+            targetPath = inferRelativePath(patchFile.getFileName().toString());
+        }
+        if (targetPath.isEmpty()) {
+            throw new IllegalStateException("无法确定补丁对应的目标文件: " + patchFile);
+        }
+        return new PatchFile(targetPath, List.copyOf(entries), patchFile);
+    }
+
+    private Outcome applyTo(String relativePath, List<PatchEntry> entries) throws IOException {
+        Path target = targetRoot.resolve(relativePath);
+        if (!Files.isRegularFile(target)) {
+            Set<String> ids = new LinkedHashSet<>();
+            entries.forEach(e -> ids.add(e.id()));
+            return new Outcome(relativePath, false, 0, 0, List.copyOf(ids), List.of());
+        }
+
+        Set<String> wantedTranslate = new HashSet<>();
+        Set<String> wantedOriginal = new HashSet<>();
+        for (PatchEntry entry : entries) {
+            (entry.translate() ? wantedTranslate : wantedOriginal).add(entry.id());
+        }
+
+        // 一遍扫描：记下每行的起止（不含换行符），只为补丁涉及的 ID 建索引
+        String content = Files.readString(target, StandardCharsets.UTF_8);
+        List<int[]> lines = new ArrayList<>();
+        Map<String, Integer> translateIndex = new HashMap<>();
+        Map<String, Integer> originalIndex = new HashMap<>();
+        Set<String> duplicates = new LinkedHashSet<>();
+        int start = 0;
+        int length = content.length();
+        while (start < length) {
+            int end = start;
+            while (end < length && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+                end++;
+            }
+            int next = end;
+            if (next < length && content.charAt(next) == '\r') {
+                next++;
+            }
+            if (next < length && content.charAt(next) == '\n') {
+                next++;
+            }
+            char marker = end > start ? content.charAt(start) : 0;
+            if (marker == SptConstants.MARK_TRANSLATE_CHAR || marker == SptConstants.MARK_ORIGINAL_CHAR) {
+                int idEnd = content.indexOf(marker, start + 1);
+                if (idEnd > start + 1 && idEnd < end) {
+                    boolean translate = marker == SptConstants.MARK_TRANSLATE_CHAR;
+                    String id = content.substring(start + 1, idEnd);
+                    if ((translate ? wantedTranslate : wantedOriginal).contains(id)
+                            && (translate ? translateIndex : originalIndex).putIfAbsent(id, lines.size()) != null) {
+                        duplicates.add(id);
+                    }
+                }
+            }
+            lines.add(new int[]{start, end});
+            start = next;
+        }
+
+        String[] replacements = new String[lines.size()];
+        Set<String> missing = new LinkedHashSet<>();
+        int unchanged = 0;
+        for (PatchEntry entry : entries) {
+            Integer index = (entry.translate() ? translateIndex : originalIndex).get(entry.id());
+            if (index == null) {
+                missing.add(entry.id());
+                continue;
+            }
+            int[] span = lines.get(index);
+            String current = replacements[index] != null ? replacements[index] : content.substring(span[0], span[1]);
+            if (current.equals(entry.rawLine())) {
+                unchanged++;
+                continue;
+            }
+            replacements[index] = entry.rawLine();
+        }
+
+        int updated = 0;
+        StringBuilder out = null;
+        int copied = 0;
+        for (int i = 0; i < replacements.length; i++) {
+            if (replacements[i] == null) {
+                continue;
+            }
+            int[] span = lines.get(i);
+            if (out == null) {
+                out = new StringBuilder(length + 256);
+            }
+            out.append(content, copied, span[0]).append(replacements[i]);
+            copied = span[1];
+            updated++;
+        }
+        if (out != null) {
+            out.append(content, copied, length);
+            if (keepBackup) {
+                Files.copy(target, backupOf(target), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            CrashSafeFileSaver.saveWithBak(out.toString().getBytes(StandardCharsets.UTF_8), target.toFile());
+        }
+        return new Outcome(relativePath, true, updated, unchanged, List.copyOf(missing), List.copyOf(duplicates));
+    }
+
+    static String inferRelativePath(String fileName) {
+        if (!fileName.startsWith(SptConstants.PATCH_FILE_PREFIX)
+                || !fileName.endsWith(SptConstants.PATCH_FILE_SUFFIX)) {
+            return "";
+        }
+        String core = fileName.substring(SptConstants.PATCH_FILE_PREFIX.length(),
+                fileName.length() - SptConstants.PATCH_FILE_SUFFIX.length());
+        return core.replace(SptConstants.PATCH_PATH_SEPARATOR, "/") + SptConstants.PATCH_FILE_SUFFIX;
+    }
+}
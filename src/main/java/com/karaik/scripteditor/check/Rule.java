@@ -0,0 +1,31 @@
+package com.karaik.scripteditor.check;
+
+import java.util.List;
+
+/**
+ * 一条译文校验规则。实现类登记在 META-INF/services/com.karaik.scripteditor.check.Rule 中，
+ * 由 {@link RuleSet#load()} 通过 ServiceLoader 发现，按登记顺序执行；需要公开的无参构造。
+ * <p>
+ * 规则必须无状态、可在多个线程上同时调用：批量检查并行执行，编辑器在后台线程校验。
+ */
+public interface Rule {
+
+    /** 配置文件里使用的规则名，如 format、symbol。 */
+    String id();
+
+    /** 规则逻辑的版本号，报错内容会变的修改须递增，批量检查的结果缓存随之失效。 */
+    default int version() {
+        return 1;
+    }
+
+    /**
+     * 规则读取的外部数据（名单、词表等）的摘要，不依赖外部数据时为空串。
+     * 与 {@link #version()} 一起计入 {@link RuleSet#version()}，数据改了批量检查的结果缓存同样失效。
+     */
+    default String fingerprint() {
+        return "";
+    }
+
+    /** 返回本条规则的报错；没有问题时返回空列表。 */
+    List<String> check(LineAnalysis analysis);
+}
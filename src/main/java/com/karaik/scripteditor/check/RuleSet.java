@@ -0,0 +1,160 @@
+package com.karaik.scripteditor.check;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 一组启用的校验规则及其运行统计。
+ * <p>
+ * {@link #load()} 用 ServiceLoader 找到所有 {@link Rule}，再按配置文件开关：默认读取类路径下的
+ * rules.properties，可用系统属性 spt.rules.config 指向其他文件；spt.rules.fast=true 时再跳过 fast.skip 列出的规则。
+ * <p>
+ * 每条规则累计调用次数、命中次数（报出至少一条错误的行数）和耗时，可多线程同时更新，
+ * 由 {@link #metricsReport()} 导出，用来看哪些规则占了检查时间。
+ */
+public final class RuleSet {
+
+    public static final String CONFIG_PROPERTY = "spt.rules.config";
+    public static final String FAST_PROPERTY = "spt.rules.fast";
+    static final String CONFIG_RESOURCE = "/com/karaik/scripteditor/check/rules.properties";
+
+    /** 单条规则的统计快照。 */
+    public record Stats(String id, long invocations, long hits, long nanos) {
+    }
+
+    private static final class Entry {
+        final Rule rule;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        Entry(Rule rule) {
+            this.rule = rule;
+        }
+    }
+
+    private final Entry[] entries;
+
+    private RuleSet(List<Rule> rules) {
+        this.entries = rules.stream().map(Entry::new).toArray(Entry[]::new);
+    }
+
+    /** 直接使用给定的规则，不读配置。 */
+    public static RuleSet of(List<Rule> rules) {
+        return new RuleSet(rules);
+    }
+
+    /** 按系统属性指定的配置加载。 */
+    public static RuleSet load() {
+        return load(readConfig(), Boolean.getBoolean(FAST_PROPERTY));
+    }
+
+    public static RuleSet load(Properties config, boolean fast) {
+        Set<String> skipped = fast ? Arrays.stream(config.getProperty("fast.skip", "").split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet()) : Set.of();
+        List<Rule> rules = new ArrayList<>();
+        for (Rule rule : ServiceLoader.load(Rule.class, RuleSet.class.getClassLoader())) {
+            boolean enabled = Boolean.parseBoolean(config.getProperty(rule.id() + ".enabled", "true").trim());
+            if (enabled && !skipped.contains(rule.id())) {
+                rules.add(rule);
+            }
+        }
+        return new RuleSet(rules);
+    }
+
+    private static Properties readConfig() {
+        Properties config = new Properties();
+        String external = System.getProperty(CONFIG_PROPERTY);
+        if (external != null && !external.isBlank()) {
+            Path path = Paths.get(external);
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                config.load(reader);
+                return config;
+            } catch (IOException e) {
+                System.err.println("读取规则配置失败，改用默认配置: " + path + " " + e.getMessage());
+            }
+        }
+        try (InputStream in = RuleSet.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                config.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("读取默认规则配置失败，全部规则启用: " + e.getMessage());
+        }
+        return config;
+    }
+
+    public List<String> ruleIds() {
+        return Arrays.stream(entries).map(e -> e.rule.id()).toList();
+    }
+
+    /**
+     * 规则集的版本：启用的规则及其版本号，按执行顺序，如 {@code format@1,symbol@1}；
+     * 规则有外部数据时再带上数据摘要，如 {@code glossary@1#3f0a…}。
+     */
+    public String version() {
+        return Arrays.stream(entries).map(e -> {
+            String fingerprint = e.rule.fingerprint();
+            return e.rule.id() + "@" + e.rule.version() + (fingerprint.isEmpty() ? "" : "#" + fingerprint);
+        }).collect(Collectors.joining(","));
+    }
+
+    /** 依次执行启用的规则，报错按规则顺序拼接。 */
+    public List<String> evaluate(LineAnalysis analysis) {
+        List<String> messages = new ArrayList<>();
+        for (Entry entry : entries) {
+            long start = System.nanoTime();
+            List<String> found = entry.rule.check(analysis);
+            entry.nanos.add(System.nanoTime() - start);
+            entry.invocations.increment();
+            if (!found.isEmpty()) {
+                entry.hits.increment();
+                messages.addAll(found);
+            }
+        }
+        return messages;
+    }
+
+    /** 按规则顺序返回统计快照。 */
+    public List<Stats> stats() {
+        return Arrays.stream(entries)
+                .map(e -> new Stats(e.rule.id(), e.invocations.sum(), e.hits.sum(), e.nanos.sum()))
+                .toList();
+    }
+
+    public void resetStats() {
+        for (Entry entry : entries) {
+            entry.invocations.reset();
+            entry.hits.reset();
+            entry.nanos.reset();
+        }
+    }
+
+    /** 统计表，按累计耗时从高到低排列。 */
+    public String metricsReport() {
+        String separator = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-12s %12s %12s %14s %12s", "规则", "调用次数", "命中次数", "累计耗时(ms)", "平均(ns)"))
+                .append(separator);
+        stats().stream()
+                .sorted(Comparator.comparingLong(Stats::nanos).reversed())
+                .forEach(s -> sb.append(String.format("%-12s %12d %12d %14.3f %12d", s.id(), s.invocations(), s.hits(),
+                        s.nanos() / 1e6, s.invocations() == 0 ? 0 : s.nanos() / s.invocations())).append(separator));
+        return sb.toString();
+    }
+}
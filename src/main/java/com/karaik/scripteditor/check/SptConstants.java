@@ -1,4 +1,4 @@
-package checkSolution;
+package com.karaik.scripteditor.check;
 
 import java.util.regex.Pattern;
 
@@ -23,4 +23,6 @@ public final class SptConstants {
     public static final String PATCH_FILE_SUFFIX = ".spt.txt";
     public static final String PATCH_PATH_SEPARATOR = "___";
     public static final String REPORT_FILE_NAME = "report.all.txt";
+    public static final String METRICS_FILE_NAME = "rule.metrics.txt";
+    public static final String CACHE_FILE_NAME = "check.cache";
 }
@@ -1,11 +1,11 @@
-package checkSolution;
+package com.karaik.scripteditor.check;
 
 import java.util.Optional;
 
-import static checkSolution.SptConstants.MARK_ORIGINAL;
-import static checkSolution.SptConstants.MARK_ORIGINAL_CHAR;
-import static checkSolution.SptConstants.MARK_TRANSLATE;
-import static checkSolution.SptConstants.MARK_TRANSLATE_CHAR;
+import static com.karaik.scripteditor.check.SptConstants.MARK_ORIGINAL;
+import static com.karaik.scripteditor.check.SptConstants.MARK_ORIGINAL_CHAR;
+import static com.karaik.scripteditor.check.SptConstants.MARK_TRANSLATE;
+import static com.karaik.scripteditor.check.SptConstants.MARK_TRANSLATE_CHAR;
 
 /**
  * 行工具方法集中在这里，方便通过注释掉调用方的工具引用来关闭 ID 判定能力。
@@ -0,0 +1,184 @@
+package com.karaik.scripteditor.check;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 符号规则校验集合。
+ * 以 {@link SymbolRule}（规则名 symbol）接入 {@link RuleSet}，暂时不需要时在 rules.properties 中设 symbol.enabled=false。
+ *
+ * 规则摘要：
+ *  1. 禁止出现“！？”或半角 ?! 组合；
+ *  2. 仅允许全角 ～ 波浪线；
+ *  3. 顿号前后必须是同一字符；
+ *  4. 若逗号前后字符相同则应改为顿号；
+ *  5. 仅允许全角破折号 ― 且需成对出现；
+ *  6. 禁止所有半角符号；
+ *  7. 引号必须使用中文“”并保持成对；
+ *  8. 除对话开头外禁止出现半角或非开头全角空格；
+ *  9. 省略号需要成双成对出现。
+ * 说话人是否在 namecol.xtx.txt 中定义由 {@link GlossaryRule} 检查。
+ *
+ * 字符级规则不再逐条扫描正文，而是读取 {@link LineAnalysis} 一趟扫描记下的结果，报错顺序不变。
+ */
+public final class SymbolChecker {
+
+    private SymbolChecker() {
+    }
+
+    public static List<String> sptCheckSymbol(String line, String originalLine) {
+        return sptCheckSymbol(LineAnalysis.of(line, originalLine));
+    }
+
+    public static List<String> sptCheckSymbol(LineAnalysis analysis) {
+        List<String> errors = new ArrayList<>();
+        if (!analysis.hasContent()) {
+            return errors;
+        }
+
+        String content = analysis.content;
+        int segmentCount = analysis.segmentCount;
+
+        // 核心格式判断（带名字的对话 / 内心独白）已在 LineAnalysis 中完成
+        boolean isDialogWithSpeaker = analysis.dialogWithSpeaker;
+        boolean isMonologue = analysis.monologue;
+
+        // 1. 禁止“！？”或“?!”配对（全角或半角）
+        if (analysis.bangQuestion) {
+            errors.add("错误：问号应该在感叹号前且应该都为全角");
+        }
+
+        // 2. 禁止非法波浪线（仅允许全角 ～）
+        if (analysis.badTildes != null) {
+            for (int i = 0; i < analysis.badTildes.length(); i++) {
+                errors.add("错误：禁止使用非法波浪线 ‘ " + analysis.badTildes.charAt(i) + " ’ ，仅允许使用全角“～”");
+            }
+        }
+
+        // 3. 顿号必须两字相同；逗号若两字相同应为顿号
+//        String fullText = analysis.fullText();
+//        for (int i = 1; i < fullText.length() - 1; i++) {
+//            char prev = fullText.charAt(i - 1);
+//            char curr = fullText.charAt(i);
+//            char next = fullText.charAt(i + 1);
+//
+//            if (curr == '、' && prev != next) {
+//                errors.add("错误：顿号‘、’前后两个字不一致，应为相同字");
+//                break;
+//            } else if (curr == '，' && prev == next) {
+//                errors.add("错误：逗号‘，’前后两个字相同，应为顿号‘、’");
+//                break;
+//            }
+//        }
+
+        // 4. 破折号：仅允许使用 ―（U+2015），其它破折号全不允许，且必须成对出现
+//        long countValidDash = content.chars().filter(c -> c == '―').count();
+//        if (countValidDash != 0 && countValidDash != 2) {
+//            errors.add("错误：破折号‘―’必须成对出现，且应为两个");
+//        }
+        for (int k = 0; k < LineAnalysis.BAD_DASHES.length(); k++) {
+            if ((analysis.dashMask & (1 << k)) != 0) {
+                errors.add("错误：出现非法破折号 ‘ " + LineAnalysis.BAD_DASHES.charAt(k) + " ’ ，仅允许使用“―”（U+2015）");
+            }
+        }
+
+        // 5. 禁止所有半角符号（ASCII 符号）
+        if (analysis.halfSymbols != null) {
+            for (int i = 0; i < analysis.halfSymbols.length(); i++) {
+                errors.add("错误：出现非法半角符号 ‘ " + analysis.halfSymbols.charAt(i) + " ’ ");
+            }
+        }
+
+        // 6. 禁止非法引号，仅允许 “”；带名字的对话忽略开头的「」『』（）这一段
+        for (int i = 0; i < analysis.badQuoteCount; i++) {
+            int position = analysis.badQuotes[i];
+            if (position >= analysis.skipFrom && position <= analysis.skipTo) {
+                continue;
+            }
+            errors.add("错误：禁止使用引号 ‘ " + content.charAt(position) + " ’ ，仅允许使用中文引号 “” ，和全角括号（）");
+        }
+        if (analysis.quoteOpen != analysis.quoteClose) {
+            errors.add("错误：中文引号 “ 与 ” 不成对");
+        }
+
+        // 7. 整合后的空格与缩进规则
+        for (int i = 0; i < segmentCount; i++) {
+            int start = analysis.segmentStart[i];
+            int end = analysis.segmentEnd[i];
+
+            // 7.1. 通用规则：禁止半角空格和行尾全角空格
+            if (analysis.halfSpace[i]) {
+                errors.add("错误：第 " + (i + 1) + " 行包含半角空格");
+            }
+            if (end > start && content.charAt(end - 1) == '　') {
+                errors.add("错误：第 " + (i + 1) + " 行不允许以全角空格结尾");
+            }
+
+            // 7.2. 缩进规则：根据文本类型进行判断
+            int leadingFW = analysis.leadingSpaces[i];
+
+            if (isDialogWithSpeaker) {
+                // 带名字的对话：第1行(名字)和第2行(对话开头)不缩进，后续行必须缩进
+                if (i == 0) { // 第1行是名字，不允许缩进
+                    if (leadingFW > 0) errors.add("错误：第 " + (i + 1) + " 行（说话人）不允许以空格开头");
+                } else if (i >= 2) { // 对话从第3行起 (数组索引为2) 必须缩进
+                    if (leadingFW < 1) errors.add("错误：第 " + (i + 1) + " 行（对话内容）开头必须至少有 1 个全角空格");
+                }
+            } else if (isMonologue) {
+                // 内心独白：第1行不缩进，后续行必须且仅有1个空格
+                if (i >= 1) {
+                    if (leadingFW != 1) {
+                        errors.add("错误：第 " + (i + 1) + " 行（内心独白）开头必须有且仅有 1 个全角空格 (当前 " + leadingFW + " 个)");
+                    }
+                }
+            } else {
+                // 普通文本：任何行都不允许开头有空格
+                if (leadingFW > 0) {
+                    errors.add("错误：第 " + (i + 1) + " 行（普通文本）不允许以空格开头");
+                }
+            }
+        }
+
+        // 8. 省略号应该是两个两个一组出现……
+//        Matcher matcher = ELLIPSIS_PATTERN.matcher(content);
+//        while (matcher.find()) {
+//            int len = matcher.group().length();
+//            if (len % 2 != 0) {
+//                errors.add("错误：省略号连续出现‘…’的数量应该为2的倍数，当前为 " + len + " 个");
+//            }
+//        }
+
+        // 10. 检查换行符前是否有标点符号，标点符号只能为以下的几个
+        // ，。……～！？―」』）”、
+        // 如果不是，就要像之前的check规则一样报错，显示出换行符前的第一个字符是什么
+        String allowed = "，。……～！？―」』）”、";
+        int startIdx = isDialogWithSpeaker ? 1 : 0; // 如果是带名字对话，跳过名字行
+        for (int i = startIdx; i < segmentCount; i++) {
+            int start = analysis.segmentStart[i];
+
+            // 找到最后一个非空格字符的位置
+            int idx = analysis.segmentEnd[i] - 1;
+            while (idx >= start && content.charAt(idx) == '　') idx--;
+            if (idx < start) continue; // 空行或整行都是空格
+
+            char innerLast = content.charAt(idx);
+
+            // 检查是否为呐喊/长音的情况
+            // 条件1: 当前行不能是整个文本块的最后一行
+            // 条件2: 行尾至少有4个连续相同的字符 (例如: 哦哦哦哦)
+            boolean isRepetitiveShout = i < segmentCount - 1
+                    && idx - 3 >= start
+                    && content.charAt(idx - 1) == innerLast
+                    && content.charAt(idx - 2) == innerLast
+                    && content.charAt(idx - 3) == innerLast;
+
+            // 如果不满足豁免条件，并且行尾字符不在允许列表中，则报错
+            if (!isRepetitiveShout && !LineAnalysis.isLineEndPunct(innerLast)) {
+                errors.add("错误：第 " + (i + 1) + " 行换行符前应为标点（仅允许 " + allowed + "） ，当前为‘ " + innerLast + " ’");
+            }
+        }
+
+        return errors;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.karaik.scripteditor.check;
+
+import java.util.List;
+
+/** 符号规则，见 {@link SymbolChecker}。 */
+public final class SymbolRule implements Rule {
+
+    @Override
+    public String id() {
+        return "symbol";
+    }
+
+    @Override
+    public List<String> check(LineAnalysis analysis) {
+        return SymbolChecker.sptCheckSymbol(analysis);
+    }
+}
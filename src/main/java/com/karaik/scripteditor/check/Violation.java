@@ -1,4 +1,4 @@
-package checkSolution;
+package com.karaik.scripteditor.check;
 
 import java.util.List;
 
@@ -0,0 +1,135 @@
+package com.karaik.scripteditor.controller;
+
+import com.karaik.scripteditor.check.BlueprintAligner;
+import com.karaik.scripteditor.check.SptLineUtils;
+import com.karaik.scripteditor.entry.SptEntry;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.stage.FileChooser;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * “对照蓝本”：把当前文件各条目的原文与蓝本文件按差分对齐，标出插入、缺失或改动的条目。
+ * 结果只对当时打开的文件有效，切换文件后不再显示。
+ */
+@RequiredArgsConstructor
+public class BlueprintController {
+
+    private final EditorController editorController;
+
+    private File alignedFile;
+    private Map<String, String> drift = Map.of();
+
+    public void chooseBlueprint() {
+        File current = editorController.getCurrentFile();
+        if (current == null || editorController.getEntries().isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "请先打开要对照的文件。");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("选择蓝本文件");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("文本文件", "*.txt"));
+        if (current.getParentFile() != null && current.getParentFile().exists()) {
+            chooser.setInitialDirectory(current.getParentFile());
+        }
+        File blueprint = chooser.showOpenDialog(editorController.getPrimaryStage());
+        if (blueprint != null) {
+            align(current, blueprint);
+        }
+    }
+
+    /** 原文行在界面线程上拼好，对齐放到后台。 */
+    public void align(File current, File blueprint) {
+        List<SptEntry> entries = editorController.getEntries();
+        List<String> lines = new ArrayList<>(entries.size());
+        for (SptEntry entry : entries) {
+            StringBuilder line = new StringBuilder("○");
+            entry.appendMeta(line);
+            line.append("○ ");
+            entry.appendFullOriginalText(line);
+            lines.add(line.toString());
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                List<String> blueprintLines = Files.readAllLines(blueprint.toPath(), StandardCharsets.UTF_8).stream()
+                        .filter(SptLineUtils::isOriginalLine)
+                        .collect(Collectors.toList());
+                List<BlueprintAligner.Change> changes = BlueprintAligner.align(lines, blueprintLines);
+                Platform.runLater(() -> show(current, lines, changes));
+            } catch (IOException e) {
+                System.err.println("读取蓝本失败: " + blueprint + " " + e.getMessage());
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "读取蓝本失败：" + e.getMessage()));
+            }
+        }, "blueprint-aligner");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void show(File current, List<String> lines, List<BlueprintAligner.Change> changes) {
+        if (!current.equals(editorController.getCurrentFile())) return;
+        Map<String, String> messages = new HashMap<>();
+        int inserted = 0;
+        int deleted = 0;
+        int modified = 0;
+        int first = -1;
+        for (BlueprintAligner.Change change : changes) {
+            // 缺失的行记在其后的条目上，文件末尾缺失的记在最后一条
+            int ordinal = Math.min(change.lineIndex(), lines.size() - 1);
+            String message = switch (change.kind()) {
+                case INSERTED -> {
+                    inserted++;
+                    yield "蓝本中没有这条原文";
+                }
+                case DELETED -> {
+                    deleted++;
+                    yield (change.lineIndex() < lines.size() ? "此条之前" : "此条之后") + "缺少蓝本原文："
+                            + change.blueprintLine();
+                }
+                case MODIFIED -> {
+                    modified++;
+                    yield "原文与蓝本不一致，蓝本：" + change.blueprintLine();
+                }
+            };
+            String id = SptLineUtils.extractId(lines.get(ordinal)).orElse(null);
+            if (id != null) {
+                messages.merge(id, message, (a, b) -> a + "\n" + b);
+            }
+            first = first < 0 ? ordinal : Math.min(first, ordinal);
+        }
+        this.alignedFile = current;
+        this.drift = messages;
+        editorController.getEntryListView().refresh();
+
+        if (changes.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "原文与蓝本完全一致。");
+            return;
+        }
+        showAlert(Alert.AlertType.WARNING, "与蓝本对照：多出 " + inserted + " 条，缺少 " + deleted + " 条，改动 "
+                + modified + " 条。已标出相关条目，并跳到第一处。");
+        editorController.jumpToEntry(first);
+    }
+
+    /** 条目与蓝本的差异说明，没有差异或结果已过期时返回 null。 */
+    public String driftOf(SptEntry entry) {
+        if (alignedFile == null || !alignedFile.equals(editorController.getCurrentFile())) return null;
+        StringBuilder id = new StringBuilder();
+        entry.appendMeta(id);
+        return drift.get(id.toString());
+    }
+
+    private void showAlert(Alert.AlertType type, String message) {
+        Alert alert = new Alert(type, message);
+        editorController.configureAlertOnTop(alert);
+        alert.showAndWait();
+    }
+}
@@ -1,7 +1,11 @@
 package com.karaik.scripteditor.controller;
 
+import com.karaik.scripteditor.check.LiveValidator;
+import com.karaik.scripteditor.entry.MappedSptEntryList;
+import com.karaik.scripteditor.entry.SptDocument;
 import com.karaik.scripteditor.entry.SptEntry;
 import com.karaik.scripteditor.helper.*; // 假设这些 helper 类存在且路径正确
+import com.karaik.scripteditor.search.SearchIndex;
 import com.karaik.scripteditor.ui.SptEntryListCell;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -27,16 +31,31 @@ public class EditorController {
     @FXML private TextField pageInputField;
     @FXML private ComboBox<Integer> itemsPerPageComboBox;
     @FXML private CheckBox alwaysOnTopCheckBox;
+    @FXML private CheckBox continuousModeCheckBox;
+    @FXML private TreeView<File> workspaceTree;
+    @FXML private TextField searchField;
+    @FXML private ListView<SearchIndex.Hit> searchResultList;
 
     private File currentFile;
     private List<SptEntry> entries = new ArrayList<>();
+    private SptDocument document; // 当前条目来自的文档，为空时只能整文件重写
+    private EditJournal journal; // 当前文档的编辑日志，可能为空
     private boolean modified = false;
+    private long editGeneration; // 每次标记修改都递增，后台保存据此判断保存期间是否又有新修改
+    private String saveStatus = ""; // 标题栏上显示的保存状态
     private Stage primaryStage;
 
     private FileHandlerController fileHandlerController;
     private PaginationUIController paginationUIController;
+    private WorkspaceController workspaceController;
+    private SearchController searchController;
+    private PropagationController propagationController;
+    private BlueprintController blueprintController;
+    // 条目视图共用的实时校验服务，结果回到界面线程
+    private final LiveValidator liveValidator = new LiveValidator(Platform::runLater);
 
     private int itemsPerPage = 3; // 默认值
+    private boolean continuousMode = false; // 连续滚动：一个列表显示全部条目，页码只作指示
     private AtomicBoolean isRendering = new AtomicBoolean(false);
     private long lastPageChangeTime = 0;
     public static final long PAGE_CHANGE_COOLDOWN = 150;
@@ -50,7 +69,11 @@ public class EditorController {
         loadPreferencesForStartup();
 
         if (entryListView != null) {
-            entryListView.setCellFactory(listView -> new SptEntryListCell(() -> markModified(true)));
+            entryListView.setCellFactory(listView -> new SptEntryListCell(() -> markModified(true),
+                    original -> searchController.suggest(original),
+                    (entry, segment) -> propagationController.propagate(entry, segment),
+                    liveValidator,
+                    entry -> blueprintController.driftOf(entry)));
             entryListView.setPlaceholder(new Label("正在加载或无内容可显示..."));
             ScrollSpeedHelper.install(entryListView, MOUSE_WHEEL_SCROLL_MULTIPLIER);
         } else {
@@ -61,6 +84,9 @@ public class EditorController {
 
         setupControllers();
         setupItemsPerPageComboBox();
+        if (continuousModeCheckBox != null) {
+            continuousModeCheckBox.setSelected(continuousMode);
+        }
         setupPageJumpField();
         setupPaginationListener(); // 确保在 paginationUIController.setupPagination() 之前
         setupUIAfterLoad(); // 这个方法会调用 paginationUIController.setupPagination()
@@ -70,6 +96,12 @@ public class EditorController {
         // 确保在 EditorController 的成员变量被 FXML 注入（如 pagination, entryListView）之后再创建这些控制器
         this.fileHandlerController = new FileHandlerController(this);
         this.paginationUIController = new PaginationUIController(this);
+        this.workspaceController = new WorkspaceController(this);
+        this.workspaceController.setupTree();
+        this.searchController = new SearchController(this);
+        this.searchController.setupSearch();
+        this.propagationController = new PropagationController(this);
+        this.blueprintController = new BlueprintController(this);
     }
 
     private void setupItemsPerPageComboBox() {
@@ -137,8 +169,9 @@ public class EditorController {
                 KeyboardNavigationHelper.setupKeyboardShortcuts(primaryStage, this);
                 StageCloseHandler.attach(
                         primaryStage,
-                        () -> this.modified,
-                        () -> fileHandlerController.saveFile(),
+                        () -> this.modified || fileHandlerController.hasUnsavedCachedDocuments(),
+                        () -> fileHandlerController.saveFileAndWait(),
+                        () -> fileHandlerController.awaitPendingSave(),
                         () -> primaryStage.close(),
                         this
                 );
@@ -155,6 +188,8 @@ public class EditorController {
                     paginationUIController.setupPagination();
                 }
 
+                workspaceController.restoreWorkspace();
+
                 File lastFile = getLastOpenedFile();
                 if (lastFile != null && lastFile.exists()) {
                     fileHandlerController.openSpecificFile(lastFile); // 这会触发 updatePaginationView
@@ -177,6 +212,9 @@ public class EditorController {
     }
 
     public boolean canChangePage() {
+        if (continuousMode) {
+            return true; // 连续模式翻页只是滚动，不重建列表，无需冷却
+        }
         long currentTime = System.currentTimeMillis();
         boolean rendering = (isRendering != null) && isRendering.get();
         return !rendering && (currentTime - lastPageChangeTime) >= PAGE_CHANGE_COOLDOWN;
@@ -193,6 +231,7 @@ public class EditorController {
 
     private void loadPreferencesForStartup() {
         this.itemsPerPage = AppPreferenceHelper.loadItemsPerPage(this.itemsPerPage > 0 ? this.itemsPerPage : 3); // 确保 itemsPerPage > 0
+        this.continuousMode = AppPreferenceHelper.loadContinuousMode();
     }
 
     @FXML
@@ -204,6 +243,17 @@ public class EditorController {
         }
     }
 
+    @FXML
+    private void handleContinuousModeToggle() {
+        if (continuousModeCheckBox == null || continuousModeCheckBox.isSelected() == continuousMode) return;
+        continuousMode = continuousModeCheckBox.isSelected();
+        AppPreferenceHelper.saveContinuousMode(continuousMode);
+        if (paginationUIController != null && pagination != null) {
+            // 停在当前页：分页模式重新加载该页，连续模式滚到该页开头
+            paginationUIController.loadDataForPage(pagination.getCurrentPageIndex());
+        }
+    }
+
     public void configureAlertOnTop(Alert alert) {
         if (primaryStage != null && alert != null) { // 添加 alert null 检查
             alert.initOwner(primaryStage);
@@ -220,6 +270,9 @@ public class EditorController {
 
     @FXML private void handleOpenFile() { if(fileHandlerController != null) fileHandlerController.openFile(); }
     @FXML private void handleSaveFile() { if(fileHandlerController != null) fileHandlerController.saveFile(); }
+    @FXML private void handleRestoreSnapshot() { if(fileHandlerController != null) fileHandlerController.restoreHistorySnapshot(); }
+    @FXML private void handleOpenWorkspace() { if(workspaceController != null) workspaceController.chooseWorkspace(); }
+    @FXML private void handleCompareBlueprint() { if(blueprintController != null) blueprintController.chooseBlueprint(); }
 
     @FXML
     private void handleJumpToPage() {
@@ -249,8 +302,50 @@ public class EditorController {
         ClipboardHelper.copyEntriesToClipboard(entries, start, end, primaryStage, this);
     }
 
+    public void setDocument(SptDocument newDocument) {
+        SptDocument previous = this.document;
+        this.document = newDocument;
+        setEntries(newDocument != null ? newDocument.getEntries() : new ArrayList<>());
+        if (previous != null && previous != newDocument) {
+            previous.close();
+        }
+    }
+
+    /**
+     * 把当前文档和日志交给调用方（放进文档缓存），不关闭它们；之后的 setDocument 不会再关闭它。
+     */
+    public void detachDocument() {
+        this.document = null;
+        this.journal = null;
+        this.saveStatus = "";
+    }
+
+    public void setJournal(EditJournal newJournal) {
+        if (this.journal != null && this.journal != newJournal) {
+            this.journal.close();
+        }
+        this.journal = newJournal;
+    }
+
+    /** 用户放弃未保存的修改时连同日志一起删除。 */
+    public void discardJournal() {
+        if (this.journal != null) {
+            this.journal.discard();
+            this.journal = null;
+        }
+    }
+
     public void setEntries(List<SptEntry> newEntries) {
-        this.entries = newEntries != null ? new ArrayList<>(newEntries) : new ArrayList<>();
+        if (document != null && newEntries != document.getEntries()) {
+            // 条目不再来自当前文档，快照随之作废
+            document.close();
+            document = null;
+        }
+        if (newEntries instanceof MappedSptEntryList) {
+            this.entries = newEntries; // 懒加载列表不能拷贝，否则会一次性解析出全部条目
+        } else {
+            this.entries = newEntries != null ? new ArrayList<>(newEntries) : new ArrayList<>();
+        }
         markModified(false);
         if (paginationUIController != null) {
             paginationUIController.updatePaginationView();
@@ -268,6 +363,9 @@ public class EditorController {
     }
 
     public void markModified(boolean modifiedState) {
+        if (modifiedState) {
+            editGeneration++;
+        }
         if (this.modified != modifiedState) {
             this.modified = modifiedState;
             updateTitle();
@@ -277,10 +375,15 @@ public class EditorController {
     private void updateTitle() {
         if (primaryStage != null) {
             String fileName = (currentFile != null) ? currentFile.getName() : "请选择文件";
-            primaryStage.setTitle((modified ? "*" : "") + fileName + " - 虫爱少女汉化文本编辑器");
+            primaryStage.setTitle((modified ? "*" : "") + fileName + saveStatus + " - 虫爱少女汉化文本编辑器");
         }
     }
 
+    public void setSaveStatus(String saveStatus) {
+        this.saveStatus = saveStatus != null ? saveStatus : "";
+        updateTitle();
+    }
+
     public void rememberFile(File file) { AppPreferenceHelper.saveLastFile(file); }
     public File getLastOpenedFile() { return AppPreferenceHelper.loadLastFile(); }
 
@@ -310,6 +413,23 @@ public class EditorController {
         lastPageChangeTime = System.currentTimeMillis();
     }
 
+    /** 翻到第 ordinal 个条目所在的页，并在列表里选中它。 */
+    public void jumpToEntry(int ordinal) {
+        if (pagination == null || ordinal < 0 || ordinal >= entries.size()) return;
+        int page = ordinal / getItemsPerPage();
+        if (pagination.getCurrentPageIndex() != page) {
+            pagination.setCurrentPageIndex(page);
+        }
+        int row = paginationUIController.rowOf(ordinal);
+        if (entryListView != null) {
+            // 分页模式下页面内容在 loadDataForPage 的 runLater 里才填入
+            Platform.runLater(() -> {
+                entryListView.scrollTo(row);
+                entryListView.getSelectionModel().select(row);
+            });
+        }
+    }
+
     public ListView<SptEntry> getEntryListView() { return entryListView; }
     public Pagination getPagination() { return pagination; }
     public List<SptEntry> getEntries() { return entries; }
@@ -1,31 +1,71 @@
 package com.karaik.scripteditor.controller;
 
+import com.karaik.scripteditor.entry.SptDocument;
 import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.helper.BackgroundSaver;
 import com.karaik.scripteditor.helper.CrashSafeFileSaver;
-import com.karaik.scripteditor.util.SptWriter;
+import com.karaik.scripteditor.helper.DocumentCache;
+import com.karaik.scripteditor.helper.EditJournal;
+import com.karaik.scripteditor.helper.HistoryManager;
+import com.karaik.scripteditor.helper.HistoryStore;
+import com.karaik.scripteditor.util.SptParser;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.Pagination;
 import javafx.stage.FileChooser;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
 import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Data
 public class FileHandlerController {
 
+    private static final String SAVE_STATUS_SAVING = " [保存中…]";
+    private static final String SAVE_STATUS_FAILED = " [保存失败]";
+    private static final long SAVE_WAIT_SECONDS = 60;
+
     private final EditorController editorController;
+    /** 文档缓存按源文件字节数计的上限 */
+    private static final long DOCUMENT_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final BackgroundSaver backgroundSaver = new BackgroundSaver();
+    // 正在后台保存的文档（及其未完成的保存数），写完前不能被缓存淘汰关闭
+    private final Map<SptDocument, Integer> savingDocuments = new IdentityHashMap<>();
+    // 打开文件前先等它上面没写完的后台写入（批量同步译文），否则会读到旧内容，下次保存又把改动盖掉
+    private final DocumentCache documentCache = new DocumentCache(DOCUMENT_CACHE_BYTES, LOADER_THREADS,
+            savingDocuments::containsKey, file -> backgroundSaver.whenDone(file.getAbsoluteFile()));
+    private final Map<File, Long> latestSaveIds = new HashMap<>();
+    // 排队写进未打开文件的修改，按文件分组；同一文件尚未开始的写盘任务被顶替时，由顶替者一并执行
+    private final Map<File, List<PendingEdit>> pendingEdits = new HashMap<>();
+    private long saveSequence;
+    private long latestOpenId;
 
     public void openFile() {
         FileChooser fileChooser = new FileChooser();
@@ -51,37 +91,243 @@ public class FileHandlerController {
     }
 
     public void openSpecificFile(File file) {
+        openSpecificFile(file, -1);
+    }
+
+    /** 打开文件并跳到第 jumpOrdinal 个条目；为负时恢复上次的页码。 */
+    public void openSpecificFile(File file, int jumpOrdinal) {
         // ✅ 在真正加载此文件之前，若同名 .bak 存在则提示是否恢复
         promptRestoreBakIfPresent(file, null);
 
-        new Thread(() -> {
-
-            try {
-                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                List<SptEntry> sptEntries = parseSptContent(content);
+        // 当前文档（含未保存修改和日志）留在缓存里，切回来时不必重新解析
+        stashCurrentDocument();
+        long openId = ++latestOpenId;
+        DocumentCache.Entry cached = documentCache.take(file);
+        if (cached != null) {
+            showCachedDocument(cached, jumpOrdinal);
+            return;
+        }
 
-                Platform.runLater(() -> {
-                    editorController.markModified(false);
-                    editorController.setEntries(sptEntries);
-                    editorController.setCurrentFile(file);
-                    editorController.restoreLastPage();
-                    editorController.setInitializing(false);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    Alert alert = new Alert(Alert.AlertType.ERROR, "无法打开文件: " + e.getMessage());
+        documentCache.load(file).whenComplete((document, error) -> {
+            List<EditJournal.Record> journalRecords = error == null ? readJournal(file) : List.of();
+            Platform.runLater(() -> {
+                if (error != null) {
+                    if (openId != latestOpenId) return;
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    Alert alert = new Alert(Alert.AlertType.ERROR, "无法打开文件: " + cause.getMessage());
                     editorController.configureAlertOnTop(alert);
                     alert.showAndWait();
-                    editorController.getEntries().clear();
-                    editorController.setEntries(new ArrayList<>());
+                    editorController.setJournal(null);
+                    editorController.setDocument(null);
                     editorController.setCurrentFile(null);
                     editorController.setInitializing(false);
-                });
+                    return;
+                }
+                documentCache.claim(document);
+                if (openId != latestOpenId) {
+                    // 加载期间用户又切到了别的文件，解析结果留着备用
+                    documentCache.put(file, document, null, false, 0, 0);
+                    return;
+                }
+                editorController.markModified(false);
+                editorController.setDocument(document);
+                editorController.setCurrentFile(file);
+                recoverFromJournal(file, document, journalRecords);
+                if (jumpOrdinal >= 0) {
+                    editorController.jumpToEntry(jumpOrdinal);
+                } else {
+                    editorController.restoreLastPage();
+                }
+                editorController.setInitializing(false);
+                showParseProblems(file, document.getProblems());
+            });
+        });
+    }
+
+    /** 后台预先打开一批文件（工作区用），不挤掉缓存中已有的文档。 */
+    public void prefetch(List<File> files) {
+        documentCache.prefetch(files, editorController.getCurrentFile());
+    }
+
+    /** 缓存里是否还有未保存修改的文档（当前显示的不算）。 */
+    public boolean hasUnsavedCachedDocuments() {
+        return !documentCache.modifiedEntries().isEmpty();
+    }
+
+    public int getUnsavedCachedCount() {
+        return documentCache.modifiedEntries().size();
+    }
+
+    /** 退出时关闭缓存中的文档；discardChanges 为 true 时一并删除未保存修改的日志。 */
+    public void closeCachedDocuments(boolean discardChanges) {
+        documentCache.closeAll(discardChanges);
+    }
+
+    private void stashCurrentDocument() {
+        SptDocument document = editorController.getDocument();
+        File current = editorController.getCurrentFile();
+        if (document == null || current == null) return;
+        EditJournal journal = editorController.getJournal();
+        boolean modified = editorController.isModified();
+        int pageIndex = editorController.getPagination() != null ? editorController.getPagination().getCurrentPageIndex() : 0;
+        editorController.detachDocument();
+        // 新文件加载完之前不能再编辑已放进缓存的条目
+        editorController.setEntries(new ArrayList<>());
+        if (!modified && journal != null) {
+            // 没有未保存修改时日志是空的，关掉以免缓存的每个文档都占一个同步线程
+            journal.close();
+            journal = null;
+        }
+        documentCache.put(current, document, journal, modified, editorController.getEditGeneration(), pageIndex);
+    }
+
+    private void showCachedDocument(DocumentCache.Entry cached, int jumpOrdinal) {
+        File file = cached.getFile();
+        SptDocument document = cached.getDocument();
+        editorController.markModified(false);
+        editorController.setDocument(document);
+        editorController.setCurrentFile(file);
+        if (cached.getJournal() != null) {
+            editorController.setJournal(cached.getJournal());
+        } else {
+            recoverFromJournal(file, document, readJournal(file));
+        }
+        if (cached.isModified()) {
+            editorController.markModified(true);
+        }
+        Pagination pagination = editorController.getPagination();
+        if (jumpOrdinal >= 0) {
+            editorController.jumpToEntry(jumpOrdinal);
+        } else if (pagination != null) {
+            int page = Math.max(0, Math.min(cached.getPageIndex(), pagination.getPageCount() - 1));
+            if (pagination.getCurrentPageIndex() != page) {
+                pagination.setCurrentPageIndex(page);
             }
-        }).start();
+        }
+        editorController.setInitializing(false);
     }
 
     public void saveFile() {
+        submitSave();
+    }
+
+    private record PendingEdit(ToIntFunction<List<SptEntry>> edits, CompletableFuture<Integer> result) {
+    }
+
+    /**
+     * 对 file 的条目执行 edits（返回改动的条目数），供批量同步译文使用。
+     * 当前文档和缓存中未保存的文档在内存里修改并标记为未保存，由用户照常保存；
+     * 其余文件在后台打开为 {@link SptDocument}、修改后增量保存，未改动的字节（含换行符）保持原样。
+     * 解析时有跳过的行的文件不写，结果以异常完成，免得整文件重写时丢掉那些行。
+     */
+    public CompletableFuture<Integer> applyEdits(File file, ToIntFunction<List<SptEntry>> edits) {
+        File current = editorController.getCurrentFile();
+        if (current != null && current.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+            int changed = edits.applyAsInt(editorController.getEntries());
+            if (changed > 0) {
+                editorController.markModified(true);
+                editorController.getEntryListView().refresh();
+            }
+            return CompletableFuture.completedFuture(changed);
+        }
+        int changed = documentCache.editInPlace(file, edits);
+        if (changed >= 0) {
+            return CompletableFuture.completedFuture(changed);
+        }
+
+        SearchController searchController = editorController.getSearchController();
+        File key = file.getAbsoluteFile();
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        synchronized (pendingEdits) {
+            pendingEdits.computeIfAbsent(key, k -> new ArrayList<>()).add(new PendingEdit(edits, result));
+        }
+        // 与该文件的保存共用一个键，打开该文件时据此等待写完
+        backgroundSaver.submit(key, () -> applyPendingEdits(key, searchController)).whenComplete((v, e) -> {
+            if (e != null) result.completeExceptionally(e);
+        });
+        return result;
+    }
+
+    /** 在后台线程上把 file 排队的修改一次写入。 */
+    private void applyPendingEdits(File file, SearchController searchController) throws Exception {
+        List<PendingEdit> batch;
+        synchronized (pendingEdits) {
+            batch = pendingEdits.remove(file);
+        }
+        if (batch == null) return; // 已由之前的任务一并写入
+        try (SptDocument document = SptDocument.open(file.toPath())) {
+            List<SptParser.Problem> problems = document.getProblems();
+            if (!problems.isEmpty()) {
+                throw new IOException(file.getName() + " 有 " + problems.size() + " 行未能解析（首处："
+                        + problems.get(0) + "），为免丢失内容未写入，请打开该文件核对");
+            }
+            int[] changed = new int[batch.size()];
+            int total = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                changed[i] = batch.get(i).edits().applyAsInt(document.getEntries());
+                total += changed[i];
+            }
+            if (total > 0) {
+                CrashSafeFileSaver.saveWithBak(document.snapshot(), file);
+                HistoryManager.storeSnapshot(file);
+                SptDocument.refreshIndexCache(file.toPath());
+                searchController.onFileSaved(file);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(changed[i]);
+            }
+        } catch (Exception e) {
+            batch.forEach(edit -> edit.result().completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    /**
+     * 保存当前文件和缓存中所有未保存的文件并等待写盘结束，供关闭窗口时使用。
+     * 任一保存失败、超时或用户取消选择文件时返回 false；失败原因仍由保存回调弹窗告知。
+     */
+    public boolean saveFileAndWait() {
+        CompletableFuture<Void> done = submitSave();
+        if (done == null) return false;
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        all.add(done);
+        for (DocumentCache.Entry cached : documentCache.modifiedEntries()) {
+            SptDocument document = cached.getDocument();
+            all.add(submitSave(cached.getFile(), document, document.getEntries(), cached.getEditGeneration()));
+        }
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).get(SAVE_WAIT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /** 等待已提交的后台保存全部结束。 */
+    public boolean awaitPendingSave() {
+        try {
+            if (backgroundSaver.awaitIdle(TimeUnit.SECONDS.toMillis(SAVE_WAIT_SECONDS))) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Alert alert = new Alert(Alert.AlertType.WARNING, "文件仍在保存中，请稍后再试。");
+        editorController.configureAlertOnTop(alert);
+        alert.showAndWait();
+        return false;
+    }
+
+    /**
+     * 在 FX 线程上取不可变快照后交给后台线程写盘，用户可以继续编辑。
+     * 同一文件连续多次保存时，尚未开始的旧快照会被最新的顶替。
+     * 写盘成功后顺带存一份历史快照（去重存储，改动少时几乎不占空间），刷新索引缓存供下次快速打开，
+     * 并重建这个文件的搜索索引。
+     */
+    private CompletableFuture<Void> submitSave() {
         File fileToSave = editorController.getCurrentFile();
         if (fileToSave == null) {
             FileChooser fileChooser = new FileChooser();
@@ -94,43 +340,264 @@ public class FileHandlerController {
             }
 
             fileToSave = fileChooser.showSaveDialog(editorController.getPrimaryStage());
-            if (fileToSave == null) return;
+            if (fileToSave == null) return null;
             editorController.setCurrentFile(fileToSave);
         }
+        editorController.setSaveStatus(SAVE_STATUS_SAVING);
+        return submitSave(fileToSave, editorController.getDocument(), editorController.getEntries(),
+                editorController.getEditGeneration());
+    }
 
-        try {
-//            SptWriter.saveToFile(editorController.getEntries(), fileToSave);
-            CrashSafeFileSaver.saveWithBak(editorController.getEntries(), fileToSave);
+    private CompletableFuture<Void> submitSave(File target, SptDocument document, List<SptEntry> entries, long generation) {
+        SearchController searchController = editorController.getSearchController();
+        BackgroundSaver.SaveTask task;
+        if (document != null) {
+            // 只重新编码改过的条目，其余字节从打开时的快照拷贝
+            SptDocument.Snapshot snapshot = document.snapshot();
+            task = () -> {
+                CrashSafeFileSaver.saveWithBak(snapshot, target);
+                HistoryManager.storeSnapshot(target);
+                SptDocument.refreshIndexCache(target.toPath());
+                searchController.onFileSaved(target);
+            };
+            savingDocuments.merge(document, 1, Integer::sum);
+        } else {
+            List<SptEntry> copies = entries.stream()
+                    .map(SptEntry::detachedCopy)
+                    .collect(Collectors.toList());
+            task = () -> {
+                CrashSafeFileSaver.saveWithBak(copies, target);
+                HistoryManager.storeSnapshot(target);
+                SptDocument.refreshIndexCache(target.toPath());
+                searchController.onFileSaved(target);
+            };
+        }
+
+        File key = target.getAbsoluteFile();
+        long saveId = ++saveSequence;
+        latestSaveIds.put(key, saveId);
+        CompletableFuture<Void> done = backgroundSaver.submit(key, task);
+        done.whenComplete((v, e) -> Platform.runLater(() -> onSaveFinished(key, document, saveId, generation, e)));
+        return done;
+    }
+
+    /**
+     * saveId 仍是 target 最近一次保存时注销它并返回 true。
+     * 被顶替的保存随顶替者一同完成，回调可能在顶替者之后才跑，那时登记已被移除，不能直接拆箱比较。
+     */
+    static boolean finishLatestSave(Map<File, Long> latestSaveIds, File target, long saveId) {
+        if (!Objects.equals(latestSaveIds.get(target), saveId)) {
+            return false;
+        }
+        latestSaveIds.remove(target);
+        return true;
+    }
+
+    private void onSaveFinished(File target, SptDocument document, long saveId, long generation, Throwable error) {
+        if (document != null && savingDocuments.merge(document, -1, Integer::sum) <= 0) {
+            savingDocuments.remove(document);
+            documentCache.trim();
+        }
+        if (!finishLatestSave(latestSaveIds, target, saveId)) return; // 已被更新的保存顶替，由它来收尾
+        boolean current = document != null
+                ? document == editorController.getDocument()
+                : target.equals(editorController.getCurrentFile() != null ? editorController.getCurrentFile().getAbsoluteFile() : null);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            cause.printStackTrace();
+            if (current) {
+                editorController.setSaveStatus(SAVE_STATUS_FAILED);
+            }
+            Alert alert = new Alert(Alert.AlertType.ERROR, "保存 " + target.getName() + " 失败: " + cause.getMessage());
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+        if (!current) {
+            // 保存期间已切到别的文件，更新缓存里那份文档的状态
+            if (document != null) {
+                documentCache.markSaved(document, generation);
+            }
+            return;
+        }
+        editorController.setSaveStatus("");
+        // 快照之后又有新修改时仍保持未保存状态，日志也要留着
+        if (editorController.getEditGeneration() == generation) {
             editorController.markModified(false);
+            resetJournal();
+        }
+    }
+
+    private static List<EditJournal.Record> readJournal(File file) {
+        try {
+            return EditJournal.read(file.toPath());
         } catch (Exception e) {
-            e.printStackTrace();
-            Alert alert = new Alert(Alert.AlertType.ERROR, "保存失败: " + e.getMessage());
+            System.err.println("Failed to read journal for " + file + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 日志里有上次未保存的修改时询问是否回放，然后为本次编辑打开日志。
+     * 回放在挂上日志监听之前进行，不会重复写入。
+     */
+    private void recoverFromJournal(File file, SptDocument document, List<EditJournal.Record> records) {
+        boolean discard = false;
+        if (!records.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                    "检测到 " + file.getName() + " 有 " + records.size() + " 条未保存的修改记录。\n" +
+                            "这通常表示上次编辑后没有保存就异常退出了。是否恢复这些修改？\n\n" +
+                            "【是】恢复修改（推荐）\n【否】丢弃这些修改");
             editorController.configureAlertOnTop(alert);
-            alert.showAndWait();
-        } finally {
-        }
-    }
-
-    private List<SptEntry> parseSptContent(String content) {
-        List<SptEntry> result = new ArrayList<>();
-        String[] lines = content.split("\\R");
-        for (int i = 0; i < lines.length - 1; i++) {
-            String ol = lines[i].trim();
-            String tl = lines[i + 1].trim();
-            if (ol.startsWith("○") && tl.startsWith("●")) {
-                String[] op = ol.split("○", 3);
-                String[] tp = tl.split("●", 3);
-                if (op.length > 1 && tp.length > 1) {
-                    String[] meta = op[1].split("\\|");
-                    if (meta.length >= 3) {
-                        result.add(new SptEntry(meta[0], meta[1], meta[2],
-                                (op.length > 2 ? op[2].trim() : ""),
-                                (tp.length > 2 ? tp[2].trim() : "")));
-                    }
+            alert.getButtonTypes().setAll(ButtonType.YES, ButtonType.NO);
+            Optional<ButtonType> res = alert.showAndWait();
+            if (res.isPresent() && res.get() == ButtonType.YES) {
+                if (EditJournal.replay(records, document.getEntries()) > 0) {
+                    editorController.markModified(true);
                 }
+            } else {
+                discard = true;
             }
         }
-        return result;
+        EditJournal opened = null;
+        try {
+            opened = EditJournal.open(file.toPath());
+            if (discard) {
+                opened.reset();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to open journal for " + file + ": " + e.getMessage());
+            if (opened != null) {
+                opened.close();
+                opened = null;
+            }
+        }
+        EditJournal journal = opened;
+        document.setEditListener((ordinal, entry, segment) -> {
+            if (journal != null) {
+                if (segment >= 0) {
+                    journal.recordSegment(ordinal, entry, segment);
+                } else {
+                    journal.recordSegments(ordinal, entry);
+                }
+            }
+            // 搜索按编辑后的译文匹配，不必等保存
+            editorController.getSearchController().onEntryEdited(file, ordinal, entry);
+        });
+        editorController.setJournal(journal);
+    }
+
+    private void resetJournal() {
+        EditJournal journal = editorController.getJournal();
+        if (journal == null) return;
+        try {
+            journal.reset();
+        } catch (Exception e) {
+            // 清空失败只会导致下次打开时多回放一遍，而回放是幂等的
+            System.err.println("Failed to reset journal: " + e.getMessage());
+        }
+    }
+
+    private static final int MAX_PROBLEMS_SHOWN = 10;
+
+    /** 解析时跳过的行不再静默丢弃，列出前几处行号提示用户核对。 */
+    private void showParseProblems(File file, List<SptParser.Problem> problems) {
+        if (problems.isEmpty()) return;
+        problems.forEach(p -> System.err.println(file.getName() + " " + p));
+        String detail = problems.stream()
+                .limit(MAX_PROBLEMS_SHOWN)
+                .map(SptParser.Problem::toString)
+                .collect(Collectors.joining("\n"));
+        if (problems.size() > MAX_PROBLEMS_SHOWN) {
+            detail += "\n……共 " + problems.size() + " 处";
+        }
+        Alert alert = new Alert(Alert.AlertType.WARNING, "以下行未能解析为条目，已跳过：\n" + detail);
+        editorController.configureAlertOnTop(alert);
+        alert.show();
+    }
+
+    /**
+     * 列出当前文件的历史快照，选中的一份恢复成新文件（默认与原文件同目录，文件名带快照时间），
+     * 不覆盖正在编辑的文件；恢复后可直接打开对照。
+     */
+    public void restoreHistorySnapshot() {
+        File current = editorController.getCurrentFile();
+        if (current == null) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, "请先打开一个文件。");
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+        List<HistoryStore.Snapshot> snapshots;
+        try {
+            snapshots = HistoryManager.listSnapshots(current);
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "读取历史版本失败：\n" + e.getMessage());
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+        if (snapshots.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, current.getName() + " 还没有历史版本，保存后会自动生成。");
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+
+        DateTimeFormatter display = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        Map<String, HistoryStore.Snapshot> byLabel = new LinkedHashMap<>();
+        for (HistoryStore.Snapshot snapshot : snapshots) {
+            String label = snapshotTime(snapshot).format(display) + "（" + Math.max(1, snapshot.size() / 1024) + " KB）";
+            byLabel.put(label, snapshot);
+        }
+        List<String> choices = new ArrayList<>(byLabel.keySet());
+        ChoiceDialog<String> dlg = new ChoiceDialog<>(choices.get(0), choices);
+        dlg.setTitle("历史版本");
+        dlg.setHeaderText(current.getName() + " 共有 " + choices.size() + " 个历史版本");
+        dlg.setContentText("选择要恢复的版本：");
+        // 注意：EditorController.configureAlertOnTop 仅适用于 Alert，这里不要调用
+        Optional<String> sel = dlg.showAndWait();
+        if (sel.isEmpty()) return;
+        HistoryStore.Snapshot snapshot = byLabel.get(sel.get());
+
+        String baseName = current.getName().endsWith(".txt")
+                ? current.getName().substring(0, current.getName().length() - 4)
+                : current.getName();
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("恢复历史版本到");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("文本文件", "*.txt"));
+        if (current.getParentFile() != null && current.getParentFile().exists()) {
+            fileChooser.setInitialDirectory(current.getParentFile());
+        }
+        fileChooser.setInitialFileName(baseName + "." + snapshotTime(snapshot).format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+        File target = fileChooser.showSaveDialog(editorController.getPrimaryStage());
+        if (target == null) return;
+        if (target.getAbsoluteFile().equals(current.getAbsoluteFile())) {
+            Alert alert = new Alert(Alert.AlertType.WARNING, "不能覆盖正在编辑的文件，请换一个文件名。");
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+
+        try {
+            HistoryManager.restoreSnapshot(current, snapshot.timestamp(), target.toPath());
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "恢复历史版本失败：\n" + e.getMessage());
+            editorController.configureAlertOnTop(alert);
+            alert.showAndWait();
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "已恢复到 " + target.getName() + "，是否现在打开？");
+        editorController.configureAlertOnTop(alert);
+        alert.getButtonTypes().setAll(ButtonType.YES, ButtonType.NO);
+        Optional<ButtonType> res = alert.showAndWait();
+        if (res.isPresent() && res.get() == ButtonType.YES) {
+            openSpecificFile(target);
+        }
+    }
+
+    private static LocalDateTime snapshotTime(HistoryStore.Snapshot snapshot) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.timestamp()), ZoneId.systemDefault());
     }
 
     /**
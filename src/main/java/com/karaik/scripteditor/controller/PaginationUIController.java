@@ -1,23 +1,39 @@
 package com.karaik.scripteditor.controller;
 
+import com.karaik.scripteditor.entry.MappedSptEntryList;
 import com.karaik.scripteditor.entry.SptEntry;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.Pagination;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.layout.VBox;
 import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 条目列表的两种显示方式：
+ * 分页模式每次翻页把当前页的条目拷进列表；连续模式下列表直接以全部条目为数据源，
+ * 由 ListView 自己回收单元格、估算不等高条目的总高度，页码只是按滚动位置算出来的指示，翻页就是滚动。
+ */
 @RequiredArgsConstructor
 public class PaginationUIController {
 
+    /** 连续模式下懒加载列表在可见位置前后各保留的条目数 */
+    private static final int RESIDENT_RADIUS = 200;
+
     private final EditorController editorController;
 
+    // 连续模式下列表当前绑定的条目列表，分页模式下为空
+    private List<SptEntry> continuousSource;
+    private VirtualFlow<?> trackedFlow;
+
     public void setupPagination() {
         Pagination pagination = editorController.getPagination();
         if (pagination == null) {
@@ -28,6 +44,12 @@ public class PaginationUIController {
             System.err.println("ListView is null when setting up pagination. PageFactory might not work correctly.");
         }
         pagination.setPageFactory(this::pageFactoryCallback);
+        ListView<SptEntry> listView = editorController.getEntryListView();
+        if (listView != null) {
+            // 皮肤建好后才有 VirtualFlow，之后按滚动位置更新页码
+            listView.skinProperty().addListener((obs, oldSkin, newSkin) -> trackScrollPosition());
+            trackScrollPosition();
+        }
     }
 
     public void updatePaginationView() {
@@ -77,6 +99,16 @@ public class PaginationUIController {
             return;
         }
 
+        if (editorController.isContinuousMode()) {
+            showContinuous(listView, pageIndex);
+            return;
+        }
+        if (continuousSource != null) {
+            // 从连续模式切回：换回独立的列表，免得 setAll 写进条目列表本身
+            continuousSource = null;
+            listView.setItems(FXCollections.observableArrayList());
+        }
+
         editorController.setRendering(true);
 
         List<SptEntry> allEntries = editorController.getEntries();
@@ -86,6 +118,11 @@ public class PaginationUIController {
         int start = pageIndex * itemsPerPage;
         int end = Math.min(start + itemsPerPage, allEntries.size());
 
+        if (allEntries instanceof MappedSptEntryList) {
+            // 只保留当前页的条目，其余未修改的随翻页释放
+            ((MappedSptEntryList) allEntries).retainRange(start, end);
+        }
+
         List<SptEntry> entriesForThisPage = new ArrayList<>();
         if (start >= 0 && start < allEntries.size()) {
             for (int i = start; i < end; i++) {
@@ -115,6 +152,66 @@ public class PaginationUIController {
         });
     }
 
+    /** 连续模式：列表绑定全部条目（只在条目列表换了时重新绑定），再滚到该页第一条。 */
+    private void showContinuous(ListView<SptEntry> listView, int pageIndex) {
+        trackScrollPosition();
+        List<SptEntry> allEntries = editorController.getEntries();
+        boolean rebound = continuousSource != allEntries;
+        if (rebound) {
+            continuousSource = allEntries;
+            List<SptEntry> source = allEntries instanceof MappedSptEntryList
+                    ? ((MappedSptEntryList) allEntries).slidingView(RESIDENT_RADIUS)
+                    : allEntries;
+            listView.setPlaceholder(allEntries.isEmpty() ? createPlaceholderLabel("无内容可显示。") : null);
+            listView.setItems(FXCollections.observableList(source)); // 只包装，不拷贝
+        }
+        if (allEntries.isEmpty()) {
+            return;
+        }
+        // 页码本来就是由滚动位置算出来的时不再滚动，避免跳回该页开头
+        if (rebound || pageOfFirstVisible() != pageIndex) {
+            int first = Math.min(pageIndex * editorController.getItemsPerPage(), allEntries.size() - 1);
+            listView.scrollTo(first);
+        }
+    }
+
+    /** 第 ordinal 个条目在列表中的行号：连续模式下就是 ordinal，分页模式下是它在所在页里的位置。 */
+    public int rowOf(int ordinal) {
+        return editorController.isContinuousMode() ? ordinal : ordinal % editorController.getItemsPerPage();
+    }
+
+    private void trackScrollPosition() {
+        ListView<SptEntry> listView = editorController.getEntryListView();
+        Node node = listView == null ? null : listView.lookup(".virtual-flow");
+        if (!(node instanceof VirtualFlow) || node == trackedFlow) {
+            return;
+        }
+        trackedFlow = (VirtualFlow<?>) node;
+        trackedFlow.positionProperty().addListener((obs, oldPos, newPos) -> syncPageWithScroll());
+    }
+
+    private void syncPageWithScroll() {
+        Pagination pagination = editorController.getPagination();
+        if (!editorController.isContinuousMode() || pagination == null) {
+            return;
+        }
+        int page = pageOfFirstVisible();
+        if (page >= 0 && page < pagination.getPageCount() && page != pagination.getCurrentPageIndex()) {
+            pagination.setCurrentPageIndex(page);
+        }
+    }
+
+    /** 第一个可见条目所在的页；单元格还没排好时按滚动比例估算，没有条目时为 -1。 */
+    private int pageOfFirstVisible() {
+        int size = editorController.getEntries().size();
+        if (trackedFlow == null || size == 0) {
+            return -1;
+        }
+        IndexedCell<?> first = trackedFlow.getFirstVisibleCell();
+        int index = first != null ? first.getIndex() : (int) (trackedFlow.getPosition() * (size - 1));
+        return Math.max(0, Math.min(index, size - 1)) / editorController.getItemsPerPage();
+    }
+
     private Label createPlaceholderLabel(String text) {
         Label placeholder = new Label(text);
         placeholder.setPadding(new Insets(10));
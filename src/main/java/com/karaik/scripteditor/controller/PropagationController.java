@@ -0,0 +1,147 @@
+package com.karaik.scripteditor.controller;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.search.PropagationIndex;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.TextArea;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * “同步译文”：把某段译文一次写到工作区里所有相同原文的对应段，先预览目标，确认后按文件批量应用。
+ */
+@RequiredArgsConstructor
+public class PropagationController {
+
+    private final EditorController editorController;
+
+    public void propagate(SptEntry source, int segment) {
+        if (source.getOriginalSegmentCount() != source.getTranslatedSegmentCount()
+                || segment >= source.getOriginalSegmentCount()) {
+            showAlert(Alert.AlertType.WARNING, "原文和译文段数不一致，无法按段同步。");
+            return;
+        }
+        PropagationIndex index = editorController.getSearchController().getPropagationIndex();
+        if (index == null) {
+            showAlert(Alert.AlertType.INFORMATION, "请先打开目录，并等待工作区索引建立完成。");
+            return;
+        }
+        String original = source.getOriginalSegment(segment);
+        String translation = source.getTranslatedSegment(segment);
+        String key = PropagationIndex.normalize(original);
+
+        List<PropagationIndex.Location> targets = new ArrayList<>();
+        for (PropagationIndex.Location location : index.find(original)) {
+            if (!isSource(location, source)) {
+                targets.add(location);
+            }
+        }
+        if (targets.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "工作区里没有其他相同的原文。");
+            return;
+        }
+
+        Map<File, List<PropagationIndex.Location>> byFile = new LinkedHashMap<>();
+        StringBuilder preview = new StringBuilder();
+        for (PropagationIndex.Location target : targets) {
+            byFile.computeIfAbsent(target.file(), f -> new ArrayList<>()).add(target);
+            preview.append(target.file().getName()).append("  #").append(target.ordinal() + 1);
+            if (target.segment() > 0) {
+                preview.append(" 第").append(target.segment() + 1).append("段");
+            }
+            preview.append('\n');
+        }
+        TextArea list = new TextArea(preview.toString());
+        list.setEditable(false);
+        list.setPrefRowCount(Math.min(15, targets.size()));
+
+        ButtonType apply = new ButtonType("应用");
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("同步译文");
+        confirm.setHeaderText("将译文「" + translation + "」同步到 " + byFile.size() + " 个文件中的 "
+                + targets.size() + " 处相同原文：\n" + original);
+        confirm.getDialogPane().setContent(list);
+        confirm.getButtonTypes().setAll(apply, ButtonType.CANCEL);
+        editorController.configureAlertOnTop(confirm);
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != apply) {
+            return;
+        }
+
+        Map<File, CompletableFuture<Integer>> results = new LinkedHashMap<>();
+        for (Map.Entry<File, List<PropagationIndex.Location>> group : byFile.entrySet()) {
+            List<PropagationIndex.Location> locations = group.getValue();
+            results.put(group.getKey(), editorController.getFileHandlerController().applyEdits(group.getKey(),
+                    entries -> applyTo(entries, locations, key, translation)));
+        }
+        // 个别文件写不了（如有未能解析的行）时其余文件照常写入，最后列出没写的文件
+        CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> Platform.runLater(() -> {
+            int changed = 0;
+            StringBuilder skipped = new StringBuilder();
+            for (Map.Entry<File, CompletableFuture<Integer>> result : results.entrySet()) {
+                try {
+                    changed += result.getValue().join();
+                } catch (CompletionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    cause.printStackTrace();
+                    skipped.append('\n').append(result.getKey().getName()).append("：").append(cause.getMessage());
+                }
+            }
+            if (skipped.length() == 0) {
+                showAlert(Alert.AlertType.INFORMATION, "已同步 " + changed + " 处译文。");
+            } else {
+                showAlert(Alert.AlertType.WARNING, "已同步 " + changed + " 处译文，以下文件未写入：" + skipped);
+            }
+        }));
+    }
+
+    /** 逐处核对原文仍然相同后改写对应译文段，返回改动的条目数。 */
+    private static int applyTo(List<SptEntry> entries, List<PropagationIndex.Location> locations,
+                               String key, String translation) {
+        int changed = 0;
+        for (PropagationIndex.Location location : locations) {
+            if (location.ordinal() >= entries.size()) continue;
+            SptEntry entry = entries.get(location.ordinal());
+            int segment = location.segment();
+            if (segment >= entry.getOriginalSegmentCount()
+                    || !PropagationIndex.normalize(entry.getOriginalSegment(segment)).equals(key)) {
+                continue; // 文件在建索引后被改过
+            }
+            List<String> texts = new ArrayList<>(entry.getTranslatedSegmentCount());
+            for (int i = 0; i < entry.getTranslatedSegmentCount(); i++) {
+                texts.add(entry.getTranslatedSegment(i));
+            }
+            if (segment >= texts.size() || translation.equals(texts.get(segment))) {
+                continue;
+            }
+            texts.set(segment, translation);
+            entry.setTranslatedSegmentTexts(texts);
+            changed++;
+        }
+        return changed;
+    }
+
+    private boolean isSource(PropagationIndex.Location location, SptEntry source) {
+        File current = editorController.getCurrentFile();
+        if (current == null || !current.getAbsoluteFile().equals(location.file().getAbsoluteFile())) {
+            return false;
+        }
+        List<SptEntry> entries = editorController.getEntries();
+        return location.ordinal() < entries.size()
+                && entries.get(location.ordinal()).getIndex().equals(source.getIndex());
+    }
+
+    private void showAlert(Alert.AlertType type, String message) {
+        Alert alert = new Alert(type, message);
+        editorController.configureAlertOnTop(alert);
+        alert.showAndWait();
+    }
+}
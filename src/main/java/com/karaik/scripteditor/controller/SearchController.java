@@ -0,0 +1,169 @@
+package com.karaik.scripteditor.controller;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.helper.AppPreferenceHelper;
+import com.karaik.scripteditor.search.PropagationIndex;
+import com.karaik.scripteditor.search.SearchIndex;
+import com.karaik.scripteditor.search.TranslationMemory;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.KeyCode;
+import com.karaik.scripteditor.util.SptParser;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 顶栏的全文搜索：回车在工作区（或当前文件）的原文和译文里查找，右侧列出命中，点击跳到对应条目。
+ * 同时维护工作区的翻译记忆（为每行原文提供译文建议）和原文位置索引（同步译文用）。
+ */
+@RequiredArgsConstructor
+public class SearchController {
+
+    private static final int MAX_HITS = 500;
+    private static final int MAX_SUGGESTIONS = 3;
+
+    private final EditorController editorController;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final ExecutorService memoryBuilder = daemonExecutor("spt-memory-builder");
+    private final ExecutorService memoryLookup = daemonExecutor("spt-memory-lookup");
+    private volatile TranslationMemory translationMemory;
+    private volatile PropagationIndex propagationIndex;
+
+    public void setupSearch() {
+        TextField field = editorController.getSearchField();
+        ListView<SearchIndex.Hit> results = editorController.getSearchResultList();
+        if (field == null || results == null) {
+            System.err.println("Search field or result list is null in setupSearch.");
+            return;
+        }
+        field.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                search(field.getText());
+            } else if (event.getCode() == KeyCode.ESCAPE) {
+                field.clear();
+                showResults(false);
+            }
+        });
+        results.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(SearchIndex.Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                if (empty || hit == null) {
+                    setText(null);
+                    return;
+                }
+                setText(hit.file().getName() + " #" + (hit.ordinal() + 1) + (hit.translated() ? " 译文" : " 原文")
+                        + (hit.segment() > 0 ? " 第" + (hit.segment() + 1) + "段" : "") + "\n" + hit.snippet());
+            }
+        });
+        results.setOnMouseClicked(event -> {
+            SearchIndex.Hit hit = results.getSelectionModel().getSelectedItem();
+            if (hit != null) {
+                jumpTo(hit);
+            }
+        });
+    }
+
+    /** 工作区文件列表变化时调用。 */
+    public void setWorkspaceFiles(List<File> files) {
+        searchIndex.setFiles(files);
+        List<File> corpus = new ArrayList<>(files);
+        memoryBuilder.execute(() -> {
+            // 一次解析同时喂给两个索引
+            TranslationMemory.Builder memory = new TranslationMemory.Builder();
+            PropagationIndex.Builder originals = new PropagationIndex.Builder();
+            for (File file : corpus) {
+                try {
+                    List<SptEntry> entries = SptParser.parse(file.toPath()).entries();
+                    for (int i = 0; i < entries.size(); i++) {
+                        memory.add(entries.get(i));
+                        originals.add(file, i, entries.get(i));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping " + file + " for translation memory: " + e.getMessage());
+                }
+            }
+            translationMemory = memory.build();
+            propagationIndex = originals.build();
+        });
+    }
+
+    /** 工作区的原文位置索引，还没建好（或没有打开工作区）时为 null。 */
+    public PropagationIndex getPropagationIndex() {
+        return propagationIndex;
+    }
+
+    /** 在后台线程查翻译记忆；记忆库还没建好时返回空列表。 */
+    public CompletableFuture<List<TranslationMemory.Suggestion>> suggest(String original) {
+        TranslationMemory memory = translationMemory;
+        if (memory == null || original == null || original.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        double threshold = AppPreferenceHelper.loadMemoryThreshold();
+        return CompletableFuture.supplyAsync(() -> memory.lookup(original, threshold, MAX_SUGGESTIONS), memoryLookup);
+    }
+
+    public void onEntryEdited(File file, int ordinal, SptEntry entry) {
+        searchIndex.update(file, ordinal, entry);
+    }
+
+    /** 文件写盘后重建它的索引，可在后台线程调用。 */
+    public void onFileSaved(File file) {
+        searchIndex.refresh(file);
+    }
+
+    private void search(String query) {
+        if (query == null || query.isEmpty()) {
+            showResults(false);
+            return;
+        }
+        File current = editorController.getCurrentFile();
+        if (current != null) {
+            searchIndex.add(current);
+        }
+        long start = System.nanoTime();
+        List<SearchIndex.Hit> hits = searchIndex.search(query, MAX_HITS);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        ListView<SearchIndex.Hit> results = editorController.getSearchResultList();
+        results.getItems().setAll(hits);
+        results.setPlaceholder(new Label(searchIndex.isBuilding() ? "索引建立中，请稍后再试" : "没有找到"));
+        TextField field = editorController.getSearchField();
+        field.setTooltip(new Tooltip(hits.size() + (hits.size() >= MAX_HITS ? "+" : "")
+                + " 条结果，用时 " + millis + " ms" + (searchIndex.isBuilding() ? "（索引尚未建完）" : "")));
+        showResults(true);
+    }
+
+    private void jumpTo(SearchIndex.Hit hit) {
+        File current = editorController.getCurrentFile();
+        if (current != null && current.getAbsoluteFile().equals(hit.file().getAbsoluteFile())) {
+            editorController.jumpToEntry(hit.ordinal());
+        } else {
+            editorController.getFileHandlerController().openSpecificFile(hit.file(), hit.ordinal());
+        }
+    }
+
+    private static ExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private void showResults(boolean visible) {
+        ListView<SearchIndex.Hit> results = editorController.getSearchResultList();
+        results.setVisible(visible);
+        results.setManaged(visible);
+    }
+}
@@ -0,0 +1,113 @@
+package com.karaik.scripteditor.controller;
+
+import com.karaik.scripteditor.check.GlossaryRule;
+import com.karaik.scripteditor.helper.AppPreferenceHelper;
+import javafx.application.Platform;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.stage.DirectoryChooser;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 工作区模式：左侧目录树列出一个文件夹下的全部脚本，点选即切换，
+ * 切走的文件留在 {@link FileHandlerController} 的文档缓存里，并在后台预读其余文件。
+ */
+@RequiredArgsConstructor
+public class WorkspaceController {
+
+    private final EditorController editorController;
+
+    public void setupTree() {
+        TreeView<File> tree = editorController.getWorkspaceTree();
+        if (tree == null) {
+            System.err.println("Workspace tree is null in setupTree.");
+            return;
+        }
+        tree.setCellFactory(view -> new TreeCell<>() {
+            @Override
+            protected void updateItem(File item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.getName());
+            }
+        });
+        tree.getSelectionModel().selectedItemProperty().addListener((obs, oldItem, newItem) -> {
+            if (newItem == null || !newItem.isLeaf()) return;
+            File file = newItem.getValue();
+            if (file == null || !file.isFile() || file.equals(editorController.getCurrentFile())) return;
+            editorController.getFileHandlerController().openSpecificFile(file);
+        });
+    }
+
+    public void chooseWorkspace() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("打开目录");
+        File root = AppPreferenceHelper.loadWorkspaceRoot();
+        if (root != null && root.isDirectory()) {
+            chooser.setInitialDirectory(root);
+        }
+        File dir = chooser.showDialog(editorController.getPrimaryStage());
+        if (dir != null) {
+            openWorkspace(dir);
+        }
+    }
+
+    /** 启动时恢复上次打开的目录。 */
+    public void restoreWorkspace() {
+        File root = AppPreferenceHelper.loadWorkspaceRoot();
+        if (root != null && root.isDirectory()) {
+            openWorkspace(root);
+        }
+    }
+
+    public void openWorkspace(File dir) {
+        AppPreferenceHelper.saveWorkspaceRoot(dir);
+        // 术语表可能随工作区不同，换目录后重新加载并作废旧的校验结果
+        GlossaryRule.useWorkspace(dir.toPath());
+        editorController.getLiveValidator().clearCache();
+        Thread scanner = new Thread(() -> {
+            List<File> files = new ArrayList<>();
+            TreeItem<File> root = scan(dir, files);
+            Platform.runLater(() -> {
+                TreeView<File> tree = editorController.getWorkspaceTree();
+                if (tree == null) return;
+                root.setExpanded(true);
+                tree.setRoot(root);
+                tree.setVisible(true);
+                tree.setManaged(true);
+                editorController.getSearchController().setWorkspaceFiles(files);
+                editorController.getFileHandlerController().prefetch(files);
+            });
+        }, "workspace-scanner");
+        scanner.setDaemon(true);
+        scanner.start();
+    }
+
+    /** 递归列出目录下的 .txt 文件，跳过隐藏目录和历史快照目录。 */
+    private static TreeItem<File> scan(File dir, List<File> files) {
+        TreeItem<File> item = new TreeItem<>(dir);
+        File[] children = dir.listFiles();
+        if (children == null) return item;
+        Arrays.sort(children, Comparator.comparing((File f) -> !f.isDirectory()).thenComparing(File::getName));
+        for (File child : children) {
+            if (child.isHidden()) continue;
+            if (child.isDirectory()) {
+                if (child.getName().equals("history")) continue;
+                TreeItem<File> sub = scan(child, files);
+                if (!sub.getChildren().isEmpty()) {
+                    item.getChildren().add(sub);
+                }
+            } else if (child.getName().toLowerCase().endsWith(".txt")) {
+                files.add(child);
+                item.getChildren().add(new TreeItem<>(child));
+            }
+        }
+        return item;
+    }
+}
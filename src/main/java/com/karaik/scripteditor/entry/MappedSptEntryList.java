@@ -0,0 +1,188 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.util.SptParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 大文件的懒加载条目列表：打开时只内存映射文件并建立 {@link SptEntryIndex} 偏移表，
+ * {@link SptEntry} 在被访问时才从映射区解析出来。
+ * 分页控制器通过 {@link #retainRange(int, int)} 告知当前可见范围，范围外且未修改的条目随即释放，
+ * 堆占用只与可见页数有关，与文件大小无关；连续滚动时改用 {@link #slidingView(int)}，范围跟着访问位置移动。
+ * <p>
+ * 编辑器里映射的是 {@link SptDocument} 打开时拷贝出的只读快照而不是原文件：
+ * Windows 下被映射的文件无法被原子替换，直接映射会让 {@code CrashSafeFileSaver} 的 ATOMIC_MOVE 失败。
+ */
+public final class MappedSptEntryList extends AbstractList<SptEntry> implements RandomAccess {
+
+    private final MappedByteBuffer content;
+    private final SptEntryIndex index;
+
+    // 已解析出来的条目；改过的条目不论是否可见都常驻，直到列表关闭
+    private final Map<Integer, SptEntry> live = new HashMap<>();
+    private int windowFrom;
+    private int windowTo;
+    private SptEditListener editListener;
+
+    private MappedSptEntryList(MappedByteBuffer content, SptEntryIndex index) {
+        this.content = content;
+        this.index = index;
+    }
+
+    /** 映射 file 并建立偏移表；调用方需保证映射期间 file 不被改写。 */
+    public static MappedSptEntryList open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    /** 同上，index 不为空时直接使用（来自索引缓存），不再扫描文件。 */
+    static MappedSptEntryList open(Path file, SptEntryIndex index) throws IOException {
+        MappedByteBuffer content;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("文件过大，无法映射：" + file);
+            }
+            // 映射建立后即可关闭通道，映射区在 buffer 被回收前一直有效
+            content = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        return new MappedSptEntryList(content, index != null ? index : SptEntryIndex.build(content));
+    }
+
+    @Override
+    public SptEntry get(int i) {
+        if (i < 0 || i >= index.size()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + index.size());
+        }
+        SptEntry entry = live.get(i);
+        if (entry != null) {
+            return entry;
+        }
+        entry = materialize(i);
+        // 可见范围外的访问（如整文件保存）只做临时解析，不常驻
+        if (i >= windowFrom && i < windowTo) {
+            live.put(i, entry);
+        }
+        return entry;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 设定当前可见范围 [from, to)，释放范围外未被修改的条目。
+     */
+    public void retainRange(int from, int to) {
+        windowFrom = Math.max(0, from);
+        windowTo = Math.min(index.size(), to);
+        Iterator<Map.Entry<Integer, SptEntry>> it = live.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, SptEntry> e = it.next();
+            int i = e.getKey();
+            if (i >= windowFrom && i < windowTo) {
+                continue;
+            }
+            if (!e.getValue().isDirty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 连续滚动用的只读视图：取到保留范围外的条目时，先把范围移到以它为中心的 2×radius 条再取，
+     * 列表控件只管按下标取条目，常驻的条目数仍与文件大小无关。
+     * 先移范围再解析，取到的条目总是常驻的那一份，之后的编辑不会落在临时副本上。
+     */
+    public List<SptEntry> slidingView(int radius) {
+        int span = Math.max(1, radius);
+        return new SlidingView(span);
+    }
+
+    private final class SlidingView extends AbstractList<SptEntry> implements RandomAccess {
+        private final int radius;
+
+        SlidingView(int radius) {
+            this.radius = radius;
+        }
+
+        @Override
+        public SptEntry get(int i) {
+            if (i >= 0 && i < index.size() && (i < windowFrom || i >= windowTo)) {
+                retainRange(i - radius, i + radius);
+            }
+            return MappedSptEntryList.this.get(i);
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+    }
+
+    public List<SptParser.Problem> getProblems() {
+        return index.getProblems();
+    }
+
+    /** 改过译文的条目序号（升序）。 */
+    public int[] dirtyOrdinals() {
+        return live.entrySet().stream()
+                .filter(e -> e.getValue().isDirty())
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+    }
+
+    public void setEditListener(SptEditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    int liveCount() {
+        return live.size();
+    }
+
+    SptEntryIndex index() {
+        return index;
+    }
+
+    /** 丢弃已解析的条目；映射区本身随 GC 释放。 */
+    public void close() {
+        live.clear();
+    }
+
+    private SptEntry materialize(int i) {
+        long start = index.originalStart(i);
+        int length = (int) (index.translateEnd(i) - start);
+        ByteBuffer slice = content.duplicate();
+        slice.position((int) start).limit((int) start + length);
+        SptEntryStore store = new SptEntryStore(1, length);
+        store.setOrdinalOffset(i);
+        // 可见范围外临时解析出的条目一旦被改动（如日志回放）也要常驻，否则修改会随之丢失
+        store.setEditListener((ordinal, entry, segment) -> {
+            live.putIfAbsent(ordinal, entry);
+            if (editListener != null) {
+                editListener.onEdited(ordinal, entry, segment);
+            }
+        });
+        SptEntry[] holder = new SptEntry[1];
+        try {
+            SptParser.scan(slice, c -> holder[0] = store.entry(c.appendTo(store)));
+        } catch (IOException e) {
+            throw new IllegalStateException("解析第 " + i + " 条失败", e);
+        }
+        if (holder[0] == null) {
+            throw new IllegalStateException("第 " + i + " 条的偏移表与快照内容不一致");
+        }
+        return holder[0];
+    }
+}
@@ -0,0 +1,238 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.util.SptParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 一个打开中的 SPT 文件：条目列表、解析问题，以及打开时拷贝出的只读快照。
+ * 每条目在快照中的字节范围记录在 {@link SptEntryIndex} 里，
+ * 保存时未改动的部分直接从快照按字节拷贝，只有脏条目的 ● 行需要重新编码。
+ * <p>
+ * 快照在文档关闭前不会改变，因此每次保存都以它为基准，脏标记在保存后不清除。
+ * <p>
+ * 解析结果缓存在 {@link SptIndexCache} 里，文件内容没变时重新打开不必再解析。
+ */
+public final class SptDocument implements AutoCloseable {
+
+    /** 超过该大小的文件以内存映射懒加载方式打开 */
+    public static final long MAPPED_OPEN_THRESHOLD = 8L * 1024 * 1024;
+
+    private static final Path SNAPSHOT_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "scripteditor-snapshots");
+    private static final long STALE_SNAPSHOT_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final Path file;
+    private final Path snapshot;
+    private final List<SptEntry> entries;
+    private final SptEntryIndex index;
+    // 小文件一次解析进 store；大文件用懒加载列表，二者只有一个非空
+    private final SptEntryStore store;
+    private final MappedSptEntryList mapped;
+
+    private SptDocument(Path file, Path snapshot, SptEntryStore store, MappedSptEntryList mapped, SptEntryIndex index) {
+        this.file = file;
+        this.snapshot = snapshot;
+        this.store = store;
+        this.mapped = mapped;
+        this.index = index;
+        this.entries = store != null ? store.asList() : mapped;
+    }
+
+    public static SptDocument open(Path file) throws IOException {
+        Files.createDirectories(SNAPSHOT_DIR);
+        deleteStaleSnapshots();
+        Path snapshot = Files.createTempFile(SNAPSHOT_DIR, file.getFileName().toString() + ".", ".snapshot");
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Path cache = SptIndexCache.cacheOf(file);
+            boolean cacheMayMatch = SptIndexCache.mayMatch(cache, Files.size(file), modified);
+            // 拷贝快照的同时算哈希，缓存是否可用以快照内容为准
+            SptIndexCache.Key key = new SptIndexCache.Key(Files.size(file), modified, copyAndHash(file, snapshot));
+            SptIndexCache.Cached cached = cacheMayMatch ? SptIndexCache.read(cache, key) : null;
+
+            if (key.size() >= MAPPED_OPEN_THRESHOLD) {
+                // 大文件只建偏移表，条目随翻页按需解析
+                MappedSptEntryList mapped = MappedSptEntryList.open(snapshot, cached != null ? cached.index() : null);
+                if (cached == null) {
+                    SptIndexCache.write(cache, key, mapped.index(), null);
+                }
+                return new SptDocument(file, snapshot, null, mapped, mapped.index());
+            }
+            if (cached == null || cached.store() == null) {
+                cached = parse(snapshot, false);
+                SptIndexCache.write(cache, key, cached.index(), cached.store());
+            }
+            return new SptDocument(file, snapshot, cached.store(), null, cached.index());
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(snapshot); } catch (IOException ignore) {}
+            throw e;
+        }
+    }
+
+    /**
+     * 按 file 当前内容重建索引缓存，供保存后调用，下次打开即可跳过解析。
+     * 缓存只是加速手段，失败时只打日志。
+     */
+    public static void refreshIndexCache(Path file) {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            SptIndexCache.Key key = new SptIndexCache.Key(size, modified, copyAndHash(file, null));
+            SptIndexCache.Cached parsed = parse(file, size >= MAPPED_OPEN_THRESHOLD);
+            if (Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == modified) {
+                SptIndexCache.write(SptIndexCache.cacheOf(file), key, parsed.index(), parsed.store());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to refresh index cache for " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static SptIndexCache.Cached parse(Path content, boolean indexOnly) throws IOException {
+        try (FileChannel ch = FileChannel.open(content, StandardOpenOption.READ)) {
+            if (indexOnly) {
+                // 流式读取而不映射：content 可能是刚保存的源文件，Windows 上映射未释放时无法再替换它
+                SptEntryIndex index = new SptEntryIndex();
+                index.finish(SptParser.scan(ch, index::add));
+                return new SptIndexCache.Cached(index, null);
+            }
+            SptEntryStore store = new SptEntryStore();
+            SptEntryIndex index = new SptEntryIndex();
+            index.finish(SptParser.scan(ch, c -> {
+                c.appendTo(store);
+                index.add(c);
+            }));
+            store.trimToSize();
+            return new SptIndexCache.Cached(index, store);
+        }
+    }
+
+    /** 逐块读 file 算 SHA-1，copy 不为空时顺带写出一份拷贝。 */
+    private static byte[] copyAndHash(Path file, Path copy) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel src = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel dst = copy != null
+                     ? FileChannel.open(copy, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                     : null) {
+            while (src.read(buf) >= 0) {
+                buf.flip();
+                digest.update(buf.duplicate());
+                while (dst != null && buf.hasRemaining()) {
+                    dst.write(buf);
+                }
+                buf.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** 打开时的只读快照，保存时未改动的字节从这里拷贝。 */
+    public Path getSource() {
+        return snapshot;
+    }
+
+    public List<SptEntry> getEntries() {
+        return entries;
+    }
+
+    public List<SptParser.Problem> getProblems() {
+        return index.getProblems();
+    }
+
+    /** 第 i 条 ● 行在快照中的起点。 */
+    public long translateLineStart(int i) {
+        return index.translateStart(i);
+    }
+
+    /** 第 i 条 ● 行在快照中的终点（不含换行符）。 */
+    public long translateLineEnd(int i) {
+        return index.translateEnd(i);
+    }
+
+    /** 自打开以来改过译文的条目序号（升序）。 */
+    public int[] dirtyOrdinals() {
+        return store != null ? store.dirtyRows() : mapped.dirtyOrdinals();
+    }
+
+    /**
+     * 保存用的不可变快照：快照文件路径，以及脏条目的 ● 行字节范围和内容副本。
+     * 只拷贝脏条目，代价与修改量成正比；拿到快照后可在其他线程写盘，用户继续编辑互不影响。
+     */
+    public record Snapshot(Path source, List<DirtyEntry> dirtyEntries) {
+    }
+
+    public record DirtyEntry(long translateLineStart, long translateLineEnd, SptEntry entry) {
+    }
+
+    /** 须在修改条目的线程（FX 线程）上调用。 */
+    public Snapshot snapshot() {
+        int[] dirty = dirtyOrdinals();
+        List<DirtyEntry> copies = new ArrayList<>(dirty.length);
+        for (int i : dirty) {
+            copies.add(new DirtyEntry(index.translateStart(i), index.translateEnd(i), entries.get(i).detachedCopy()));
+        }
+        return new Snapshot(snapshot, List.copyOf(copies));
+    }
+
+    /** 译文修改回调，用于写编辑日志等。 */
+    public void setEditListener(SptEditListener editListener) {
+        if (store != null) {
+            store.setEditListener(editListener);
+        } else {
+            mapped.setEditListener(editListener);
+        }
+    }
+
+    /** 释放条目并尝试删除快照。 */
+    @Override
+    public void close() {
+        if (mapped != null) {
+            mapped.close();
+        }
+        try {
+            Files.deleteIfExists(snapshot);
+        } catch (IOException e) {
+            // Windows 下映射未释放时删不掉，留给下次启动时清理
+            snapshot.toFile().deleteOnExit();
+        }
+    }
+
+    private static void deleteStaleSnapshots() {
+        long now = System.currentTimeMillis();
+        try (Stream<Path> stream = Files.list(SNAPSHOT_DIR)) {
+            stream.filter(p -> p.getFileName().toString().endsWith(".snapshot"))
+                    .forEach(p -> {
+                        try {
+                            if (now - Files.getLastModifiedTime(p).toMillis() > STALE_SNAPSHOT_MILLIS) {
+                                Files.deleteIfExists(p);
+                            }
+                        } catch (IOException ignore) {
+                            // 仍被其他实例映射，跳过
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Failed to clean snapshot directory " + SNAPSHOT_DIR + ": " + e.getMessage());
+        }
+    }
+}
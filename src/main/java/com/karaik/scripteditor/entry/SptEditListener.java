@@ -0,0 +1,11 @@
+package com.karaik.scripteditor.entry;
+
+/**
+ * 条目译文被修改时的回调，ordinal 为条目在文档中的序号。
+ */
+@FunctionalInterface
+public interface SptEditListener {
+
+    /** segment 为被改动文本的段号；段落增删时为 -1。 */
+    void onEdited(int ordinal, SptEntry entry, int segment);
+}
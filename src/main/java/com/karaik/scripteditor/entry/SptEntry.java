@@ -4,95 +4,243 @@ import com.karaik.scripteditor.controller.consts.EditorConst; // Make sure this
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import lombok.Data;
-import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
-@Data
+/**
+ * {@link SptEntryStore} 中一行的视图。文本平时只存在于 store 的 char 池里，
+ * 段落属性对象在第一次被 UI 访问时才创建；
+ * 界面通过 {@link #bindSegments()}/{@link #unbindSegments()} 声明占用，
+ * 最后一个占用方释放时译文写回 store，属性对象随之丢弃。
+ * <p>
+ * 译文属性或段落列表一有变动即标记为脏，保存时只重新编码脏条目。
+ */
 public class SptEntry {
 
-    private String index;
-    private String address;
-    private String length;
+    private final SptEntryStore store;
+    private final int row;
 
     private List<ReadOnlyStringWrapper> originalSegmentsList;
     private ObservableList<StringProperty> translatedSegmentsList;
+    private int bindCount;
+    // 自打开文件以来译文是否改过；保存总是基于打开时的快照，所以保存后也不清除
+    private boolean dirty;
+    private final ChangeListener<String> dirtyMarker = (obs, oldV, newV) -> onSegmentChanged(obs);
 
     public SptEntry(String index, String address, String length, String rawOriginalWithSwapFlags, String rawTranslatedWithSwapFlags) {
-        this.index = index;
-        this.address = address;
-        this.length = length;
+        this.store = new SptEntryStore(1, rawOriginalWithSwapFlags.length() + rawTranslatedWithSwapFlags.length());
+        this.row = store.addRow(index, address, length, rawOriginalWithSwapFlags, rawTranslatedWithSwapFlags);
+    }
 
-        String[] rawOriginals = rawOriginalWithSwapFlags.split(Pattern.quote(EditorConst.SWAP_FLAG), -1);
-        String[] rawTranslateds = rawTranslatedWithSwapFlags.split(Pattern.quote(EditorConst.SWAP_FLAG), -1);
+    SptEntry(SptEntryStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
 
-        this.originalSegmentsList = new ArrayList<>();
-        for (String segment : rawOriginals) {
-            if (segment.isEmpty()) continue;
-            this.originalSegmentsList.add(new ReadOnlyStringWrapper(segment));
-        }
+    public String getIndex() {
+        return store.getIndex(row);
+    }
+
+    public String getAddress() {
+        return store.getAddress(row);
+    }
+
+    public String getLength() {
+        return store.getLength(row);
+    }
 
-        this.translatedSegmentsList = FXCollections.observableArrayList();
-        for (String segment : rawTranslateds) {
-            if (segment.isEmpty()) continue;
-            this.translatedSegmentsList.add(new SimpleStringProperty(segment));
+    public int getOriginalSegmentCount() {
+        return store.getOriginalSegmentCount(row);
+    }
+
+    public String getOriginalSegment(int i) {
+        return store.getOriginalSegment(row, i);
+    }
+
+    /** 原文各段的纯文本，不创建属性对象，供统计工具使用。 */
+    public List<String> getOriginalSegmentTexts() {
+        int n = getOriginalSegmentCount();
+        List<String> texts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            texts.add(getOriginalSegment(i));
         }
+        return texts;
+    }
+
+    public int getTranslatedSegmentCount() {
+        return translatedSegmentsList != null ? translatedSegmentsList.size() : store.getTranslatedSegmentCount(row);
+    }
+
+    public String getTranslatedSegment(int i) {
+        return translatedSegmentsList != null ? translatedSegmentsList.get(i).get() : store.getTranslatedSegment(row, i);
     }
 
     public List<ReadOnlyStringWrapper> getOriginalSegments() {
+        if (originalSegmentsList == null) {
+            int n = getOriginalSegmentCount();
+            originalSegmentsList = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                originalSegmentsList.add(new ReadOnlyStringWrapper(getOriginalSegment(i)));
+            }
+        }
         return originalSegmentsList;
     }
 
     public ObservableList<StringProperty> getTranslatedSegments() {
+        if (translatedSegmentsList == null) {
+            int n = store.getTranslatedSegmentCount(row);
+            translatedSegmentsList = FXCollections.observableArrayList();
+            for (int i = 0; i < n; i++) {
+                StringProperty p = new SimpleStringProperty(store.getTranslatedSegment(row, i));
+                p.addListener(dirtyMarker);
+                translatedSegmentsList.add(p);
+            }
+            translatedSegmentsList.addListener((ListChangeListener<StringProperty>) c -> {
+                dirty = true;
+                while (c.next()) {
+                    c.getRemoved().forEach(p -> p.removeListener(dirtyMarker));
+                    c.getAddedSubList().forEach(p -> p.addListener(dirtyMarker));
+                }
+                store.fireEdited(row, this, -1);
+            });
+        }
         return translatedSegmentsList;
     }
 
-    public String getFullOriginalText() {
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < originalSegmentsList.size(); i++) {
-            ReadOnlyStringWrapper wrapper = originalSegmentsList.get(i);
-            String segment = wrapper.get();
-            builder.append(segment);
-            if (i < originalSegmentsList.size() - 1) {
-                builder.append(EditorConst.SWAP_FLAG);
+    /** 按纯文本整体设置译文段落，只改动有差异的部分（仍会触发脏标记与修改回调）。 */
+    public void setTranslatedSegmentTexts(List<String> texts) {
+        ObservableList<StringProperty> segments = getTranslatedSegments();
+        int common = Math.min(segments.size(), texts.size());
+        for (int i = 0; i < common; i++) {
+            if (!texts.get(i).equals(segments.get(i).get())) {
+                segments.get(i).set(texts.get(i));
             }
         }
-        builder.append(EditorConst.SWAP_FLAG);
+        if (segments.size() > texts.size()) {
+            segments.remove(texts.size(), segments.size());
+        }
+        for (int i = common; i < texts.size(); i++) {
+            segments.add(new SimpleStringProperty(texts.get(i)));
+        }
+    }
+
+    private void onSegmentChanged(Object segmentProperty) {
+        dirty = true;
+        store.fireEdited(row, this, translatedSegmentsList != null ? translatedSegmentsList.indexOf(segmentProperty) : -1);
+    }
+
+    /** 当前内容的独立副本，之后对本条目的修改不影响副本；供后台保存使用。 */
+    public SptEntry detachedCopy() {
+        SptEntryStore copy = new SptEntryStore(1, 64);
+        int copyRow = copy.addRow(getIndex(), getAddress(), getLength(), getFullOriginalText(), "");
+        int n = getTranslatedSegmentCount();
+        List<String> texts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            texts.add(getTranslatedSegment(i));
+        }
+        // 逐段拷贝而不是切分全文，保留空段
+        copy.setTranslatedSegments(copyRow, texts);
+        return copy.entry(copyRow);
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /** 界面开始显示本条目。 */
+    public void bindSegments() {
+        bindCount++;
+    }
+
+    /** 界面不再显示本条目；全部释放后把译文写回 store 并丢弃属性对象。 */
+    public void unbindSegments() {
+        if (bindCount == 0 || --bindCount > 0) {
+            return;
+        }
+        if (translatedSegmentsList != null) {
+            List<String> texts = new ArrayList<>(translatedSegmentsList.size());
+            for (StringProperty p : translatedSegmentsList) {
+                texts.add(p.get());
+            }
+            if (!texts.equals(store.translatedSegments(row))) {
+                store.setTranslatedSegments(row, texts);
+            }
+            translatedSegmentsList = null;
+        }
+        originalSegmentsList = null;
+    }
+
+    public String getFullOriginalText() {
+        StringBuilder builder = new StringBuilder();
+        appendFullOriginalText(builder);
         return builder.toString();
     }
 
     public String getFullTranslatedText() {
         StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < translatedSegmentsList.size(); i++) {
-            StringProperty property = translatedSegmentsList.get(i);
-            String segment = property.get();
-            builder.append(segment);
-            if (i < translatedSegmentsList.size() - 1) {
+        appendFullTranslatedText(builder);
+        return builder.toString();
+    }
+
+    /** 追加 index|address|length，写文件时复用同一个 builder。 */
+    public void appendMeta(StringBuilder builder) {
+        store.appendMeta(row, builder);
+    }
+
+    public void appendFullOriginalText(StringBuilder builder) {
+        int n = store.getOriginalSegmentCount(row);
+        int first = store.originalFirst(row);
+        for (int i = 0; i < n; i++) {
+            store.appendSegmentTo(builder, first + i);
+            if (i < n - 1) {
                 builder.append(EditorConst.SWAP_FLAG);
             }
         }
         builder.append(EditorConst.SWAP_FLAG);
-        return builder.toString();
+    }
+
+    public void appendFullTranslatedText(StringBuilder builder) {
+        if (translatedSegmentsList != null) {
+            for (int i = 0; i < translatedSegmentsList.size(); i++) {
+                StringProperty property = translatedSegmentsList.get(i);
+                String segment = property.get();
+                builder.append(segment);
+                if (i < translatedSegmentsList.size() - 1) {
+                    builder.append(EditorConst.SWAP_FLAG);
+                }
+            }
+        } else {
+            int n = store.getTranslatedSegmentCount(row);
+            int first = store.translatedFirst(row);
+            for (int i = 0; i < n; i++) {
+                store.appendSegmentTo(builder, first + i);
+                if (i < n - 1) {
+                    builder.append(EditorConst.SWAP_FLAG);
+                }
+            }
+        }
+        builder.append(EditorConst.SWAP_FLAG);
     }
 
     public StringProperty addTranslatedSegment(String initialText) {
         SimpleStringProperty newSegment = new SimpleStringProperty(initialText);
-        this.translatedSegmentsList.add(newSegment);
+        getTranslatedSegments().add(newSegment);
         return newSegment;
     }
 
     public void removeTranslatedSegment(int index) {
-        if (index >= 0 && index < this.translatedSegmentsList.size()) {
-            this.translatedSegmentsList.remove(index);
+        ObservableList<StringProperty> segments = getTranslatedSegments();
+        if (index >= 0 && index < segments.size()) {
+            segments.remove(index);
         }
     }
 
     public void removeTranslatedSegment(StringProperty segmentProperty) {
-        this.translatedSegmentsList.remove(segmentProperty);
+        getTranslatedSegments().remove(segmentProperty);
     }
-}
\ No newline at end of file
+}
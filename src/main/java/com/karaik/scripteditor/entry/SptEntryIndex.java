@@ -0,0 +1,134 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.util.SptParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 条目 → 字节范围的紧凑偏移表：每条只记 ○ 行起止、● 行起点和 ● 行终点（不含换行），
+ * 不持有任何字符串，供按需解析条目和写文件时定位。
+ */
+public final class SptEntryIndex {
+
+    private long[] starts = new long[1024];
+    private int[] originalEnds = new int[1024];
+    private int[] translateOffsets = new int[1024];
+    private int[] ends = new int[1024];
+    private int size;
+
+    private List<SptParser.Problem> problems = List.of();
+
+    SptEntryIndex() {
+    }
+
+    public static SptEntryIndex build(ByteBuffer content) throws IOException {
+        SptEntryIndex index = new SptEntryIndex();
+        index.finish(SptParser.scan(content, index::add));
+        return index;
+    }
+
+    /** 边解析边建表时逐条追加，全部追加完后调用 {@link #finish(List)}。 */
+    void add(SptParser.Cursor c) {
+        add(c.originalLineStart(), c.originalLineEnd(), c.translateLineStart(), c.translateLineEnd());
+    }
+
+    void finish(List<SptParser.Problem> problems) {
+        this.problems = problems;
+        trim();
+    }
+
+    private void add(long originalStart, long originalEnd, long translateStart, long translateEnd) {
+        if (size == starts.length) {
+            int cap = size * 2;
+            starts = Arrays.copyOf(starts, cap);
+            originalEnds = Arrays.copyOf(originalEnds, cap);
+            translateOffsets = Arrays.copyOf(translateOffsets, cap);
+            ends = Arrays.copyOf(ends, cap);
+        }
+        starts[size] = originalStart;
+        originalEnds[size] = (int) (originalEnd - originalStart);
+        translateOffsets[size] = (int) (translateStart - originalStart);
+        ends[size] = (int) (translateEnd - originalStart);
+        size++;
+    }
+
+    private void trim() {
+        starts = Arrays.copyOf(starts, size);
+        originalEnds = Arrays.copyOf(originalEnds, size);
+        translateOffsets = Arrays.copyOf(translateOffsets, size);
+        ends = Arrays.copyOf(ends, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** ○ 行起点。 */
+    public long originalStart(int i) {
+        return starts[i];
+    }
+
+    /** ○ 行终点（不含换行符）。 */
+    public long originalEnd(int i) {
+        return starts[i] + originalEnds[i];
+    }
+
+    /** ● 行起点。 */
+    public long translateStart(int i) {
+        return starts[i] + translateOffsets[i];
+    }
+
+    /** ● 行终点（不含换行符）。 */
+    public long translateEnd(int i) {
+        return starts[i] + ends[i];
+    }
+
+    public List<SptParser.Problem> getProblems() {
+        return problems;
+    }
+
+    // ---- 索引缓存的二进制读写，格式见 SptIndexCache ----
+
+    int serializedSize() {
+        int bytes = 4 + size * (8 + 4 + 4 + 4) + 4;
+        for (SptParser.Problem problem : problems) {
+            bytes += 4 + 4 + problem.message().length() * 2;
+        }
+        return bytes;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        SptIndexCache.putLongs(out, starts, size);
+        SptIndexCache.putInts(out, originalEnds, size);
+        SptIndexCache.putInts(out, translateOffsets, size);
+        SptIndexCache.putInts(out, ends, size);
+        out.putInt(problems.size());
+        for (SptParser.Problem problem : problems) {
+            out.putInt(problem.lineNumber());
+            SptIndexCache.putString(out, problem.message());
+        }
+    }
+
+    static SptEntryIndex readFrom(ByteBuffer in) {
+        SptEntryIndex index = new SptEntryIndex();
+        int n = SptIndexCache.getCount(in);
+        index.size = n;
+        index.starts = SptIndexCache.getLongs(in, n);
+        index.originalEnds = SptIndexCache.getInts(in, n);
+        index.translateOffsets = SptIndexCache.getInts(in, n);
+        index.ends = SptIndexCache.getInts(in, n);
+        int problemCount = SptIndexCache.getCount(in);
+        List<SptParser.Problem> problems = new ArrayList<>(problemCount);
+        for (int i = 0; i < problemCount; i++) {
+            int line = in.getInt();
+            problems.add(new SptParser.Problem(line, SptIndexCache.getString(in)));
+        }
+        index.problems = List.copyOf(problems);
+        return index;
+    }
+}
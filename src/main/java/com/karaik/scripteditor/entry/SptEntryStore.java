@@ -0,0 +1,572 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.controller.consts.EditorConst;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 条目的列式存储：index/address/length 存成十六进制数值 + 位数，
+ * 所有段落文本共用一个 char 池，按段记录起止偏移。
+ * {@link SptEntry} 只是 (store, row) 的视图，JavaFX 属性对象在真正绑定控件时才创建。
+ * <p>
+ * 段落修改采用追加写：新文本接到池尾，旧区间作废，不做回收。
+ */
+public final class SptEntryStore {
+
+    private static final int FIELD_INDEX = 0;
+    private static final int FIELD_ADDRESS = 1;
+    private static final int FIELD_LENGTH = 2;
+    private static final int MAX_HEX_WIDTH = 8;
+
+    private static final byte[] SWAP_FLAG_BYTES = EditorConst.SWAP_FLAG.getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private int size;
+
+    // 每行 3 个字段：数值与十六进制位数；无法按大写十六进制还原的字段放进 metaOverflow
+    private int[] metaValues;
+    private byte[] metaWidths;
+    private final Map<Integer, String> metaOverflow = new HashMap<>();
+
+    // 每行的原文/译文段落在段表中的起点与段数
+    private int[] originalFirst;
+    private byte[] originalCount;
+    private int[] translatedFirst;
+    private byte[] translatedCount;
+
+    // 段表：每段在 char 池中的 [start, end)
+    private int segmentCount;
+    private int[] segmentStarts;
+    private int[] segmentEnds;
+
+    private char[] pool;
+    private int poolSize;
+
+    private SptEntry[] views;
+
+    // 行号加上该偏移即条目在文档中的序号（懒加载列表里每条一个单行 store）
+    private int ordinalOffset;
+    private SptEditListener editListener;
+
+    public SptEntryStore() {
+        this(1024, 64 * 1024);
+    }
+
+    public SptEntryStore(int rowCapacity, int charCapacity) {
+        rowCapacity = Math.max(1, rowCapacity);
+        metaValues = new int[rowCapacity * 3];
+        metaWidths = new byte[rowCapacity * 3];
+        originalFirst = new int[rowCapacity];
+        originalCount = new byte[rowCapacity];
+        translatedFirst = new int[rowCapacity];
+        translatedCount = new byte[rowCapacity];
+        segmentStarts = new int[rowCapacity * 2];
+        segmentEnds = new int[rowCapacity * 2];
+        pool = new char[Math.max(16, charCapacity)];
+        views = new SptEntry[rowCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 追加一行，原文/译文按 [\r][\n] 切段并丢弃空段。 */
+    public int addRow(String index, String address, String length, String rawOriginal, String rawTranslated) {
+        int row = beginRow();
+        setMeta(row, FIELD_INDEX, index);
+        setMeta(row, FIELD_ADDRESS, address);
+        setMeta(row, FIELD_LENGTH, length);
+        originalFirst[row] = segmentCount;
+        originalCount[row] = (byte) appendSegments(rawOriginal);
+        translatedFirst[row] = segmentCount;
+        translatedCount[row] = (byte) appendSegments(rawTranslated);
+        return row;
+    }
+
+    /**
+     * 直接从 UTF-8 字节追加一行，供解析器使用，不产生中间 String。
+     * 各区间均为 [from, to)。
+     */
+    public int addRowUtf8(byte[] meta, int indexFrom, int indexTo, int addressFrom, int addressTo,
+                          int lengthFrom, int lengthTo,
+                          byte[] original, int originalFrom, int originalTo,
+                          byte[] translated, int translatedFrom, int translatedTo) {
+        int row = beginRow();
+        setMetaUtf8(row, FIELD_INDEX, meta, indexFrom, indexTo);
+        setMetaUtf8(row, FIELD_ADDRESS, meta, addressFrom, addressTo);
+        setMetaUtf8(row, FIELD_LENGTH, meta, lengthFrom, lengthTo);
+        originalFirst[row] = segmentCount;
+        originalCount[row] = (byte) appendSegmentsUtf8(original, originalFrom, originalTo);
+        translatedFirst[row] = segmentCount;
+        translatedCount[row] = (byte) appendSegmentsUtf8(translated, translatedFrom, translatedTo);
+        return row;
+    }
+
+    public String getIndex(int row) {
+        return getMeta(row, FIELD_INDEX);
+    }
+
+    public String getAddress(int row) {
+        return getMeta(row, FIELD_ADDRESS);
+    }
+
+    public String getLength(int row) {
+        return getMeta(row, FIELD_LENGTH);
+    }
+
+    public int getOriginalSegmentCount(int row) {
+        return originalCount[row];
+    }
+
+    public String getOriginalSegment(int row, int segment) {
+        return segmentText(originalFirst[row] + segment);
+    }
+
+    public int getTranslatedSegmentCount(int row) {
+        return translatedCount[row];
+    }
+
+    public String getTranslatedSegment(int row, int segment) {
+        return segmentText(translatedFirst[row] + segment);
+    }
+
+    /** 用新的段落替换某行译文（追加写）。 */
+    public void setTranslatedSegments(int row, List<String> segments) {
+        int first = segmentCount;
+        int count = 0;
+        for (String s : segments) {
+            if (s == null) {
+                continue;
+            }
+            appendSegment(s);
+            count++;
+        }
+        translatedFirst[row] = first;
+        translatedCount[row] = (byte) count;
+    }
+
+    public void setOrdinalOffset(int ordinalOffset) {
+        this.ordinalOffset = ordinalOffset;
+    }
+
+    public void setEditListener(SptEditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    void fireEdited(int row, SptEntry entry, int segment) {
+        if (editListener != null) {
+            editListener.onEdited(ordinalOffset + row, entry, segment);
+        }
+    }
+
+    /** 解析完成后释放预分配的多余容量。 */
+    public void trimToSize() {
+        metaValues = Arrays.copyOf(metaValues, size * 3);
+        metaWidths = Arrays.copyOf(metaWidths, size * 3);
+        originalFirst = Arrays.copyOf(originalFirst, size);
+        originalCount = Arrays.copyOf(originalCount, size);
+        translatedFirst = Arrays.copyOf(translatedFirst, size);
+        translatedCount = Arrays.copyOf(translatedCount, size);
+        views = Arrays.copyOf(views, size);
+        segmentStarts = Arrays.copyOf(segmentStarts, segmentCount);
+        segmentEnds = Arrays.copyOf(segmentEnds, segmentCount);
+        pool = Arrays.copyOf(pool, poolSize);
+    }
+
+    /** 每行对应的视图，同一行始终返回同一个对象。 */
+    public SptEntry entry(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+        SptEntry view = views[row];
+        if (view == null) {
+            view = new SptEntry(this, row);
+            views[row] = view;
+        }
+        return view;
+    }
+
+    /** 改过译文的行号（升序），只检查已创建过视图的行。 */
+    public int[] dirtyRows() {
+        int[] rows = new int[16];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            SptEntry view = views[i];
+            if (view != null && view.isDirty()) {
+                if (n == rows.length) {
+                    rows = Arrays.copyOf(rows, n * 2);
+                }
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    public List<SptEntry> asList() {
+        return new EntryList();
+    }
+
+    private final class EntryList extends AbstractList<SptEntry> implements RandomAccess {
+        @Override
+        public SptEntry get(int i) {
+            return entry(i);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // ---- 行与元数据 ----
+
+    private int beginRow() {
+        if (size == originalFirst.length) {
+            int cap = Math.max(16, size * 2);
+            metaValues = Arrays.copyOf(metaValues, cap * 3);
+            metaWidths = Arrays.copyOf(metaWidths, cap * 3);
+            originalFirst = Arrays.copyOf(originalFirst, cap);
+            originalCount = Arrays.copyOf(originalCount, cap);
+            translatedFirst = Arrays.copyOf(translatedFirst, cap);
+            translatedCount = Arrays.copyOf(translatedCount, cap);
+            views = Arrays.copyOf(views, cap);
+        }
+        return size++;
+    }
+
+    private void setMeta(int row, int field, String value) {
+        int slot = row * 3 + field;
+        int width = value.length();
+        if (width > MAX_HEX_WIDTH) {
+            storeOverflow(slot, value);
+            return;
+        }
+        int v = 0;
+        for (int i = 0; i < width; i++) {
+            int d = hexDigit(value.charAt(i));
+            if (d < 0) {
+                storeOverflow(slot, value);
+                return;
+            }
+            v = (v << 4) | d;
+        }
+        metaValues[slot] = v;
+        metaWidths[slot] = (byte) width;
+    }
+
+    private void setMetaUtf8(int row, int field, byte[] src, int from, int to) {
+        int slot = row * 3 + field;
+        int width = to - from;
+        if (width > MAX_HEX_WIDTH) {
+            storeOverflow(slot, new String(src, from, width, StandardCharsets.UTF_8));
+            return;
+        }
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int d = hexDigit((char) (src[i] & 0xFF));
+            if (d < 0) {
+                storeOverflow(slot, new String(src, from, width, StandardCharsets.UTF_8));
+                return;
+            }
+            v = (v << 4) | d;
+        }
+        metaValues[slot] = v;
+        metaWidths[slot] = (byte) width;
+    }
+
+    private void storeOverflow(int slot, String value) {
+        metaWidths[slot] = -1;
+        metaOverflow.put(slot, value);
+    }
+
+    /** 把 index|address|length 直接追加到 sb，不产生中间 String。 */
+    void appendMeta(int row, StringBuilder sb) {
+        appendMetaField(row, FIELD_INDEX, sb);
+        sb.append('|');
+        appendMetaField(row, FIELD_ADDRESS, sb);
+        sb.append('|');
+        appendMetaField(row, FIELD_LENGTH, sb);
+    }
+
+    private void appendMetaField(int row, int field, StringBuilder sb) {
+        int slot = row * 3 + field;
+        int width = metaWidths[slot];
+        if (width < 0) {
+            sb.append(metaOverflow.get(slot));
+            return;
+        }
+        int v = metaValues[slot];
+        for (int shift = (width - 1) * 4; shift >= 0; shift -= 4) {
+            sb.append(HEX[(v >>> shift) & 0xF]);
+        }
+    }
+
+    private String getMeta(int row, int field) {
+        int slot = row * 3 + field;
+        int width = metaWidths[slot];
+        if (width < 0) {
+            return metaOverflow.get(slot);
+        }
+        char[] out = new char[width];
+        int v = metaValues[slot];
+        for (int i = width - 1; i >= 0; i--) {
+            out[i] = HEX[v & 0xF];
+            v >>>= 4;
+        }
+        return new String(out);
+    }
+
+    // 只接受大写，保证数值能原样还原
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    // ---- 段落 ----
+
+    private int appendSegments(String raw) {
+        int count = 0;
+        int from = 0;
+        String flag = EditorConst.SWAP_FLAG;
+        while (from <= raw.length()) {
+            int next = raw.indexOf(flag, from);
+            int to = next < 0 ? raw.length() : next;
+            if (to > from) {
+                appendSegment(raw, from, to);
+                count++;
+            }
+            if (next < 0) {
+                break;
+            }
+            from = next + flag.length();
+        }
+        return count;
+    }
+
+    private int appendSegmentsUtf8(byte[] src, int from, int to) {
+        int count = 0;
+        int segStart = from;
+        int i = from;
+        while (i <= to - SWAP_FLAG_BYTES.length) {
+            if (src[i] == SWAP_FLAG_BYTES[0] && matchesFlag(src, i)) {
+                if (i > segStart) {
+                    appendSegmentUtf8(src, segStart, i);
+                    count++;
+                }
+                i += SWAP_FLAG_BYTES.length;
+                segStart = i;
+            } else {
+                i++;
+            }
+        }
+        if (to > segStart) {
+            appendSegmentUtf8(src, segStart, to);
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean matchesFlag(byte[] src, int at) {
+        for (int k = 1; k < SWAP_FLAG_BYTES.length; k++) {
+            if (src[at + k] != SWAP_FLAG_BYTES[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendSegment(String s) {
+        appendSegment(s, 0, s.length());
+    }
+
+    private void appendSegment(String s, int from, int to) {
+        int start = poolSize;
+        ensurePool(to - from);
+        s.getChars(from, to, pool, poolSize);
+        poolSize += to - from;
+        addSegment(start, poolSize);
+    }
+
+    private void appendSegmentUtf8(byte[] src, int from, int to) {
+        int start = poolSize;
+        // UTF-8 解码后的 char 数不会超过字节数
+        ensurePool(to - from);
+        if (!decodeUtf8(src, from, to)) {
+            // 含非法序列时交给 JDK 处理替换字符，保持与 new String 一致
+            poolSize = start;
+            String s = new String(src, from, to - from, StandardCharsets.UTF_8);
+            ensurePool(s.length());
+            s.getChars(0, s.length(), pool, poolSize);
+            poolSize += s.length();
+        }
+        addSegment(start, poolSize);
+    }
+
+    private boolean decodeUtf8(byte[] src, int from, int to) {
+        char[] out = pool;
+        int p = poolSize;
+        int i = from;
+        while (i < to) {
+            int b0 = src[i] & 0xFF;
+            if (b0 < 0x80) {
+                out[p++] = (char) b0;
+                i++;
+            } else if (b0 >= 0xC2 && b0 < 0xE0 && i + 1 < to && isCont(src[i + 1])) {
+                out[p++] = (char) (((b0 & 0x1F) << 6) | (src[i + 1] & 0x3F));
+                i += 2;
+            } else if (b0 >= 0xE0 && b0 < 0xF0 && i + 2 < to && isCont(src[i + 1]) && isCont(src[i + 2])) {
+                int c = ((b0 & 0x0F) << 12) | ((src[i + 1] & 0x3F) << 6) | (src[i + 2] & 0x3F);
+                if (c < 0x800 || (c >= 0xD800 && c <= 0xDFFF)) {
+                    return false;
+                }
+                out[p++] = (char) c;
+                i += 3;
+            } else if (b0 >= 0xF0 && b0 < 0xF5 && i + 3 < to
+                    && isCont(src[i + 1]) && isCont(src[i + 2]) && isCont(src[i + 3])) {
+                int cp = ((b0 & 0x07) << 18) | ((src[i + 1] & 0x3F) << 12)
+                        | ((src[i + 2] & 0x3F) << 6) | (src[i + 3] & 0x3F);
+                if (cp < 0x10000 || cp > 0x10FFFF) {
+                    return false;
+                }
+                out[p++] = Character.highSurrogate(cp);
+                out[p++] = Character.lowSurrogate(cp);
+                i += 4;
+            } else {
+                return false;
+            }
+        }
+        poolSize = p;
+        return true;
+    }
+
+    private static boolean isCont(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private void addSegment(int start, int end) {
+        if (segmentCount == segmentStarts.length) {
+            int cap = Math.max(16, segmentCount * 2);
+            segmentStarts = Arrays.copyOf(segmentStarts, cap);
+            segmentEnds = Arrays.copyOf(segmentEnds, cap);
+        }
+        segmentStarts[segmentCount] = start;
+        segmentEnds[segmentCount] = end;
+        segmentCount++;
+    }
+
+    private void ensurePool(int extra) {
+        if (poolSize + extra > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + extra));
+        }
+    }
+
+    private String segmentText(int segment) {
+        int start = segmentStarts[segment];
+        return new String(pool, start, segmentEnds[segment] - start);
+    }
+
+    /** 把某段文本直接追加到 sb，避免中间 String。 */
+    void appendSegmentTo(StringBuilder sb, int segment) {
+        int start = segmentStarts[segment];
+        sb.append(pool, start, segmentEnds[segment] - start);
+    }
+
+    int originalFirst(int row) {
+        return originalFirst[row];
+    }
+
+    int translatedFirst(int row) {
+        return translatedFirst[row];
+    }
+
+    List<String> translatedSegments(int row) {
+        int n = translatedCount[row];
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(getTranslatedSegment(row, i));
+        }
+        return list;
+    }
+
+    // ---- 索引缓存的二进制读写，格式见 SptIndexCache ----
+
+    int serializedSize() {
+        long bytes = 4 + (long) size * 3 * 5 + 4 + (long) size * 10 + 4 + (long) segmentCount * 8 + 4 + (long) poolSize * 2;
+        for (String value : metaOverflow.values()) {
+            bytes += 4 + 4 + value.length() * 2L;
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("条目过多，无法写入索引缓存");
+        }
+        return (int) bytes;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        SptIndexCache.putInts(out, metaValues, size * 3);
+        out.put(metaWidths, 0, size * 3);
+        out.putInt(metaOverflow.size());
+        for (Map.Entry<Integer, String> e : metaOverflow.entrySet()) {
+            out.putInt(e.getKey());
+            SptIndexCache.putString(out, e.getValue());
+        }
+        SptIndexCache.putInts(out, originalFirst, size);
+        out.put(originalCount, 0, size);
+        SptIndexCache.putInts(out, translatedFirst, size);
+        out.put(translatedCount, 0, size);
+        out.putInt(segmentCount);
+        SptIndexCache.putInts(out, segmentStarts, segmentCount);
+        SptIndexCache.putInts(out, segmentEnds, segmentCount);
+        out.putInt(poolSize);
+        out.asCharBuffer().put(pool, 0, poolSize);
+        out.position(out.position() + poolSize * 2);
+    }
+
+    static SptEntryStore readFrom(ByteBuffer in) {
+        SptEntryStore store = new SptEntryStore(1, 16);
+        int n = SptIndexCache.getCount(in);
+        store.size = n;
+        store.metaValues = SptIndexCache.getInts(in, n * 3);
+        store.metaWidths = SptIndexCache.getBytes(in, n * 3);
+        int overflow = SptIndexCache.getCount(in);
+        for (int i = 0; i < overflow; i++) {
+            int slot = in.getInt();
+            store.metaOverflow.put(slot, SptIndexCache.getString(in));
+        }
+        store.originalFirst = SptIndexCache.getInts(in, n);
+        store.originalCount = SptIndexCache.getBytes(in, n);
+        store.translatedFirst = SptIndexCache.getInts(in, n);
+        store.translatedCount = SptIndexCache.getBytes(in, n);
+        int segments = SptIndexCache.getCount(in);
+        store.segmentCount = segments;
+        store.segmentStarts = SptIndexCache.getInts(in, segments);
+        store.segmentEnds = SptIndexCache.getInts(in, segments);
+        int chars = SptIndexCache.getCount(in);
+        store.poolSize = chars;
+        store.pool = SptIndexCache.getChars(in, chars);
+        store.views = new SptEntry[n];
+        for (int row = 0; row < n; row++) {
+            int last = Math.max(store.originalFirst[row] + store.originalCount[row],
+                    store.translatedFirst[row] + store.translatedCount[row]);
+            if (last > segments || store.originalFirst[row] < 0 || store.translatedFirst[row] < 0) {
+                throw new IllegalStateException("索引缓存中的段表越界");
+            }
+        }
+        for (int seg = 0; seg < segments; seg++) {
+            if (store.segmentStarts[seg] < 0 || store.segmentStarts[seg] > store.segmentEnds[seg]
+                    || store.segmentEnds[seg] > chars) {
+                throw new IllegalStateException("索引缓存中的文本区间越界");
+            }
+        }
+        return store;
+    }
+}
@@ -0,0 +1,205 @@
+package com.karaik.scripteditor.entry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 解析结果的二进制缓存 {@code <file>.spt.idx}，让重新打开同一文件时跳过文本解析。
+ * <p>
+ * 文件头记下源文件的大小、修改时间和 SHA-1，三者都对上才使用；
+ * 之后依次是 {@link SptEntryIndex} 的偏移表和（小文件时）{@link SptEntryStore} 的各列数组，
+ * 末尾是整个文件的 CRC32C。读取时整个读进堆内存后按块批量拷进数组；
+ * 不做内存映射，否则 Windows 上映射释放前无法用新缓存替换它。
+ * 缓存只是加速手段，缺失、过期或损坏时一律当作没有，回到完整解析。
+ */
+public final class SptIndexCache {
+
+    private static final int MAGIC = 0x53504958; // "SPIX"
+    private static final int VERSION = 2;
+    private static final int HASH_SIZE = 20;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + HASH_SIZE + 1;
+    private static final byte MODE_INDEX_ONLY = 0;
+    private static final byte MODE_WITH_STORE = 1;
+
+    /** 源文件的身份：大小、修改时间和内容哈希。 */
+    public record Key(long size, long modifiedMillis, byte[] sha1) {
+    }
+
+    /** 从缓存读出的解析结果；索引模式下 store 为 null。 */
+    record Cached(SptEntryIndex index, SptEntryStore store) {
+    }
+
+    private SptIndexCache() {
+    }
+
+    public static Path cacheOf(Path file) {
+        Path dir = file.getParent() != null ? file.getParent() : Paths.get(".");
+        return dir.resolve(file.getFileName().toString() + ".spt.idx");
+    }
+
+    /** 大小和修改时间就对不上时不必再读内容算哈希。 */
+    static boolean mayMatch(Path cache, long size, long modifiedMillis) {
+        try (FileChannel ch = FileChannel.open(cache, READ)) {
+            if (ch.size() < HEADER_SIZE + 4) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && ch.read(header, header.position()) > 0) {
+                // read(dst, position) 会推进 dst 自身的位置
+            }
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getLong(8) == size && header.getLong(16) == modifiedMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** 读取与 key 完全匹配的缓存；不存在、过期或损坏时返回 null。 */
+    static Cached read(Path cache, Key key) {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(cache, READ)) {
+            long length = ch.size();
+            if (length < HEADER_SIZE + 4 || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) length);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    return null;
+                }
+            }
+            buf.flip();
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION
+                    || buf.getLong(8) != key.size() || buf.getLong(16) != key.modifiedMillis()) {
+                return null;
+            }
+            byte[] hash = new byte[HASH_SIZE];
+            buf.get(24, hash);
+            if (!Arrays.equals(hash, key.sha1())) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate().limit((int) length - 4));
+            if ((int) crc.getValue() != buf.getInt((int) length - 4)) {
+                return null;
+            }
+            byte mode = buf.get(HEADER_SIZE - 1);
+            buf.position(HEADER_SIZE).limit((int) length - 4);
+            SptEntryIndex index = SptEntryIndex.readFrom(buf);
+            SptEntryStore store = mode == MODE_WITH_STORE ? SptEntryStore.readFrom(buf) : null;
+            if (buf.hasRemaining() || (store != null && store.size() != index.size())) {
+                return null;
+            }
+            return new Cached(index, store);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable index cache " + cache + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** 写入缓存（临时文件 + 改名）；失败只打日志，不影响打开文件。 */
+    static void write(Path cache, Key key, SptEntryIndex index, SptEntryStore store) {
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try {
+            long length = (long) HEADER_SIZE + index.serializedSize() + (store != null ? store.serializedSize() : 0) + 4;
+            if (length > Integer.MAX_VALUE) {
+                return;
+            }
+            ByteBuffer out = ByteBuffer.allocate((int) length);
+            out.putInt(MAGIC).putInt(VERSION).putLong(key.size()).putLong(key.modifiedMillis()).put(key.sha1())
+                    .put(store != null ? MODE_WITH_STORE : MODE_INDEX_ONLY);
+            index.writeTo(out);
+            if (store != null) {
+                store.writeTo(out);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(out.array(), 0, out.position());
+            out.putInt((int) crc.getValue());
+            out.flip();
+            try (FileChannel ch = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                while (out.hasRemaining()) {
+                    ch.write(out);
+                }
+            }
+            try {
+                Files.move(tmp, cache, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write index cache " + cache + ": " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+        }
+    }
+
+    // ---- 批量读写数组 ----
+
+    static void putInts(ByteBuffer out, int[] values, int n) {
+        out.asIntBuffer().put(values, 0, n);
+        out.position(out.position() + n * 4);
+    }
+
+    static void putLongs(ByteBuffer out, long[] values, int n) {
+        out.asLongBuffer().put(values, 0, n);
+        out.position(out.position() + n * 8);
+    }
+
+    static void putString(ByteBuffer out, String value) {
+        out.putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out.putChar(value.charAt(i));
+        }
+    }
+
+    /** 读一个长度字段，负数或超出剩余字节时视为损坏。 */
+    static int getCount(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining()) {
+            throw new IllegalStateException("索引缓存中的长度字段无效: " + n);
+        }
+        return n;
+    }
+
+    static int[] getInts(ByteBuffer in, int n) {
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + n * 4);
+        return values;
+    }
+
+    static long[] getLongs(ByteBuffer in, int n) {
+        long[] values = new long[n];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + n * 8);
+        return values;
+    }
+
+    static byte[] getBytes(ByteBuffer in, int n) {
+        byte[] values = new byte[n];
+        in.get(values);
+        return values;
+    }
+
+    static char[] getChars(ByteBuffer in, int n) {
+        char[] values = new char[n];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + n * 2);
+        return values;
+    }
+
+    static String getString(ByteBuffer in) {
+        return new String(getChars(in, getCount(in)));
+    }
+}
@@ -13,6 +13,11 @@ public class AppPreferenceHelper {
     private static final String PREF_KEY_ITEMS_PER_PAGE = "itemsPerPage";
     private static final String PREF_KEY_LAST_PAGE_INDEX = "lastPageIndex";
     private static final String PREF_KEY_ALWAYS_ON_TOP = "alwaysOnTop";
+    private static final String PREF_KEY_CONTINUOUS_MODE = "continuousMode";
+    private static final String PREF_KEY_HISTORY_RETENTION = "historyRetention";
+    private static final String PREF_KEY_MEMORY_THRESHOLD = "memoryThreshold";
+    private static final double DEFAULT_MEMORY_THRESHOLD = 0.7;
+    private static final String PREF_KEY_WORKSPACE_ROOT = "workspaceRoot";
 
     public static void saveLastFile(File file) {
         if (file != null) {
@@ -50,4 +55,54 @@ public class AppPreferenceHelper {
     public static boolean loadAlwaysOnTop() {
         return preferences.getBoolean(PREF_KEY_ALWAYS_ON_TOP, false);
     }
+
+    public static void saveContinuousMode(boolean value) {
+        preferences.putBoolean(PREF_KEY_CONTINUOUS_MODE, value);
+    }
+
+    /** 是否用一个连续滚动的列表显示全部条目，而不是逐页加载。 */
+    public static boolean loadContinuousMode() {
+        return preferences.getBoolean(PREF_KEY_CONTINUOUS_MODE, false);
+    }
+
+    public static void saveWorkspaceRoot(File dir) {
+        if (dir != null) {
+            preferences.put(PREF_KEY_WORKSPACE_ROOT, dir.getAbsolutePath());
+        } else {
+            preferences.remove(PREF_KEY_WORKSPACE_ROOT);
+        }
+    }
+
+    public static File loadWorkspaceRoot() {
+        String path = preferences.get(PREF_KEY_WORKSPACE_ROOT, null);
+        return path != null ? new File(path) : null;
+    }
+
+    public static void saveHistoryRetention(String spec) {
+        preferences.put(PREF_KEY_HISTORY_RETENTION, spec);
+    }
+
+    /** 历史快照保留策略，未配置或配置有误时用默认分档。 */
+    public static HistoryRetention loadHistoryRetention() {
+        String spec = preferences.get(PREF_KEY_HISTORY_RETENTION, null);
+        if (spec == null) {
+            return HistoryRetention.DEFAULT;
+        }
+        try {
+            return HistoryRetention.parse(spec);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid history retention '" + spec + "': " + e.getMessage());
+            return HistoryRetention.DEFAULT;
+        }
+    }
+
+    public static void saveMemoryThreshold(double threshold) {
+        preferences.putDouble(PREF_KEY_MEMORY_THRESHOLD, threshold);
+    }
+
+    /** 翻译记忆模糊匹配的最低相似度（0~1）。 */
+    public static double loadMemoryThreshold() {
+        double threshold = preferences.getDouble(PREF_KEY_MEMORY_THRESHOLD, DEFAULT_MEMORY_THRESHOLD);
+        return threshold > 0 && threshold <= 1 ? threshold : DEFAULT_MEMORY_THRESHOLD;
+    }
 }
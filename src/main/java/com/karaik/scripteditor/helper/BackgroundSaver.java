@@ -0,0 +1,121 @@
+package com.karaik.scripteditor.helper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 单线程后台写盘。提交时若同一个 key（通常是目标文件）已有尚未开始的保存，新任务直接顶替它（只写最新的快照），
+ * 被顶替任务的 future 随顶替者一同完成。正在执行的任务不受影响，不同 key 的任务按提交顺序依次执行。
+ * {@link #whenDone(Object)} 给出某个 key 上还没写完的保存，供读文件前等待。
+ */
+public final class BackgroundSaver {
+
+    @FunctionalInterface
+    public interface SaveTask {
+        void run() throws Exception;
+    }
+
+    private static final class Job {
+        final SaveTask task;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Job(SaveTask task) {
+            this.task = task;
+        }
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "spt-background-save");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Object DEFAULT_KEY = new Object();
+
+    private final Map<Object, Job> pending = new LinkedHashMap<>();
+    private boolean draining;
+    private Object runningKey;
+    private Job running;
+
+    public CompletableFuture<Void> submit(SaveTask task) {
+        return submit(DEFAULT_KEY, task);
+    }
+
+    public synchronized CompletableFuture<Void> submit(Object key, SaveTask task) {
+        Job job = new Job(task);
+        Job previous = pending.remove(key);
+        if (previous != null) {
+            CompletableFuture<Void> superseded = previous.done;
+            job.done.whenComplete((v, e) -> {
+                if (e != null) superseded.completeExceptionally(e);
+                else superseded.complete(null);
+            });
+        }
+        pending.put(key, job);
+        if (!draining) {
+            draining = true;
+            writer.execute(this::drain);
+        }
+        return job.done;
+    }
+
+    /**
+     * key 上排队或正在执行的保存都结束时完成（失败时异常完成）；没有时返回 null。
+     * 排队的任务总在正在执行的之后才跑，所以有排队的就等它。
+     */
+    public synchronized CompletableFuture<Void> whenDone(Object key) {
+        Job queued = pending.get(key);
+        if (queued != null) {
+            return queued.done;
+        }
+        return running != null && runningKey.equals(key) ? running.done : null;
+    }
+
+    /** 是否有保存正在进行或等待进行。 */
+    public synchronized boolean isBusy() {
+        return draining;
+    }
+
+    /** 等待所有已提交的保存结束，超时返回 false。 */
+    public synchronized boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (draining) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                Iterator<Map.Entry<Object, Job>> it = pending.entrySet().iterator();
+                if (!it.hasNext()) {
+                    running = null;
+                    runningKey = null;
+                    draining = false;
+                    notifyAll();
+                    return;
+                }
+                Map.Entry<Object, Job> next = it.next();
+                it.remove();
+                runningKey = next.getKey();
+                running = job = next.getValue();
+            }
+            try {
+                job.task.run();
+                job.done.complete(null);
+            } catch (Throwable e) {
+                job.done.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.karaik.scripteditor.helper;
 
+import com.karaik.scripteditor.entry.SptDocument;
 import com.karaik.scripteditor.entry.SptEntry;
 import com.karaik.scripteditor.util.SptWriter;
 
@@ -26,7 +27,31 @@ public final class CrashSafeFileSaver {
 
     private CrashSafeFileSaver() {}
 
+    /** 把内容写到给定的临时文件 */
+    private interface ContentWriter {
+        void writeTo(File tmp) throws Exception;
+    }
+
     public static void saveWithBak(List<SptEntry> entries, File targetFile) throws IOException {
+        saveWithBak(targetFile, tmp -> SptWriter.saveToFile(entries, tmp));
+    }
+
+    /** 增量保存：临时文件由快照拷贝 + 脏条目重新编码得到，其余流程不变。 */
+    public static void saveWithBak(SptDocument document, File targetFile) throws IOException {
+        saveWithBak(document.snapshot(), targetFile);
+    }
+
+    /** 后台保存用：快照在 FX 线程上取好，这里可以在任意线程执行。 */
+    public static void saveWithBak(SptDocument.Snapshot snapshot, File targetFile) throws IOException {
+        saveWithBak(targetFile, tmp -> SptWriter.saveIncremental(snapshot, tmp));
+    }
+
+    /** 直接写出已编码好的整份内容（如批量补丁），流程同上。 */
+    public static void saveWithBak(byte[] content, File targetFile) throws IOException {
+        saveWithBak(targetFile, tmp -> Files.write(tmp.toPath(), content));
+    }
+
+    private static void saveWithBak(File targetFile, ContentWriter contentWriter) throws IOException {
         Path target = targetFile.toPath();
         Path dir = target.getParent() != null ? target.getParent() : Paths.get(".");
         String base = target.getFileName().toString();
@@ -57,7 +82,7 @@ public final class CrashSafeFileSaver {
         // 2) 写临时文件 & 落盘
         try {
             // 你已有的写出实现：复用 SptWriter，路径指向 tmp
-            SptWriter.saveToFile(entries, tmp.toFile());
+            contentWriter.writeTo(tmp.toFile());
             try (FileChannel ch = FileChannel.open(tmp, WRITE)) {
                 ch.force(true); // 强制把数据与元数据刷盘
             }
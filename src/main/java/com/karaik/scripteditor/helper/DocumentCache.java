@@ -0,0 +1,409 @@
+package com.karaik.scripteditor.helper;
+
+import com.karaik.scripteditor.entry.SptDocument;
+import com.karaik.scripteditor.entry.SptEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * 最近用过的已解析文档的 LRU 缓存，按源文件字节数限制总量，切回缓存里的文件不必重新解析。
+ * 有未保存修改的文档常驻，保存后才参与淘汰；被淘汰的文档连同快照和日志一起关闭。
+ * <p>
+ * 文档在固定大小的后台线程池里并行打开。缓存本身的方法都是同步的，
+ * 取出的文档只能在 FX 线程上修改。
+ * 文件上还有后台写入（如批量同步译文）没写完时，打开要等它结束，缓存里的旧文档也不再取出。
+ */
+public final class DocumentCache {
+
+    /** 一个暂不显示的文档及其编辑状态。 */
+    public static final class Entry {
+        private final File file;
+        private final SptDocument document;
+        private final long weight;
+        private EditJournal journal;
+        private boolean modified;
+        private long editGeneration;
+        private int pageIndex;
+        private long sourceSize;
+        private long sourceModified;
+
+        Entry(File file, SptDocument document) {
+            this.file = file;
+            this.document = document;
+            this.weight = Math.max(1, sizeOf(file.toPath()));
+            stampSource();
+        }
+
+        /** 后台打开的文档用打开前记下的大小和修改时间，打开期间文件被改写的话取出时能发现。 */
+        Entry(File file, Loaded loaded) {
+            this.file = file;
+            this.document = loaded.document();
+            this.weight = Math.max(1, loaded.sourceSize());
+            this.sourceSize = loaded.sourceSize();
+            this.sourceModified = loaded.sourceModified();
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public SptDocument getDocument() {
+            return document;
+        }
+
+        public EditJournal getJournal() {
+            return journal;
+        }
+
+        public boolean isModified() {
+            return modified;
+        }
+
+        public long getEditGeneration() {
+            return editGeneration;
+        }
+
+        public int getPageIndex() {
+            return pageIndex;
+        }
+
+        /** 记下文件当前的大小和修改时间，取出时据此判断文件是否被外部改过。 */
+        void stampSource() {
+            Path path = file.toPath();
+            sourceSize = sizeOf(path);
+            try {
+                sourceModified = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                sourceModified = -1;
+            }
+        }
+
+        boolean sourceUnchanged() {
+            Path path = file.toPath();
+            try {
+                return sizeOf(path) == sourceSize && Files.getLastModifiedTime(path).toMillis() == sourceModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        void close() {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            document.close();
+        }
+    }
+
+    /** 后台打开的结果，连同开始读之前文件的大小和修改时间。 */
+    private record Loaded(SptDocument document, long sourceSize, long sourceModified) {
+    }
+
+    private final long maxBytes;
+    private final Predicate<SptDocument> inUse;
+    private final Function<File, CompletableFuture<?>> pendingWrite;
+    private final ExecutorService loader;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, CompletableFuture<Loaded>> loading = new LinkedHashMap<>();
+    // 预读完成前就被拿去显示的文档，不能再放进缓存
+    private final Set<SptDocument> claimed = Collections.newSetFromMap(new WeakHashMap<>());
+    private long totalBytes;
+
+    /** inUse 为真的文档（如正在后台保存）暂不淘汰。 */
+    public DocumentCache(long maxBytes, int loaderThreads, Predicate<SptDocument> inUse) {
+        this(maxBytes, loaderThreads, inUse, file -> null);
+    }
+
+    /** pendingWrite 给出文件上还没写完的后台写入（没有时为 null），打开文件前先等它结束。 */
+    public DocumentCache(long maxBytes, int loaderThreads, Predicate<SptDocument> inUse,
+                         Function<File, CompletableFuture<?>> pendingWrite) {
+        this.maxBytes = maxBytes;
+        this.inUse = inUse;
+        this.pendingWrite = pendingWrite;
+        AtomicInteger counter = new AtomicInteger();
+        this.loader = Executors.newFixedThreadPool(Math.max(1, loaderThreads), r -> {
+            Thread t = new Thread(r, "spt-document-loader-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 暂存一个不再显示的文档。modified 为 true 时常驻到保存为止；
+     * journal 为空表示文档没有挂着打开的日志，重新显示时需要重新打开。
+     */
+    public synchronized void put(File file, SptDocument document, EditJournal journal,
+                                 boolean modified, long editGeneration, int pageIndex) {
+        Path key = keyOf(file);
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.weight;
+            if (previous.document != document) {
+                previous.close();
+            }
+        }
+        Entry entry = new Entry(file, document);
+        entry.journal = journal;
+        entry.modified = modified;
+        entry.editGeneration = editGeneration;
+        entry.pageIndex = pageIndex;
+        entries.put(key, entry);
+        totalBytes += entry.weight;
+        evict();
+    }
+
+    /**
+     * 取出（并移出缓存）file 对应的文档。文件在缓存期间被外部改过、或还有后台写入没写完，
+     * 且文档没有未保存修改时，丢弃旧文档并返回 null，调用方重新打开即可。
+     */
+    public synchronized Entry take(File file) {
+        Entry entry = entries.remove(keyOf(file));
+        if (entry == null) {
+            return null;
+        }
+        totalBytes -= entry.weight;
+        if (!entry.modified && (isBeingWritten(file) || !entry.sourceUnchanged())) {
+            entry.close();
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized boolean contains(File file) {
+        return entries.containsKey(keyOf(file));
+    }
+
+    /**
+     * 在后台打开文档；同一文件正在打开时复用同一个任务，预读已放进缓存时直接给出缓存的文档。
+     * 文件还有后台写入没写完时，等写完再读，不复用之前读到的内容。结果不自动放进缓存。
+     */
+    public synchronized CompletableFuture<SptDocument> load(File file) {
+        return load(file, false);
+    }
+
+    private CompletableFuture<SptDocument> load(File file, boolean admit) {
+        Path key = keyOf(file);
+        CompletableFuture<?> write = pendingWrite.apply(file);
+        boolean writing = write != null && !write.isDone();
+        Entry cached = entries.get(key);
+        if (cached != null && !writing) {
+            return CompletableFuture.completedFuture(cached.document);
+        }
+        CompletableFuture<Loaded> running = loading.get(key);
+        if (running != null && !writing) {
+            return running.thenApply(Loaded::document);
+        }
+        // 写入失败时文件保持原样，照常打开
+        CompletableFuture<?> before = writing ? write.handle((v, e) -> null) : CompletableFuture.completedFuture(null);
+        CompletableFuture<Loaded> future = before.thenApplyAsync(ignored -> {
+            Path path = file.toPath();
+            try {
+                long size = Files.size(path);
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                return new Loaded(SptDocument.open(path), size, modified);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, loader);
+        loading.put(key, future);
+        // 放进缓存和移出 loading 必须在同一把锁里完成，否则中间的 load 会再打开一份
+        future.whenComplete((loaded, e) -> {
+            synchronized (this) {
+                if (admit && loaded != null) {
+                    admit(file, loaded);
+                }
+                loading.remove(key, future);
+            }
+        });
+        return future.thenApply(Loaded::document);
+    }
+
+    /**
+     * 预先在后台打开一批文件，只在不挤掉已有文档的前提下放进缓存。
+     * 已缓存、正在打开或 skip 指定的文件跳过。
+     */
+    public synchronized void prefetch(List<File> files, File skip) {
+        long budget = maxBytes - totalBytes;
+        for (File file : files) {
+            Path key = keyOf(file);
+            if ((skip != null && key.equals(keyOf(skip))) || entries.containsKey(key) || loading.containsKey(key)) {
+                continue;
+            }
+            long weight = Math.max(1, sizeOf(key));
+            if (weight > budget) {
+                continue;
+            }
+            budget -= weight;
+            load(file, true);
+        }
+    }
+
+    /**
+     * 声明某个 {@link #load(File)} 得到的文档已被拿去显示：若预读已把它放进缓存则移出（不关闭），
+     * 之后也不再放进来。
+     */
+    public synchronized void claim(SptDocument document) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.document == document) {
+                it.remove();
+                totalBytes -= entry.weight;
+                return;
+            }
+        }
+        claimed.add(document);
+    }
+
+    private synchronized void admit(File file, Loaded loaded) {
+        SptDocument document = loaded.document();
+        if (claimed.remove(document)) {
+            return;
+        }
+        Path key = keyOf(file);
+        Entry entry = new Entry(file, loaded);
+        if (entries.containsKey(key) || totalBytes + entry.weight > maxBytes) {
+            document.close();
+            return;
+        }
+        entries.put(key, entry);
+        totalBytes += entry.weight;
+    }
+
+    /** 按文档找到缓存条目，没有时返回 null。 */
+    public synchronized Entry find(SptDocument document) {
+        for (Entry entry : entries.values()) {
+            if (entry.document == document) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 后台保存完成：保存期间没有新修改的话清除未保存标记、清空并关闭日志，文档随之可以被淘汰。
+     */
+    public synchronized void markSaved(SptDocument document, long savedGeneration) {
+        Entry entry = find(document);
+        if (entry == null || entry.editGeneration != savedGeneration) {
+            return;
+        }
+        entry.modified = false;
+        entry.stampSource();
+        if (entry.journal != null) {
+            try {
+                entry.journal.reset();
+            } catch (Exception e) {
+                // 清空失败只会导致下次打开时多回放一遍，而回放是幂等的
+                System.err.println("Failed to reset journal for " + entry.file + ": " + e.getMessage());
+            }
+            entry.journal.close();
+            entry.journal = null;
+        }
+        evict();
+    }
+
+    /**
+     * 直接修改缓存中的 file：有未保存修改或正在保存的文档在内存里执行 edit，之后标记为未保存，
+     * 进行中的保存也不会清掉这个标记；返回改动的条目数。
+     * 其他情况（不在缓存中，或是可以直接关闭的干净文档）返回 -1，由调用方改写磁盘上的文件。
+     */
+    public synchronized int editInPlace(File file, ToIntFunction<List<SptEntry>> edit) {
+        Path key = keyOf(file);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return -1;
+        }
+        if (!entry.modified && !inUse.test(entry.document)) {
+            entries.remove(key);
+            totalBytes -= entry.weight;
+            entry.close();
+            return -1;
+        }
+        int changed = edit.applyAsInt(entry.document.getEntries());
+        if (changed > 0) {
+            entry.modified = true;
+            entry.editGeneration++;
+        }
+        return changed;
+    }
+
+    /** 有未保存修改的文档。 */
+    public synchronized List<Entry> modifiedEntries() {
+        List<Entry> modified = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.modified) {
+                modified.add(entry);
+            }
+        }
+        return modified;
+    }
+
+    /** 关闭全部文档。discardChanges 为 true 时同时删除未保存修改的日志，否则日志留待下次打开时恢复。 */
+    public synchronized void closeAll(boolean discardChanges) {
+        for (Entry entry : entries.values()) {
+            if (discardChanges && entry.journal != null) {
+                entry.journal.discard();
+                entry.journal = null;
+            }
+            entry.close();
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /** 重新检查容量，用于之前因占用而跳过淘汰的文档释放之后。 */
+    public synchronized void trim() {
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.modified || inUse.test(entry.document)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= entry.weight;
+            entry.close();
+        }
+    }
+
+    private boolean isBeingWritten(File file) {
+        CompletableFuture<?> write = pendingWrite.apply(file);
+        return write != null && !write.isDone();
+    }
+
+    private static Path keyOf(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.karaik.scripteditor.helper;
+
+import com.karaik.scripteditor.entry.SptEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 每个文件一份的追加式编辑日志 {@code <file>.journal}，记录上次保存以来的译文修改。
+ * <p>
+ * 每条记录为 [int 长度][int CRC32][内容]，内容写的是修改后的绝对值而不是差量，
+ * 文本按 [int 字节数][UTF-8] 写入，长度不受 writeUTF 的 64 KB 限制；旧版（SPT1，writeUTF）日志仍可读取，打开追加时转成新格式。
+ * 重复回放结果不变——保存成功但还没来得及清空日志时崩溃，再次回放也不会出错。
+ * 记录先攒在内存里，由后台线程每 {@value #SYNC_INTERVAL_MILLIS} 毫秒成批写入并 force 一次。
+ * 读取时遇到长度或校验不对的记录即视为崩溃时写了一半的尾部，从那里截断。
+ */
+public final class EditJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x53505432; // "SPT2"
+    private static final int MAGIC_V1 = 0x53505431; // "SPT1"，文本用 writeUTF 写
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 26;
+    private static final long SYNC_INTERVAL_MILLIS = 200;
+
+    private static final byte TYPE_SET_SEGMENT = 1;
+    private static final byte TYPE_SET_SEGMENTS = 2;
+
+    /**
+     * 一条日志记录。segment >= 0 时只改该段，texts 只有一个元素；
+     * segment 为 -1 时 texts 为整条译文的全部段落。index 用于回放时核对条目。
+     */
+    public record Record(int ordinal, String index, int segment, List<String> texts) {
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ScheduledExecutorService syncer;
+
+    private final Object pendingLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private EditJournal(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edit-journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static Path journalOf(Path target) {
+        Path dir = target.getParent() != null ? target.getParent() : Paths.get(".");
+        return dir.resolve(target.getFileName().toString() + ".journal");
+    }
+
+    /** 读出 target 对应日志中的有效记录；日志不存在时返回空列表。 */
+    public static List<Record> read(Path target) throws IOException {
+        Path journal = journalOf(target);
+        if (!Files.isRegularFile(journal)) {
+            return List.of();
+        }
+        List<Record> records = new ArrayList<>();
+        scan(ByteBuffer.wrap(Files.readAllBytes(journal)), records);
+        return records;
+    }
+
+    /**
+     * 把记录回放到条目上，返回实际生效的记录数。
+     * 序号越界或 index 对不上（文件已被外部修改）的记录跳过。
+     */
+    public static int replay(List<Record> records, List<SptEntry> entries) {
+        int applied = 0;
+        for (Record r : records) {
+            if (r.ordinal() < 0 || r.ordinal() >= entries.size()) {
+                continue;
+            }
+            SptEntry entry = entries.get(r.ordinal());
+            if (!entry.getIndex().equals(r.index())) {
+                continue;
+            }
+            if (r.segment() < 0) {
+                entry.setTranslatedSegmentTexts(r.texts());
+            } else if (r.segment() < entry.getTranslatedSegmentCount()) {
+                entry.getTranslatedSegments().get(r.segment()).set(r.texts().get(0));
+            } else {
+                continue;
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    /** 打开（必要时创建）日志用于追加；已有的有效记录保留，写了一半的尾部被截掉。 */
+    public static EditJournal open(Path target) throws IOException {
+        Path journal = journalOf(target);
+        FileChannel ch = FileChannel.open(journal, CREATE, READ, WRITE);
+        List<Record> legacy = new ArrayList<>();
+        try {
+            long validEnd;
+            if (ch.size() < HEADER_SIZE) {
+                validEnd = 0;
+            } else {
+                ByteBuffer all = ByteBuffer.allocate((int) Math.min(ch.size(), Integer.MAX_VALUE));
+                while (all.hasRemaining() && ch.read(all, all.position()) > 0) {
+                    // read(dst, position) 会推进 dst 自身的位置
+                }
+                all.flip();
+                if (all.getInt(0) == MAGIC_V1) {
+                    // 旧格式：读出记录后按新格式重写，未保存的修改不丢
+                    scan(all, legacy);
+                    validEnd = 0;
+                } else {
+                    validEnd = scan(all, null);
+                }
+            }
+            if (validEnd < HEADER_SIZE) {
+                ch.truncate(0);
+                ch.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+                validEnd = HEADER_SIZE;
+            }
+            ch.truncate(validEnd);
+            ch.position(validEnd);
+            ch.force(true);
+            EditJournal opened = new EditJournal(journal, ch);
+            if (!legacy.isEmpty()) {
+                for (Record r : legacy) {
+                    opened.append(r.segment() >= 0 ? TYPE_SET_SEGMENT : TYPE_SET_SEGMENTS,
+                            r.ordinal(), r.index(), r.segment(), r.texts());
+                }
+                opened.sync();
+            }
+            return opened;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** 单段文本修改。 */
+    public void recordSegment(int ordinal, SptEntry entry, int segment) {
+        append(TYPE_SET_SEGMENT, ordinal, entry.getIndex(), segment, List.of(entry.getTranslatedSegment(segment)));
+    }
+
+    /** 段落增删，记下整条译文。 */
+    public void recordSegments(int ordinal, SptEntry entry) {
+        int n = entry.getTranslatedSegmentCount();
+        List<String> texts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            texts.add(entry.getTranslatedSegment(i));
+        }
+        append(TYPE_SET_SEGMENTS, ordinal, entry.getIndex(), -1, texts);
+    }
+
+    /** 保存成功后调用：文件已包含全部修改，清空日志。 */
+    public void reset() throws IOException {
+        synchronized (channel) {
+            synchronized (pendingLock) {
+                pending = new ByteArrayOutputStream();
+            }
+            channel.truncate(HEADER_SIZE);
+            channel.position(HEADER_SIZE);
+            channel.force(true);
+        }
+    }
+
+    /** 立即把内存中的记录写入并落盘。 */
+    public void sync() throws IOException {
+        synchronized (channel) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            byte[] batch;
+            synchronized (pendingLock) {
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+            }
+            ByteBuffer buf = ByteBuffer.wrap(batch);
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+    }
+
+    /** 放弃日志中的全部修改（用户选择不保存时）。 */
+    public void discard() {
+        syncer.shutdown(); // 不能中断，被中断的 FileChannel 会直接关闭
+        synchronized (channel) {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("Failed to delete journal " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** 写完剩余记录后关闭；日志为空时顺带删除文件，不在目录里留空日志。 */
+    @Override
+    public void close() {
+        syncer.shutdown(); // 不能中断，被中断的 FileChannel 会直接关闭
+        synchronized (channel) {
+            try {
+                sync();
+                boolean empty = channel.isOpen() && channel.size() <= HEADER_SIZE;
+                channel.close();
+                if (empty) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to close journal " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Failed to sync journal " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void append(byte type, int ordinal, String index, int segment, List<String> texts) {
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeInt(ordinal);
+            writeText(out, index);
+            if (type == TYPE_SET_SEGMENT) {
+                out.writeByte(segment);
+                writeText(out, texts.get(0));
+            } else {
+                out.writeByte(texts.size());
+                for (String text : texts) {
+                    writeText(out, text);
+                }
+            }
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 只写内存，不会发生
+        }
+        if (payload.length > MAX_RECORD_SIZE) {
+            // 超长记录读取时会被当成损坏的尾部，连带截掉之后的记录，宁可只丢这一条
+            System.err.println("Journal record too large, skipped: " + payload.length + " bytes in " + path);
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue());
+        synchronized (pendingLock) {
+            pending.write(header.array(), 0, RECORD_HEADER_SIZE);
+            pending.write(payload, 0, payload.length);
+        }
+    }
+
+    /** 逐条校验记录，records 非空时收集解析结果；返回有效部分的结尾位置。 */
+    private static long scan(ByteBuffer buf, List<Record> records) {
+        if (buf.remaining() < HEADER_SIZE || (buf.getInt(0) != MAGIC && buf.getInt(0) != MAGIC_V1)) {
+            return 0;
+        }
+        boolean legacy = buf.getInt(0) == MAGIC_V1;
+        int pos = HEADER_SIZE;
+        while (buf.limit() - pos >= RECORD_HEADER_SIZE) {
+            int length = buf.getInt(pos);
+            int checksum = buf.getInt(pos + 4);
+            if (length <= 0 || length > MAX_RECORD_SIZE || buf.limit() - pos - RECORD_HEADER_SIZE < length) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buf.get(pos + RECORD_HEADER_SIZE, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (records != null) {
+                Record r = decode(payload, legacy);
+                if (r == null) {
+                    break;
+                }
+                records.add(r);
+            }
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        return pos;
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readText(DataInputStream in, boolean legacy) throws IOException {
+        if (legacy) {
+            return in.readUTF();
+        }
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("文本长度不对: " + length);
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static Record decode(byte[] payload, boolean legacy) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            int ordinal = in.readInt();
+            String index = readText(in, legacy);
+            if (type == TYPE_SET_SEGMENT) {
+                int segment = in.readUnsignedByte();
+                return new Record(ordinal, index, segment, List.of(readText(in, legacy)));
+            }
+            if (type == TYPE_SET_SEGMENTS) {
+                int n = in.readUnsignedByte();
+                List<String> texts = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    texts.add(readText(in, legacy));
+                }
+                return new Record(ordinal, index, -1, texts);
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -4,20 +4,15 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.FileTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Handles creation and retention of history snapshots that live alongside the source file.
+ * Snapshots go into a deduplicated {@link HistoryStore}, so storing one on every save is cheap;
+ * retention follows the configured {@link HistoryRetention} buckets.
  */
 public final class HistoryManager {
 
-    private static final int MAX_HISTORY_FILES = 3;
-
     private HistoryManager() {
     }
 
@@ -29,47 +24,28 @@ public final class HistoryManager {
         if (!Files.isRegularFile(sourcePath)) {
             return;
         }
-        Path historyDir = sourcePath.resolveSibling("history");
         try {
-            Files.createDirectories(historyDir);
-            String baseName = sourceFile.getName();
-            String timestamp = String.valueOf(System.currentTimeMillis());
-            Path snapshotPath = historyDir.resolve(baseName + "." + timestamp + ".autosave");
-            Files.copy(sourcePath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
-            pruneOldSnapshots(historyDir, baseName);
-        } catch (IOException e) {
-            System.err.println("Failed to create history snapshot for " + sourcePath + ": " + e.getMessage());
-        }
-    }
-
-    private static void pruneOldSnapshots(Path historyDir, String baseName) throws IOException {
-        try (Stream<Path> stream = Files.list(historyDir)) {
-            List<Path> snapshots = stream
-                    .filter(Files::isRegularFile)
-                    .filter(path -> matchesBaseName(path, baseName))
-                    .sorted(Comparator.comparingLong(HistoryManager::lastModified).reversed())
-                    .collect(Collectors.toList());
-            for (int i = MAX_HISTORY_FILES; i < snapshots.size(); i++) {
-                try {
-                    Files.deleteIfExists(snapshots.get(i));
-                } catch (IOException ex) {
-                    System.err.println("Failed to delete old history snapshot " + snapshots.get(i) + ": " + ex.getMessage());
-                }
+            HistoryStore store = HistoryStore.of(sourcePath);
+            long now = System.currentTimeMillis();
+            if (store.store(now)) {
+                store.prune(AppPreferenceHelper.loadHistoryRetention(), now);
             }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to create history snapshot for " + sourcePath + ": " + e.getMessage());
         }
     }
 
-    private static boolean matchesBaseName(Path path, String baseName) {
-        String fileName = path.getFileName().toString();
-        return fileName.startsWith(baseName + ".") && fileName.endsWith(".autosave");
+    /** Snapshots of the file, newest first; empty when no history has been stored. */
+    public static List<HistoryStore.Snapshot> listSnapshots(File sourceFile) throws IOException {
+        return HistoryStore.of(sourceFile.toPath()).list();
     }
 
-    private static long lastModified(Path path) {
-        try {
-            FileTime lastModifiedTime = Files.getLastModifiedTime(path);
-            return lastModifiedTime.toMillis();
-        } catch (IOException e) {
-            return Long.MIN_VALUE;
+    /** Writes the snapshot taken at timestamp to out, which must not be the source file itself. */
+    public static void restoreSnapshot(File sourceFile, long timestamp, Path out) throws IOException {
+        Path source = sourceFile.toPath().toAbsolutePath().normalize();
+        if (source.equals(out.toAbsolutePath().normalize())) {
+            throw new IOException("Refusing to restore a snapshot over its source file: " + source);
         }
+        HistoryStore.of(source).restore(timestamp, out);
     }
 }
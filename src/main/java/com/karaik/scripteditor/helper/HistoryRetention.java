@@ -0,0 +1,96 @@
+package com.karaik.scripteditor.helper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 历史快照的保留策略：按时间分档，每档在自己的时间跨度内每个间隔只留最新的一份。
+ * 例如 {@code 1h:0,1d:1h,30d:1d,365d:7d} 表示一小时内全留、一天内每小时一份、
+ * 一个月内每天一份、一年内每周一份，更早的删除。最新的一份无论如何都保留。
+ */
+public record HistoryRetention(List<Tier> tiers) {
+
+    /** span 为距今的时间跨度上限，interval 为该档的分桶间隔，0 表示全部保留。 */
+    public record Tier(Duration span, Duration interval) {
+    }
+
+    public static final HistoryRetention DEFAULT = parse("1h:0,1d:1h,30d:1d,365d:7d");
+
+    public HistoryRetention {
+        tiers = List.copyOf(tiers);
+    }
+
+    /**
+     * 解析形如 {@code 1h:0,1d:1h} 的配置，单位支持 s/m/h/d/w。
+     * 格式不对时抛出 IllegalArgumentException。
+     */
+    public static HistoryRetention parse(String spec) {
+        List<Tier> tiers = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("保留策略缺少间隔: " + trimmed);
+            }
+            tiers.add(new Tier(parseDuration(trimmed.substring(0, colon)), parseDuration(trimmed.substring(colon + 1))));
+        }
+        tiers.sort((a, b) -> a.span().compareTo(b.span()));
+        return new HistoryRetention(tiers);
+    }
+
+    /** 从按时间倒序排列的快照时间戳中选出要保留的。 */
+    public Set<Long> select(List<Long> newestFirst, long now) {
+        Set<Long> keep = new HashSet<>();
+        Set<String> buckets = new HashSet<>();
+        for (int i = 0; i < newestFirst.size(); i++) {
+            long timestamp = newestFirst.get(i);
+            if (i == 0) {
+                keep.add(timestamp);
+                continue;
+            }
+            long age = Math.max(0, now - timestamp);
+            for (int t = 0; t < tiers.size(); t++) {
+                Tier tier = tiers.get(t);
+                if (age >= tier.span().toMillis()) {
+                    continue;
+                }
+                long interval = tier.interval().toMillis();
+                if (interval <= 0 || buckets.add(t + ":" + Math.floorDiv(timestamp, interval))) {
+                    keep.add(timestamp);
+                }
+                break;
+            }
+        }
+        return keep;
+    }
+
+    private static Duration parseDuration(String text) {
+        String s = text.trim();
+        if (s.equals("0")) {
+            return Duration.ZERO;
+        }
+        if (s.length() < 2) {
+            throw new IllegalArgumentException("无法识别的时长: " + text);
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(s.substring(0, s.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无法识别的时长: " + text, e);
+        }
+        return switch (s.charAt(s.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            case 'w' -> Duration.ofDays(amount * 7);
+            default -> throw new IllegalArgumentException("无法识别的时长单位: " + text);
+        };
+    }
+}
@@ -0,0 +1,757 @@
+package com.karaik.scripteditor.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 按内容寻址的历史快照仓库，放在源文件旁的 {@code history/} 目录下。
+ * <p>
+ * 快照按条目切块（每个 ○ 行开始一块，超长时在换行处再切），块以 SHA-1 去重，
+ * 新块成批 deflate 后追加进 {@code <name>.history.pack}；
+ * 每个快照只写一个小清单 {@code <name>.<毫秒>.snapshot}，记录块编号序列（差分 + 变长编码后再压缩）。
+ * 改动少的保存只追加几个新块和一份几十字节的清单，可以每次保存都做。
+ * <p>
+ * 包文件头带一个代号，压缩整理时换新代号：先写好新包和新清单的临时文件，再依次改名替换；
+ * 中途崩溃的话，打开时按代号决定是接着改名还是丢弃临时文件。
+ */
+public final class HistoryStore {
+
+    private static final int PACK_MAGIC = 0x53504850;     // "SPHP"
+    private static final int BLOCK_MAGIC = 0x53504842;    // "SPHB"
+    private static final int MANIFEST_MAGIC = 0x5350484D; // "SPHM"
+    private static final int PACK_HEADER_SIZE = 12;
+    private static final int BLOCK_HEADER_SIZE = 20;
+    private static final int MANIFEST_HEADER_SIZE = 36;
+    private static final int HASH_SIZE = 20;
+    private static final int TABLE_ENTRY_SIZE = HASH_SIZE + 4;
+
+    private static final int MAX_CHUNK = 64 * 1024;
+    private static final int BLOCK_TARGET = 1024 * 1024;
+    /** 垃圾块超过这么多字节且多于存活块时才整理 */
+    private static final long MIN_COMPACT_BYTES = 256 * 1024;
+
+    private static final String PACK_SUFFIX = ".history.pack";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final Map<Path, HistoryStore> STORES = new ConcurrentHashMap<>();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** 一个历史快照：时间戳和还原后的文件大小。 */
+    public record Snapshot(long timestamp, long size) {
+    }
+
+    private final Path source;
+    private final Path dir;
+    private final String baseName;
+    private final Path pack;
+
+    private boolean loaded;
+    private long generation;
+    private long packSize;
+    private final Map<ByteBuffer, Integer> idByHash = new HashMap<>();
+    private long[] chunkBlock = new long[64];
+    private int[] chunkOffset = new int[64];
+    private int[] chunkLength = new int[64];
+    private ByteBuffer[] chunkHash = new ByteBuffer[64];
+    private int chunkCount;
+    /** 最新快照的块序列，用来跳过内容没变的快照 */
+    private int[] latestIds;
+
+    private final MessageDigest digest;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private long cachedBlock = -1;
+    private byte[] cachedRaw;
+
+    // 正在攒的新块
+    private byte[] blockRaw = new byte[64 * 1024];
+    private int blockRawLength;
+    private int blockFirstId;
+
+    private HistoryStore(Path source) {
+        Path absolute = source.toAbsolutePath();
+        this.source = absolute;
+        this.dir = absolute.resolveSibling("history");
+        this.baseName = absolute.getFileName().toString();
+        this.pack = dir.resolve(baseName + PACK_SUFFIX);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 取源文件对应的仓库，同一文件共用一个实例。 */
+    public static HistoryStore of(Path source) {
+        return STORES.computeIfAbsent(source.toAbsolutePath().normalize(), HistoryStore::new);
+    }
+
+    /**
+     * 为源文件当前内容存一份快照。内容与最新快照相同时不写，返回 false。
+     * 同一毫秒内已有快照时时间戳顺延。
+     */
+    public synchronized boolean store(long timestamp) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            return false;
+        }
+        Files.createDirectories(dir);
+        load();
+        int[] ids;
+        long size;
+        try (FileChannel ch = FileChannel.open(source, READ)) {
+            size = ch.size();
+            if (size == 0) {
+                return false;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("文件过大，无法存入历史: " + source);
+            }
+            // 读进堆内存而不是映射：Windows 上映射未释放时，下次保存无法替换源文件
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    throw new EOFException("读取时源文件被截短: " + source);
+                }
+            }
+            ids = chunk(buf.flip());
+            flushBlock();
+        } catch (IOException | RuntimeException e) {
+            loaded = false; // 内存索引可能已和包文件不一致，下次重新加载
+            throw e;
+        }
+        if (Arrays.equals(ids, latestIds())) {
+            return false;
+        }
+        while (Files.exists(manifestPath(timestamp))) {
+            timestamp++;
+        }
+        writeManifest(manifestPath(timestamp), generation, size, ids, true);
+        latestIds = ids;
+        return true;
+    }
+
+    /** 列出全部快照，按时间倒序。 */
+    public synchronized List<Snapshot> list() throws IOException {
+        load();
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (long timestamp : timestamps()) {
+            snapshots.add(new Snapshot(timestamp, readManifestHeader(manifestPath(timestamp)).getLong(12)));
+        }
+        return snapshots;
+    }
+
+    /** 把指定时间戳的快照还原到 out。 */
+    public synchronized void restore(long timestamp, Path out) throws IOException {
+        load();
+        int[] ids = readManifest(manifestPath(timestamp));
+        try (FileChannel packChannel = FileChannel.open(pack, READ);
+             FileChannel dst = FileChannel.open(out, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (int id : ids) {
+                if (id < 0 || id >= chunkCount) {
+                    throw new IOException("历史快照引用了不存在的块: " + id);
+                }
+                byte[] raw = blockRaw(packChannel, chunkBlock[id]);
+                ByteBuffer chunk = ByteBuffer.wrap(raw, chunkOffset[id], chunkLength[id]);
+                while (chunk.hasRemaining()) {
+                    dst.write(chunk);
+                }
+            }
+        }
+    }
+
+    /** 按策略删除多余快照，垃圾块过多时顺带整理包文件。 */
+    public synchronized void prune(HistoryRetention retention, long now) throws IOException {
+        load();
+        List<Long> timestamps = timestamps();
+        Set<Long> keep = retention.select(timestamps, now);
+        List<Long> kept = new ArrayList<>();
+        for (long timestamp : timestamps) {
+            if (keep.contains(timestamp)) {
+                kept.add(timestamp);
+                continue;
+            }
+            try {
+                Files.deleteIfExists(manifestPath(timestamp));
+            } catch (IOException e) {
+                System.err.println("Failed to delete history snapshot " + manifestPath(timestamp) + ": " + e.getMessage());
+                kept.add(timestamp);
+            }
+        }
+        compactIfWasteful(kept);
+    }
+
+    /** 包文件当前大小，供测试和统计。 */
+    public synchronized long packSize() throws IOException {
+        load();
+        return packSize;
+    }
+
+    // ---- 切块与写入 ----
+
+    private int[] chunk(ByteBuffer buf) throws IOException {
+        int n = buf.limit();
+        int[] ids = new int[Math.max(16, n / 256)];
+        int count = 0;
+        int start = 0;
+        for (int p = 0; p < n; p++) {
+            if (buf.get(p) != '\n') {
+                continue;
+            }
+            int next = p + 1;
+            if (next < n && (next - start >= MAX_CHUNK || isEntryStart(buf, next))) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = addChunk(buf, start, next);
+                start = next;
+            }
+        }
+        if (start < n) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count + 1);
+            }
+            ids[count++] = addChunk(buf, start, n);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    // ○ 的 UTF-8 编码
+    private static boolean isEntryStart(ByteBuffer buf, int p) {
+        return p + 2 < buf.limit()
+                && buf.get(p) == (byte) 0xE2 && buf.get(p + 1) == (byte) 0x97 && buf.get(p + 2) == (byte) 0x8B;
+    }
+
+    private int addChunk(ByteBuffer buf, int start, int end) throws IOException {
+        ByteBuffer slice = buf.slice(start, end - start);
+        digest.update(slice.duplicate());
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        Integer existing = idByHash.get(hash);
+        if (existing != null) {
+            return existing;
+        }
+        if (blockRawLength > 0 && blockRawLength + slice.remaining() > BLOCK_TARGET) {
+            flushBlock();
+        }
+        int length = slice.remaining();
+        if (blockRawLength + length > blockRaw.length) {
+            blockRaw = Arrays.copyOf(blockRaw, Math.max(blockRawLength + length, blockRaw.length * 2));
+        }
+        slice.get(blockRaw, blockRawLength, length);
+        int id = newChunk(hash, -1, blockRawLength, length);
+        blockRawLength += length;
+        return id;
+    }
+
+    private int newChunk(ByteBuffer hash, long block, int offset, int length) {
+        if (chunkCount == chunkLength.length) {
+            int capacity = chunkCount * 2;
+            chunkBlock = Arrays.copyOf(chunkBlock, capacity);
+            chunkOffset = Arrays.copyOf(chunkOffset, capacity);
+            chunkLength = Arrays.copyOf(chunkLength, capacity);
+            chunkHash = Arrays.copyOf(chunkHash, capacity);
+        }
+        int id = chunkCount++;
+        chunkBlock[id] = block;
+        chunkOffset[id] = offset;
+        chunkLength[id] = length;
+        chunkHash[id] = hash;
+        // 包里可能有重复块（写包后清单没写成又重存了一次），去重时用最早的那个
+        idByHash.putIfAbsent(hash, id);
+        return id;
+    }
+
+    /** 把攒下的新块压成一个数据块追加到包文件末尾并落盘。 */
+    private void flushBlock() throws IOException {
+        if (chunkCount == blockFirstId) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(pack, CREATE, READ, WRITE)) {
+            if (packSize == 0) {
+                generation = RANDOM.nextLong();
+                ch.truncate(0);
+                ch.write(ByteBuffer.allocate(PACK_HEADER_SIZE).putInt(PACK_MAGIC).putLong(generation).flip(), 0);
+                packSize = PACK_HEADER_SIZE;
+            }
+            ch.truncate(packSize); // 丢掉上次写了一半的尾部
+            ByteBuffer block = encodeBlock(blockFirstId, chunkCount, blockRaw, blockRawLength);
+            long position = packSize;
+            while (block.hasRemaining()) {
+                position += ch.write(block, position);
+            }
+            ch.force(false);
+            for (int id = blockFirstId; id < chunkCount; id++) {
+                chunkBlock[id] = packSize;
+            }
+            packSize = position;
+        }
+        blockFirstId = chunkCount;
+        blockRawLength = 0;
+    }
+
+    private ByteBuffer encodeBlock(int firstId, int endId, byte[] raw, int rawLength) {
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawLength / 3 + 64);
+        byte[] tmp = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(tmp);
+            compressed.write(tmp, 0, n);
+        }
+        int count = endId - firstId;
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + count * TABLE_ENTRY_SIZE + compressed.size());
+        block.putInt(BLOCK_MAGIC).putInt(count).putInt(rawLength).putInt(compressed.size()).putInt(0);
+        for (int id = firstId; id < endId; id++) {
+            block.put(chunkHash[id].duplicate()).putInt(chunkLength[id]);
+        }
+        block.put(compressed.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), BLOCK_HEADER_SIZE, block.capacity() - BLOCK_HEADER_SIZE);
+        block.putInt(16, (int) crc.getValue());
+        return block.flip();
+    }
+
+    // ---- 读取 ----
+
+    private byte[] blockRaw(FileChannel ch, long blockStart) throws IOException {
+        if (blockStart == cachedBlock) {
+            return cachedRaw;
+        }
+        ByteBuffer header = readFully(ch, blockStart, BLOCK_HEADER_SIZE);
+        int count = header.getInt(4);
+        int rawLength = header.getInt(8);
+        int compressedLength = header.getInt(12);
+        ByteBuffer compressed = readFully(ch, blockStart + BLOCK_HEADER_SIZE + (long) count * TABLE_ENTRY_SIZE, compressedLength);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed.array(), 0, compressedLength);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, rawLength - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += got;
+            }
+            if (n != rawLength) {
+                throw new IOException("历史数据块解压长度不符: " + blockStart);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("历史数据块已损坏: " + blockStart, e);
+        }
+        cachedBlock = blockStart;
+        cachedRaw = raw;
+        return raw;
+    }
+
+    /** 读入包文件索引；按代号收尾上次中断的整理，清掉与包文件不匹配的清单。 */
+    private void load() throws IOException {
+        if (loaded && Files.isRegularFile(pack) && Files.size(pack) == packSize) {
+            return;
+        }
+        idByHash.clear();
+        chunkCount = 0;
+        blockFirstId = 0;
+        blockRawLength = 0;
+        generation = 0;
+        packSize = 0;
+        latestIds = null;
+        cachedBlock = -1;
+        cachedRaw = null;
+
+        Files.deleteIfExists(pack.resolveSibling(pack.getFileName() + TMP_SUFFIX));
+        if (Files.isRegularFile(pack)) {
+            try (FileChannel ch = FileChannel.open(pack, READ, WRITE)) {
+                scanPack(ch);
+                if (ch.size() > packSize) {
+                    ch.truncate(packSize); // 截掉写了一半的尾部
+                }
+            }
+        }
+        if (Files.isDirectory(dir)) {
+            recoverManifests();
+        }
+        loaded = true;
+    }
+
+    private void scanPack(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size < PACK_HEADER_SIZE) {
+            return;
+        }
+        ByteBuffer header = readFully(ch, 0, PACK_HEADER_SIZE);
+        if (header.getInt(0) != PACK_MAGIC) {
+            return;
+        }
+        generation = header.getLong(4);
+        long position = PACK_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (position + BLOCK_HEADER_SIZE <= size) {
+            ByteBuffer blockHeader = readFully(ch, position, BLOCK_HEADER_SIZE);
+            int count = blockHeader.getInt(4);
+            int compressedLength = blockHeader.getInt(12);
+            if (blockHeader.getInt(0) != BLOCK_MAGIC || count < 0 || compressedLength < 0) {
+                break;
+            }
+            long bodyLength = (long) count * TABLE_ENTRY_SIZE + compressedLength;
+            if (position + BLOCK_HEADER_SIZE + bodyLength > size || bodyLength > Integer.MAX_VALUE) {
+                break; // 写了一半的尾部
+            }
+            ByteBuffer body = readFully(ch, position + BLOCK_HEADER_SIZE, (int) bodyLength);
+            crc.reset();
+            crc.update(body.array(), 0, (int) bodyLength);
+            if ((int) crc.getValue() != blockHeader.getInt(16)) {
+                break;
+            }
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] hash = new byte[HASH_SIZE];
+                body.get(hash);
+                int length = body.getInt();
+                newChunk(ByteBuffer.wrap(hash), position, offset, length);
+                offset += length;
+            }
+            position += BLOCK_HEADER_SIZE + bodyLength;
+        }
+        packSize = position;
+        blockFirstId = chunkCount;
+    }
+
+    private void recoverManifests() throws IOException {
+        List<Path> tmps = new ArrayList<>();
+        List<Path> manifests = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, baseName + ".*")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SNAPSHOT_SUFFIX + TMP_SUFFIX)) {
+                    tmps.add(path);
+                } else if (parseTimestamp(name) >= 0) {
+                    manifests.add(path);
+                }
+            }
+        }
+        for (Path tmp : tmps) {
+            if (packSize > 0 && manifestGeneration(tmp) == generation) {
+                String name = tmp.getFileName().toString();
+                move(tmp, tmp.resolveSibling(name.substring(0, name.length() - TMP_SUFFIX.length())));
+            } else {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        for (Path manifest : manifests) {
+            if (Files.exists(manifest) && (packSize == 0 || manifestGeneration(manifest) != generation)) {
+                Files.deleteIfExists(manifest);
+            }
+        }
+    }
+
+    private long manifestGeneration(Path manifest) {
+        try {
+            return readManifestHeader(manifest).getLong(4);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // ---- 清单 ----
+
+    private Path manifestPath(long timestamp) {
+        return dir.resolve(baseName + "." + timestamp + SNAPSHOT_SUFFIX);
+    }
+
+    private long parseTimestamp(String fileName) {
+        if (!fileName.startsWith(baseName + ".") || !fileName.endsWith(SNAPSHOT_SUFFIX)) {
+            return -1;
+        }
+        String middle = fileName.substring(baseName.length() + 1, fileName.length() - SNAPSHOT_SUFFIX.length());
+        if (middle.isEmpty() || middle.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < middle.length(); i++) {
+            if (!Character.isDigit(middle.charAt(i))) {
+                return -1;
+            }
+        }
+        return Long.parseLong(middle);
+    }
+
+    private List<Long> timestamps() throws IOException {
+        List<Long> timestamps = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return timestamps;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, baseName + ".*" + SNAPSHOT_SUFFIX)) {
+            for (Path path : stream) {
+                long timestamp = parseTimestamp(path.getFileName().toString());
+                if (timestamp >= 0) {
+                    timestamps.add(timestamp);
+                }
+            }
+        }
+        timestamps.sort((a, b) -> Long.compare(b, a));
+        return timestamps;
+    }
+
+    private int[] latestIds() throws IOException {
+        if (latestIds == null) {
+            List<Long> timestamps = timestamps();
+            latestIds = timestamps.isEmpty() ? new int[0] : readManifest(manifestPath(timestamps.get(0)));
+        }
+        return latestIds;
+    }
+
+    /**
+     * 清单：[magic][代号][文件大小][块数][压缩长度][CRC][解压长度] + deflate(块编号差分的 zigzag 变长编码)。
+     * 先写临时文件并落盘，publish 为 false 时留着临时文件由调用方稍后改名。
+     */
+    private void writeManifest(Path path, long gen, long size, int[] ids, boolean publish) throws IOException {
+        ByteArrayOutputStream varints = new ByteArrayOutputStream(ids.length + 16);
+        int previous = -1;
+        for (int id : ids) {
+            int delta = id - (previous + 1);
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                varints.write((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            varints.write(zigzag);
+            previous = id;
+        }
+        byte[] plain = varints.toByteArray();
+        deflater.reset();
+        deflater.setInput(plain);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(plain.length / 4 + 64);
+        byte[] tmp = new byte[16 * 1024];
+        while (!deflater.finished()) {
+            compressed.write(tmp, 0, deflater.deflate(tmp));
+        }
+        byte[] body = compressed.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer out = ByteBuffer.allocate(MANIFEST_HEADER_SIZE + body.length);
+        out.putInt(MANIFEST_MAGIC).putLong(gen).putLong(size).putInt(ids.length).putInt(body.length)
+                .putInt((int) crc.getValue()).putInt(plain.length).put(body).flip();
+
+        Path tmpPath = path.resolveSibling(path.getFileName() + TMP_SUFFIX);
+        try (FileChannel ch = FileChannel.open(tmpPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                ch.write(out);
+            }
+            ch.force(true);
+        }
+        if (publish) {
+            move(tmpPath, path);
+        }
+    }
+
+    private ByteBuffer readManifestHeader(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, READ)) {
+            ByteBuffer header = readFully(ch, 0, MANIFEST_HEADER_SIZE);
+            if (header.getInt(0) != MANIFEST_MAGIC) {
+                throw new IOException("不是历史快照清单: " + path);
+            }
+            return header;
+        }
+    }
+
+    private int[] readManifest(Path path) throws IOException {
+        byte[] all = Files.readAllBytes(path);
+        ByteBuffer buf = ByteBuffer.wrap(all);
+        if (all.length < MANIFEST_HEADER_SIZE || buf.getInt(0) != MANIFEST_MAGIC) {
+            throw new IOException("不是历史快照清单: " + path);
+        }
+        int count = buf.getInt(20);
+        int compressedLength = buf.getInt(24);
+        int plainLength = buf.getInt(32);
+        if (compressedLength != all.length - MANIFEST_HEADER_SIZE || count < 0 || plainLength < 0) {
+            throw new IOException("历史快照清单已损坏: " + path);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(all, MANIFEST_HEADER_SIZE, compressedLength);
+        if ((int) crc.getValue() != buf.getInt(28)) {
+            throw new IOException("历史快照清单校验失败: " + path);
+        }
+        byte[] plain = new byte[plainLength];
+        inflater.reset();
+        inflater.setInput(all, MANIFEST_HEADER_SIZE, compressedLength);
+        try {
+            int n = 0;
+            while (n < plainLength && !inflater.finished()) {
+                int got = inflater.inflate(plain, n, plainLength - n);
+                if (got == 0 && inflater.needsInput()) {
+                    break;
+                }
+                n += got;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("历史快照清单已损坏: " + path, e);
+        }
+        int[] ids = new int[count];
+        int p = 0;
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (p >= plainLength) {
+                    throw new IOException("历史快照清单已损坏: " + path);
+                }
+                b = plain[p++];
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            int delta = (zigzag >>> 1) ^ -(zigzag & 1);
+            ids[i] = previous + 1 + delta;
+            previous = ids[i];
+        }
+        return ids;
+    }
+
+    // ---- 整理 ----
+
+    /**
+     * 存活快照引用不到的块超过一定量且多于存活块时，把存活块按编号顺序拷进新包，
+     * 重新编号后改写全部清单。
+     */
+    private void compactIfWasteful(List<Long> kept) throws IOException {
+        if (packSize == 0) {
+            return;
+        }
+        Map<Long, int[]> manifests = new HashMap<>();
+        BitSet live = new BitSet(chunkCount);
+        for (long timestamp : kept) {
+            int[] ids = readManifest(manifestPath(timestamp));
+            manifests.put(timestamp, ids);
+            for (int id : ids) {
+                live.set(id);
+            }
+        }
+        long liveBytes = 0;
+        long deadBytes = 0;
+        for (int id = 0; id < chunkCount; id++) {
+            if (live.get(id)) {
+                liveBytes += chunkLength[id];
+            } else {
+                deadBytes += chunkLength[id];
+            }
+        }
+        if (deadBytes < MIN_COMPACT_BYTES || deadBytes <= liveBytes) {
+            return;
+        }
+
+        long newGeneration = RANDOM.nextLong();
+        Path tmpPack = pack.resolveSibling(pack.getFileName() + TMP_SUFFIX);
+        int oldCount = chunkCount;
+        long[] oldBlock = Arrays.copyOf(chunkBlock, oldCount);
+        int[] oldOffset = Arrays.copyOf(chunkOffset, oldCount);
+        int[] oldLength = Arrays.copyOf(chunkLength, oldCount);
+        ByteBuffer[] oldHash = Arrays.copyOf(chunkHash, oldCount);
+        int[] remap = new int[oldCount];
+        idByHash.clear();
+        chunkCount = 0;
+        blockFirstId = 0;
+        blockRawLength = 0;
+        try (FileChannel src = FileChannel.open(pack, READ);
+             FileChannel dst = FileChannel.open(tmpPack, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            long position = dst.write(ByteBuffer.allocate(PACK_HEADER_SIZE).putInt(PACK_MAGIC).putLong(newGeneration).flip(), 0);
+            for (int id = live.nextSetBit(0); id >= 0 && id < oldCount; id = live.nextSetBit(id + 1)) {
+                byte[] raw = blockRaw(src, oldBlock[id]);
+                int length = oldLength[id];
+                if (blockRawLength > 0 && blockRawLength + length > BLOCK_TARGET) {
+                    position = appendBlock(dst, position);
+                }
+                if (blockRawLength + length > blockRaw.length) {
+                    blockRaw = Arrays.copyOf(blockRaw, Math.max(blockRawLength + length, blockRaw.length * 2));
+                }
+                System.arraycopy(raw, oldOffset[id], blockRaw, blockRawLength, length);
+                remap[id] = newChunk(oldHash[id], -1, blockRawLength, length);
+                blockRawLength += length;
+            }
+            appendBlock(dst, position);
+            dst.force(true);
+
+            for (Map.Entry<Long, int[]> e : manifests.entrySet()) {
+                int[] ids = e.getValue();
+                int[] mapped = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    mapped[i] = remap[ids[i]];
+                }
+                Path manifest = manifestPath(e.getKey());
+                writeManifest(manifest, newGeneration, readManifestHeader(manifest).getLong(12), mapped, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            loaded = false;
+            Files.deleteIfExists(tmpPack);
+            throw e;
+        }
+        move(tmpPack, pack);
+        loaded = false;
+        load(); // 按新代号把清单临时文件改名生效
+    }
+
+    private long appendBlock(FileChannel dst, long position) throws IOException {
+        if (chunkCount == blockFirstId) {
+            return position;
+        }
+        ByteBuffer block = encodeBlock(blockFirstId, chunkCount, blockRaw, blockRawLength);
+        long blockStart = position;
+        while (block.hasRemaining()) {
+            position += dst.write(block, position);
+        }
+        for (int id = blockFirstId; id < chunkCount; id++) {
+            chunkBlock[id] = blockStart;
+        }
+        blockFirstId = chunkCount;
+        blockRawLength = 0;
+        return position;
+    }
+
+    // ---- 工具 ----
+
+    private static ByteBuffer readFully(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new EOFException("历史文件在 " + (position + buf.position()) + " 处提前结束");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
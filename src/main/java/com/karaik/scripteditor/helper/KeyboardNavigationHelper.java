@@ -35,6 +35,13 @@ public class KeyboardNavigationHelper {
             Pagination pagination = controller.getPagination();
             ListView<SptEntry> listView = controller.getEntryListView();
 
+            if (controller.isContinuousMode()) {
+                if (listView != null && !listView.getItems().isEmpty()) {
+                    navigateContinuous(event, listView, controller.getItemsPerPage());
+                }
+                return;
+            }
+
             if (pagination == null || listView == null || listView.getItems().isEmpty()) return; // 如果列表为空，不处理滚动或翻页
 
             int currentPage = pagination.getCurrentPageIndex();
@@ -107,4 +114,24 @@ public class KeyboardNavigationHelper {
             }
         });
     }
-}
\ No newline at end of file
+
+    /** 连续模式：上下移一条，左右移一页，都只是滚动，没有翻页冷却。 */
+    private static void navigateContinuous(KeyEvent event, ListView<SptEntry> listView, int itemsPerPage) {
+        int step;
+        switch (event.getCode()) {
+            case UP -> step = -ITEMS_TO_SCROLL_PER_KEY_PRESS;
+            case DOWN -> step = ITEMS_TO_SCROLL_PER_KEY_PRESS;
+            case LEFT -> step = -itemsPerPage;
+            case RIGHT -> step = itemsPerPage;
+            default -> {
+                return;
+            }
+        }
+        int currentIndex = Math.max(0, listView.getSelectionModel().getSelectedIndex());
+        int targetIndex = Math.max(0, Math.min(listView.getItems().size() - 1, currentIndex + step));
+        listView.scrollTo(targetIndex);
+        listView.getSelectionModel().select(targetIndex);
+        listView.requestFocus();
+        event.consume();
+    }
+}
@@ -43,6 +43,12 @@ public class PageChangeListener {
             }
 
             long now = System.currentTimeMillis();
+            if (controller != null && controller.isContinuousMode()) {
+                // 连续模式下页码跟着滚动走，既不限速也不在每次越过页界时保存
+                saveLastPageIndex.accept(newVal.intValue());
+                lastChangeTime = now;
+                return;
+            }
             boolean tooFast = (now - lastChangeTime) < PAGE_CHANGE_COOLDOWN;
 
             if (!canChangePage.getAsBoolean() || tooFast) {
@@ -5,13 +5,16 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.stage.Stage;
 
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class StageCloseHandler {
 
     public static void attach(Stage stage,
                               Supplier<Boolean> isModifiedSupplier,
-                              Runnable onSave,
+                              BooleanSupplier onSave,
+                              BooleanSupplier awaitPendingSave,
                               Runnable onClose,
                               EditorController controller) {
         stage.setOnCloseRequest(event -> {
@@ -21,8 +24,22 @@ public class StageCloseHandler {
                 }
             };
 
+            // 工作区里缓存的其他文档也要随窗口一起关闭
+            Consumer<Boolean> closeCached = discard -> {
+                if (controller != null && controller.getFileHandlerController() != null) {
+                    controller.getFileHandlerController().closeCachedDocuments(discard);
+                }
+            };
+
             if (!isModifiedSupplier.get()) {
+                // 后台可能还有保存没写完，等它结束再退出；失败则留在编辑器里
+                if (!awaitPendingSave.getAsBoolean()) {
+                    event.consume();
+                    return;
+                }
                 historyTask.run();
+                if (controller != null) controller.setJournal(null);
+                closeCached.accept(false);
                 onClose.run();
                 return;
             }
@@ -32,7 +49,11 @@ public class StageCloseHandler {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle("保存文件");
             alert.setHeaderText("文件已被修改");
-            alert.setContentText("文件尚未保存，是否保存后关闭？");
+            int otherUnsaved = controller != null && controller.getFileHandlerController() != null
+                    ? controller.getFileHandlerController().getUnsavedCachedCount() : 0;
+            alert.setContentText(otherUnsaved > 0
+                    ? "另有 " + otherUnsaved + " 个已打开的文件尚未保存，是否全部保存后关闭？"
+                    : "文件尚未保存，是否保存后关闭？");
 
             ButtonType save = new ButtonType("保存");
             ButtonType discard = new ButtonType("不保存");
@@ -55,11 +76,18 @@ public class StageCloseHandler {
 
             alert.showAndWait().ifPresent(response -> {
                 if (response == save) {
-                    onSave.run();
+                    if (!onSave.getAsBoolean()) {
+                        return; // 保存失败或被取消，不关闭窗口
+                    }
                     historyTask.run();
+                    if (controller != null) controller.setJournal(null);
+                    closeCached.accept(false);
                     onClose.run();
                 } else if (response == discard) {
+                    awaitPendingSave.getAsBoolean();
                     historyTask.run();
+                    if (controller != null) controller.discardJournal();
+                    closeCached.accept(true);
                     onClose.run();
                 }
             });
@@ -0,0 +1,355 @@
+package com.karaik.scripteditor.search;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.NavigableMap;
+
+/**
+ * 单个脚本文件的二元组（bigram）倒排索引，日文、中文不分词也能查。
+ * <p>
+ * 文档号 {@code doc = 条目序号 * 2 + (译文 ? 1 : 0)}，文档文本是该条目各段用 {@code '\n'} 连接。
+ * 每个字符和它后一个字符（文档末尾时为 {@link #END}）组成一个二元组，
+ * 词项按升序存于 {@code terms}，倒排表是文档号差值的变长编码。
+ * 候选文档取各二元组倒排表的交集后，再用保存的原文逐字确认。
+ * 索引本身不可变，编辑过的条目由调用方以 overrides 传入，查询时直接扫描。
+ */
+final class BigramIndex {
+
+    static final char END = 0;
+
+    /** 命中回调，返回 false 时停止查询。 */
+    interface Sink {
+        boolean accept(int doc, CharSequence text, int offset);
+    }
+
+    private final int docCount;
+    private final char[] chars;
+    private final int[] starts;
+    private final int[] terms;
+    private final int[] postingStarts;
+    private final int[] postingCounts;
+    private final byte[] postings;
+
+    private BigramIndex(int docCount, char[] chars, int[] starts, int[] terms,
+                        int[] postingStarts, int[] postingCounts, byte[] postings) {
+        this.docCount = docCount;
+        this.chars = chars;
+        this.starts = starts;
+        this.terms = terms;
+        this.postingStarts = postingStarts;
+        this.postingCounts = postingCounts;
+        this.postings = postings;
+    }
+
+    /** texts[doc] 为文档文本，可以为 null。 */
+    static BigramIndex build(String[] texts) {
+        int docCount = texts.length;
+        int[] starts = new int[docCount + 1];
+        int total = 0;
+        for (int d = 0; d < docCount; d++) {
+            starts[d] = total;
+            total += texts[d] != null ? texts[d].length() : 0;
+        }
+        starts[docCount] = total;
+        char[] chars = new char[total];
+        for (int d = 0; d < docCount; d++) {
+            if (texts[d] != null) {
+                texts[d].getChars(0, texts[d].length(), chars, starts[d]);
+            }
+        }
+
+        // 每个字符产生一个 (二元组, 文档号)，排序后同一词项的文档号连续且升序
+        long[] pairs = new long[total];
+        int n = 0;
+        for (int d = 0; d < docCount; d++) {
+            int end = starts[d + 1];
+            for (int p = starts[d]; p < end; p++) {
+                char next = p + 1 < end ? fold(chars[p + 1]) : END;
+                pairs[n++] = ((long) code(fold(chars[p]), next) << 32) | d;
+            }
+        }
+        Arrays.sort(pairs, 0, n);
+
+        int[] terms = new int[Math.max(16, n / 8)];
+        int[] postingStarts = new int[terms.length + 1];
+        int[] postingCounts = new int[terms.length];
+        byte[] postings = new byte[Math.max(64, n)];
+        int termCount = 0;
+        int pos = 0;
+        int i = 0;
+        while (i < n) {
+            int term = (int) (pairs[i] >> 32);
+            if (termCount == terms.length) {
+                terms = Arrays.copyOf(terms, termCount * 2);
+                postingStarts = Arrays.copyOf(postingStarts, termCount * 2 + 1);
+                postingCounts = Arrays.copyOf(postingCounts, termCount * 2);
+            }
+            terms[termCount] = term;
+            postingStarts[termCount] = pos;
+            int count = 0;
+            int last = -1;
+            for (; i < n && (int) (pairs[i] >> 32) == term; i++) {
+                int doc = (int) pairs[i];
+                if (doc == last) {
+                    continue; // 同一文档里重复出现的二元组只记一次
+                }
+                if (postings.length - pos < 5) {
+                    postings = Arrays.copyOf(postings, postings.length * 2);
+                }
+                pos = writeVarint(postings, pos, doc - last);
+                last = doc;
+                count++;
+            }
+            postingCounts[termCount] = count;
+            termCount++;
+        }
+        postingStarts[termCount] = pos;
+        return new BigramIndex(docCount, chars, starts, Arrays.copyOf(terms, termCount),
+                Arrays.copyOf(postingStarts, termCount + 1), Arrays.copyOf(postingCounts, termCount),
+                Arrays.copyOf(postings, pos));
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    CharSequence text(int doc) {
+        return CharBuffer.wrap(chars, starts[doc], starts[doc + 1] - starts[doc]);
+    }
+
+    boolean textEquals(int doc, String text) {
+        int start = starts[doc];
+        int length = starts[doc + 1] - start;
+        if (text.length() != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (chars[start + k] != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按文档号升序回调每个含有 query 的段里的第一次出现。query 须已经过 {@link #fold(char)}。
+     * overrides 中的文档以其中的文本为准。返回 false 表示 sink 要求提前停止。
+     */
+    boolean search(char[] query, NavigableMap<Integer, String> overrides, Sink sink) {
+        if (query.length == 0) {
+            return true;
+        }
+        int[] candidates = candidates(query);
+        Integer nextOverride = overrides.isEmpty() ? null : overrides.firstKey();
+        for (int doc : candidates) {
+            while (nextOverride != null && nextOverride < doc) {
+                if (!scan(nextOverride, overrides.get(nextOverride), query, sink)) return false;
+                nextOverride = overrides.higherKey(nextOverride);
+            }
+            if (nextOverride != null && nextOverride == doc) {
+                continue; // 编辑过的文档交给上面的循环按新文本查
+            }
+            if (!scan(doc, text(doc), query, sink)) return false;
+        }
+        for (; nextOverride != null; nextOverride = overrides.higherKey(nextOverride)) {
+            if (!scan(nextOverride, overrides.get(nextOverride), query, sink)) return false;
+        }
+        return true;
+    }
+
+    private static boolean scan(int doc, CharSequence text, char[] query, Sink sink) {
+        int limit = text.length() - query.length;
+        for (int p = 0; p <= limit; p++) {
+            if (matchesAt(text, p, query)) {
+                if (!sink.accept(doc, text, p)) return false;
+                // 每段只报第一次出现
+                while (p < limit && text.charAt(p) != '\n') p++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAt(CharSequence text, int p, char[] query) {
+        for (int k = 0; k < query.length; k++) {
+            if (fold(text.charAt(p + k)) != query[k]) return false;
+        }
+        return true;
+    }
+
+    private int[] candidates(char[] query) {
+        if (query.length == 1) {
+            // 单字：以它开头的所有二元组的并集
+            int from = lowerBound(code(query[0], (char) 0));
+            int to = upperBound(code(query[0], (char) 0xFFFF));
+            int total = 0;
+            for (int t = from; t < to; t++) total += postingCounts[t];
+            int[] docs = new int[total];
+            int n = 0;
+            for (int t = from; t < to; t++) n = decode(t, docs, n);
+            Arrays.sort(docs);
+            return unique(docs);
+        }
+        int bigrams = query.length - 1;
+        int[] ids = new int[bigrams];
+        for (int k = 0; k < bigrams; k++) {
+            int t = Arrays.binarySearch(terms, code(query[k], query[k + 1]));
+            if (t < 0) return new int[0];
+            ids[k] = t;
+        }
+        // 从最短的倒排表开始求交
+        Integer[] order = new Integer[bigrams];
+        for (int k = 0; k < bigrams; k++) order[k] = ids[k];
+        Arrays.sort(order, (a, b) -> Integer.compare(postingCounts[a], postingCounts[b]));
+        int[] result = new int[postingCounts[order[0]]];
+        int size = decode(order[0], result, 0);
+        for (int k = 1; k < bigrams && size > 0; k++) {
+            if (order[k].equals(order[k - 1])) continue;
+            size = intersect(result, size, order[k]);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private int intersect(int[] docs, int size, int term) {
+        int pos = postingStarts[term];
+        int end = postingStarts[term + 1];
+        int doc = -1;
+        int kept = 0;
+        int i = 0;
+        while (i < size && pos < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += gap;
+            while (i < size && docs[i] < doc) i++;
+            if (i < size && docs[i] == doc) docs[kept++] = docs[i++];
+        }
+        return kept;
+    }
+
+    private int decode(int term, int[] out, int n) {
+        int pos = postingStarts[term];
+        int end = postingStarts[term + 1];
+        int doc = -1;
+        while (pos < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += gap;
+            out[n++] = doc;
+        }
+        return n;
+    }
+
+    private int lowerBound(int code) {
+        int i = Arrays.binarySearch(terms, code);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private int upperBound(int code) {
+        int i = Arrays.binarySearch(terms, code);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    private static int[] unique(int[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) sorted[n++] = sorted[i];
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    static int code(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    /** 查询不区分 ASCII 大小写和全角/半角。 */
+    static char fold(char c) {
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        }
+        if (c >= 'A' && c <= 'Z') {
+            c = (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+    // ---- 序列化 ----
+
+    long serializedSize() {
+        return 4 + 4 + (long) chars.length * 2 + (long) starts.length * 4
+                + 4 + (long) terms.length * 4 + (long) postingStarts.length * 4 + (long) postingCounts.length * 4
+                + 4 + postings.length;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(docCount);
+        out.putInt(chars.length);
+        out.asCharBuffer().put(chars);
+        out.position(out.position() + chars.length * 2);
+        putInts(out, starts);
+        out.putInt(terms.length);
+        putInts(out, terms);
+        putInts(out, postingStarts);
+        putInts(out, postingCounts);
+        out.putInt(postings.length);
+        out.put(postings);
+    }
+
+    static BigramIndex readFrom(ByteBuffer in) {
+        int docCount = count(in);
+        char[] chars = new char[count(in)];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + chars.length * 2);
+        int[] starts = getInts(in, docCount + 1);
+        int termCount = count(in);
+        int[] terms = getInts(in, termCount);
+        int[] postingStarts = getInts(in, termCount + 1);
+        int[] postingCounts = getInts(in, termCount);
+        byte[] postings = new byte[count(in)];
+        in.get(postings);
+        if (starts[docCount] != chars.length || postingStarts[termCount] != postings.length) {
+            throw new IllegalStateException("搜索索引数据不一致");
+        }
+        return new BigramIndex(docCount, chars, starts, terms, postingStarts, postingCounts, postings);
+    }
+
+    private static void putInts(ByteBuffer out, int[] values) {
+        out.asIntBuffer().put(values);
+        out.position(out.position() + values.length * 4);
+    }
+
+    private static int[] getInts(ByteBuffer in, int n) {
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + n * 4);
+        return values;
+    }
+
+    private static int count(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining()) {
+            throw new IllegalStateException("搜索索引中的长度字段无效: " + n);
+        }
+        return n;
+    }
+}
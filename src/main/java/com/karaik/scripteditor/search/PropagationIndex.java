@@ -0,0 +1,82 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 原文段到它在工作区里所有出现位置的哈希索引，供“同步译文”一次改遍相同的原文。
+ * <p>
+ * 原文比较前先 {@link #normalize(String) 规整}：去掉空白，不分全角/半角和大小写。
+ * 位置打包成 long（文件号、条目序号、段号），每个原文一个 long 数组。
+ * 原文在编辑器里不可修改，所以打开工作区时建一次即可。
+ */
+public final class PropagationIndex {
+
+    /** 一处出现：文件、条目序号和原文段号。 */
+    public record Location(File file, int ordinal, int segment) {
+    }
+
+    private final File[] files;
+    private final Map<String, long[]> locations;
+
+    private PropagationIndex(File[] files, Map<String, long[]> locations) {
+        this.files = files;
+        this.locations = locations;
+    }
+
+    /** original 所有出现的位置，按文件、条目排序。 */
+    public List<Location> find(String original) {
+        long[] packed = locations.get(normalize(original));
+        List<Location> result = new ArrayList<>(packed != null ? packed.length : 0);
+        if (packed != null) {
+            for (long p : packed) {
+                result.add(new Location(files[(int) (p >>> 40)], (int) (p >>> 8), (int) (p & 0xFF)));
+            }
+        }
+        return result;
+    }
+
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = BigramIndex.fold(text.charAt(i));
+            if (!Character.isWhitespace(c) && c != '　') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 按文件逐条收集原文段。 */
+    public static final class Builder {
+        private final Map<File, Integer> fileIds = new LinkedHashMap<>();
+        private final Map<String, long[]> locations = new HashMap<>();
+
+        public Builder add(File file, int ordinal, SptEntry entry) {
+            int fileId = fileIds.computeIfAbsent(file, f -> fileIds.size());
+            int n = Math.min(entry.getOriginalSegmentCount(), 0xFF);
+            for (int segment = 0; segment < n; segment++) {
+                String key = normalize(entry.getOriginalSegment(segment));
+                if (key.isEmpty()) continue;
+                long packed = ((long) fileId << 40) | ((long) ordinal << 8) | segment;
+                locations.merge(key, new long[]{packed}, (old, one) -> {
+                    long[] grown = Arrays.copyOf(old, old.length + 1);
+                    grown[old.length] = one[0];
+                    return grown;
+                });
+            }
+            return this;
+        }
+
+        public PropagationIndex build() {
+            return new PropagationIndex(fileIds.keySet().toArray(new File[0]), locations);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.util.SptParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 一组脚本文件（通常是整个工作区）的全文搜索，原文和译文都查。
+ * <p>
+ * 每个文件一份 {@link BigramIndex}，持久化为旁边的 {@code <file>.spt.sdx}，
+ * 源文件大小和修改时间对得上时直接读入，否则重新解析建立。
+ * 编辑中的条目记在内存里，查询时以新文本为准；文件保存后只重建这一个文件的索引。
+ * 建索引在单独的后台线程上进行，还没建好的文件暂时查不到。
+ */
+public final class SearchIndex {
+
+    private static final int MAGIC = 0x53505358; // "SPSX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final int SNIPPET_CONTEXT = 16;
+
+    /** 一条命中：文件、条目序号、原文或译文、段号和该段里的上下文。 */
+    public record Hit(File file, int ordinal, boolean translated, int segment, String snippet) {
+    }
+
+    /** 一个文件的索引以及尚未保存的编辑（文档号 → 新文本）。 */
+    private static final class FileIndex {
+        final File file;
+        volatile BigramIndex base;
+        final TreeMap<Integer, String> edits = new TreeMap<>();
+
+        FileIndex(File file) {
+            this.file = file;
+        }
+    }
+
+    private final Map<Path, FileIndex> files = new LinkedHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "spt-search-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** 改为搜索这些文件；已有的索引保留，新增的在后台建立。 */
+    public void setFiles(List<File> newFiles) {
+        Map<Path, FileIndex> kept = new LinkedHashMap<>();
+        List<FileIndex> added = new ArrayList<>();
+        synchronized (files) {
+            for (File file : newFiles) {
+                Path key = keyOf(file);
+                FileIndex existing = files.get(key);
+                if (existing == null) {
+                    existing = new FileIndex(file);
+                    added.add(existing);
+                }
+                kept.put(key, existing);
+            }
+            files.clear();
+            files.putAll(kept);
+        }
+        for (FileIndex index : added) {
+            schedule(index, false);
+        }
+    }
+
+    /** 确保 file 也在搜索范围内（例如不在工作区里的当前文件）。 */
+    public void add(File file) {
+        FileIndex index;
+        synchronized (files) {
+            Path key = keyOf(file);
+            if (files.containsKey(key)) return;
+            index = new FileIndex(file);
+            files.put(key, index);
+        }
+        schedule(index, false);
+    }
+
+    /** 还有文件的索引没建好时查询结果可能不完整。 */
+    public boolean isBuilding() {
+        return pending.get() > 0;
+    }
+
+    /** 条目译文被编辑：之后的查询按新文本匹配。 */
+    public void update(File file, int ordinal, SptEntry entry) {
+        FileIndex index;
+        synchronized (files) {
+            index = files.get(keyOf(file));
+        }
+        if (index == null) return;
+        String text = join(entry, true);
+        synchronized (index.edits) {
+            index.edits.put(ordinal * 2 + 1, text);
+        }
+    }
+
+    /** 文件已写盘：在后台重建它的索引并保存。 */
+    public void refresh(File file) {
+        FileIndex index;
+        synchronized (files) {
+            index = files.get(keyOf(file));
+        }
+        if (index != null) {
+            schedule(index, true);
+        }
+    }
+
+    /** 查找 query，最多返回 limit 条；按文件、条目、原文在前排序。 */
+    public List<Hit> search(String query, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        if (query == null || query.isEmpty() || limit <= 0) return hits;
+        char[] folded = new char[query.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = BigramIndex.fold(query.charAt(i));
+        }
+        List<FileIndex> snapshot;
+        synchronized (files) {
+            snapshot = new ArrayList<>(files.values());
+        }
+        for (FileIndex index : snapshot) {
+            BigramIndex base = index.base;
+            if (base == null) continue;
+            NavigableMap<Integer, String> edits;
+            synchronized (index.edits) {
+                edits = new TreeMap<>(index.edits);
+            }
+            boolean more = base.search(folded, edits, (doc, text, offset) -> {
+                hits.add(hitOf(index.file, doc, text, offset, folded.length));
+                return hits.size() < limit;
+            });
+            if (!more) break;
+        }
+        return hits;
+    }
+
+    private static Hit hitOf(File file, int doc, CharSequence text, int offset, int length) {
+        int segment = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < offset; i++) {
+            if (text.charAt(i) == '\n') {
+                segment++;
+                segmentStart = i + 1;
+            }
+        }
+        int segmentEnd = offset;
+        while (segmentEnd < text.length() && text.charAt(segmentEnd) != '\n') segmentEnd++;
+        int from = Math.max(segmentStart, offset - SNIPPET_CONTEXT);
+        int to = Math.min(segmentEnd, offset + length + SNIPPET_CONTEXT);
+        String snippet = (from > segmentStart ? "…" : "") + text.subSequence(from, to) + (to < segmentEnd ? "…" : "");
+        return new Hit(file, doc / 2, (doc & 1) == 1, segment, snippet);
+    }
+
+    private void schedule(FileIndex index, boolean rebuild) {
+        pending.incrementAndGet();
+        indexer.execute(() -> {
+            try {
+                BigramIndex base = rebuild ? null : load(index.file.toPath());
+                if (base == null) {
+                    base = build(index.file.toPath());
+                }
+                index.base = base;
+                synchronized (index.edits) {
+                    // 已写进文件的编辑不必再单独记着
+                    BigramIndex current = base;
+                    index.edits.entrySet().removeIf(e -> e.getKey() < current.docCount()
+                            && current.textEquals(e.getKey(), e.getValue()));
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to index " + index.file + " for search: " + e.getMessage());
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    static Path indexOf(Path file) {
+        Path dir = file.getParent() != null ? file.getParent() : Paths.get(".");
+        return dir.resolve(file.getFileName().toString() + ".spt.sdx");
+    }
+
+    /** 解析文件建立索引并写入 {@code .spt.sdx}。 */
+    static BigramIndex build(Path file) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        List<SptEntry> entries = SptParser.parse(file).entries();
+        String[] texts = new String[entries.size() * 2];
+        for (int i = 0; i < entries.size(); i++) {
+            SptEntry entry = entries.get(i);
+            texts[i * 2] = join(entry, false);
+            texts[i * 2 + 1] = join(entry, true);
+        }
+        BigramIndex index = BigramIndex.build(texts);
+        write(indexOf(file), size, modified, index);
+        return index;
+    }
+
+    /** 读取与源文件匹配的 {@code .spt.sdx}；缺失、过期或损坏时返回 null。 */
+    static BigramIndex load(Path file) {
+        Path cache = indexOf(file);
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(cache, READ)) {
+            long length = ch.size();
+            if (length < HEADER_SIZE + 4 || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION
+                    || buf.getLong(8) != Files.size(file)
+                    || buf.getLong(16) != Files.getLastModifiedTime(file).toMillis()) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate().limit((int) length - 4));
+            if ((int) crc.getValue() != buf.getInt((int) length - 4)) {
+                return null;
+            }
+            buf.position(HEADER_SIZE).limit((int) length - 4);
+            BigramIndex index = BigramIndex.readFrom(buf);
+            return buf.hasRemaining() ? null : index;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable search index " + cache + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(Path cache, long size, long modified, BigramIndex index) {
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try {
+            long length = HEADER_SIZE + index.serializedSize() + 4;
+            if (length > Integer.MAX_VALUE) {
+                return;
+            }
+            ByteBuffer out = ByteBuffer.allocate((int) length);
+            out.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified);
+            index.writeTo(out);
+            CRC32C crc = new CRC32C();
+            crc.update(out.array(), 0, out.position());
+            out.putInt((int) crc.getValue());
+            out.flip();
+            try (FileChannel ch = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                while (out.hasRemaining()) {
+                    ch.write(out);
+                }
+            }
+            try {
+                Files.move(tmp, cache, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write search index " + cache + ": " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+        }
+    }
+
+    private static String join(SptEntry entry, boolean translated) {
+        int n = translated ? entry.getTranslatedSegmentCount() : entry.getOriginalSegmentCount();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append('\n');
+            sb.append(translated ? entry.getTranslatedSegment(i) : entry.getOriginalSegment(i));
+        }
+        return sb.toString();
+    }
+
+    private static Path keyOf(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,184 @@
+package com.karaik.scripteditor.search;
+
+import java.util.List;
+
+/**
+ * 词 → 次数的计数表：开放寻址，次数存在 int 数组里，计数时不装箱。
+ * 不是线程安全的，并行统计时每个任务各用一个，最后 {@link #addAll(TermCounter)} 合并。
+ */
+final class TermCounter {
+
+    private String[] keys;
+    private int[] counts;
+    private int size;
+    private int threshold;
+
+    TermCounter() {
+        this(64);
+    }
+
+    TermCounter(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new String[capacity];
+        counts = new int[capacity];
+        threshold = capacity / 2;
+    }
+
+    void add(String key, int delta) {
+        int mask = keys.length - 1;
+        int i = mix(key.hashCode()) & mask;
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                counts[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        counts[i] = delta;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    int get(String key) {
+        int mask = keys.length - 1;
+        int i = mix(key.hashCode()) & mask;
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                return counts[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    void addAll(TermCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != null) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long total() {
+        long total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /** 逐项回调，顺序不定。 */
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], counts[i]);
+            }
+        }
+    }
+
+    interface Visitor {
+        void visit(String key, int count);
+    }
+
+    /**
+     * 次数不少于 minCount 的前 k 项，次数从高到低、同次数按词排序。
+     * 用容量为 k 的小顶堆筛选，只对留下的 k 项排序。
+     */
+    List<TermStatistics.Term> top(int k, int minCount) {
+        int[] heap = new int[Math.max(0, Math.min(k, size))];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null || counts[i] < minCount) {
+                continue;
+            }
+            if (n < heap.length) {
+                heap[n] = i;
+                siftUp(heap, n++);
+            } else if (n > 0 && worse(heap[0], i)) {
+                heap[0] = i;
+                siftDown(heap, 0, n);
+            }
+        }
+        // 依次弹出堆顶（最差的一项），倒着放
+        TermStatistics.Term[] ordered = new TermStatistics.Term[n];
+        for (int end = n; end > 0; end--) {
+            int slot = heap[0];
+            ordered[end - 1] = new TermStatistics.Term(keys[slot], counts[slot]);
+            heap[0] = heap[end - 1];
+            siftDown(heap, 0, end - 1);
+        }
+        return List.of(ordered);
+    }
+
+    /** slot a 排在 slot b 之后（次数少，或次数相同而词更大）。 */
+    private boolean worse(int a, int b) {
+        if (counts[a] != counts[b]) {
+            return counts[a] < counts[b];
+        }
+        return keys[a].compareTo(keys[b]) > 0;
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(heap[i], heap[parent])) {
+                return;
+            }
+            int t = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = t;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int i, int n) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= n) {
+                return;
+            }
+            int child = left + 1 < n && worse(heap[left + 1], heap[left]) ? left + 1 : left;
+            if (!worse(heap[child], heap[i])) {
+                return;
+            }
+            int t = heap[i];
+            heap[i] = heap[child];
+            heap[child] = t;
+            i = child;
+        }
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new String[capacity];
+        counts = new int[capacity];
+        threshold = capacity / 2;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = mix(oldKeys[j].hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
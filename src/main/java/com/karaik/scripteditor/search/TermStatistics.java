@@ -0,0 +1,164 @@
+package com.karaik.scripteditor.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 原文词频统计。
+ * <p>
+ * 句子先去重（重复台词很多，每种只切一次，次数按出现数累加），再在 fork-join 池里分块切词：
+ * 每个工作线程各有一个分词器，每块计入自己的 {@link TermCounter}，最后合并。
+ * 给了 {@link TokenCache} 时先查缓存，只切新句子。
+ */
+public final class TermStatistics {
+
+    /** 每块的句子数 */
+    static final int CHUNK = 512;
+
+    public record Term(String word, int count) {
+    }
+
+    /** 一次统计的结果。 */
+    public static final class Result {
+        private final TermCounter counter;
+        private final int tokenized;
+        private final int cached;
+
+        private Result(TermCounter counter, int tokenized, int cached) {
+            this.counter = counter;
+            this.tokenized = tokenized;
+            this.cached = cached;
+        }
+
+        /** 次数不少于 minCount 的前 k 个词，次数从高到低、同次数按词排序。 */
+        public List<Term> top(int k, int minCount) {
+            return counter.top(k, minCount);
+        }
+
+        public int count(String word) {
+            return counter.get(word);
+        }
+
+        public int distinctWords() {
+            return counter.size();
+        }
+
+        public long totalWords() {
+            return counter.total();
+        }
+
+        /** 本次实际切词的句子数（去重后） */
+        public int tokenizedSentences() {
+            return tokenized;
+        }
+
+        /** 直接取自缓存的句子数（去重后） */
+        public int cachedSentences() {
+            return cached;
+        }
+    }
+
+    private final Supplier<? extends WordTokenizer> tokenizers;
+    private final int parallelism;
+    private final TokenCache cache;
+
+    public TermStatistics(Supplier<? extends WordTokenizer> tokenizers, int parallelism, TokenCache cache) {
+        this.tokenizers = tokenizers;
+        this.parallelism = Math.max(1, parallelism);
+        this.cache = cache;
+    }
+
+    /** 把条目各段原文规整（NFKC、去首尾空白）后用“。”连成一句，避免跨段的词粘在一起；全空时返回空串。 */
+    public static String sentenceOf(List<String> segments) {
+        return segments.stream()
+                .filter(Objects::nonNull)
+                .map(s -> Normalizer.normalize(s, Normalizer.Form.NFKC).trim())
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.joining("。"));
+    }
+
+    public Result count(List<String> sentences) {
+        TermCounter distinct = new TermCounter(sentences.size());
+        for (String sentence : sentences) {
+            if (sentence != null && !sentence.isEmpty()) {
+                distinct.add(sentence, 1);
+            }
+        }
+        List<String> unique = new ArrayList<>(distinct.size());
+        int[] weight = new int[distinct.size()];
+        distinct.forEach((sentence, count) -> {
+            weight[unique.size()] = count;
+            unique.add(sentence);
+        });
+
+        AtomicInteger tokenized = new AtomicInteger();
+        ThreadLocal<WordTokenizer> perWorker = ThreadLocal.withInitial(tokenizers);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            TermCounter total = pool.invoke(new Chunk(unique, weight, 0, unique.size(), perWorker, tokenized));
+            return new Result(total, tokenized.get(), unique.size() - tokenized.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class Chunk extends RecursiveTask<TermCounter> {
+        private final List<String> sentences;
+        private final int[] weight;
+        private final int from;
+        private final int to;
+        private final ThreadLocal<WordTokenizer> tokenizer;
+        private final AtomicInteger tokenized;
+
+        Chunk(List<String> sentences, int[] weight, int from, int to, ThreadLocal<WordTokenizer> tokenizer,
+              AtomicInteger tokenized) {
+            this.sentences = sentences;
+            this.weight = weight;
+            this.from = from;
+            this.to = to;
+            this.tokenizer = tokenizer;
+            this.tokenized = tokenized;
+        }
+
+        @Override
+        protected TermCounter compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                Chunk right = new Chunk(sentences, weight, mid, to, tokenizer, tokenized);
+                right.fork();
+                TermCounter left = new Chunk(sentences, weight, from, mid, tokenizer, tokenized).compute();
+                TermCounter other = right.join();
+                // 小表并入大表
+                if (other.size() > left.size()) {
+                    other.addAll(left);
+                    return other;
+                }
+                left.addAll(other);
+                return left;
+            }
+            TermCounter counter = new TermCounter();
+            for (int i = from; i < to; i++) {
+                String sentence = sentences.get(i);
+                String[] words = cache != null ? cache.get(sentence) : null;
+                if (words == null) {
+                    words = tokenizer.get().words(sentence).toArray(new String[0]);
+                    tokenized.incrementAndGet();
+                    if (cache != null) {
+                        cache.put(sentence, words);
+                    }
+                }
+                for (String word : words) {
+                    counter.add(word, weight[i]);
+                }
+            }
+            return counter;
+        }
+    }
+}
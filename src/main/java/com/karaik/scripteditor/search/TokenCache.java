@@ -0,0 +1,172 @@
+package com.karaik.scripteditor.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 分词结果的持久缓存：句子 SHA-1 的前 128 位 → 切出的词。脚本只改了几句时，重跑统计只需切新句子。
+ * <p>
+ * 文件头记下 {@link WordTokenizer#id()}，分词器不同则整个缓存作废。
+ * 词先去重成词表，各句只存词表下标，整体压缩。只保存本次用到的句子，删掉的台词不会一直留着。
+ * 缺失或损坏时当作空缓存。
+ */
+public final class TokenCache {
+
+    private static final int MAGIC = 0x53505443; // "SPTC"
+    private static final int VERSION = 1;
+
+    private record Key(long high, long low) {
+    }
+
+    private final Path file;
+    private final String tokenizerId;
+    private final Map<Key, String[]> previous;
+    private final Map<Key, String[]> current = new ConcurrentHashMap<>();
+
+    private TokenCache(Path file, String tokenizerId, Map<Key, String[]> previous) {
+        this.file = file;
+        this.tokenizerId = tokenizerId;
+        this.previous = previous;
+    }
+
+    public static TokenCache open(Path file, String tokenizerId) {
+        return new TokenCache(file, tokenizerId, read(file, tokenizerId));
+    }
+
+    /** 缓存里的切词结果，没有时返回 null。 */
+    String[] get(String sentence) {
+        Key key = keyOf(sentence);
+        String[] words = previous.get(key);
+        if (words != null) {
+            current.put(key, words);
+        }
+        return words;
+    }
+
+    void put(String sentence, String[] words) {
+        current.put(keyOf(sentence), words);
+    }
+
+    /** 写回本次用到的句子（临时文件 + 改名）；失败只打日志。 */
+    public void save() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> words = new ArrayList<>();
+            for (String[] tokens : current.values()) {
+                for (String token : tokens) {
+                    if (dictionary.putIfAbsent(token, words.size()) == null) {
+                        words.add(token);
+                    }
+                }
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, tokenizerId);
+                out.writeInt(words.size());
+                for (String word : words) {
+                    writeString(out, word);
+                }
+                out.writeInt(current.size());
+                for (Map.Entry<Key, String[]> e : current.entrySet()) {
+                    out.writeLong(e.getKey().high());
+                    out.writeLong(e.getKey().low());
+                    out.writeInt(e.getValue().length);
+                    for (String token : e.getValue()) {
+                        out.writeInt(dictionary.get(token));
+                    }
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("写入分词缓存失败: " + file + " " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+        }
+    }
+
+    private static Map<Key, String[]> read(Path file, String tokenizerId) {
+        if (!Files.isRegularFile(file)) {
+            return Map.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !readString(in).equals(tokenizerId)) {
+                return Map.of();
+            }
+            String[] words = new String[readCount(in)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = readString(in);
+            }
+            int n = readCount(in);
+            Map<Key, String[]> entries = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                Key key = new Key(in.readLong(), in.readLong());
+                String[] tokens = new String[readCount(in)];
+                for (int t = 0; t < tokens.length; t++) {
+                    tokens[t] = words[in.readInt()];
+                }
+                entries.put(key, tokens);
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("忽略无法读取的分词缓存 " + file + ": " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Key keyOf(String sentence) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(sentence.getBytes(StandardCharsets.UTF_8)));
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 读一个长度字段，负数或大得离谱时视为损坏。 */
+    private static int readCount(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > (64 << 20)) {
+            throw new IOException("分词缓存中的长度字段无效: " + n);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,242 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 翻译记忆库：语料里每个（原文段 → 译文段）对，按原文去重，同一原文的不同译文按出现次数排序。
+ * <p>
+ * 完全相同的原文走哈希表；相似原文用字符二元组的 MinHash 签名做 LSH 分桶找候选，
+ * 再按编辑距离算相似度，低于阈值的丢弃。建好后不可变，可在任意线程查询。
+ */
+public final class TranslationMemory {
+
+    private static final int HASHES = 30;
+    private static final int ROWS_PER_BAND = 3;
+    private static final int BANDS = HASHES / ROWS_PER_BAND;
+    /** 太常见的桶（如只有语气词的短句）不再展开，免得一次查询验证上千个候选 */
+    private static final int MAX_BUCKET = 512;
+    private static final int MAX_CANDIDATES = 256;
+    private static final int[] SEEDS_A = new int[HASHES];
+    private static final int[] SEEDS_B = new int[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS_A[i] = random.nextInt() | 1;
+            SEEDS_B[i] = random.nextInt();
+        }
+    }
+
+    /** 一条建议：记忆库里的原文、它的译文、相似度（1 为完全相同）和该译文出现的次数。 */
+    public record Suggestion(String original, String translation, double score, int occurrences) {
+    }
+
+    private final String[] originals;
+    private final String[][] translations;
+    private final int[][] counts;
+    private final Map<String, Integer> exact;
+    // 每个桶表是 (桶哈希 << 32 | 原文号) 的升序数组
+    private final long[][] bands;
+
+    private TranslationMemory(String[] originals, String[][] translations, int[][] counts,
+                              Map<String, Integer> exact, long[][] bands) {
+        this.originals = originals;
+        this.translations = translations;
+        this.counts = counts;
+        this.exact = exact;
+        this.bands = bands;
+    }
+
+    public int size() {
+        return originals.length;
+    }
+
+    /**
+     * 查找 original 的译文建议，相似度不低于 threshold，最多 limit 条；
+     * 完全匹配在前，其余按相似度、出现次数排序。
+     */
+    public List<Suggestion> lookup(String original, double threshold, int limit) {
+        List<Suggestion> result = new ArrayList<>();
+        if (original == null || original.isEmpty() || limit <= 0) return result;
+        Integer hit = exact.get(original);
+        if (hit != null) {
+            addVariants(result, hit, 1.0, limit);
+        }
+        if (result.size() >= limit || threshold >= 1.0) return result;
+
+        int[] signature = signature(original);
+        if (signature == null) return result;
+        int[] candidates = new int[MAX_CANDIDATES];
+        int n = 0;
+        for (int b = 0; b < BANDS && n < MAX_CANDIDATES; b++) {
+            long[] table = bands[b];
+            long key = (long) bandHash(signature, b) << 32;
+            int from = Arrays.binarySearch(table, key);
+            from = from >= 0 ? from : -from - 1;
+            int to = from;
+            while (to < table.length && (table[to] & 0xFFFFFFFF00000000L) == key) to++;
+            if (to - from > MAX_BUCKET) continue;
+            for (int i = from; i < to && n < MAX_CANDIDATES; i++) {
+                int id = (int) table[i];
+                if (hit != null && id == hit) continue;
+                boolean seen = false;
+                for (int k = 0; k < n && !seen; k++) seen = candidates[k] == id;
+                if (!seen) candidates[n++] = id;
+            }
+        }
+
+        List<double[]> scored = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            double score = similarity(original, originals[candidates[k]]);
+            if (score >= threshold) scored.add(new double[]{score, candidates[k]});
+        }
+        scored.sort((x, y) -> {
+            int c = Double.compare(y[0], x[0]);
+            return c != 0 ? c : Integer.compare(counts[(int) y[1]][0], counts[(int) x[1]][0]);
+        });
+        for (double[] s : scored) {
+            if (result.size() >= limit) break;
+            addVariants(result, (int) s[1], s[0], limit);
+        }
+        return result;
+    }
+
+    private void addVariants(List<Suggestion> out, int id, double score, int limit) {
+        for (int v = 0; v < translations[id].length && out.size() < limit; v++) {
+            out.add(new Suggestion(originals[id], translations[id][v], score, counts[id][v]));
+        }
+    }
+
+    /** 1 - 编辑距离 / 较长者长度。 */
+    static double similarity(String a, String b) {
+        int m = a.length();
+        int n = b.length();
+        if (m == 0 || n == 0) return m == n ? 1.0 : 0.0;
+        int[] prev = new int[n + 1];
+        int[] cur = new int[n + 1];
+        for (int j = 0; j <= n; j++) prev[j] = j;
+        for (int i = 1; i <= m; i++) {
+            cur[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return 1.0 - (double) prev[n] / Math.max(m, n);
+    }
+
+    /** 字符二元组集合的 MinHash 签名；少于两个字符时返回 null（只能完全匹配）。 */
+    static int[] signature(String text) {
+        if (text.length() < 2) return null;
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int p = 0; p + 1 < text.length(); p++) {
+            int shingle = (text.charAt(p) << 16) | text.charAt(p + 1);
+            for (int i = 0; i < HASHES; i++) {
+                int h = mix(shingle * SEEDS_A[i] + SEEDS_B[i]);
+                if (h < signature[i]) signature[i] = h;
+            }
+        }
+        return signature;
+    }
+
+    private static int bandHash(int[] signature, int band) {
+        int h = 0x9E3779B9 * (band + 1);
+        for (int r = 0; r < ROWS_PER_BAND; r++) {
+            h = mix(h ^ signature[band * ROWS_PER_BAND + r]);
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /** 逐条收集（原文段 → 译文段）对。 */
+    public static final class Builder {
+        private final Map<String, Map<String, Integer>> pairs = new LinkedHashMap<>();
+
+        /** 原文段和译文段数目一致时逐段配对，否则整条配对；未翻译（译文为空或与原文相同）的跳过。 */
+        public Builder add(SptEntry entry) {
+            int n = entry.getOriginalSegmentCount();
+            if (n == entry.getTranslatedSegmentCount()) {
+                for (int i = 0; i < n; i++) {
+                    add(entry.getOriginalSegment(i), entry.getTranslatedSegment(i));
+                }
+            } else {
+                add(String.join("\n", entry.getOriginalSegmentTexts()), joinTranslated(entry));
+            }
+            return this;
+        }
+
+        public Builder add(String original, String translation) {
+            if (original == null || translation == null || original.isBlank() || translation.isBlank()
+                    || original.equals(translation)) {
+                return this;
+            }
+            pairs.computeIfAbsent(original, k -> new LinkedHashMap<>()).merge(translation, 1, Integer::sum);
+            return this;
+        }
+
+        public TranslationMemory build() {
+            int size = pairs.size();
+            String[] originals = new String[size];
+            String[][] translations = new String[size][];
+            int[][] counts = new int[size][];
+            Map<String, Integer> exact = new HashMap<>(size * 2);
+            long[][] bands = new long[BANDS][size];
+            int[] bandSizes = new int[BANDS];
+            int id = 0;
+            for (Map.Entry<String, Map<String, Integer>> e : pairs.entrySet()) {
+                originals[id] = e.getKey();
+                List<Map.Entry<String, Integer>> variants = new ArrayList<>(e.getValue().entrySet());
+                variants.sort((x, y) -> Integer.compare(y.getValue(), x.getValue()));
+                translations[id] = new String[variants.size()];
+                counts[id] = new int[variants.size()];
+                for (int v = 0; v < variants.size(); v++) {
+                    translations[id][v] = variants.get(v).getKey();
+                    counts[id][v] = variants.get(v).getValue();
+                }
+                exact.put(e.getKey(), id);
+                int[] signature = signature(e.getKey());
+                if (signature != null) {
+                    for (int b = 0; b < BANDS; b++) {
+                        bands[b][bandSizes[b]++] = ((long) bandHash(signature, b) << 32) | id;
+                    }
+                }
+                id++;
+            }
+            for (int b = 0; b < BANDS; b++) {
+                bands[b] = Arrays.copyOf(bands[b], bandSizes[b]);
+                Arrays.sort(bands[b]);
+            }
+            return new TranslationMemory(originals, translations, counts, exact, bands);
+        }
+
+        private static String joinTranslated(SptEntry entry) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < entry.getTranslatedSegmentCount(); i++) {
+                if (i > 0) sb.append('\n');
+                sb.append(entry.getTranslatedSegment(i));
+            }
+            return sb.toString();
+        }
+    }
+}
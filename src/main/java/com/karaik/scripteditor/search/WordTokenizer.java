@@ -0,0 +1,15 @@
+package com.karaik.scripteditor.search;
+
+import java.util.List;
+
+/**
+ * 把一句原文切成参与统计的词（已过滤标点、取原形等）。
+ * 实现不必线程安全：{@link TermStatistics} 给每个工作线程各建一个。
+ */
+public interface WordTokenizer {
+
+    /** 分词器及其过滤规则的标识，作为 {@link TokenCache} 的版本；切词结果会变时须改变。 */
+    String id();
+
+    List<String> words(String sentence);
+}
@@ -1,5 +1,6 @@
 package com.karaik.scripteditor.ui;
 
+import com.karaik.scripteditor.check.LiveValidator;
 import com.karaik.scripteditor.entry.SptEntry;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
@@ -16,6 +17,10 @@ public class SptEntryListCell extends ListCell<SptEntry> {
 
     private SptEntryNode viewNode;
     private Runnable onModifiedCallback;
+    private final SptEntryNode.SuggestionProvider suggestionProvider;
+    private final SptEntryNode.PropagateAction propagateAction;
+    private final LiveValidator validator;
+    private final SptEntryNode.DriftProvider driftProvider;
 
     private final EventHandler<MouseEvent> mousePressedHandler = event -> {
         if (event.isConsumed()) {
@@ -44,7 +49,17 @@ public class SptEntryListCell extends ListCell<SptEntry> {
     };
 
     public SptEntryListCell(Runnable onModifiedCallback) {
+        this(onModifiedCallback, null, null, null, null);
+    }
+
+    public SptEntryListCell(Runnable onModifiedCallback, SptEntryNode.SuggestionProvider suggestionProvider,
+                            SptEntryNode.PropagateAction propagateAction, LiveValidator validator,
+                            SptEntryNode.DriftProvider driftProvider) {
         this.onModifiedCallback = onModifiedCallback;
+        this.suggestionProvider = suggestionProvider;
+        this.propagateAction = propagateAction;
+        this.validator = validator;
+        this.driftProvider = driftProvider;
         this.addEventFilter(MouseEvent.MOUSE_PRESSED, mousePressedHandler);
     }
 
@@ -62,7 +77,7 @@ public class SptEntryListCell extends ListCell<SptEntry> {
         } else {
             if (viewNode == null) {
                 // 使用无参构造函数创建一次
-                viewNode = new SptEntryNode();
+                viewNode = new SptEntryNode(suggestionProvider, propagateAction, validator, driftProvider);
             }
             // 每次都调用 updateData
             viewNode.updateData(entry, onModifiedCallback);
@@ -1,16 +1,17 @@
 package com.karaik.scripteditor.ui;
 
+import com.karaik.scripteditor.check.LiveValidator;
+import com.karaik.scripteditor.controller.consts.EditorConst;
 import com.karaik.scripteditor.entry.SptEntry;
-import com.karaik.scripteditor.util.SptChecker;
-import javafx.beans.property.ReadOnlyStringWrapper;
+import com.karaik.scripteditor.search.TranslationMemory;
+import javafx.application.Platform;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
@@ -22,27 +23,73 @@ import javafx.scene.text.Font;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SptEntryNode extends VBox {
 
+    /** 按原文段查翻译记忆，结果在后台线程算出。 */
+    @FunctionalInterface
+    public interface SuggestionProvider {
+        CompletableFuture<List<TranslationMemory.Suggestion>> suggest(String original);
+    }
+
+    /** 把条目第 segment 段译文同步到所有相同原文。 */
+    @FunctionalInterface
+    public interface PropagateAction {
+        void propagate(SptEntry entry, int segment);
+    }
+
+    /** 条目与蓝本的差异说明，没有时返回 null。 */
+    @FunctionalInterface
+    public interface DriftProvider {
+        String driftOf(SptEntry entry);
+    }
+
     public static final int MAX_TEXT_LENGTH = 24;
+    /** 界面上最多可编辑的译文段数 */
+    public static final int MAX_SEGMENTS = 4;
     private static final double ORIGINAL_TEXT_AREA_PREF_WIDTH = 350;
     private static final double TRANSLATED_TEXT_AREA_PREF_WIDTH = 350;
+    private static final String OVERFLOW_STYLE = "text-area-red-overflow";
 
     private SptEntry entry;
     private Runnable onModified;
+    private final SuggestionProvider suggestionProvider;
+    private final PropagateAction propagateAction;
+    private final LiveValidator validator;
+    private final DriftProvider driftProvider;
+    // 每次换条目都递增，过期的建议回来时直接丢弃
+    private long suggestionGeneration;
 
     private Label metaLabel;
+    private Label driftLabel;
     private Button copyBtn;
     private VBox originalColContainer;
     private VBox translatedColContainer;
     private Button addBtnInstance;
-
-    private List<Runnable> disposables = new ArrayList<>();
-    private ListChangeListener<StringProperty> translatedSegmentsListener;
+    private final Label emptyOriginalLabel;
+    private final Tooltip addLimitTooltip = new Tooltip("最多只能有" + MAX_SEGMENTS + "个译文段落");
+
+    // 段落行只建一次，换条目时重新绑定到新的属性，段数变化时只显示或隐藏多出来的行
+    private final List<OriginalRow> originalRows = new ArrayList<>(MAX_SEGMENTS);
+    private final List<TranslatedRow> translatedRows = new ArrayList<>(MAX_SEGMENTS);
+    private int shownTranslatedRows;
+    private final ListChangeListener<StringProperty> translatedSegmentsListener;
+    private String originalLine;
+    // 最后才释放，保证其余监听器移除时属性对象仍在
+    private SptEntry boundEntry;
 
     public SptEntryNode() {
+        this(null, null, null, null);
+    }
+
+    public SptEntryNode(SuggestionProvider suggestionProvider, PropagateAction propagateAction,
+                        LiveValidator validator, DriftProvider driftProvider) {
         super(5);
+        this.suggestionProvider = suggestionProvider;
+        this.propagateAction = propagateAction;
+        this.validator = validator;
+        this.driftProvider = driftProvider;
         this.setPadding(new Insets(5));
 
         // 2. 在构造函数中构建一次UI骨架
@@ -50,51 +97,83 @@ public class SptEntryNode extends VBox {
         metaLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 0.9em;");
 
         copyBtn = new Button("复制本条");
+        copyBtn.setOnAction(e -> copyWholeEntryInternal(this.entry));
+
+        // 对照蓝本后，与蓝本不符的条目在这里显示说明
+        driftLabel = new Label();
+        driftLabel.setStyle("-fx-font-size: 0.85em; -fx-text-fill: #c0392b;");
+        driftLabel.setWrapText(true);
+        driftLabel.setVisible(false);
+        driftLabel.setManaged(false);
 
         HBox metaRow = new HBox(5, metaLabel, copyBtn);
         metaRow.setAlignment(Pos.CENTER_LEFT);
         HBox.setHgrow(metaLabel, Priority.ALWAYS);
 
+        emptyOriginalLabel = new Label("(原文为空)");
+        emptyOriginalLabel.setPadding(new Insets(2));
+        showNode(emptyOriginalLabel, false);
         originalColContainer = new VBox(3);
-        originalColContainer.getChildren().add(new Label("原文:"));
+        originalColContainer.getChildren().addAll(new Label("原文:"), emptyOriginalLabel);
 
         translatedColContainer = new VBox(3);
         translatedColContainer.getChildren().add(new Label("译文:"));
 
         addBtnInstance = new Button("(+)");
+        addBtnInstance.setOnAction(e -> {
+            if (this.entry != null && this.entry.getTranslatedSegments().size() < MAX_SEGMENTS) {
+                this.entry.addTranslatedSegment("");
+            }
+        });
         HBox addBox = new HBox(addBtnInstance);
         addBox.setAlignment(Pos.CENTER_RIGHT);
         addBox.setPadding(new Insets(3, 0, 0, 0));
-        // 将 addBox 添加到 translatedColContainer 的末尾，之后动态行会插在它前面
+        // 将 addBox 添加到 translatedColContainer 的末尾，段落行会插在它前面
         translatedColContainer.getChildren().add(addBox);
 
+        // 段落增删时只需重新对齐译文各行
+        translatedSegmentsListener = c -> {
+            updateTranslatedColumn();
+            if (this.onModified != null) this.onModified.run();
+        };
+
         HBox body = new HBox(10, originalColContainer, translatedColContainer);
         HBox.setHgrow(originalColContainer, Priority.ALWAYS);
         HBox.setHgrow(translatedColContainer, Priority.ALWAYS);
 
-        this.getChildren().addAll(metaRow, body);
+        this.getChildren().addAll(metaRow, driftLabel, body);
     }
 
     public void updateData(SptEntry newEntry, Runnable newOnModified) {
-        // 清理上一个条目的监听器和绑定
-        dispose();
+        // 先占用新条目再释放旧的：同一条目重新显示时属性对象得以保留，各行发现绑定没变就不动
+        if (newEntry != null) {
+            newEntry.bindSegments();
+        }
+        releaseEntry();
 
         this.entry = newEntry;
         this.onModified = newOnModified;
 
         if (this.entry == null) {
+            unbindRows();
             this.setVisible(false); // 如果没有数据，直接隐藏节点
             return;
         }
 
         this.setVisible(true);
+        this.boundEntry = this.entry;
 
         // 3. 只更新UI组件的内容，而不是重建它们
         // 更新元数据
         metaLabel.setText(this.entry.getIndex() + " | " + this.entry.getAddress() + " | " + this.entry.getLength());
-        EventHandler<ActionEvent> copyAction = e -> copyWholeEntryInternal(this.entry);
-        copyBtn.setOnAction(copyAction);
-        addDisposable(() -> copyBtn.setOnAction(null));
+        StringBuilder original = new StringBuilder("○");
+        this.entry.appendMeta(original);
+        original.append("○ ");
+        this.entry.appendFullOriginalText(original);
+        this.originalLine = original.toString();
+        String drift = driftProvider != null ? driftProvider.driftOf(this.entry) : null;
+        driftLabel.setText(drift);
+        showNode(driftLabel, drift != null);
 
         // 更新原文列
         updateOriginalColumn();
@@ -103,151 +182,291 @@ public class SptEntryNode extends VBox {
         updateTranslatedColumn();
 
         // 绑定译文段落列表的增删变化
-        ListChangeListener<StringProperty> translatedSegmentsListener = c -> {
-            // 当列表变化时，只需重新更新译文列即可
-            updateTranslatedColumn();
-            if (this.onModified != null) this.onModified.run();
-        };
         this.entry.getTranslatedSegments().addListener(translatedSegmentsListener);
-        addDisposable(() -> this.entry.getTranslatedSegments().removeListener(translatedSegmentsListener));
+    }
 
-        // 绑定添加按钮事件
-        EventHandler<ActionEvent> addAction = e -> {
-            if (this.entry.getTranslatedSegments().size() < 4) {
-                this.entry.addTranslatedSegment("");
+    private void updateOriginalColumn() {
+        // 原文只读，直接取纯文本，不创建属性对象
+        List<String> originalSegs = entry.getOriginalSegmentTexts();
+        boolean empty = originalSegs.isEmpty() || (originalSegs.size() == 1 && originalSegs.get(0).isEmpty());
+        showNode(emptyOriginalLabel, empty);
+        int shown = empty ? 0 : originalSegs.size();
+        while (originalRows.size() < shown) {
+            OriginalRow row = new OriginalRow();
+            originalRows.add(row);
+            originalColContainer.getChildren().addAll(row.area, row.suggestions);
+        }
+        for (int i = 0; i < originalRows.size(); i++) {
+            OriginalRow row = originalRows.get(i);
+            if (i < shown) {
+                row.show(originalSegs.get(i));
+                requestSuggestions(i, originalSegs.get(i), row.suggestions);
+            } else {
+                row.hide();
             }
-        };
-        addBtnInstance.setOnAction(addAction);
-        addDisposable(() -> addBtnInstance.setOnAction(null));
+        }
     }
 
-    private void updateOriginalColumn() {
-        // 从索引1开始，保留"原文:"标签
-        originalColContainer.getChildren().remove(1, originalColContainer.getChildren().size());
-
-        List<ReadOnlyStringWrapper> originalSegs = entry.getOriginalSegments();
-        if (originalSegs.isEmpty() || (originalSegs.size() == 1 && (originalSegs.get(0).get() == null || originalSegs.get(0).get().isEmpty()))) {
-            Label empty = new Label("(原文为空)");
-            empty.setPadding(new Insets(2));
-            originalColContainer.getChildren().add(empty);
-        } else {
-            originalSegs.forEach(segWrapper -> {
-                TextArea ta = new TextArea(segWrapper.get());
-                ta.setEditable(false);
-                ta.setWrapText(true);
-                ta.setPrefWidth(ORIGINAL_TEXT_AREA_PREF_WIDTH);
-                ta.setPrefHeight(calculateTextAreaHeightBasedOnContent(segWrapper.get(), ta.getFont()));
-                originalColContainer.getChildren().add(ta);
-
-                // 监听原文变化（如果可能的话）
-                ChangeListener<String> listener = (obs, oldV, newV) -> ta.setText(newV);
-                segWrapper.addListener(listener);
-                addDisposable(() -> segWrapper.removeListener(listener));
-            });
+    /** 异步查原文第 segment 段的翻译记忆，查到且与现有译文不同时显示在原文下方，可一键采用。 */
+    private void requestSuggestions(int segment, String original, VBox box) {
+        if (suggestionProvider == null || original.isEmpty()) return;
+        SptEntry requested = this.entry;
+        long generation = suggestionGeneration;
+        suggestionProvider.suggest(original).thenAccept(suggestions -> Platform.runLater(() -> {
+            if (generation != suggestionGeneration || this.entry != requested) return;
+            ObservableList<StringProperty> segs = requested.getTranslatedSegments();
+            String current = segment < segs.size() ? segs.get(segment).get() : null;
+            for (TranslationMemory.Suggestion suggestion : suggestions) {
+                if (suggestion.translation().equals(current)) continue;
+                Label text = new Label((suggestion.score() >= 1.0 ? "记忆库" : "相似 " + Math.round(suggestion.score() * 100) + "%")
+                        + (suggestion.occurrences() > 1 ? " ×" + suggestion.occurrences() : "") + ": " + suggestion.translation());
+                text.setWrapText(true);
+                text.setStyle("-fx-font-size: 0.85em; -fx-text-fill: #2a6f97;");
+                if (suggestion.score() < 1.0) {
+                    text.setTooltip(new Tooltip(suggestion.original()));
+                }
+                Button apply = new Button("采用");
+                apply.setStyle("-fx-font-size: 0.8em;");
+                apply.setOnAction(e -> applySuggestion(requested, segment, suggestion.translation()));
+                HBox row = new HBox(5, apply, text);
+                row.setAlignment(Pos.CENTER_LEFT);
+                box.getChildren().add(row);
+            }
+            showNode(box, !box.getChildren().isEmpty());
+        }));
+    }
+
+    private void applySuggestion(SptEntry target, int segment, String translation) {
+        if (this.entry != target) return;
+        ObservableList<StringProperty> segs = target.getTranslatedSegments();
+        if (segment < segs.size()) {
+            segs.get(segment).set(translation);
+        } else if (segs.size() < MAX_SEGMENTS) {
+            target.addTranslatedSegment(translation);
         }
     }
 
     private void updateTranslatedColumn() {
-        // 从索引1开始，保留"译文:"标签，并保留末尾的addBox
-        int childCount = translatedColContainer.getChildren().size();
-        if (childCount > 2) {
-            translatedColContainer.getChildren().remove(1, childCount - 1);
+        ObservableList<StringProperty> segs = this.entry.getTranslatedSegments();
+        while (translatedRows.size() < segs.size()) {
+            TranslatedRow row = new TranslatedRow();
+            translatedRows.add(row);
+            // 插入到addBox之前
+            translatedColContainer.getChildren().add(translatedColContainer.getChildren().size() - 1, row.root);
+        }
+        for (int i = 0; i < translatedRows.size(); i++) {
+            TranslatedRow row = translatedRows.get(i);
+            if (i < segs.size()) {
+                row.bind(segs.get(i));
+            } else {
+                row.unbind();
+            }
         }
+        shownTranslatedRows = segs.size();
+
+        updateAddBtnState(segs);
+        requestValidation(false);
+    }
 
+    /**
+     * 按保存时的格式拼出整条 ● 行交给校验服务，规则与批量报告相同；结果回来时按段号填到各行。
+     * 没有校验服务时（如单独使用本控件）就地同步校验。
+     */
+    private void requestValidation(boolean debounce) {
+        if (this.entry == null) return;
+        StringBuilder line = new StringBuilder("●");
+        this.entry.appendMeta(line);
+        line.append("● ");
         ObservableList<StringProperty> segs = this.entry.getTranslatedSegments();
-        for (StringProperty segProp : segs) {
-            HBox row = buildSegRowInternal(segProp);
-            // 插入到addBox之前
-            translatedColContainer.getChildren().add(translatedColContainer.getChildren().size() - 1, row);
+        for (StringProperty seg : segs) {
+            line.append(seg.get() == null ? "" : seg.get()).append(EditorConst.SWAP_FLAG);
+        }
+        SptEntry requested = this.entry;
+        if (validator == null) {
+            applyReport(requested, LiveValidator.validate(line.toString(), originalLine));
+            return;
         }
+        validator.request(this, line.toString(), originalLine, debounce, report -> applyReport(requested, report));
+    }
 
-        updateAddBtnState(addBtnInstance, segs);
+    private void applyReport(SptEntry requested, LiveValidator.Report report) {
+        if (this.entry != requested) return;
+        for (int i = 0; i < shownTranslatedRows; i++) {
+            translatedRows.get(i).showMessages(report.messagesFor(i));
+        }
     }
 
-    private HBox buildSegRowInternal(StringProperty prop) {
-        TextArea ta = new TextArea();
-        ta.setWrapText(true);
-        ta.textProperty().bindBidirectional(prop);
-        addDisposable(() -> {
-            if (prop != null) {
-                try {
-                    ta.textProperty().unbindBidirectional(prop);
-                } catch (IllegalArgumentException e) { /* ignore */ }
+    /** 一段原文：只读输入框和下方的翻译记忆建议。 */
+    private static final class OriginalRow {
+        final TextArea area = new TextArea();
+        final VBox suggestions = new VBox(2);
+
+        OriginalRow() {
+            area.setEditable(false);
+            area.setWrapText(true);
+            area.setPrefWidth(ORIGINAL_TEXT_AREA_PREF_WIDTH);
+            showNode(suggestions, false);
+        }
+
+        void show(String text) {
+            if (!text.equals(area.getText())) {
+                area.setText(text);
+                area.setPrefHeight(calculateTextAreaHeightBasedOnContent(text, area.getFont()));
             }
-        });
-        ta.setPrefWidth(TRANSLATED_TEXT_AREA_PREF_WIDTH);
-        ta.setPrefHeight(calculateTextAreaHeightBasedOnContent(prop.get(), ta.getFont()));
+            showNode(area, true);
+            clearSuggestions();
+        }
 
-        Label counter = new Label();
-        counter.setStyle("-fx-font-size: 0.8em; -fx-text-fill: grey;");
-        Label illegal = new Label();
-        illegal.setStyle("-fx-font-size: 0.8em; -fx-text-fill: red;");
+        void hide() {
+            showNode(area, false);
+            clearSuggestions();
+        }
 
-        Runnable refreshUIForRow = () -> {
-            String text = prop.get() == null ? "" : prop.get();
-            counter.setText(text.length() + "/" + MAX_TEXT_LENGTH);
-            StringBuilder badChars = new StringBuilder();
-            for (char c : text.toCharArray()) {
-                if (!SptChecker.checkChar(c) && badChars.indexOf(String.valueOf(c)) < 0) {
-                    badChars.append(c);
+        private void clearSuggestions() {
+            if (!suggestions.getChildren().isEmpty()) {
+                suggestions.getChildren().clear();
+            }
+            showNode(suggestions, false);
+        }
+    }
+
+    /**
+     * 一段译文：输入框、字数、报错、删除和同步按钮。控件和监听器只建一次，
+     * 换条目时 {@link #bind} 到新的属性；按钮按当前绑定的属性找段号。
+     */
+    private final class TranslatedRow {
+        final TextArea area = new TextArea();
+        final Label counter = new Label();
+        final Label errors = new Label();
+        final HBox root;
+        StringProperty bound;
+        // 绑定或解绑时输入框文本跟着变，不算编辑
+        boolean rebinding;
+
+        TranslatedRow() {
+            area.setWrapText(true);
+            area.setPrefWidth(TRANSLATED_TEXT_AREA_PREF_WIDTH);
+            counter.setStyle("-fx-font-size: 0.8em; -fx-text-fill: grey;");
+            errors.setStyle("-fx-font-size: 0.8em; -fx-text-fill: red;");
+            errors.setWrapText(true);
+
+            // 计数随输入立即更新；完整校验放到后台，停顿片刻后才回填报错
+            ChangeListener<String> textChangeListener = (o, ov, nv) -> {
+                if (rebinding) return;
+                refreshCounter();
+                requestValidation(true);
+                if (onModified != null) onModified.run();
+            };
+            area.textProperty().addListener(textChangeListener);
+
+            Button rm = new Button("-");
+            rm.setOnAction(e -> {
+                int idx = indexInEntry();
+                if (idx != -1) {
+                    entry.removeTranslatedSegment(idx);
                 }
+            });
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            HBox infoLine = new HBox(5, counter, spacer, errors);
+            infoLine.setAlignment(Pos.CENTER_LEFT);
+            VBox taBox = new VBox(3, area, infoLine);
+            HBox.setHgrow(taBox, Priority.ALWAYS);
+            root = new HBox(3, taBox, rm);
+            if (propagateAction != null) {
+                Button sync = new Button("同步");
+                sync.setTooltip(new Tooltip("把这段译文同步到所有相同的原文"));
+                sync.setOnAction(e -> {
+                    int idx = indexInEntry();
+                    if (idx != -1) {
+                        propagateAction.propagate(entry, idx);
+                    }
+                });
+                root.getChildren().add(sync);
             }
-            boolean isTooLong = text.length() > MAX_TEXT_LENGTH;
-            boolean hasBadChars = badChars.length() > 0;
-            ta.getStyleClass().remove("text-area-red-overflow");
-            if (isTooLong || hasBadChars) {
-                ta.getStyleClass().add("text-area-red-overflow");
+            root.setAlignment(Pos.CENTER_LEFT);
+        }
+
+        void bind(StringProperty prop) {
+            if (bound != prop) {
+                unbindProperty();
+                rebinding = true;
+                area.textProperty().bindBidirectional(prop);
+                rebinding = false;
+                bound = prop;
+                area.setPrefHeight(calculateTextAreaHeightBasedOnContent(prop.get(), area.getFont()));
+                refreshCounter();
             }
-            if (" ".contentEquals(badChars)) {
-                illegal.setText(hasBadChars ? "非法字符: （半角空格）" : "");
-                return;
+            showNode(root, true);
+        }
+
+        void unbind() {
+            unbindProperty();
+            showNode(root, false);
+        }
+
+        private void unbindProperty() {
+            if (bound != null) {
+                rebinding = true;
+                area.textProperty().unbindBidirectional(bound);
+                rebinding = false;
+                bound = null;
             }
-            illegal.setText(hasBadChars ? "非法字符: " + badChars : "");
-        };
+        }
 
-        ChangeListener<String> textChangeListener = (o, ov, nv) -> {
-            refreshUIForRow.run();
-            if (this.onModified != null) this.onModified.run();
-        };
-        ta.textProperty().addListener(textChangeListener);
-        addDisposable(() -> ta.textProperty().removeListener(textChangeListener));
-        refreshUIForRow.run();
-
-        Button rm = new Button("-");
-        EventHandler<ActionEvent> removeAction = e -> {
-            int idx = this.entry.getTranslatedSegments().indexOf(prop);
-            if (idx != -1) {
-                this.entry.removeTranslatedSegment(idx);
+        private int indexInEntry() {
+            return entry == null || bound == null ? -1 : entry.getTranslatedSegments().indexOf(bound);
+        }
+
+        private void refreshCounter() {
+            String text = bound == null || bound.get() == null ? "" : bound.get();
+            counter.setText(text.length() + "/" + MAX_TEXT_LENGTH);
+        }
+
+        /** 只在状态真的变了时改样式类，免得每次回填都触发一次 CSS 重算。 */
+        void showMessages(List<String> messages) {
+            errors.setText(messages.isEmpty() ? "" : String.join("\n", messages));
+            boolean red = !messages.isEmpty() || area.getText().length() > MAX_TEXT_LENGTH;
+            ObservableList<String> styles = area.getStyleClass();
+            if (red != styles.contains(OVERFLOW_STYLE)) {
+                if (red) {
+                    styles.add(OVERFLOW_STYLE);
+                } else {
+                    styles.remove(OVERFLOW_STYLE);
+                }
             }
-        };
-        rm.setOnAction(removeAction);
-        addDisposable(() -> rm.setOnAction(null));
-
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-        HBox infoLine = new HBox(5, counter, spacer, illegal);
-        infoLine.setAlignment(Pos.CENTER_LEFT);
-        VBox taBox = new VBox(3, ta, infoLine);
-        HBox.setHgrow(taBox, Priority.ALWAYS);
-        HBox row = new HBox(3, taBox, rm);
-        row.setAlignment(Pos.CENTER_LEFT);
-        return row;
+        }
+    }
+
+    private static void showNode(Node node, boolean show) {
+        if (node.isVisible() != show) {
+            node.setVisible(show);
+            node.setManaged(show);
+        }
     }
 
     private static double calculateTextAreaHeightBasedOnContent(String text, Font font) {
         if (text == null || text.isEmpty()) return 30.0;
         Font f = (font != null) ? font : Font.getDefault();
-        int lines = text.split("\r\n|\r|\n", -1).length;
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                lines++;
+            }
+        }
         double lineHeight = f.getSize() * 1.4 + 5;
-        double calculatedHeight = Math.max(1, lines) * lineHeight;
+        double calculatedHeight = lines * lineHeight;
         return Math.max(30.0, Math.min(calculatedHeight, 150.0));
     }
 
-    private static void updateAddBtnState(Button btn, ObservableList<StringProperty> segs) {
-        if (btn == null) return;
-        boolean disable = segs == null || segs.size() >= 4;
-        btn.setDisable(disable);
-        btn.setTooltip(disable ? new Tooltip("最多只能有4个译文段落") : null);
+    private void updateAddBtnState(ObservableList<StringProperty> segs) {
+        boolean disable = segs == null || segs.size() >= MAX_SEGMENTS;
+        if (addBtnInstance.isDisable() != disable) {
+            addBtnInstance.setDisable(disable);
+            addBtnInstance.setTooltip(disable ? addLimitTooltip : null);
+        }
     }
 
     private static void copyWholeEntryInternal(SptEntry entry) {
@@ -266,26 +485,30 @@ public class SptEntryNode extends VBox {
         Clipboard.getSystemClipboard().setContent(cc);
     }
 
-    private void addDisposable(Runnable disposable) {
-        this.disposables.add(disposable);
+    private void unbindRows() {
+        for (TranslatedRow row : translatedRows) {
+            row.unbind();
+        }
+        shownTranslatedRows = 0;
     }
 
-    public void dispose() {
-        if (this.entry != null && translatedSegmentsListener != null && this.entry.getTranslatedSegments() != null) {
-            try {
-                this.entry.getTranslatedSegments().removeListener(translatedSegmentsListener);
-            } catch (Exception e) {
-                System.err.println("Error removing translatedSegmentsListener during dispose: " + e.getMessage());
-            }
-            translatedSegmentsListener = null;
+    /** 放弃当前条目：取消未交回的校验和建议，移除段落监听，释放对条目的占用。 */
+    private void releaseEntry() {
+        suggestionGeneration++;
+        if (validator != null) {
+            validator.cancel(this);
         }
-        for (Runnable disposable : disposables) {
-            try {
-                disposable.run();
-            } catch (Exception e) {
-                System.err.println("Error during SptEntryNode internal dispose task: " + e.getMessage());
-            }
+        if (boundEntry != null) {
+            boundEntry.getTranslatedSegments().removeListener(translatedSegmentsListener);
+            boundEntry.unbindSegments();
+            boundEntry = null;
         }
-        disposables.clear();
     }
-}
\ No newline at end of file
+
+    public void dispose() {
+        // 先解开各行的双向绑定，再释放条目
+        unbindRows();
+        releaseEntry();
+        this.entry = null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.karaik.scripteditor.util;
+
+import com.karaik.scripteditor.entry.SptEntry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 把条目直接编码进 FileChannel 的写出器：复用同一个 CharsetEncoder、行缓冲和池化的直接内存 ByteBuffer，
+ * 攒满一大块才写一次通道，逐条写出时不产生临时字符串。
+ * 输出与 OutputStreamWriter(UTF-8) 逐字节一致（非法代理对同样替换为 '?'）。
+ * 不负责关闭通道，{@link #close()} 只写出剩余内容并归还缓冲区。
+ */
+public final class SptChannelWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOLED = 4;
+    private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer out;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private CharBuffer charView = CharBuffer.wrap(chars);
+
+    public SptChannelWriter(FileChannel channel) {
+        this.channel = channel;
+        ByteBuffer pooled = POOL.poll();
+        this.out = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.out.clear();
+    }
+
+    /** 完整写出一条：○ 行、● 行和条目间的空行。 */
+    public void writeEntry(SptEntry entry) throws IOException {
+        writeOriginalLine(entry);
+        writeTranslateLine(entry);
+        line.setLength(0);
+        line.append("\n\n");
+        encodeLine();
+    }
+
+    /** ○index|address|length○ 原文，含换行。 */
+    public void writeOriginalLine(SptEntry entry) throws IOException {
+        line.setLength(0);
+        line.append('○');
+        entry.appendMeta(line);
+        line.append("○ ");
+        entry.appendFullOriginalText(line);
+        line.append('\n');
+        encodeLine();
+    }
+
+    /** ●index|address|length● 译文，不含换行。 */
+    public void writeTranslateLine(SptEntry entry) throws IOException {
+        line.setLength(0);
+        line.append('●');
+        entry.appendMeta(line);
+        line.append("● ");
+        entry.appendFullTranslatedText(line);
+        encodeLine();
+    }
+
+    /** 把 src 的 [position, position + count) 直接搬到输出通道，先写出缓冲中的内容。 */
+    public void transferFrom(FileChannel src, long position, long count) throws IOException {
+        flush();
+        while (count > 0) {
+            long n = src.transferTo(position, count, channel);
+            if (n <= 0) {
+                throw new EOFException("源文件在 " + position + " 处提前结束");
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            if (POOL.size() < MAX_POOLED) {
+                POOL.offer(out);
+            }
+            out = null;
+        }
+    }
+
+    private void encodeLine() throws IOException {
+        int len = line.length();
+        if (len > chars.length) {
+            chars = new char[Math.max(len, chars.length * 2)];
+            charView = CharBuffer.wrap(chars);
+        }
+        line.getChars(0, len, chars, 0);
+        charView.clear().limit(len);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(charView, out, true);
+            if (result.isOverflow()) {
+                flush();
+            }
+        } while (result.isOverflow());
+        while (encoder.flush(out).isOverflow()) {
+            flush();
+        }
+    }
+}
@@ -1,41 +1,21 @@
 package com.karaik.scripteditor.util;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
-import java.util.Set;
+import com.karaik.scripteditor.check.Gb2312;
 
+/**
+ * GB2312 合法性判断，实现见 {@link Gb2312}。
+ */
 public class SptChecker {
-    private static class Gb2312Holder {
-        static final Set<Character> INSTANCE = loadSet();
-    }
 
     public static boolean checkChar(Character c) {
-        return Gb2312Holder.INSTANCE.contains(c);
+        return c != null && Gb2312.isLegal(c.charValue());
     }
 
-    public static boolean checkSpt(String input) {
-        if (input == null) return false;
-        Set<Character> gb2312 = Gb2312Holder.INSTANCE;
-        for (char c : input.toCharArray()) {
-            if (!gb2312.contains(c)) return false;
-        }
-        return true;
+    public static boolean checkChar(char c) {
+        return Gb2312.isLegal(c);
     }
 
-    private static Set<Character> loadSet() {
-        Set<Character> set = new HashSet<>(7445, 1);
-        try (InputStream in = SptChecker.class.getResourceAsStream("/com/karaik/scripteditor/gb2312_valid_characters.txt");
-             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                set.add(line.charAt(0));
-            }
-        } catch (Exception e) {
-            System.err.println("加载GB2312字符集失败: " + e.getMessage());
-        }
-        return set;
+    public static boolean checkSpt(String input) {
+        return Gb2312.isLegal(input);
     }
 }
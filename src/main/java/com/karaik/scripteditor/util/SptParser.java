@@ -0,0 +1,462 @@
+package com.karaik.scripteditor.util;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.entry.SptEntryStore;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SPT 文本的单遍流式解析器，编辑器和各类工具共用。
+ * 直接在 UTF-8 字节上逐行扫描 ○/● 标识与 index|address|length 三元组，
+ * 只有最终用到的片段才会解码成 String，并记录每条目在文件中的字节范围。
+ * 配对规则与旧的 split 实现一致：○ 行（去首尾空白后）紧跟 ● 行才算一条，
+ * 行分隔符与 {@code \R} 相同。
+ */
+public final class SptParser {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // 按经验估算的每条目字节数，仅用于预分配 store 容量
+    private static final int BYTES_PER_ENTRY_HINT = 128;
+
+    // ○ U+25CB / ● U+25CF 的 UTF-8 编码
+    private static final byte MARK_B0 = (byte) 0xE2;
+    private static final byte MARK_B1 = (byte) 0x97;
+    private static final byte MARK_ORIGINAL_B2 = (byte) 0x8B;
+    private static final byte MARK_TRANSLATE_B2 = (byte) 0x8F;
+
+    private static final int KIND_OTHER = 0;
+    private static final int KIND_ORIGINAL = 1;
+    private static final int KIND_TRANSLATE = 2;
+
+    private SptParser() {
+    }
+
+    /** 每解析出一条 ○/● 配对就回调一次；cursor 只在回调期间有效。 */
+    public interface Handler {
+        void onEntry(Cursor cursor) throws IOException;
+    }
+
+    /** 无法配对或锚点格式错误的行，lineNumber 从 1 开始。 */
+    public record Problem(int lineNumber, String message) {
+        @Override
+        public String toString() {
+            return "第 " + lineNumber + " 行：" + message;
+        }
+    }
+
+    public record Result(List<SptEntry> entries, List<Problem> problems) {
+    }
+
+    public static Result parse(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            SptEntryStore store = new SptEntryStore(
+                    (int) Math.min(Integer.MAX_VALUE / 4, size / BYTES_PER_ENTRY_HINT + 1),
+                    (int) Math.min(Integer.MAX_VALUE / 2, size / 2 + 16));
+            List<Problem> problems = scan(ch, c -> c.appendTo(store));
+            store.trimToSize();
+            return new Result(store.asList(), problems);
+        }
+    }
+
+    public static Result parse(ReadableByteChannel channel) throws IOException {
+        SptEntryStore store = new SptEntryStore();
+        List<Problem> problems = scan(channel, c -> c.appendTo(store));
+        return new Result(store.asList(), problems);
+    }
+
+    public static Result parse(Reader reader) throws IOException {
+        SptEntryStore store = new SptEntryStore();
+        List<Problem> problems = scan(reader, c -> c.appendTo(store));
+        return new Result(store.asList(), problems);
+    }
+
+    public static List<Problem> scan(ReadableByteChannel channel, Handler handler) throws IOException {
+        Scanner scanner = new Scanner(handler);
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        while (channel.read(chunk) != -1) {
+            chunk.flip();
+            scanner.feed(chunk.array(), 0, chunk.limit());
+            chunk.clear();
+        }
+        return scanner.finish();
+    }
+
+    /** 扫描 buffer 的 position..limit 区间（例如内存映射的文件），不改变 buffer 自身的位置。 */
+    public static List<Problem> scan(ByteBuffer buffer, Handler handler) throws IOException {
+        Scanner scanner = new Scanner(handler);
+        ByteBuffer src = buffer.duplicate();
+        if (src.hasArray()) {
+            scanner.feed(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            return scanner.finish();
+        }
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (src.hasRemaining()) {
+            int n = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, n);
+            scanner.feed(chunk, 0, n);
+        }
+        return scanner.finish();
+    }
+
+    /** Reader 输入会被重新编码为 UTF-8 后扫描，cursor 中的偏移量即该编码下的字节偏移。 */
+    public static List<Problem> scan(Reader reader, Handler handler) throws IOException {
+        Scanner scanner = new Scanner(handler);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.allocate(CHUNK_SIZE / 4);
+        ByteBuffer out = ByteBuffer.allocate(CHUNK_SIZE);
+        boolean eof = false;
+        while (!eof) {
+            eof = reader.read(in) == -1;
+            in.flip();
+            CoderResult cr;
+            do {
+                cr = encoder.encode(in, out, eof);
+                out.flip();
+                scanner.feed(out.array(), 0, out.limit());
+                out.clear();
+            } while (cr.isOverflow());
+            in.compact();
+        }
+        CoderResult cr;
+        do {
+            cr = encoder.flush(out);
+            out.flip();
+            scanner.feed(out.array(), 0, out.limit());
+            out.clear();
+        } while (cr.isOverflow());
+        return scanner.finish();
+    }
+
+    /**
+     * 当前条目的只读视图。字符串按需解码，偏移量均为相对输入起点的字节偏移，
+     * 行的结束位置不含换行符。
+     */
+    public static final class Cursor {
+
+        private byte[] originalLine;
+        private byte[] translateLine;
+
+        private int lineNumber;
+        private long originalLineStart;
+        private long originalLineEnd;
+        private long translateLineStart;
+        private long translateLineEnd;
+
+        private int metaStart;
+        private int firstBar;
+        private int secondBar;
+        private int lengthEnd;
+        private int originalTextStart;
+        private int originalTextEnd;
+        private int translateTextStart;
+        private int translateTextEnd;
+
+        /** ○ 行所在行号（从 1 开始）。 */
+        public int lineNumber() {
+            return lineNumber;
+        }
+
+        public long originalLineStart() {
+            return originalLineStart;
+        }
+
+        public long originalLineEnd() {
+            return originalLineEnd;
+        }
+
+        public long translateLineStart() {
+            return translateLineStart;
+        }
+
+        public long translateLineEnd() {
+            return translateLineEnd;
+        }
+
+        public String index() {
+            return decode(originalLine, metaStart, firstBar);
+        }
+
+        public String address() {
+            return decode(originalLine, firstBar + 1, secondBar);
+        }
+
+        public String length() {
+            return decode(originalLine, secondBar + 1, lengthEnd);
+        }
+
+        /** ○ 标识后的原文（含 [\r][\n] 等换行标记），已去除首尾空白。 */
+        public String original() {
+            return decode(originalLine, originalTextStart, originalTextEnd);
+        }
+
+        /** ● 标识后的译文，已去除首尾空白。 */
+        public String translated() {
+            return decode(translateLine, translateTextStart, translateTextEnd);
+        }
+
+        /** 单独解析出一条，内部使用只含一行的 store。 */
+        public SptEntry toEntry() {
+            SptEntryStore store = new SptEntryStore(1, (originalTextEnd - originalTextStart)
+                    + (translateTextEnd - translateTextStart));
+            return store.entry(appendTo(store));
+        }
+
+        /** 把当前条目直接从 UTF-8 字节追加到 store，不经过中间 String，返回行号。 */
+        public int appendTo(SptEntryStore store) {
+            return store.addRowUtf8(originalLine, metaStart, firstBar, firstBar + 1, secondBar,
+                    secondBar + 1, lengthEnd,
+                    originalLine, originalTextStart, originalTextEnd,
+                    translateLine, translateTextStart, translateTextEnd);
+        }
+
+        private static String decode(byte[] src, int from, int to) {
+            return from >= to ? "" : new String(src, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Scanner {
+
+        private final Handler handler;
+        private final List<Problem> problems = new ArrayList<>();
+        private final Cursor cursor = new Cursor();
+
+        private byte[] line = new byte[256];
+        private int lineLen;
+        private long lineStart;
+        private int lineNumber = 1;
+
+        // 上一行若是 ○ 行，其内容暂存在这里等待与下一行配对
+        private byte[] pending = new byte[256];
+        private int pendingLen;
+        private boolean pendingOriginal;
+        private long pendingStart;
+        private long pendingEnd;
+        private int pendingLineNumber;
+
+        private long position;
+        private boolean afterCR;
+
+        Scanner(Handler handler) {
+            this.handler = handler;
+        }
+
+        void feed(byte[] buf, int off, int len) throws IOException {
+            int end = off + len;
+            int segStart = off;
+            for (int i = off; i < end; i++) {
+                byte b = buf[i];
+                if (afterCR) {
+                    afterCR = false;
+                    if (b == '\n') {
+                        segStart = i + 1;
+                        lineStart = position + (i - off) + 1;
+                        continue;
+                    }
+                }
+                switch (b) {
+                    case '\n', 0x0B, 0x0C -> {
+                        append(buf, segStart, i);
+                        endLine(position + (i - off), position + (i - off) + 1);
+                        segStart = i + 1;
+                    }
+                    case '\r' -> {
+                        append(buf, segStart, i);
+                        endLine(position + (i - off), position + (i - off) + 1);
+                        segStart = i + 1;
+                        afterCR = true;
+                    }
+                    case (byte) 0x85 -> {
+                        // U+0085 = C2 85；前导字节可能在上一块数据里
+                        append(buf, segStart, i);
+                        segStart = i;
+                        if (lineLen >= 1 && line[lineLen - 1] == (byte) 0xC2) {
+                            lineLen -= 1;
+                            endLine(position + (i - off) - 1, position + (i - off) + 1);
+                            segStart = i + 1;
+                        }
+                    }
+                    case (byte) 0xA8, (byte) 0xA9 -> {
+                        // U+2028 / U+2029 = E2 80 A8 / E2 80 A9
+                        append(buf, segStart, i);
+                        segStart = i;
+                        if (lineLen >= 2 && line[lineLen - 2] == MARK_B0 && line[lineLen - 1] == (byte) 0x80) {
+                            lineLen -= 2;
+                            endLine(position + (i - off) - 2, position + (i - off) + 1);
+                            segStart = i + 1;
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            append(buf, segStart, end);
+            position += len;
+        }
+
+        List<Problem> finish() throws IOException {
+            if (lineLen > 0 || lineStart < position) {
+                endLine(position, position);
+            }
+            if (pendingOriginal) {
+                problems.add(new Problem(pendingLineNumber, "原文行后缺少对应的译文行"));
+                pendingOriginal = false;
+            }
+            return problems;
+        }
+
+        private void append(byte[] buf, int from, int to) {
+            int n = to - from;
+            if (n <= 0) {
+                return;
+            }
+            if (lineLen + n > line.length) {
+                byte[] grown = new byte[Math.max(line.length * 2, lineLen + n)];
+                System.arraycopy(line, 0, grown, 0, lineLen);
+                line = grown;
+            }
+            System.arraycopy(buf, from, line, lineLen, n);
+            lineLen += n;
+        }
+
+        private void endLine(long contentEnd, long nextStart) throws IOException {
+            int kind = classify(line, lineLen);
+            if (pendingOriginal) {
+                if (kind == KIND_TRANSLATE) {
+                    emit(contentEnd);
+                } else {
+                    problems.add(new Problem(pendingLineNumber, "原文行后缺少对应的译文行"));
+                }
+            } else if (kind == KIND_TRANSLATE) {
+                problems.add(new Problem(lineNumber, "译文行前缺少对应的原文行"));
+            }
+
+            if (kind == KIND_ORIGINAL) {
+                byte[] tmp = pending;
+                pending = line;
+                line = tmp;
+                pendingLen = lineLen;
+                pendingOriginal = true;
+                pendingStart = lineStart;
+                pendingEnd = contentEnd;
+                pendingLineNumber = lineNumber;
+            } else {
+                pendingOriginal = false;
+            }
+
+            lineLen = 0;
+            lineStart = nextStart;
+            lineNumber++;
+        }
+
+        private void emit(long translateEnd) throws IOException {
+            byte[] o = pending;
+            int oStart = trimStart(o, 0, pendingLen);
+            int oEnd = trimEnd(o, oStart, pendingLen);
+            int metaStart = oStart + 3;
+            int oSecond = indexOfMark(o, metaStart, oEnd, MARK_ORIGINAL_B2);
+            int metaEnd = oSecond < 0 ? oEnd : oSecond;
+
+            // 与 split("\\|") 一致：去掉末尾空字段后至少要有 3 段
+            int firstBar = indexOf(o, metaStart, metaEnd, (byte) '|');
+            int secondBar = firstBar < 0 ? -1 : indexOf(o, firstBar + 1, metaEnd, (byte) '|');
+            if (secondBar < 0 || !hasNonBar(o, secondBar + 1, metaEnd)) {
+                problems.add(new Problem(pendingLineNumber, "锚点格式不正确，应为 ○index|address|length○"));
+                return;
+            }
+            int lengthEnd = indexOf(o, secondBar + 1, metaEnd, (byte) '|');
+
+            byte[] t = line;
+            int tStart = trimStart(t, 0, lineLen);
+            int tEnd = trimEnd(t, tStart, lineLen);
+            int tSecond = indexOfMark(t, tStart + 3, tEnd, MARK_TRANSLATE_B2);
+
+            Cursor c = cursor;
+            c.originalLine = o;
+            c.translateLine = t;
+            c.lineNumber = pendingLineNumber;
+            c.originalLineStart = pendingStart;
+            c.originalLineEnd = pendingEnd;
+            c.translateLineStart = lineStart;
+            c.translateLineEnd = translateEnd;
+            c.metaStart = metaStart;
+            c.firstBar = firstBar;
+            c.secondBar = secondBar;
+            c.lengthEnd = lengthEnd < 0 ? metaEnd : lengthEnd;
+            c.originalTextStart = oSecond < 0 ? oEnd : trimStart(o, oSecond + 3, oEnd);
+            c.originalTextEnd = oEnd;
+            c.translateTextStart = tSecond < 0 ? tEnd : trimStart(t, tSecond + 3, tEnd);
+            c.translateTextEnd = tEnd;
+            handler.onEntry(c);
+        }
+
+        private static int classify(byte[] buf, int len) {
+            int s = trimStart(buf, 0, len);
+            if (len - s < 3 || buf[s] != MARK_B0 || buf[s + 1] != MARK_B1) {
+                return KIND_OTHER;
+            }
+            byte b2 = buf[s + 2];
+            if (b2 == MARK_ORIGINAL_B2) {
+                return KIND_ORIGINAL;
+            }
+            return b2 == MARK_TRANSLATE_B2 ? KIND_TRANSLATE : KIND_OTHER;
+        }
+
+        // String.trim() 去掉的是 <= U+0020 的字符，在 UTF-8 中恰好都是单字节
+        private static int trimStart(byte[] buf, int from, int to) {
+            while (from < to && (buf[from] & 0xFF) <= 0x20) {
+                from++;
+            }
+            return from;
+        }
+
+        private static int trimEnd(byte[] buf, int from, int to) {
+            while (to > from && (buf[to - 1] & 0xFF) <= 0x20) {
+                to--;
+            }
+            return to;
+        }
+
+        private static int indexOf(byte[] buf, int from, int to, byte b) {
+            for (int i = from; i < to; i++) {
+                if (buf[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int indexOfMark(byte[] buf, int from, int to, byte b2) {
+            for (int i = from; i + 2 < to; i++) {
+                if (buf[i] == MARK_B0 && buf[i + 1] == MARK_B1 && buf[i + 2] == b2) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean hasNonBar(byte[] buf, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buf[i] != '|') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
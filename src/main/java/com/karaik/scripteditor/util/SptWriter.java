@@ -1,29 +1,50 @@
 package com.karaik.scripteditor.util;
 
+import com.karaik.scripteditor.entry.SptDocument;
 import com.karaik.scripteditor.entry.SptEntry;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public class SptWriter {
 
-    public static void saveToFile(List<SptEntry> entries, File outputFile) throws Exception {
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter writer = new BufferedWriter(osw)) {
+    /** 每条写成 ○ 行、● 行加一个空行，换行统一为 \n。 */
+    public static void saveToFile(List<SptEntry> entries, File outputFile) throws IOException {
+        try (FileChannel dst = openForWrite(outputFile);
+             SptChannelWriter writer = new SptChannelWriter(dst)) {
             for (SptEntry entry : entries) {
-                String index = entry.getIndex();
-                String address = entry.getAddress();
-                String length = entry.getLength();
+                writer.writeEntry(entry);
+            }
+        }
+    }
 
-                String originalForFile = entry.getFullOriginalText();
-                String translatedForFile = entry.getFullTranslatedText();
+    /**
+     * 增量保存：以文档打开时的快照为底稿，只把脏条目的 ● 行重新编码，
+     * 其余字节区间用 {@link FileChannel#transferTo} 原样拷贝。
+     * 未改动部分（包括解析时跳过的行和原有换行符）保持与原文件逐字节一致。
+     */
+    public static void saveIncremental(SptDocument document, File outputFile) throws IOException {
+        saveIncremental(document.snapshot(), outputFile);
+    }
 
-                writer.write("○" + index + "|" + address + "|" + length + "○ " + originalForFile + "\n");
-                writer.write("●" + index + "|" + address + "|" + length + "● " + translatedForFile + "\n");
-                writer.write("\n"); // Blank line separator between entries
+    public static void saveIncremental(SptDocument.Snapshot snapshot, File outputFile) throws IOException {
+        try (FileChannel src = FileChannel.open(snapshot.source(), StandardOpenOption.READ);
+             FileChannel dst = openForWrite(outputFile);
+             SptChannelWriter writer = new SptChannelWriter(dst)) {
+            long position = 0;
+            for (SptDocument.DirtyEntry dirty : snapshot.dirtyEntries()) {
+                writer.transferFrom(src, position, dirty.translateLineStart() - position);
+                writer.writeTranslateLine(dirty.entry());
+                position = dirty.translateLineEnd();
             }
+            writer.transferFrom(src, position, src.size() - position);
         }
     }
-}
\ No newline at end of file
+
+    private static FileChannel openForWrite(File outputFile) throws IOException {
+        return FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
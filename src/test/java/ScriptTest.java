@@ -1,5 +1,5 @@
 import com.karaik.scripteditor.entry.SptEntry;
-import javafx.beans.property.ReadOnlyStringWrapper;
+import com.karaik.scripteditor.util.SptParser;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
@@ -24,17 +24,14 @@ public class ScriptTest {
         HashMap<String, Integer> sentencesMap = new HashMap<>();
         sptFiles = findAllFiles();
         sptFiles.forEach((key, file) -> {
-            String content = null;
+            List<SptEntry> sptEntries;
             try {
-                content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                sptEntries = SptParser.parse(file.toPath()).entries();
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-            List<SptEntry> sptEntries = parseSptContent(content);
             sptEntries.forEach((entry) -> {
-                List<ReadOnlyStringWrapper> originalSegments = entry.getOriginalSegments();
-                originalSegments.forEach((segment) -> {
-                    String originalSpt = segment.get();
+                entry.getOriginalSegmentTexts().forEach((originalSpt) -> {
                     if (!sentencesMap.containsKey(originalSpt)) {
                         sentencesMap.put(originalSpt, 1);
                     } else {
@@ -74,26 +71,4 @@ public class ScriptTest {
                     ));
         }
     }
-
-    private List<SptEntry> parseSptContent(String content) {
-        List<SptEntry> result = new ArrayList<>();
-        String[] lines = content.split("\\R");
-        for (int i = 0; i < lines.length - 1; i++) {
-            String ol = lines[i].trim();
-            String tl = lines[i + 1].trim();
-            if (ol.startsWith("○") && tl.startsWith("●")) {
-                String[] op = ol.split("○", 3);
-                String[] tp = tl.split("●", 3);
-                if (op.length > 1 && tp.length > 1) {
-                    String[] meta = op[1].split("\\|");
-                    if (meta.length >= 3) {
-                        result.add(new SptEntry(meta[0], meta[1], meta[2],
-                                (op.length > 2 ? op[2].trim() : ""),
-                                (tp.length > 2 ? tp[2].trim() : "")));
-                    }
-                }
-            }
-        }
-        return result;
-    }
 }
@@ -0,0 +1,132 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class BlueprintAlignerTest {
+
+    @Test
+    void singleInsertionOrDeletionIsReportedOnce() {
+        List<String> blueprint = lines(10_000);
+        List<String> inserted = new ArrayList<>(blueprint);
+        inserted.add(4000, "○多出来的|000000|000○ 多出来的行");
+        List<BlueprintAligner.Change> changes = BlueprintAligner.align(inserted, blueprint);
+        Assertions.assertEquals(1, changes.size());
+        Assertions.assertEquals(BlueprintAligner.Kind.INSERTED, changes.get(0).kind());
+        Assertions.assertEquals(4000, changes.get(0).lineIndex());
+        Assertions.assertEquals("多出来的|000000|000", changes.get(0).id());
+
+        List<String> deleted = new ArrayList<>(blueprint);
+        deleted.remove(123);
+        deleted.set(9000, "○09001|0232A0|014○ 改过的原文");
+        changes = BlueprintAligner.align(deleted, blueprint);
+        Assertions.assertEquals(2, changes.size());
+        Assertions.assertEquals(new BlueprintAligner.Change(BlueprintAligner.Kind.DELETED, 123, 123, null,
+                blueprint.get(123)), changes.get(0));
+        Assertions.assertEquals(BlueprintAligner.Kind.MODIFIED, changes.get(1).kind());
+        Assertions.assertEquals(9000, changes.get(1).lineIndex());
+        Assertions.assertEquals(9001, changes.get(1).blueprintIndex());
+        Assertions.assertEquals("00001|000010|014".length(), changes.get(1).id().length());
+
+        Assertions.assertTrue(BlueprintAligner.align(blueprint, new ArrayList<>(blueprint)).isEmpty());
+    }
+
+    @Test
+    void alignmentIsMinimalOnRandomSequences() {
+        Random random = new Random(21);
+        for (int round = 0; round < 500; round++) {
+            List<String> a = randomLines(random, random.nextInt(40));
+            List<String> b = randomLines(random, random.nextInt(40));
+            List<BlueprintAligner.Change> changes = BlueprintAligner.align(b, a);
+
+            // 按差异重放：未提到的蓝本行按顺序与当前行一一对应
+            int deleted = 0;
+            int inserted = 0;
+            int modified = 0;
+            for (BlueprintAligner.Change c : changes) {
+                switch (c.kind()) {
+                    case DELETED -> deleted++;
+                    case INSERTED -> inserted++;
+                    case MODIFIED -> modified++;
+                }
+            }
+            Assertions.assertEquals(a.size() - deleted - modified, b.size() - inserted - modified);
+            Assertions.assertEquals(lcs(a, b), a.size() - deleted - modified, "公共部分应为最长公共子序列");
+            List<String> rebuilt = new ArrayList<>(b);
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                BlueprintAligner.Change c = changes.get(i);
+                switch (c.kind()) {
+                    case INSERTED -> rebuilt.remove(c.lineIndex());
+                    case MODIFIED -> rebuilt.set(c.lineIndex(), c.blueprintLine());
+                    default -> {
+                    }
+                }
+            }
+            for (BlueprintAligner.Change c : changes) {
+                if (c.kind() == BlueprintAligner.Kind.DELETED) {
+                    rebuilt.add(c.blueprintIndex(), c.blueprintLine());
+                }
+            }
+            Assertions.assertEquals(a, rebuilt, "round " + round);
+        }
+    }
+
+    @Test
+    void largeFilesAreAlignedPrecisely() {
+        List<String> blueprint = lines(300_000);
+        List<String> edited = new ArrayList<>(blueprint);
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            int at = random.nextInt(edited.size());
+            switch (i % 3) {
+                case 0 -> edited.remove(at);
+                case 1 -> edited.add(at, "○插入" + i + "|0|0○ 插入的行");
+                default -> edited.set(at, edited.get(at) + "改");
+            }
+        }
+        List<BlueprintAligner.Change> changes = BlueprintAligner.align(edited, blueprint);
+        Assertions.assertTrue(changes.size() <= 200 + 67, "改动应被精确定位");
+
+        // 完全不同的两份文件：超过编辑步数上限后按逐行改动处理，不会退化成平方时间
+        List<String> other = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            other.add("○别的" + i + "|0|0○ 完全不同");
+        }
+        changes = BlueprintAligner.align(other, blueprint.subList(0, 50_000));
+        Assertions.assertEquals(50_000, changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            Assertions.assertEquals(new BlueprintAligner.Change(BlueprintAligner.Kind.MODIFIED, i, i,
+                    other.get(i), blueprint.get(i)), changes.get(i));
+        }
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(String.format("○%05X|%06X|%03X○ 原文%d[\\r][\\n]", i, i * 16, 20, i));
+        }
+        return lines;
+    }
+
+    private static List<String> randomLines(Random random, int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("○" + random.nextInt(6) + "○");
+        }
+        return lines;
+    }
+
+    private static int lcs(List<String> a, List<String> b) {
+        int[][] dp = new int[a.size() + 1][b.size() + 1];
+        for (int i = 1; i <= a.size(); i++) {
+            for (int j = 1; j <= b.size(); j++) {
+                dp[i][j] = a.get(i - 1).equals(b.get(j - 1)) ? dp[i - 1][j - 1] + 1 : Math.max(dp[i - 1][j], dp[i][j - 1]);
+            }
+        }
+        return dp[a.size()][b.size()];
+    }
+}
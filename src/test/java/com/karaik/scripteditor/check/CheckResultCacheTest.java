@@ -0,0 +1,113 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class CheckResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void unchangedFilesReuseCachedResultsWithIdenticalOutput() throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        Map<String, Path> blueprints = new TreeMap<>();
+        for (int f = 0; f < 6; f++) {
+            String name = "dir" + (f % 2) + "/file" + f + ".spt.txt";
+            files.put(name, write(tempDir.resolve("spt").resolve(name), f, "第%d句!?"));
+            if (f != 4) {
+                blueprints.put(name, write(tempDir.resolve("blue").resolve(name), f, "原文"));
+            }
+        }
+        Path cacheFile = tempDir.resolve(SptConstants.CACHE_FILE_NAME);
+
+        CheckerRunner first = CheckerRunner.sequential(tempDir.resolve("first"), blueprints, true).withCache(cacheFile);
+        first.run(files);
+        Assertions.assertEquals(0, first.reusedFiles());
+        Assertions.assertTrue(Files.isRegularFile(cacheFile));
+
+        CheckerRunner second = CheckerRunner.parallel(tempDir.resolve("second"), blueprints, true, 3).withCache(cacheFile);
+        second.run(files);
+        Assertions.assertEquals(files.size(), second.reusedFiles());
+        Assertions.assertTrue(second.rules().stats().stream().allMatch(s -> s.invocations() == 0), "全部命中时不应再跑规则");
+        assertSameOutput(tempDir.resolve("first"), tempDir.resolve("second"));
+
+        // 只改时间不改内容：哈希一致，仍然沿用
+        Path touched = files.get("dir1/file1.spt.txt");
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 5000));
+        CheckerRunner third = CheckerRunner.sequential(tempDir.resolve("third"), blueprints, true).withCache(cacheFile);
+        third.run(files);
+        Assertions.assertEquals(files.size(), third.reusedFiles());
+
+        // 改一个译文和一个蓝本：只重查这两个，输出与不用缓存时一致
+        write(files.get("dir0/file2.spt.txt"), 2, "第%d句。");
+        write(blueprints.get("dir1/file3.spt.txt"), 3, "改过的原文");
+        CheckerRunner changed = CheckerRunner.parallel(tempDir.resolve("changed"), blueprints, true, 3).withCache(cacheFile);
+        changed.run(files);
+        Assertions.assertEquals(files.size() - 2, changed.reusedFiles());
+        CheckerRunner.sequential(tempDir.resolve("fresh"), blueprints, true).run(files);
+        assertSameOutput(tempDir.resolve("fresh"), tempDir.resolve("changed"));
+    }
+
+    @Test
+    void ruleSetVersionOrCorruptionInvalidatesCache() throws IOException {
+        Map<String, Path> files = Map.of("a.spt.txt", write(tempDir.resolve("a.spt.txt"), 1, "第%d句!?"));
+        Path cacheFile = tempDir.resolve(SptConstants.CACHE_FILE_NAME);
+        CheckerRunner.sequential(tempDir.resolve("r1"), Map.of(), false).withCache(cacheFile).run(files);
+
+        Properties config = new Properties();
+        config.setProperty("charset.enabled", "false");
+        CheckerRunner fewerRules = CheckerRunner.sequential(tempDir.resolve("r2"), Map.of(), false)
+                .withRules(RuleSet.load(config, false)).withCache(cacheFile);
+        fewerRules.run(files);
+        Assertions.assertEquals(0, fewerRules.reusedFiles());
+
+        Files.write(cacheFile, new byte[]{1, 2, 3, 4, 5});
+        CheckerRunner corrupt = CheckerRunner.sequential(tempDir.resolve("r3"), Map.of(), false).withCache(cacheFile);
+        corrupt.run(files);
+        Assertions.assertEquals(0, corrupt.reusedFiles());
+        Assertions.assertEquals(Files.readString(tempDir.resolve("r1").resolve(SptConstants.REPORT_FILE_NAME)),
+                Files.readString(tempDir.resolve("r3").resolve(SptConstants.REPORT_FILE_NAME)));
+    }
+
+    private static void assertSameOutput(Path expected, Path actual) throws IOException {
+        List<String> names = list(expected);
+        names.remove(SptConstants.METRICS_FILE_NAME);
+        Assertions.assertFalse(names.isEmpty());
+        for (String name : names) {
+            Assertions.assertArrayEquals(Files.readAllBytes(expected.resolve(name)),
+                    Files.readAllBytes(actual.resolve(name)), name);
+        }
+    }
+
+    private static List<String> list(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Path write(Path file, int seed, String text) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 30 + seed; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文").append(i).append("\r\n");
+            sb.append("●").append(meta).append("● ").append(String.format(text, i)).append("\r\n\r\n");
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
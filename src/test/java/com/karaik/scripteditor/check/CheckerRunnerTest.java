@@ -0,0 +1,89 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class CheckerRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parallelOutputIsByteIdenticalToSequential() throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        Map<String, Path> blueprints = new TreeMap<>();
+        Random random = new Random(3);
+        for (int f = 0; f < 12; f++) {
+            // 一个大文件走行对分段，其余是小文件
+            int count = f == 5 ? CheckerRunner.PAIR_CHUNK * 5 + 17 : 50 + random.nextInt(200);
+            String name = "dir" + (f % 3) + "/file" + f + ".spt.txt";
+            files.put(name, write(tempDir.resolve("spt").resolve(name), count, random, false));
+            if (f != 7) {
+                blueprints.put(name, write(tempDir.resolve("blue").resolve(name), count + (f == 9 ? 3 : 0), random, true));
+            }
+        }
+
+        Path sequential = tempDir.resolve("seq");
+        Path parallel = tempDir.resolve("par");
+        CheckerRunner sequentialRunner = CheckerRunner.sequential(sequential, blueprints, true);
+        sequentialRunner.run(files);
+        long start = System.nanoTime();
+        CheckerRunner parallelRunner = CheckerRunner.parallel(parallel, blueprints, true, 4);
+        parallelRunner.run(files);
+        System.out.printf("并行检查 %d 个文件：%.1f ms%n", files.size(), (System.nanoTime() - start) / 1e6);
+
+        List<String> names = list(sequential);
+        Assertions.assertEquals(files.size() + 2, names.size());
+        Assertions.assertEquals(names, list(parallel));
+        // 耗时每次不同，只比较次数
+        names.remove(SptConstants.METRICS_FILE_NAME);
+        Assertions.assertEquals(counts(sequentialRunner.rules()), counts(parallelRunner.rules()));
+        Assertions.assertTrue(Files.readString(parallel.resolve(SptConstants.METRICS_FILE_NAME), StandardCharsets.UTF_8)
+                .contains("symbol"));
+        for (String name : names) {
+            Assertions.assertArrayEquals(Files.readAllBytes(sequential.resolve(name)),
+                    Files.readAllBytes(parallel.resolve(name)), name);
+        }
+        String report = Files.readString(sequential.resolve(SptConstants.REPORT_FILE_NAME), StandardCharsets.UTF_8);
+        Assertions.assertTrue(report.contains("问号应该在感叹号前且应该都为全角"));
+        Assertions.assertTrue(report.contains("未找到对应的蓝本文件"));
+        Assertions.assertTrue(report.indexOf("dir0/file0.spt.txt") < report.indexOf("dir2/file8.spt.txt"));
+    }
+
+    private static List<String> counts(RuleSet rules) {
+        return rules.stats().stream().map(s -> s.id() + " " + s.invocations() + " " + s.hits()).toList();
+    }
+
+    private static List<String> list(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Path write(Path file, int count, Random random, boolean blueprint) throws IOException {
+        String[] endings = {"。", "！？", "……", "?", "「嗯」", "。"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            String original = blueprint || random.nextInt(100) != 0 ? "原文" + i : "改过的原文" + i;
+            sb.append("○").append(meta).append("○ ").append(original).append("\r\n");
+            sb.append("●").append(meta).append("● 第").append(i).append("句")
+                    .append(endings[random.nextInt(endings.length)]).append("\r\n\r\n");
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
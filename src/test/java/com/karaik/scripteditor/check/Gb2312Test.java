@@ -0,0 +1,116 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+class Gb2312Test {
+
+    @Test
+    void committedBitmapMatchesCharacterList() throws IOException {
+        long[] expected;
+        try (InputStream in = Gb2312.class.getResourceAsStream(Gb2312.SOURCE_RESOURCE)) {
+            expected = Gb2312.fromText(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        byte[] committed;
+        try (InputStream in = Gb2312.class.getResourceAsStream(Gb2312.BITMAP_RESOURCE)) {
+            Assertions.assertNotNull(in, "缺少 gb2312.bitmap，请运行 Gb2312.main 重新生成");
+            committed = in.readAllBytes();
+        }
+        Assertions.assertArrayEquals(Gb2312.toBytes(expected), committed, "字符表改过后请运行 Gb2312.main 重新生成位图");
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            Assertions.assertEquals((expected[c >>> 6] >>> c & 1L) != 0, Gb2312.isLegal(c), "U+" + Integer.toHexString(c));
+        }
+    }
+
+    @Test
+    void bulkScanReportsPositionsAndDistinctCharacters() {
+        String text = "你好，世界！한글 abc한";
+        Assertions.assertTrue(Gb2312.isLegal("你好，世界！"));
+        Assertions.assertFalse(Gb2312.isLegal((CharSequence) null));
+        Assertions.assertEquals(6, Gb2312.indexOfIllegal(text, 0, text.length()));
+        Assertions.assertEquals(-1, Gb2312.indexOfIllegal(text, 0, 6));
+        Assertions.assertArrayEquals(new int[]{6, 7, 8, 9, 10, 11, 12},
+                Gb2312.illegalPositions(text, 0, text.length()));
+        Assertions.assertEquals("한글 abc", Gb2312.distinctIllegal(text, 0, text.length()));
+        Assertions.assertEquals("", Gb2312.distinctIllegal(text, 0, 6));
+        Assertions.assertEquals("글", Gb2312.distinctIllegal(new StringBuilder(text), 7, 8));
+
+        // 非法字符落在四个一组的每个位置上
+        for (int pad = 0; pad < 9; pad++) {
+            String s = "好".repeat(pad) + "한" + "好".repeat(5);
+            Assertions.assertEquals(pad, Gb2312.indexOfIllegal(s, 0, s.length()), s);
+            Assertions.assertArrayEquals(new int[]{pad}, Gb2312.illegalPositions(s, 0, s.length()));
+        }
+    }
+
+    @Test
+    void bitmapAgreesWithBoxedSet() {
+        Set<Character> legal = legalSet();
+        String text = sampleText();
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!legal.contains(text.charAt(i))) {
+                n++;
+            }
+        }
+        Assertions.assertTrue(n > 0);
+        Assertions.assertEquals(n, Gb2312.illegalPositions(text, 0, text.length()).length, "两种方式找到的非法字符数应一致");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void bitmapIsFasterThanBoxedSet() {
+        Set<Character> legal = legalSet();
+        String text = sampleText();
+        long sink = 0;
+        long bitmapNanos = Long.MAX_VALUE;
+        long setNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 15; round++) {
+            long t0 = System.nanoTime();
+            sink += Gb2312.illegalPositions(text, 0, text.length()).length;
+            long t1 = System.nanoTime();
+            for (int i = 0; i < text.length(); i++) {
+                if (!legal.contains(text.charAt(i))) {
+                    sink--;
+                }
+            }
+            long t2 = System.nanoTime();
+            bitmapNanos = Math.min(bitmapNanos, t1 - t0);
+            setNanos = Math.min(setNanos, t2 - t1);
+        }
+        Assertions.assertEquals(0, sink);
+        Assertions.assertTrue(bitmapNanos * 2 < setNanos, "位图扫描应明显快于装箱查集合");
+    }
+
+    private static Set<Character> legalSet() {
+        Set<Character> legal = new HashSet<>();
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            if (Gb2312.isLegal(c)) {
+                legal.add(c);
+            }
+        }
+        return legal;
+    }
+
+    private static String sampleText() {
+        Random random = new Random(17);
+        String hanzi = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处队南给色光门即保治北造百规热领七海口东导器压志世金增争济阶油思术极交受联什认六共权收证改清己美再采转更单风切打白教速花带安场身车例真务具万每目至达走积示议声报斗完类八离华名确才科张信马节话米整空元况今集温传土许步群广石记需段研界拉林律叫且究观越织装影算低持音众书布复容儿须际商非验连断深难近矿千周委素技备半办青省列习响约支般史感劳便团往酸历市克何除消构府称太准精值号率族维划选标写存候毛亲快效斯院查江型眼王按格养易置派层片始却专状育厂京识适属圆包火住调满县局照参红细引听该铁价严";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.append(hanzi.charAt(random.nextInt(hanzi.length())));
+            if (random.nextInt(5000) == 0) {
+                sb.append('한');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class GlossaryTest {
+
+    private static final Glossary GLOSSARY = Glossary.of(Set.of("理树", "恭介"), Map.of(
+            "直枝理樹", List.of("直枝理树"),
+            "理樹", List.of("理树"),
+            "棗恭介", List.of("棗恭介", "枣恭介"),
+            "リトルバスターズ", List.of("Little Busters", "小小克星")));
+
+    private static String original(String text) {
+        return "○00001|0000A0|014○ " + text;
+    }
+
+    private static String translate(String text) {
+        return "●00001|0000A0|014● " + text;
+    }
+
+    private static List<String> check(String translate, String original) {
+        return new GlossaryRule(GLOSSARY).check(LineAnalysis.of(translate(translate), original(original)));
+    }
+
+    @Test
+    void findsAllTermsInOnePassAndDropsCoveredOnes() {
+        List<Glossary.Match> matches = GLOSSARY.find("理樹と直枝理樹と棗恭介、リトルバスターズ");
+        Assertions.assertEquals(List.of("理樹", "直枝理樹", "棗恭介", "リトルバスターズ"),
+                matches.stream().map(Glossary.Match::term).toList());
+        Assertions.assertEquals(3, matches.get(1).start());
+        Assertions.assertEquals(7, matches.get(1).end());
+        Assertions.assertTrue(GLOSSARY.find("なにもない").isEmpty());
+        Assertions.assertTrue(Glossary.empty().find("理樹").isEmpty());
+    }
+
+    @Test
+    void reportsMissingTranslationsAndUnknownSpeakers() {
+        Assertions.assertEquals(List.of(), check("理树[\\r][\\n]「直枝理树。」", "理樹[\\r][\\n]「直枝理樹。」"));
+        Assertions.assertEquals(List.of(), check("恭介[\\r][\\n]「我是枣恭介。」", "恭介[\\r][\\n]「棗恭介だ。」"));
+        // 术语跨行也算出现
+        Assertions.assertEquals(List.of(), check("直枝理[\\r][\\n]树。", "直枝理樹。"));
+
+        Assertions.assertEquals(List.of("错误：原文术语 “ 直枝理樹 ” 应译为 “ 直枝理树 ”，译文中没有找到"),
+                check("直枝同学。", "直枝理樹くん。"));
+        Assertions.assertEquals(List.of("错误：原文术语 “ 棗恭介 ” 应译为 “ 棗恭介 ” 或 “ 枣恭介 ”，译文中没有找到"),
+                check("恭介。", "棗恭介、棗恭介。"));
+
+        Assertions.assertEquals(List.of("错误：说话人 “ 谦吾 ” 未在 namecol.xtx.txt 中定义"),
+                check("谦吾[\\r][\\n]「喂。」", "謙吾[\\r][\\n]「おい。」"));
+        Assertions.assertEquals(List.of("错误：匹配到 namecol.xtx.txt 中定义的人物 “ 理树 ” 但文本格式似乎有误，"
+                        + "没有被识别为对话文本，请检查括号的匹配情况或文本格式"),
+                check("理树[\\r][\\n]「喂。", "おい。"));
+
+        Assertions.assertEquals(List.of(), new GlossaryRule(Glossary.empty())
+                .check(LineAnalysis.of(translate("谦吾[\\r][\\n]「喂。」"), original("直枝理樹"))));
+    }
+
+    @Test
+    void loadsNamecolAndTermFiles(@TempDir Path dir) throws IOException {
+        Path namecol = dir.resolve("namecol.xtx.txt");
+        Files.writeString(namecol, "理树 1\n\n恭介\t2\n", Charset.forName("GB2312"));
+        Assertions.assertEquals(Set.of("理树", "恭介"), Glossary.readNamecol(namecol));
+        Assertions.assertEquals(Set.of(), Glossary.readNamecol(dir.resolve("missing.txt")));
+
+        // 工作区下的 namecol 优先于类路径；显式配置的文件不存在时不回退到工作区
+        Assertions.assertEquals(Set.of("理树", "恭介"), Glossary.loadNamecol(dir));
+        String previous = System.getProperty(Glossary.NAMECOL_PROPERTY);
+        System.setProperty(Glossary.NAMECOL_PROPERTY, dir.resolve("missing.txt").toString());
+        try {
+            Assertions.assertEquals(Set.of(), Glossary.loadNamecol(dir));
+            Assertions.assertFalse(Glossary.load(dir).hasNames());
+        } finally {
+            if (previous == null) {
+                System.clearProperty(Glossary.NAMECOL_PROPERTY);
+            } else {
+                System.setProperty(Glossary.NAMECOL_PROPERTY, previous);
+            }
+        }
+        Assertions.assertTrue(Glossary.load(dir).isKnownName("恭介"));
+
+        Map<String, List<String>> terms = new LinkedHashMap<>();
+        Glossary.readTerms(new StringReader("# 注释\n理樹\t理树\n\n理樹\t理树\t理樹\n坏行\n"), terms);
+        Assertions.assertEquals(Map.of("理樹", List.of("理树", "理樹")), terms);
+    }
+
+    @Test
+    void rulesVersionFollowsGlossaryContent(@TempDir Path dir) throws IOException {
+        Assertions.assertEquals(Glossary.of(Set.of("理树", "恭介"), Map.of()).fingerprint(),
+                Glossary.of(Set.of("恭介", "理树"), Map.of()).fingerprint());
+        Assertions.assertNotEquals(GLOSSARY.fingerprint(), Glossary.empty().fingerprint());
+        Assertions.assertEquals("format@1", RuleSet.of(List.of(new FormatRule())).version());
+
+        Path namecol = dir.resolve("namecol.xtx.txt");
+        Files.writeString(namecol, "理树\n", Charset.forName("GB2312"));
+        RuleSet rules = RuleSet.of(List.of(new GlossaryRule()));
+        try {
+            GlossaryRule.useWorkspace(dir);
+            String before = rules.version();
+            Assertions.assertTrue(before.startsWith("glossary@1#"), before);
+            GlossaryRule.useWorkspace(dir);
+            Assertions.assertEquals(before, rules.version(), "内容没变时版本不变");
+
+            Files.writeString(namecol, "理树\n恭介\n", Charset.forName("GB2312"));
+            GlossaryRule.useWorkspace(dir);
+            Assertions.assertNotEquals(before, rules.version(), "名单改了结果缓存应失效");
+        } finally {
+            GlossaryRule.useWorkspace(null);
+        }
+    }
+
+    @Test
+    void largeGlossaryFindsEveryOccurrence() {
+        Random random = new Random(7);
+        Map<String, List<String>> terms = new LinkedHashMap<>();
+        while (terms.size() < 5000) {
+            terms.put(randomKana(random, 2 + random.nextInt(5)), List.of("译"));
+        }
+        Glossary glossary = Glossary.of(Set.of(), terms);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            lines.add(randomKana(random, 40));
+        }
+
+        // 逐条 indexOf 找到的每一处出现，都应被返回的某个匹配盖住
+        int total = 0;
+        for (String line : lines) {
+            List<Glossary.Match> found = glossary.find(line);
+            total += found.size();
+            for (Glossary.Match m : found) {
+                Assertions.assertEquals(m.term(), line.substring(m.start(), m.end()));
+            }
+            for (String term : terms.keySet()) {
+                for (int at = line.indexOf(term); at >= 0; at = line.indexOf(term, at + 1)) {
+                    int from = at;
+                    int to = at + term.length();
+                    Assertions.assertTrue(found.stream().anyMatch(m -> m.start() <= from && m.end() >= to),
+                            term + " @" + at + " 未被找到: " + line);
+                }
+            }
+        }
+        Assertions.assertTrue(total > 0);
+    }
+
+    private static String randomKana(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('あ' + random.nextInt(12)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,316 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.karaik.scripteditor.check.SptConstants.MARK_ORIGINAL;
+import static com.karaik.scripteditor.check.SptConstants.MARK_ORIGINAL_CHAR;
+import static com.karaik.scripteditor.check.SptConstants.MARK_TRANSLATE;
+import static com.karaik.scripteditor.check.SptConstants.MARK_TRANSLATE_CHAR;
+import static com.karaik.scripteditor.check.SptConstants.SPLIT_REGEX;
+
+class LineAnalysisTest {
+
+    private static final String TOKEN = SptConstants.SPLIT_TOKEN;
+    private static final String ALPHABET = "あ的一是了人我他　 ，。、……～！？―」』）”“「『（【】\"'‘’~∼-ー—!?.a[]\\rn";
+
+    @Test
+    void fusedRulesMatchTheLineByLineImplementation() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50_000; round++) {
+            String original = originalLine(random);
+            String line = translateLine(random, original);
+            List<String> expected = new ArrayList<>(Legacy.format(line, original));
+            expected.addAll(Legacy.symbol(line, original));
+            LineAnalysis analysis = LineAnalysis.of(line, original);
+            List<String> actual = new ArrayList<>(FormatChecker.sptCheckFormat(analysis));
+            actual.addAll(SymbolChecker.sptCheckSymbol(analysis));
+            Assertions.assertEquals(expected, actual, line);
+        }
+        Assertions.assertEquals(Legacy.format(null, "○x○ a"), FormatChecker.sptCheckFormat(null, "○x○ a"));
+        Assertions.assertEquals(Legacy.symbol(null, null), SymbolChecker.sptCheckSymbol(null, null));
+    }
+
+    private static String originalLine(Random random) {
+        String id = random.nextInt(50) == 0 ? "00001" : String.format("%05X|%06X", random.nextInt(16), random.nextInt(256));
+        return random.nextInt(100) == 0 ? "原文" : MARK_ORIGINAL + id + MARK_ORIGINAL + " 原文";
+    }
+
+    private static String translateLine(Random random, String original) {
+        int end = original.indexOf(MARK_ORIGINAL_CHAR, 1);
+        String id = end > 0 && random.nextInt(20) != 0 ? original.substring(1, end) : "FFFFF";
+        StringBuilder sb = new StringBuilder();
+        switch (random.nextInt(40)) {
+            case 0 -> sb.append("译文");
+            case 1 -> sb.append(MARK_TRANSLATE).append(id);
+            case 2 -> sb.append(MARK_TRANSLATE).append(id).append(MARK_TRANSLATE);
+            case 3 -> sb.append(MARK_TRANSLATE).append(id).append(MARK_TRANSLATE).append("x");
+            default -> sb.append(MARK_TRANSLATE).append(id).append(MARK_TRANSLATE).append(' ');
+        }
+        int segments = random.nextInt(5);
+        boolean speaker = random.nextBoolean();
+        for (int s = 0; s <= segments; s++) {
+            if (s > 0) sb.append(TOKEN);
+            if (speaker && s == 1) sb.append("「『（".charAt(random.nextInt(3)));
+            int length = random.nextInt(random.nextInt(8) == 0 ? 30 : 10);
+            for (int k = 0; k < length; k++) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            if (speaker && s == segments) sb.append("」』）".charAt(random.nextInt(3)));
+            if (random.nextInt(6) == 0) sb.append("　");
+        }
+        if (random.nextInt(8) == 0) sb.append(TOKEN);
+        return sb.toString();
+    }
+
+    /** 合并扫描之前逐条规则的实现，作为对照。 */
+    private static final class Legacy {
+
+        static List<String> format(String line, String originalLine) {
+            List<String> errors = new ArrayList<>();
+            if (line == null || originalLine == null) {
+                errors.add("错误：缺少对应行用于格式校验");
+                return errors;
+            }
+
+            if (!line.startsWith(MARK_TRANSLATE) || !originalLine.startsWith(MARK_ORIGINAL)) {
+                errors.add("错误：开头标识不正确，应为 ● 或 ○ 开头");
+                return errors;
+            }
+
+            int headerEnd = line.indexOf(MARK_TRANSLATE_CHAR, 1);
+            int originalHeaderEnd = originalLine.indexOf(MARK_ORIGINAL_CHAR, 1);
+
+            if (headerEnd == -1 || originalHeaderEnd == -1 ||
+                    !line.substring(1, headerEnd).equals(originalLine.substring(1, originalHeaderEnd))) {
+                errors.add("错误：●...● 内的标识与原文不一致");
+            }
+
+            if (headerEnd == -1) {
+                return errors;
+            }
+
+            if (line.length() <= headerEnd + 1 || line.charAt(headerEnd + 1) != ' ') {
+                errors.add("错误：● 标识后必须紧跟一个半角空格");
+                return errors;
+            }
+
+            String content = line.substring(headerEnd + 2);
+            String[] lines = content.split(SPLIT_REGEX);
+
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i].length() > 24) {
+                    errors.add("错误：第 " + (i + 1) + " 行超过 24 个字符，当前为 " + lines[i].length());
+                }
+            }
+
+            boolean isDialog = false;
+            if (lines.length >= 2) {
+                String first = lines[1].trim();
+                String last = lines[lines.length - 1].trim();
+                if ((first.startsWith("「") && last.endsWith("」")) ||
+                        (first.startsWith("『") && last.endsWith("』"))) {
+                    isDialog = true;
+                }
+            }
+
+            if (isDialog) {
+                int open = 0;
+                int close = 0;
+                for (String l : lines) {
+                    for (char c : l.toCharArray()) {
+                        if (c == '「' || c == '『') {
+                            open++;
+                        }
+                        if (c == '」' || c == '』') {
+                            close++;
+                        }
+                    }
+                }
+                if (open != close) {
+                    errors.add("错误：对话框符号数量不匹配");
+                }
+
+
+                String lastLine = lines[lines.length - 1];
+                if (lastLine.endsWith("」") || lastLine.endsWith("』")) {
+                    if (lastLine.length() >= 2) {
+                        char before = lastLine.charAt(lastLine.length() - 2);
+                        if (before == '。' || before == '，' || before == '、' || before == ' ' || before == '　') {
+                            errors.add("错误：对话结尾符号前不能为 。、，或空格");
+                        }
+                    }
+                }
+
+            }
+
+            return errors;
+        }
+
+        static List<String> symbol(String line, String originalLine) {
+            List<String> errors = new ArrayList<>();
+            if (line == null) {
+                return errors;
+            }
+
+            int headerEnd = line.indexOf(MARK_TRANSLATE_CHAR, 1);
+            if (headerEnd == -1 || line.length() <= headerEnd + 2) {
+                return errors;
+            }
+
+            String content = line.substring(headerEnd + 2);
+            String[] segments = content.split(SPLIT_REGEX);
+
+            boolean isDialogWithSpeaker = false;
+            boolean isMonologue = false;
+
+            if (segments.length >= 2) {
+                String secondLine = segments[1].trim();
+                String lastLine = segments[segments.length - 1].trim();
+                if ((secondLine.startsWith("「") && lastLine.endsWith("」")) ||
+                        (secondLine.startsWith("『") && lastLine.endsWith("』")) ||
+                        (secondLine.startsWith("（") && lastLine.endsWith("）"))) {
+                    isDialogWithSpeaker = true;
+                }
+            }
+
+            if (!isDialogWithSpeaker && segments.length > 0) {
+                String firstLine = segments[0].trim();
+                String lastLine = segments[segments.length - 1].trim();
+                if (firstLine.startsWith("（") && lastLine.endsWith("）")) {
+                    isMonologue = true;
+                }
+            }
+
+            StringBuilder contentNoTag = new StringBuilder();
+            for (String segment : segments) {
+                contentNoTag.append(segment);
+            }
+            String fullText = contentNoTag.toString();
+
+            if (fullText.contains("！？") || fullText.contains("!?") || fullText.contains("?!")) {
+                errors.add("错误：问号应该在感叹号前且应该都为全角");
+            }
+
+            char[] invalidTildes = {'~', '∼', '˜', '﹏', '〰'};
+            for (char c : fullText.toCharArray()) {
+                for (char bad : invalidTildes) {
+                    if (c == bad) {
+                        errors.add("错误：禁止使用非法波浪线 ‘ " + bad + " ’ ，仅允许使用全角“～”");
+                        break;
+                    }
+                }
+            }
+
+
+            for (char ch : new char[]{'‐', '-', '–', '—', 'ー'}) {
+                if (content.indexOf(ch) != -1) {
+                    errors.add("错误：出现非法破折号 ‘ " + ch + " ’ ，仅允许使用“―”（U+2015）");
+                }
+            }
+
+            for (char c : fullText.toCharArray()) {
+                if (c >= 0x21 && c <= 0x7E && "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".indexOf(c) != -1) {
+                    errors.add("错误：出现非法半角符号 ‘ " + c + " ’ ");
+                }
+            }
+
+            boolean skippedQuotes = false;
+            for (int i = 0; i < fullText.length(); i++) {
+                char c = fullText.charAt(i);
+
+                if (isDialogWithSpeaker && !skippedQuotes) {
+                    if ( ((c == '「' || c == '『') || (c == '（' || c == '）'))
+                            && i < fullText.length() - 1) {
+                        char end = (c == '「') ? '」' : '』';
+                        int closing = fullText.indexOf(end, i + 1);
+                        if (closing != -1) {
+                            skippedQuotes = true;
+                            i = closing;
+                            continue;
+                        }
+                    }
+                }
+
+                if ("「」『』【】\"'‘’".indexOf(c) != -1) {
+                    errors.add("错误：禁止使用引号 ‘ " + c + " ’ ，仅允许使用中文引号 “” ，和全角括号（）");
+                }
+            }
+            long quoteOpen = fullText.chars().filter(ch -> ch == '“').count();
+            long quoteClose = fullText.chars().filter(ch -> ch == '”').count();
+            if (quoteOpen != quoteClose) {
+                errors.add("错误：中文引号 “ 与 ” 不成对");
+            }
+
+            for (int i = 0; i < segments.length; i++) {
+                String lineText = segments[i];
+
+                if (lineText.indexOf(' ') >= 0) {
+                    errors.add("错误：第 " + (i + 1) + " 行包含半角空格");
+                }
+                if (!lineText.isEmpty() && lineText.charAt(lineText.length() - 1) == '　') {
+                    errors.add("错误：第 " + (i + 1) + " 行不允许以全角空格结尾");
+                }
+
+                int leadingFW = 0;
+                while (leadingFW < lineText.length() && lineText.charAt(leadingFW) == '　') {
+                    leadingFW++;
+                }
+
+                if (isDialogWithSpeaker) {
+                    if (i == 0) { // 第1行是名字，不允许缩进
+                        if (leadingFW > 0) errors.add("错误：第 " + (i + 1) + " 行（说话人）不允许以空格开头");
+                    } else if (i >= 2) { // 对话从第3行起 (数组索引为2) 必须缩进
+                        if (leadingFW < 1) errors.add("错误：第 " + (i + 1) + " 行（对话内容）开头必须至少有 1 个全角空格");
+                    }
+                } else if (isMonologue) {
+                    if (i >= 1) {
+                        if (leadingFW != 1) {
+                            errors.add("错误：第 " + (i + 1) + " 行（内心独白）开头必须有且仅有 1 个全角空格 (当前 " + leadingFW + " 个)");
+                        }
+                    }
+                } else {
+                    if (leadingFW > 0) {
+                        errors.add("错误：第 " + (i + 1) + " 行（普通文本）不允许以空格开头");
+                    }
+                }
+            }
+
+
+            String allowed = "，。……～！？―」』）”、";
+            int startIdx = isDialogWithSpeaker ? 1 : 0; // 如果是带名字对话，跳过名字行
+            for (int i = startIdx; i < segments.length; i++) {
+                String s = segments[i];
+                if (s == null || s.isEmpty()) continue;
+
+                int idx = s.length() - 1;
+                while (idx >= 0 && s.charAt(idx) == '　') idx--;
+                if (idx < 0) continue; // 整行都是空格
+
+                char innerLast = s.charAt(idx);
+
+                boolean isRepetitiveShout = false;
+                if (i < segments.length - 1) { // 条件1
+                    if (idx >= 3) {
+                        if (s.charAt(idx - 1) == innerLast &&
+                                s.charAt(idx - 2) == innerLast &&
+                                s.charAt(idx - 3) == innerLast) {
+                            isRepetitiveShout = true;
+                        }
+                    }
+                }
+
+                if (!isRepetitiveShout && allowed.indexOf(innerLast) == -1) {
+                    errors.add("错误：第 " + (i + 1) + " 行换行符前应为标点（仅允许 " + allowed + "） ，当前为‘ " + innerLast + " ’");
+                }
+            }
+
+
+            return errors;
+        }
+    }
+}
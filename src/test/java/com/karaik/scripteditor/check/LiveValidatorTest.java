@@ -0,0 +1,67 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class LiveValidatorTest {
+
+    private static final String ORIGINAL = "○00001|0000A0|014○ 原文[\\r][\\n]";
+
+    @Test
+    void reportsBatchRulesPerSegment() {
+        String line = "●00001|0000A0|014● 你好吗!?[\\r][\\n]　第二行太长了太长了太长了太长了太长了太长了太长了太长了。[\\r][\\n]";
+        LiveValidator.Report report = LiveValidator.validate(line, ORIGINAL);
+
+        List<String> batch = CheckerPipeline.evaluateTranslateLine(line, ORIGINAL, 0).orElseThrow().messages();
+        List<String> live = new ArrayList<>();
+        report.segments().forEach(live::addAll);
+        Assertions.assertEquals(batch.size(), live.size());
+        Assertions.assertTrue(live.containsAll(batch), "编辑器里应看到批量报告的全部报错");
+
+        Assertions.assertTrue(report.messagesFor(0).contains("错误：问号应该在感叹号前且应该都为全角"));
+        Assertions.assertTrue(report.messagesFor(0).contains("错误：第 1 行包含 GB2312 以外的字符 ‘ !? ’ "));
+        Assertions.assertTrue(report.messagesFor(1).stream().anyMatch(m -> m.startsWith("错误：第 2 行超过 24 个字符")));
+        Assertions.assertTrue(report.messagesFor(1).contains("错误：第 2 行（普通文本）不允许以空格开头"));
+        Assertions.assertTrue(report.messagesFor(5).isEmpty());
+
+        Assertions.assertTrue(LiveValidator.validate("●00001|0000A0|014● 没问题。[\\r][\\n]", ORIGINAL).isClean());
+    }
+
+    @Test
+    void debouncesPerOwnerAndServesRepeatsFromCache() throws Exception {
+        LiveValidator validator = new LiveValidator(Runnable::run, 50);
+        List<LiveValidator.Report> results = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Object owner = new Object();
+        for (int i = 0; i < 5; i++) {
+            String line = "●00001|0000A0|014● 第" + i + "次输入。[\\r][\\n]";
+            validator.request(owner, line, ORIGINAL, true, report -> {
+                results.add(report);
+                done.countDown();
+            });
+        }
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(150);
+        Assertions.assertEquals(1, results.size(), "连续输入只校验最后一次");
+
+        // 同样的文本再来一次，直接在调用线程命中缓存
+        List<LiveValidator.Report> cached = new ArrayList<>();
+        validator.request(owner, "●00001|0000A0|014● 第4次输入。[\\r][\\n]", ORIGINAL, true, cached::add);
+        Assertions.assertEquals(1, cached.size());
+        Assertions.assertSame(results.get(0), cached.get(0));
+
+        // 取消后结果不再交回
+        List<LiveValidator.Report> cancelled = new CopyOnWriteArrayList<>();
+        validator.request(owner, "●00001|0000A0|014● 被取消。[\\r][\\n]", ORIGINAL, true, cancelled::add);
+        validator.cancel(owner);
+        Thread.sleep(200);
+        Assertions.assertTrue(cancelled.isEmpty());
+        validator.shutdown();
+    }
+}
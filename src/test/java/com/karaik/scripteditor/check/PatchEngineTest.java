@@ -0,0 +1,102 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+class PatchEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void appliesPatchesInPlaceAndReportsMissingAndDuplicateIds() throws IOException {
+        Path spt = tempDir.resolve("spt");
+        Path result = tempDir.resolve("result");
+        Files.createDirectories(result);
+        Path target = spt.resolve("dir/a.spt.txt");
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, "○001|A|1○ 原文一\r\n●001|A|1● 旧译文一\r\n\r\n"
+                + "○002|B|1○ 原文二\r\n●002|B|1● 译文二\r\n\r\n"
+                + "●002|B|1● 重复的译文二\r\n○003|C|1○ 原文三\r\n●003|C|1● 旧译文三", StandardCharsets.UTF_8);
+        Path untouched = spt.resolve("b.spt.txt");
+        Files.writeString(untouched, "○009|Z|1○ 原文\n●009|Z|1● 译文\n", StandardCharsets.UTF_8);
+        FileTime stamp = FileTime.fromMillis(1_600_000_000_000L);
+        Files.setLastModifiedTime(untouched, stamp);
+
+        Files.writeString(result.resolve("patch.dir___a.spt.txt"), "# FILE: dir/a.spt.txt\r\n"
+                + "# ID: 001|A|1\r\n# ERR: 错误\r\n●001|A|1● 新译文一\r\n\r\n"
+                + "# ID: 002|B|1\r\n●002|B|1● 新译文二\r\n\r\n"
+                + "# ID: 404|X|1\r\n●404|X|1● 不存在\r\n\r\n"
+                + "●003|C|1● 新译文三\r\n", StandardCharsets.UTF_8);
+        Files.writeString(result.resolve("patch.b.spt.txt"), "# FILE: b.spt.txt\n# ID: 009|Z|1\n●009|Z|1● 译文\n",
+                StandardCharsets.UTF_8);
+        // 没有 # FILE 头，按文件名还原路径；目标不存在
+        Files.writeString(result.resolve("patch.gone.spt.txt"), "●777|Q|1● 无处可写\n", StandardCharsets.UTF_8);
+
+        PatchEngine.Summary summary = new PatchEngine(spt, 3).applyAll(result);
+
+        Assertions.assertEquals("○001|A|1○ 原文一\r\n●001|A|1● 新译文一\r\n\r\n"
+                + "○002|B|1○ 原文二\r\n●002|B|1● 新译文二\r\n\r\n"
+                + "●002|B|1● 重复的译文二\r\n○003|C|1○ 原文三\r\n●003|C|1● 新译文三",
+                Files.readString(target, StandardCharsets.UTF_8), "换行符和末尾无换行都应保留");
+        Assertions.assertEquals(stamp, Files.getLastModifiedTime(untouched), "没有改动的文件不应重写");
+
+        Assertions.assertEquals(3, summary.updated());
+        Assertions.assertEquals(2, summary.missing());
+        Assertions.assertEquals(1, summary.duplicates());
+        Map<String, PatchEngine.Outcome> byPath = new TreeMap<>();
+        summary.outcomes().forEach(o -> byPath.put(o.relativePath(), o));
+        Assertions.assertEquals(List.of("404|X|1"), byPath.get("dir/a.spt.txt").missingIds());
+        Assertions.assertEquals(List.of("002|B|1"), byPath.get("dir/a.spt.txt").duplicateIds());
+        Assertions.assertEquals(1, byPath.get("b.spt.txt").unchanged());
+        Assertions.assertFalse(byPath.get("gone.spt.txt").targetFound());
+        Assertions.assertTrue(summary.format().contains("gone.spt.txt: 777|Q|1"), summary.format());
+
+        Assertions.assertEquals("○001|A|1○ 原文一\r\n●001|A|1● 旧译文一\r\n\r\n"
+                + "○002|B|1○ 原文二\r\n●002|B|1● 译文二\r\n\r\n"
+                + "●002|B|1● 重复的译文二\r\n○003|C|1○ 原文三\r\n●003|C|1● 旧译文三",
+                Files.readString(PatchEngine.backupOf(target), StandardCharsets.UTF_8), "改过的文件应保留改前的备份");
+        Assertions.assertFalse(Files.exists(PatchEngine.backupOf(untouched)));
+        try (Stream<Path> files = Files.walk(spt)) {
+            Assertions.assertEquals(3, files.filter(Files::isRegularFile).count(), "不应留下 .bak 或临时文件");
+        }
+    }
+
+    @Test
+    void checkerPatchesRoundTripThroughEngine() throws IOException {
+        Path spt = tempDir.resolve("spt");
+        Path target = spt.resolve("a.spt.txt");
+        Files.createDirectories(spt);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文").append(i).append("\r\n");
+            sb.append("●").append(meta).append("● 第").append(i).append(i % 3 == 0 ? "句！！？" : "句。").append("\r\n\r\n");
+        }
+        Files.writeString(target, sb.toString(), StandardCharsets.UTF_8);
+        Map<String, Path> files = Map.of("a.spt.txt", target);
+
+        Path result = tempDir.resolve("result");
+        CheckerRunner.sequential(result, Map.of(), true).run(files);
+        PatchEngine.Summary summary = new PatchEngine(spt, 2, false).applyAll(result);
+        Assertions.assertEquals(67, summary.updated());
+        Assertions.assertFalse(Files.exists(PatchEngine.backupOf(target)), "关闭备份时不应生成备份");
+        Assertions.assertEquals(0, summary.missing());
+
+        String patched = Files.readString(target, StandardCharsets.UTF_8);
+        Assertions.assertFalse(patched.contains("！！？"));
+        Assertions.assertTrue(patched.contains("● 第3句？！！\r\n"));
+        Assertions.assertEquals(sb.length(), patched.length());
+    }
+}
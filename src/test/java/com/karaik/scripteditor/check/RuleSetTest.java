@@ -0,0 +1,46 @@
+package com.karaik.scripteditor.check;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+class RuleSetTest {
+
+    private static final String ORIGINAL = "○00001|0000A0|014○ 原文";
+    private static final String BAD = "●00001|0000A0|014● 你好吗!?한[\\r][\\n]";
+
+    @Test
+    void discoversBuiltinRulesAndHonoursConfig() {
+        Assertions.assertEquals(List.of("format", "symbol", "charset", "glossary"), RuleSet.load().ruleIds());
+
+        Properties config = new Properties();
+        config.setProperty("charset.enabled", "false");
+        config.setProperty("glossary.enabled", "false");
+        config.setProperty("fast.skip", " symbol ,");
+        Assertions.assertEquals(List.of("format", "symbol"), RuleSet.load(config, false).ruleIds());
+        Assertions.assertEquals(List.of("format"), RuleSet.load(config, true).ruleIds());
+
+        List<String> messages = RuleSet.load(config, true).evaluate(LineAnalysis.of(BAD, ORIGINAL));
+        Assertions.assertEquals(FormatChecker.sptCheckFormat(BAD, ORIGINAL), messages);
+    }
+
+    @Test
+    void recordsInvocationsHitsAndTime() {
+        RuleSet rules = RuleSet.load(new Properties(), false);
+        rules.evaluate(LineAnalysis.of(BAD, ORIGINAL));
+        rules.evaluate(LineAnalysis.of("●00001|0000A0|014● 没问题。[\\r][\\n]", ORIGINAL));
+
+        for (RuleSet.Stats s : rules.stats()) {
+            Assertions.assertEquals(2, s.invocations(), s.id());
+            Assertions.assertTrue(s.nanos() > 0, s.id());
+        }
+        Assertions.assertEquals(List.of(0L, 1L, 1L, 0L), rules.stats().stream().map(RuleSet.Stats::hits).toList());
+        String report = rules.metricsReport();
+        Assertions.assertTrue(report.contains("charset") && report.contains("命中次数"), report);
+
+        rules.resetStats();
+        Assertions.assertTrue(rules.stats().stream().allMatch(s -> s.invocations() == 0 && s.nanos() == 0));
+    }
+}
@@ -0,0 +1,127 @@
+package com.karaik.scripteditor.controller;
+
+import com.karaik.scripteditor.entry.SptDocument;
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.helper.BackgroundSaver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class FileHandlerControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void supersededSaveFinishingAfterTheLatestDoesNotThrow() throws Exception {
+        BackgroundSaver saver = new BackgroundSaver();
+        File target = new File("coalesced.spt.txt").getAbsoluteFile();
+        Map<File, Long> latestSaveIds = new HashMap<>();
+        List<Long> finishedOrder = new CopyOnWriteArrayList<>();
+        List<Boolean> claimed = new CopyOnWriteArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        saver.submit(new Object(), () -> {
+            started.countDown();
+            release.await();
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 与 FileHandlerController.submitSave 相同：先登记编号，再在完成回调里收尾
+        List<CompletableFuture<Void>> callbacks = new ArrayList<>();
+        for (long saveId = 1; saveId <= 2; saveId++) {
+            long id = saveId;
+            synchronized (latestSaveIds) {
+                latestSaveIds.put(target, id);
+            }
+            callbacks.add(saver.submit(target, () -> { }).whenComplete((v, e) -> {
+                try {
+                    synchronized (latestSaveIds) {
+                        claimed.add(FileHandlerController.finishLatestSave(latestSaveIds, target, id));
+                    }
+                    finishedOrder.add(id);
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        release.countDown();
+        for (CompletableFuture<Void> callback : callbacks) {
+            callback.get(5, TimeUnit.SECONDS);
+        }
+
+        Assertions.assertEquals(List.of(), failures);
+        // 被顶替的保存随顶替者完成，回调排在它之后，此时登记已被移除
+        Assertions.assertEquals(List.of(2L, 1L), finishedOrder);
+        Assertions.assertEquals(List.of(true, false), claimed);
+        Assertions.assertTrue(latestSaveIds.isEmpty());
+    }
+
+    @Test
+    void editsToClosedFilesKeepOtherBytesAndOpenWaitsForThem() throws Exception {
+        String content = "○00001|000010|014○ 原文[\\r][\\n]\r\n●00001|000010|014● 旧译文[\\r][\\n]\r\n\r\n"
+                + "○00002|000020|014○ 二[\\r][\\n]\r\n●00002|000020|014● 不动[\\r][\\n]\r\n";
+        Path file = tempDir.resolve("closed.spt.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        FileHandlerController handler = newHandler();
+
+        // 先占住写盘线程，确认排队中的修改没写完时打开会等它
+        CountDownLatch release = new CountDownLatch(1);
+        handler.getBackgroundSaver().submit(new Object(), release::await);
+        CompletableFuture<Integer> first = handler.applyEdits(file.toFile(), entries -> setTranslation(entries, 0, "新译文"));
+        CompletableFuture<Integer> second = handler.applyEdits(file.toFile(), entries -> setTranslation(entries, 0, "再改"));
+        CompletableFuture<SptDocument> opened = handler.getDocumentCache().load(file.toFile());
+        Assertions.assertThrows(TimeoutException.class, () -> opened.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+
+        Assertions.assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, second.get(10, TimeUnit.SECONDS));
+        try (SptDocument document = opened.get(10, TimeUnit.SECONDS)) {
+            Assertions.assertEquals("再改", document.getEntries().get(0).getTranslatedSegment(0));
+        }
+        Assertions.assertEquals(content.replace("旧译文[\\r][\\n]", "再改[\\r][\\n]"),
+                Files.readString(file, StandardCharsets.UTF_8), "未改动的行和 CRLF 应保持原样");
+    }
+
+    @Test
+    void editsToFilesWithUnparsedLinesAreNotWritten() throws Exception {
+        String content = "●孤立的译文行\n○00001|000010|014○ 原文[\\r][\\n]\n●00001|000010|014● 旧译文[\\r][\\n]\n";
+        Path file = tempDir.resolve("broken.spt.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        FileHandlerController handler = newHandler();
+
+        CompletableFuture<Integer> result = handler.applyEdits(file.toFile(), entries -> setTranslation(entries, 0, "新译文"));
+        ExecutionException error = Assertions.assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IOException.class, error.getCause());
+        Assertions.assertEquals(content, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    private static FileHandlerController newHandler() {
+        EditorController editor = new EditorController();
+        editor.setSearchController(new SearchController(editor));
+        return new FileHandlerController(editor);
+    }
+
+    private static int setTranslation(List<SptEntry> entries, int ordinal, String text) {
+        entries.get(ordinal).setTranslatedSegmentTexts(List.of(text));
+        return 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.util.SptParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class MappedSptEntryListTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void materializesSameEntriesAsEagerParse() throws IOException {
+        Path file = writeSample(500);
+        List<SptEntry> eager = SptParser.parse(file).entries();
+        MappedSptEntryList mapped = MappedSptEntryList.open(file);
+        try {
+            Assertions.assertEquals(eager.size(), mapped.size());
+            for (int i = 0; i < eager.size(); i++) {
+                Assertions.assertEquals(eager.get(i).getIndex(), mapped.get(i).getIndex());
+                Assertions.assertEquals(eager.get(i).getFullOriginalText(), mapped.get(i).getFullOriginalText());
+                Assertions.assertEquals(eager.get(i).getFullTranslatedText(), mapped.get(i).getFullTranslatedText());
+            }
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    void keepsModifiedEntriesWhenPageScrollsAway() throws IOException {
+        MappedSptEntryList mapped = MappedSptEntryList.open(writeSample(100));
+        try {
+            mapped.retainRange(0, 10);
+            SptEntry edited = mapped.get(3);
+            SptEntry untouched = mapped.get(4);
+            Assertions.assertSame(edited, mapped.get(3));
+
+            edited.getTranslatedSegments().get(0).set("改过的译文");
+            mapped.retainRange(50, 60);
+
+            Assertions.assertSame(edited, mapped.get(3));
+            Assertions.assertNotSame(untouched, mapped.get(4));
+            Assertions.assertEquals("改过的译文[\\r][\\n]", mapped.get(3).getFullTranslatedText());
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    void slidingViewKeepsResidentEntriesBoundedWhileScrolling() throws IOException {
+        MappedSptEntryList mapped = MappedSptEntryList.open(writeSample(5000));
+        try {
+            List<SptEntry> view = mapped.slidingView(20);
+            Assertions.assertEquals(5000, view.size());
+            SptEntry edited = view.get(100);
+            edited.getTranslatedSegments().get(0).set("改过的译文");
+            for (int i = 0; i < view.size(); i++) {
+                Assertions.assertEquals(String.format("%05X", i), view.get(i).getIndex());
+                Assertions.assertSame(view.get(i), view.get(i), "同一位置取到的应是常驻的同一条");
+                Assertions.assertTrue(mapped.liveCount() <= 41, "常驻条目数 " + mapped.liveCount());
+            }
+            // 改过的条目滚远后仍常驻，回来时取到的是同一份
+            Assertions.assertSame(edited, view.get(100));
+            Assertions.assertEquals("改过的译文[\\r][\\n]", view.get(100).getFullTranslatedText());
+        } finally {
+            mapped.close();
+        }
+    }
+
+    private Path writeSample(int count) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文その").append(i).append("[\\r][\\n]\r\n");
+            sb.append("●").append(meta).append("● 译文第").append(i).append("句[\\r][\\n]\r\n\r\n");
+        }
+        Path file = tempDir.resolve("sample.spt.txt");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
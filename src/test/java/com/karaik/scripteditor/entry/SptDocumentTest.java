@@ -0,0 +1,96 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.helper.CrashSafeFileSaver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class SptDocumentTest {
+
+    private static final String SAMPLE = String.join("\r\n",
+            "○00001|000010|014○ 一行目[\\r][\\n]",
+            "●00001|000010|014● 第一行[\\r][\\n]",
+            "",
+            "无法配对的说明行",
+            "  ○00002|000020|014○ 二行目[\\r][\\n]",
+            "  ●00002|000020|014●  第二行[\\r][\\n]  ",
+            "",
+            "○00003|000030|014○ 三行目[\\r][\\n]",
+            "●00003|000030|014● 第三行[\\r][\\n]") + "\r\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void untouchedDocumentSavesByteIdentical() throws IOException {
+        Path file = write(SAMPLE);
+        try (SptDocument document = SptDocument.open(file)) {
+            Assertions.assertEquals(3, document.getEntries().size());
+            Assertions.assertEquals(0, document.dirtyOrdinals().length);
+
+            CrashSafeFileSaver.saveWithBak(document, file.toFile());
+            Assertions.assertArrayEquals(SAMPLE.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+            Assertions.assertFalse(Files.exists(CrashSafeFileSaver.bakOf(file)));
+        }
+    }
+
+    @Test
+    void onlyDirtyTranslateLinesAreRewritten() throws IOException {
+        Path file = write(SAMPLE);
+        try (SptDocument document = SptDocument.open(file)) {
+            SptEntry second = document.getEntries().get(1);
+            second.getTranslatedSegments().get(0).set("改过的第二行");
+            Assertions.assertTrue(second.isDirty());
+            Assertions.assertArrayEquals(new int[]{1}, document.dirtyOrdinals());
+
+            CrashSafeFileSaver.saveWithBak(document, file.toFile());
+            String expected = SAMPLE.replace("  ●00002|000020|014●  第二行[\\r][\\n]  ",
+                    "●00002|000020|014● 改过的第二行[\\r][\\n]");
+            Assertions.assertEquals(expected, Files.readString(file, StandardCharsets.UTF_8));
+
+            // 快照不变，再改一条后两处修改都保留
+            document.getEntries().get(2).addTranslatedSegment("追加段");
+            CrashSafeFileSaver.saveWithBak(document, file.toFile());
+            expected = expected.replace("●00003|000030|014● 第三行[\\r][\\n]",
+                    "●00003|000030|014● 第三行[\\r][\\n]追加段[\\r][\\n]");
+            Assertions.assertEquals(expected, Files.readString(file, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void snapshotIgnoresEditsMadeAfterItWasTaken() throws IOException {
+        Path file = write(SAMPLE);
+        try (SptDocument document = SptDocument.open(file)) {
+            SptEntry first = document.getEntries().get(0);
+            first.getTranslatedSegments().get(0).set("保存时的译文");
+            SptDocument.Snapshot snapshot = document.snapshot();
+            first.getTranslatedSegments().get(0).set("之后继续输入");
+            document.getEntries().get(2).getTranslatedSegments().get(0).set("快照之后才改");
+
+            CrashSafeFileSaver.saveWithBak(snapshot, file.toFile());
+            String saved = Files.readString(file, StandardCharsets.UTF_8);
+            Assertions.assertTrue(saved.contains("●00001|000010|014● 保存时的译文[\\r][\\n]"));
+            Assertions.assertTrue(saved.contains("●00003|000030|014● 第三行[\\r][\\n]"));
+        }
+    }
+
+    @Test
+    void closeDeletesSnapshot() throws IOException {
+        SptDocument document = SptDocument.open(write(SAMPLE));
+        Path snapshot = document.getSource();
+        Assertions.assertTrue(Files.exists(snapshot));
+        document.close();
+        Assertions.assertFalse(Files.exists(snapshot));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("sample.spt.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,163 @@
+package com.karaik.scripteditor.entry;
+
+import com.karaik.scripteditor.controller.consts.EditorConst;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+class SptEntryStoreTest {
+
+    @Test
+    void keepsMetadataVerbatim() {
+        SptEntryStore store = new SptEntryStore(1, 16);
+        store.addRow("0000A", "0D03B0", "014", "", "");
+        store.addRow("00ab", "", "123456789", "", "");
+        store.addRow("X1", "0", "-1", "", "");
+
+        Assertions.assertEquals("0000A", store.getIndex(0));
+        Assertions.assertEquals("0D03B0", store.getAddress(0));
+        Assertions.assertEquals("014", store.getLength(0));
+        Assertions.assertEquals("00ab", store.getIndex(1));
+        Assertions.assertEquals("", store.getAddress(1));
+        Assertions.assertEquals("123456789", store.getLength(1));
+        Assertions.assertEquals("X1", store.getIndex(2));
+        Assertions.assertEquals("-1", store.getLength(2));
+    }
+
+    @Test
+    void utf8RowsMatchStringRows() {
+        String[] samples = {
+                "地獄のような日々。[\\r][\\n]",
+                "[\\r][\\n]「あ[\\r][\\n][\\r][\\n]い」[\\r][\\n]",
+                "𠮷野家 ASCII [\\r][\\n",
+                ""
+        };
+        SptEntryStore viaString = new SptEntryStore();
+        SptEntryStore viaBytes = new SptEntryStore(1, 1);
+        for (String s : samples) {
+            viaString.addRow("1", "2", "3", s, s);
+            byte[] meta = "1|2|3".getBytes(StandardCharsets.US_ASCII);
+            byte[] text = s.getBytes(StandardCharsets.UTF_8);
+            viaBytes.addRowUtf8(meta, 0, 1, 2, 3, 4, 5, text, 0, text.length, text, 0, text.length);
+        }
+        for (int i = 0; i < samples.length; i++) {
+            Assertions.assertEquals(viaString.entry(i).getFullOriginalText(), viaBytes.entry(i).getFullOriginalText());
+            Assertions.assertEquals(viaString.entry(i).getOriginalSegmentTexts(), viaBytes.entry(i).getOriginalSegmentTexts());
+        }
+        Assertions.assertEquals(List.of("「あ", "い」"), viaBytes.entry(1).getOriginalSegmentTexts());
+    }
+
+    @Test
+    void malformedUtf8FallsBackToReplacement() {
+        byte[] text = {'a', (byte) 0xE3, (byte) 0x81, 'b'};
+        SptEntryStore store = new SptEntryStore();
+        store.addRowUtf8(new byte[]{'0', '|', '0', '|', '0'}, 0, 1, 2, 3, 4, 5, text, 0, text.length, text, 0, 0);
+        Assertions.assertEquals(new String(text, StandardCharsets.UTF_8), store.getOriginalSegment(0, 0));
+    }
+
+    @Test
+    void unbindWritesEditsBackToStore() {
+        SptEntryStore store = new SptEntryStore();
+        store.addRow("1", "2", "3", "原文", "旧译文[\\r][\\n]第二段");
+        SptEntry entry = store.entry(0);
+        Assertions.assertSame(entry, store.asList().get(0));
+
+        entry.bindSegments();
+        entry.getTranslatedSegments().get(0).set("新译文");
+        entry.removeTranslatedSegment(1);
+        entry.unbindSegments();
+
+        Assertions.assertEquals(1, store.getTranslatedSegmentCount(0));
+        Assertions.assertEquals("新译文", store.getTranslatedSegment(0, 0));
+        Assertions.assertEquals("新译文[\\r][\\n]", entry.getFullTranslatedText());
+        Assertions.assertEquals("新译文", entry.getTranslatedSegments().get(0).get());
+    }
+
+    /** 靠 GC 后的堆占用估算，结果随 JVM 和 GC 时机浮动，只在 -Pbenchmark 下运行。 */
+    @Test
+    @Tag("benchmark")
+    void usesFarLessHeapThanPropertyPerSegmentEntries() throws InterruptedException {
+        int rows = 200_000;
+        long before = usedHeapAfterGc();
+        List<LegacyEntry> legacy = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            legacy.add(new LegacyEntry(index(i), address(i), "014", original(i), translated(i)));
+        }
+        long legacyBytes = usedHeapAfterGc() - before;
+        Assertions.assertEquals(rows, legacy.size());
+        legacy = null;
+
+        before = usedHeapAfterGc();
+        SptEntryStore store = new SptEntryStore();
+        for (int i = 0; i < rows; i++) {
+            store.addRow(index(i), address(i), "014", original(i), translated(i));
+        }
+        store.trimToSize();
+        for (int i = 0; i < rows; i++) {
+            store.entry(i); // 编辑器会为每行建视图，一并计入
+        }
+        long storeBytes = usedHeapAfterGc() - before;
+        Assertions.assertEquals(translated(rows - 1), store.entry(rows - 1).getFullTranslatedText());
+
+        Assertions.assertTrue(storeBytes * 3 < legacyBytes,
+                "列式存储 " + storeBytes / 1024 + " KB，旧结构 " + legacyBytes / 1024 + " KB");
+    }
+
+    private static String index(int i) {
+        return String.format("%05X", i);
+    }
+
+    private static String address(int i) {
+        return String.format("%06X", i * 16);
+    }
+
+    private static String original(int i) {
+        return "「原文その" + i + "です」" + EditorConst.SWAP_FLAG + "二行目" + EditorConst.SWAP_FLAG;
+    }
+
+    private static String translated(int i) {
+        return "「这是第" + i + "句译文」" + EditorConst.SWAP_FLAG + "第二行" + EditorConst.SWAP_FLAG;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /** 改造前的条目结构：三个元数据字符串，每段一个属性对象。 */
+    private static final class LegacyEntry {
+        final String index;
+        final String address;
+        final String length;
+        final List<ReadOnlyStringWrapper> originalSegments = new ArrayList<>();
+        final ObservableList<StringProperty> translatedSegments = FXCollections.observableArrayList();
+
+        LegacyEntry(String index, String address, String length, String rawOriginal, String rawTranslated) {
+            this.index = index;
+            this.address = address;
+            this.length = length;
+            for (String segment : rawOriginal.split(Pattern.quote(EditorConst.SWAP_FLAG), -1)) {
+                if (!segment.isEmpty()) originalSegments.add(new ReadOnlyStringWrapper(segment));
+            }
+            for (String segment : rawTranslated.split(Pattern.quote(EditorConst.SWAP_FLAG), -1)) {
+                if (!segment.isEmpty()) translatedSegments.add(new SimpleStringProperty(segment));
+            }
+        }
+    }
+}
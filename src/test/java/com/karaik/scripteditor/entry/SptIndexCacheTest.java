@@ -0,0 +1,154 @@
+package com.karaik.scripteditor.entry;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+class SptIndexCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reopenUsesCacheAndMatchesFullParse() throws IOException {
+        Path file = writeSample(tempDir.resolve("cached.spt.txt"), 2000, "");
+        List<String> expected;
+        try (SptDocument first = SptDocument.open(file)) {
+            expected = render(first);
+        }
+        Path cache = SptIndexCache.cacheOf(file);
+        Assertions.assertTrue(Files.exists(cache));
+
+        SptIndexCache.Key key = keyOf(file);
+        SptIndexCache.Cached cached = SptIndexCache.read(cache, key);
+        Assertions.assertNotNull(cached);
+        Assertions.assertNotNull(cached.store());
+        Assertions.assertEquals(2000, cached.index().size());
+        Assertions.assertEquals(1, cached.index().getProblems().size());
+
+        try (SptDocument second = SptDocument.open(file)) {
+            Assertions.assertEquals(expected, render(second));
+            Assertions.assertEquals(1, second.getProblems().size());
+            Assertions.assertEquals(first0TranslateStart(file), second.translateLineStart(0));
+        }
+    }
+
+    @Test
+    void staleOrCorruptCacheFallsBackToParse() throws IOException {
+        Path file = writeSample(tempDir.resolve("stale.spt.txt"), 50, "");
+        FileTime modified = Files.getLastModifiedTime(file);
+        SptDocument.open(file).close();
+        Path cache = SptIndexCache.cacheOf(file);
+
+        // 同样大小、同样修改时间但内容不同：只有哈希能发现
+        writeSample(file, 50, "改");
+        Files.setLastModifiedTime(file, modified);
+        Assertions.assertNull(SptIndexCache.read(cache, keyOf(file)));
+        try (SptDocument document = SptDocument.open(file)) {
+            Assertions.assertTrue(document.getEntries().get(0).getFullTranslatedText().startsWith("改"));
+        }
+
+        byte[] bytes = Files.readAllBytes(cache);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(cache, bytes);
+        Assertions.assertNull(SptIndexCache.read(cache, keyOf(file)));
+        try (SptDocument document = SptDocument.open(file)) {
+            Assertions.assertEquals(50, document.getEntries().size());
+        }
+        Assertions.assertNotNull(SptIndexCache.read(cache, keyOf(file)));
+    }
+
+    @Test
+    void refreshIndexCacheRecordsCurrentContent() throws IOException {
+        Path file = writeSample(tempDir.resolve("refresh.spt.txt"), 300, "");
+        SptDocument.refreshIndexCache(file);
+        SptIndexCache.Cached cached = SptIndexCache.read(SptIndexCache.cacheOf(file), keyOf(file));
+        Assertions.assertNotNull(cached);
+        Assertions.assertEquals(300, cached.index().size());
+        Assertions.assertEquals("第299句", cached.store().getTranslatedSegment(299, 0));
+    }
+
+    @Test
+    void refreshOfLargeFileStreamsTheSameIndexAsBuild() throws IOException {
+        Path file = writeSample(tempDir.resolve("large.spt.txt"), 100_000, "");
+        Assertions.assertTrue(Files.size(file) >= SptDocument.MAPPED_OPEN_THRESHOLD);
+        SptDocument.refreshIndexCache(file);
+        SptIndexCache.Cached cached = SptIndexCache.read(SptIndexCache.cacheOf(file), keyOf(file));
+        Assertions.assertNotNull(cached);
+        Assertions.assertNull(cached.store());
+
+        SptEntryIndex expected = SptEntryIndex.build(ByteBuffer.wrap(Files.readAllBytes(file)));
+        Assertions.assertEquals(expected.size(), cached.index().size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.originalStart(i), cached.index().originalStart(i));
+            Assertions.assertEquals(expected.originalEnd(i), cached.index().originalEnd(i));
+            Assertions.assertEquals(expected.translateStart(i), cached.index().translateStart(i));
+            Assertions.assertEquals(expected.translateEnd(i), cached.index().translateEnd(i));
+        }
+        Assertions.assertEquals(expected.getProblems(), cached.index().getProblems());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void cacheLoadIsFasterThanParsing() throws IOException {
+        Path file = writeSample(tempDir.resolve("timing.spt.txt"), 100_000, "");
+        SptDocument.open(file).close();
+        long parse = Long.MAX_VALUE;
+        long cached = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            Files.delete(SptIndexCache.cacheOf(file));
+            long start = System.nanoTime();
+            SptDocument.open(file).close();
+            parse = Math.min(parse, System.nanoTime() - start);
+            start = System.nanoTime();
+            SptDocument.open(file).close();
+            cached = Math.min(cached, System.nanoTime() - start);
+        }
+        Assertions.assertTrue(cached < parse, String.format("打开 100000 条：完整解析 %.1f ms，读索引缓存 %.1f ms",
+                parse / 1e6, cached / 1e6));
+    }
+
+    private static long first0TranslateStart(Path file) throws IOException {
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        return content.substring(0, content.indexOf("●0")).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static SptIndexCache.Key keyOf(Path file) throws IOException {
+        try {
+            byte[] sha1 = MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file));
+            return new SptIndexCache.Key(Files.size(file), Files.getLastModifiedTime(file).toMillis(), sha1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> render(SptDocument document) {
+        return document.getEntries().stream()
+                .map(e -> e.getIndex() + "|" + e.getAddress() + "|" + e.getLength() + "|"
+                        + e.getFullOriginalText() + "|" + e.getFullTranslatedText())
+                .toList();
+    }
+
+    private static Path writeSample(Path file, int count, String prefix) throws IOException {
+        StringBuilder sb = new StringBuilder("●孤立的译文行\r\n");
+        for (int i = 0; i < count; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文その").append(i).append("[\\r][\\n]\r\n");
+            sb.append("●").append(meta).append("● ").append(prefix.isEmpty() ? "第" : prefix)
+                    .append(i).append("句[\\r][\\n]\r\n\r\n");
+        }
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
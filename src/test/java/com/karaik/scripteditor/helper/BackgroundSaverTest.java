@@ -0,0 +1,84 @@
+package com.karaik.scripteditor.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class BackgroundSaverTest {
+
+    @Test
+    void coalescesSnapshotsQueuedBehindARunningSave() throws Exception {
+        BackgroundSaver saver = new BackgroundSaver();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> first = saver.submit(() -> {
+            started.countDown();
+            release.await();
+            written.add("v1");
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = saver.submit(() -> written.add("v2"));
+        CompletableFuture<Void> third = saver.submit(() -> written.add("v3"));
+        Assertions.assertTrue(saver.isBusy());
+
+        release.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(saver.awaitIdle(5000));
+        Assertions.assertFalse(saver.isBusy());
+        Assertions.assertEquals(List.of("v1", "v3"), written);
+    }
+
+    @Test
+    void failureReachesEverySupersededCaller() throws Exception {
+        BackgroundSaver saver = new BackgroundSaver();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        saver.submit(() -> {
+            started.countDown();
+            release.await();
+        });
+        // 阻塞任务开始执行前提交的保存会直接顶替它
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> superseded = saver.submit(() -> { });
+        CompletableFuture<Void> latest = saver.submit(() -> {
+            throw new IOException("磁盘已满");
+        });
+        release.countDown();
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> latest.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("磁盘已满", e.getCause().getMessage());
+        Assertions.assertThrows(ExecutionException.class, () -> superseded.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(saver.awaitIdle(5000));
+    }
+
+    @Test
+    void onlyCoalescesSavesOfTheSameFile() throws Exception {
+        BackgroundSaver saver = new BackgroundSaver();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        saver.submit("a", () -> {
+            started.countDown();
+            release.await();
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        saver.submit("a", () -> written.add("a1"));
+        saver.submit("b", () -> written.add("b1"));
+        saver.submit("a", () -> written.add("a2"));
+        release.countDown();
+
+        Assertions.assertTrue(saver.awaitIdle(5000));
+        Assertions.assertEquals(List.of("b1", "a2"), written);
+    }
+}
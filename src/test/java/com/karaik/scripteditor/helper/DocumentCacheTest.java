@@ -0,0 +1,157 @@
+package com.karaik.scripteditor.helper;
+
+import com.karaik.scripteditor.entry.SptDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+class DocumentCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void evictsLeastRecentlyUsedButKeepsModified() throws Exception {
+        File a = writeSample("a.txt", 100);
+        File b = writeSample("b.txt", 100);
+        File c = writeSample("c.txt", 100);
+        long budget = Files.size(a.toPath()) * 2;
+        DocumentCache cache = new DocumentCache(budget, 2, d -> false);
+
+        SptDocument docA = cache.load(a).get(10, TimeUnit.SECONDS);
+        cache.put(a, docA, null, true, 7, 0);
+        cache.put(b, cache.load(b).get(10, TimeUnit.SECONDS), null, false, 0, 0);
+        cache.put(c, cache.load(c).get(10, TimeUnit.SECONDS), null, false, 0, 0);
+
+        // a 最旧但有未保存修改，被淘汰的是 b
+        Assertions.assertTrue(cache.contains(a));
+        Assertions.assertFalse(cache.contains(b));
+        Assertions.assertTrue(cache.contains(c));
+        Assertions.assertEquals(1, cache.modifiedEntries().size());
+
+        cache.markSaved(docA, 6);
+        Assertions.assertEquals(1, cache.modifiedEntries().size(), "保存期间又有修改时仍应保持未保存");
+        cache.markSaved(docA, 7);
+        Assertions.assertTrue(cache.modifiedEntries().isEmpty());
+
+        cache.put(b, cache.load(b).get(10, TimeUnit.SECONDS), null, false, 0, 0);
+        Assertions.assertFalse(cache.contains(a));
+        cache.closeAll(false);
+    }
+
+    @Test
+    void busyDocumentsAreSkippedUntilTrimmed() throws Exception {
+        File a = writeSample("a.txt", 100);
+        File b = writeSample("b.txt", 100);
+        Set<SptDocument> busy = Collections.newSetFromMap(new IdentityHashMap<>());
+        DocumentCache cache = new DocumentCache(Files.size(a.toPath()), 1, busy::contains);
+
+        SptDocument docA = cache.load(a).get(10, TimeUnit.SECONDS);
+        SptDocument docB = cache.load(b).get(10, TimeUnit.SECONDS);
+        busy.add(docA);
+        busy.add(docB);
+        cache.put(a, docA, null, false, 0, 0);
+        cache.put(b, docB, null, false, 0, 0);
+        // 两个都在保存中，暂时超出上限
+        Assertions.assertTrue(cache.contains(a));
+        Assertions.assertTrue(cache.contains(b));
+
+        busy.clear();
+        cache.trim();
+        Assertions.assertFalse(cache.contains(a));
+        Assertions.assertTrue(cache.contains(b));
+        cache.closeAll(false);
+    }
+
+    @Test
+    void editInPlaceKeepsModifiedDocumentsAndReleasesCleanOnes() throws Exception {
+        File a = writeSample("a.txt", 10);
+        File b = writeSample("b.txt", 10);
+        DocumentCache cache = new DocumentCache(1 << 20, 1, d -> false);
+        SptDocument docA = cache.load(a).get(10, TimeUnit.SECONDS);
+        cache.put(a, docA, null, true, 4, 0);
+        cache.put(b, cache.load(b).get(10, TimeUnit.SECONDS), null, false, 0, 0);
+
+        int changed = cache.editInPlace(a, entries -> {
+            entries.get(2).setTranslatedSegmentTexts(List.of("同步后的译文"));
+            return 1;
+        });
+        Assertions.assertEquals(1, changed);
+        Assertions.assertEquals("同步后的译文", docA.getEntries().get(2).getTranslatedSegment(0));
+        // 编辑前提交的保存完成时不能把它当成已保存
+        cache.markSaved(docA, 4);
+        Assertions.assertEquals(1, cache.modifiedEntries().size());
+
+        Assertions.assertEquals(-1, cache.editInPlace(b, entries -> 1));
+        Assertions.assertFalse(cache.contains(b));
+        Assertions.assertEquals(-1, cache.editInPlace(writeSample("c.txt", 1), entries -> 1));
+        cache.closeAll(true);
+    }
+
+    @Test
+    void takeDropsDocumentsChangedOnDisk() throws Exception {
+        File a = writeSample("a.txt", 10);
+        DocumentCache cache = new DocumentCache(1 << 20, 1, d -> false);
+        cache.put(a, cache.load(a).get(10, TimeUnit.SECONDS), null, false, 0, 3);
+        DocumentCache.Entry entry = cache.take(a);
+        Assertions.assertNotNull(entry);
+        Assertions.assertEquals(3, entry.getPageIndex());
+        cache.put(a, entry.getDocument(), null, false, 0, 3);
+
+        FileTime before = Files.getLastModifiedTime(a.toPath());
+        writeSample("a.txt", 11);
+        Files.setLastModifiedTime(a.toPath(), FileTime.fromMillis(before.toMillis() + 2000));
+        Assertions.assertNull(cache.take(a));
+        Assertions.assertFalse(cache.contains(a));
+        cache.closeAll(false);
+    }
+
+    @Test
+    void prefetchFillsOnlyTheFreeBudget() throws Exception {
+        File a = writeSample("a.txt", 100);
+        File b = writeSample("b.txt", 100);
+        File c = writeSample("c.txt", 100);
+        DocumentCache cache = new DocumentCache(Files.size(a.toPath()) * 2, 2, d -> false);
+
+        cache.prefetch(List.of(a, b, c), a);
+        // 预读与显示同一文件时复用同一个加载任务，显示后不再进缓存
+        SptDocument shown = cache.load(b).get(10, TimeUnit.SECONDS);
+        cache.claim(shown);
+        SptDocument prefetched = cache.load(c).get(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 100 && !cache.contains(c); i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertFalse(cache.contains(a));
+        Assertions.assertFalse(cache.contains(b));
+        Assertions.assertTrue(cache.contains(c));
+        Assertions.assertSame(prefetched, cache.take(c).getDocument());
+        shown.close();
+        prefetched.close();
+        cache.closeAll(false);
+    }
+
+    private File writeSample(String name, int count) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文その").append(i).append("[\\r][\\n]\r\n");
+            sb.append("●").append(meta).append("● 第").append(i).append("句[\\r][\\n]\r\n\r\n");
+        }
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+}
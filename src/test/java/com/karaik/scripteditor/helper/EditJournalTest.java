@@ -0,0 +1,158 @@
+package com.karaik.scripteditor.helper;
+
+import com.karaik.scripteditor.entry.SptDocument;
+import com.karaik.scripteditor.entry.SptEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+class EditJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysEditsOnReopen() throws IOException {
+        Path file = writeSample();
+        try (SptDocument document = SptDocument.open(file)) {
+            EditJournal journal = attach(document, file);
+            List<SptEntry> entries = document.getEntries();
+            entries.get(0).getTranslatedSegments().get(0).set("改");
+            entries.get(0).getTranslatedSegments().get(0).set("改好了");
+            entries.get(2).addTranslatedSegment("新段");
+            entries.get(2).removeTranslatedSegment(0);
+            journal.close();
+        }
+
+        List<EditJournal.Record> records = EditJournal.read(file);
+        Assertions.assertEquals(4, records.size());
+        try (SptDocument reopened = SptDocument.open(file)) {
+            Assertions.assertEquals(4, EditJournal.replay(records, reopened.getEntries()));
+            // 绝对值记录，再回放一遍结果不变
+            EditJournal.replay(records, reopened.getEntries());
+            Assertions.assertEquals("改好了[\\r][\\n]", reopened.getEntries().get(0).getFullTranslatedText());
+            Assertions.assertEquals("新段[\\r][\\n]", reopened.getEntries().get(2).getFullTranslatedText());
+            Assertions.assertArrayEquals(new int[]{0, 2}, reopened.dirtyOrdinals());
+        }
+    }
+
+    @Test
+    void truncatesTornTailAndSkipsMismatchedEntries() throws IOException {
+        Path file = writeSample();
+        try (SptDocument document = SptDocument.open(file)) {
+            EditJournal journal = attach(document, file);
+            document.getEntries().get(1).getTranslatedSegments().get(0).set("第二条");
+            journal.close();
+        }
+        Path journalFile = EditJournal.journalOf(file);
+        long validSize = Files.size(journalFile);
+        Files.write(journalFile, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        Assertions.assertEquals(1, EditJournal.read(file).size());
+        EditJournal.open(file).close();
+        Assertions.assertEquals(validSize, Files.size(journalFile));
+
+        // 文件被外部改动后 index 对不上，记录不生效
+        Files.writeString(file, Files.readString(file).replace("00002", "00009"));
+        try (SptDocument changed = SptDocument.open(file)) {
+            Assertions.assertEquals(0, EditJournal.replay(EditJournal.read(file), changed.getEntries()));
+        }
+    }
+
+    @Test
+    void resetAfterSaveLeavesNothingToReplay() throws IOException {
+        Path file = writeSample();
+        try (SptDocument document = SptDocument.open(file)) {
+            EditJournal journal = attach(document, file);
+            document.getEntries().get(0).getTranslatedSegments().get(0).set("保存过");
+            journal.sync();
+            CrashSafeFileSaver.saveWithBak(document, file.toFile());
+            journal.reset();
+            Assertions.assertTrue(EditJournal.read(file).isEmpty());
+            journal.close();
+        }
+        Assertions.assertFalse(Files.exists(EditJournal.journalOf(file)));
+    }
+
+    @Test
+    void roundTripsTextLongerThanWriteUtfLimit() throws IOException {
+        Path file = writeSample();
+        String pasted = "长".repeat(30_000); // UTF-8 约 90 KB，超过 writeUTF 的 65535 字节
+        try (SptDocument document = SptDocument.open(file)) {
+            EditJournal journal = attach(document, file);
+            document.getEntries().get(1).getTranslatedSegments().get(0).set(pasted);
+            document.getEntries().get(1).addTranslatedSegment(pasted + "尾");
+            journal.close();
+        }
+
+        List<EditJournal.Record> records = EditJournal.read(file);
+        Assertions.assertEquals(2, records.size());
+        Assertions.assertEquals(List.of(pasted), records.get(0).texts());
+        Assertions.assertEquals(List.of(pasted, pasted + "尾"), records.get(1).texts());
+        try (SptDocument reopened = SptDocument.open(file)) {
+            Assertions.assertEquals(2, EditJournal.replay(records, reopened.getEntries()));
+            Assertions.assertEquals(pasted + "[\\r][\\n]" + pasted + "尾[\\r][\\n]",
+                    reopened.getEntries().get(1).getFullTranslatedText());
+        }
+    }
+
+    @Test
+    void upgradesJournalWrittenWithWriteUtf() throws IOException {
+        Path file = writeSample();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(1);
+        out.writeInt(0);
+        out.writeUTF("00001");
+        out.writeByte(0);
+        out.writeUTF("旧日志里的修改");
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer legacy = ByteBuffer.allocate(4 + 8 + body.length)
+                .putInt(0x53505431).putInt(body.length).putInt((int) crc.getValue()).put(body);
+        Files.write(EditJournal.journalOf(file), legacy.array());
+
+        Assertions.assertEquals(List.of("旧日志里的修改"), EditJournal.read(file).get(0).texts());
+        // 打开追加时转成新格式，原有记录保留
+        EditJournal.open(file).close();
+        List<EditJournal.Record> records = EditJournal.read(file);
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertEquals(new EditJournal.Record(0, "00001", 0, List.of("旧日志里的修改")), records.get(0));
+    }
+
+    private static EditJournal attach(SptDocument document, Path file) throws IOException {
+        EditJournal journal = EditJournal.open(file);
+        document.setEditListener((ordinal, entry, segment) -> {
+            if (segment >= 0) {
+                journal.recordSegment(ordinal, entry, segment);
+            } else {
+                journal.recordSegments(ordinal, entry);
+            }
+        });
+        return journal;
+    }
+
+    private Path writeSample() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 3; i++) {
+            String meta = String.format("%05X|%06X|014", i, i * 16);
+            sb.append("○").append(meta).append("○ 原文").append(i).append("[\\r][\\n]\n");
+            sb.append("●").append(meta).append("● 译文").append(i).append("[\\r][\\n]\n\n");
+        }
+        Path file = tempDir.resolve("sample.spt.txt");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
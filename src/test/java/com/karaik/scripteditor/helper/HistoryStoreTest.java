@@ -0,0 +1,121 @@
+package com.karaik.scripteditor.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class HistoryStoreTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hundredsOfSnapshotsCostAboutOneCopy() throws IOException {
+        Path file = tempDir.resolve("script.spt.txt");
+        String[] translations = new String[3000];
+        for (int i = 0; i < translations.length; i++) {
+            translations[i] = "第" + i + "句译文";
+        }
+        HistoryStore store = HistoryStore.of(file);
+        long start = 1_700_000_000_000L;
+        byte[][] versions = new byte[200][];
+        for (int v = 0; v < versions.length; v++) {
+            translations[(v * 37) % translations.length] = "第" + v + "次修改";
+            versions[v] = render(translations);
+            Files.write(file, versions[v]);
+            Assertions.assertTrue(store.store(start + v));
+        }
+        Assertions.assertFalse(store.store(start + 1000), "内容没变时不应再存");
+
+        long totalBytes = (long) versions[0].length * versions.length;
+        Assertions.assertTrue(store.packSize() < versions[0].length,
+                "包文件 " + store.packSize() + " 字节，全量副本共 " + totalBytes + " 字节");
+        Assertions.assertEquals(versions.length, store.list().size());
+
+        for (int v : new int[]{0, 57, 199}) {
+            Path out = tempDir.resolve("restored-" + v);
+            store.restore(start + v, out);
+            Assertions.assertArrayEquals(versions[v], Files.readAllBytes(out));
+        }
+    }
+
+    @Test
+    void pruningKeepsOnePerBucketAndCompactsThePack() throws IOException {
+        Path file = tempDir.resolve("bucket.spt.txt");
+        HistoryStore store = HistoryStore.of(file);
+        long now = 1_700_000_000_000L;
+        String filler = "填充".repeat(20_000);
+        // 每份内容完全不同，旧快照删掉后块就成了垃圾
+        long[] times = {now - 10 * DAY - 4, now - 10 * DAY - 3, now - 10 * DAY - 2, now - 10 * DAY - 1, now - 10 * DAY,
+                now - 2 * HOUR - 1, now - 2 * HOUR, now - 60_000};
+        for (int i = 0; i < times.length; i++) {
+            Files.writeString(file, "○00001|000010|014○ 版本" + i + filler + i + "\n", StandardCharsets.UTF_8);
+            Assertions.assertTrue(store.store(times[i]));
+        }
+        byte[] latest = Files.readAllBytes(file);
+        long before = store.packSize();
+
+        store.prune(HistoryRetention.parse("1h:0,1d:1h,30d:1d"), now);
+
+        Set<Long> kept = store.list().stream().map(HistoryStore.Snapshot::timestamp).collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of(now - 10 * DAY, now - 2 * HOUR, now - 60_000), kept);
+        Assertions.assertTrue(store.packSize() < before);
+
+        Path out = tempDir.resolve("restored");
+        store.restore(now - 60_000, out);
+        Assertions.assertArrayEquals(latest, Files.readAllBytes(out));
+        store.restore(now - 10 * DAY, out);
+        Assertions.assertTrue(Files.readString(out, StandardCharsets.UTF_8).startsWith("○00001|000010|014○ 版本4"));
+    }
+
+    @Test
+    void managerRestoresSnapshotToAnotherFileOnly() throws IOException {
+        Path file = tempDir.resolve("manager.spt.txt");
+        Assertions.assertTrue(HistoryManager.listSnapshots(file.toFile()).isEmpty());
+        byte[] saved = render(new String[]{"第一句", "第二句"});
+        Files.write(file, saved);
+        HistoryManager.storeSnapshot(file.toFile());
+        Files.write(file, render(new String[]{"改过了", "第二句"}));
+
+        List<HistoryStore.Snapshot> snapshots = HistoryManager.listSnapshots(file.toFile());
+        Assertions.assertEquals(1, snapshots.size());
+        Path out = tempDir.resolve("manager.restored.txt");
+        HistoryManager.restoreSnapshot(file.toFile(), snapshots.get(0).timestamp(), out);
+        Assertions.assertArrayEquals(saved, Files.readAllBytes(out));
+        Assertions.assertThrows(IOException.class,
+                () -> HistoryManager.restoreSnapshot(file.toFile(), snapshots.get(0).timestamp(), file));
+    }
+
+    @Test
+    void retentionParsesUnitsAndAlwaysKeepsNewest() {
+        HistoryRetention retention = HistoryRetention.parse("1w:1d, 1h:0");
+        Assertions.assertEquals(Duration.ofHours(1), retention.tiers().get(0).span());
+        Assertions.assertEquals(Duration.ofDays(7), retention.tiers().get(1).span());
+        long now = 100 * DAY;
+        Assertions.assertEquals(Set.of(now - 30 * DAY),
+                retention.select(List.of(now - 30 * DAY, now - 40 * DAY), now));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HistoryRetention.parse("1y:1d"));
+    }
+
+    private static byte[] render(String[] translations) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < translations.length; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 40);
+            sb.append("○").append(meta).append("○ 原文その").append(i).append("[\\r][\\n]\n");
+            sb.append("●").append(meta).append("● ").append(translations[i]).append("[\\r][\\n]\n\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+class PropagationIndexTest {
+
+    @Test
+    void findsNormalizedOriginalsAcrossFiles() {
+        File a = new File("a.txt");
+        File b = new File("b.txt");
+        PropagationIndex index = new PropagationIndex.Builder()
+                .add(a, 0, entry("ありがとう！", "谢谢！"))
+                .add(a, 5, entry("はい[\\r][\\n]ありがとう！", "是[\\r][\\n]谢谢"))
+                .add(b, 2, entry(" ありがとう! ", "谢了"))
+                .add(b, 3, entry("さようなら", "再见"))
+                .build();
+
+        List<PropagationIndex.Location> found = index.find("ありがとう！");
+        Assertions.assertEquals(3, found.size());
+        Assertions.assertEquals(new PropagationIndex.Location(a, 0, 0), found.get(0));
+        Assertions.assertEquals(a, found.get(1).file());
+        Assertions.assertEquals(5, found.get(1).ordinal());
+        Assertions.assertEquals(1, found.get(1).segment());
+        Assertions.assertEquals(new PropagationIndex.Location(b, 2, 0), found.get(2));
+        Assertions.assertTrue(index.find("こんにちは").isEmpty());
+    }
+
+    private static SptEntry entry(String original, String translated) {
+        return new SptEntry("00001", "000010", "014", original, translated);
+    }
+}
@@ -0,0 +1,139 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import com.karaik.scripteditor.util.SptParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsOriginalAndTranslatedSegmentsAcrossFiles() throws Exception {
+        File a = writeSample("a.txt", 200, "");
+        File b = writeSample("b.txt", 200, "");
+        SearchIndex index = new SearchIndex();
+        index.setFiles(List.of(a, b));
+        awaitIndexed(index);
+
+        List<SearchIndex.Hit> hits = index.search("その12", 100);
+        // 12、120..129 各在两个文件里各一条
+        Assertions.assertEquals(22, hits.size());
+        Assertions.assertTrue(hits.stream().noneMatch(SearchIndex.Hit::translated));
+        Assertions.assertEquals(a, hits.get(0).file());
+        Assertions.assertEquals(12, hits.get(0).ordinal());
+
+        List<SearchIndex.Hit> second = index.search("第二段", 1000);
+        Assertions.assertEquals(400, second.size());
+        Assertions.assertTrue(second.stream().allMatch(h -> h.translated() && h.segment() == 1));
+
+        // 单字、全角与大小写不敏感
+        Assertions.assertEquals(2, index.search("Ｘ", 10).size());
+        Assertions.assertEquals(2, index.search("x", 10).size());
+        Assertions.assertTrue(index.search("不存在的词", 10).isEmpty());
+        Assertions.assertEquals(5, index.search("句", 5).size());
+    }
+
+    @Test
+    void editsAreSearchableBeforeSaveAndIndexIsPersisted() throws Exception {
+        File a = writeSample("a.txt", 50, "");
+        SearchIndex index = new SearchIndex();
+        index.setFiles(List.of(a));
+        awaitIndexed(index);
+        Assertions.assertTrue(Files.exists(SearchIndex.indexOf(a.toPath())));
+
+        SptEntry entry = SptParser.parse(a.toPath()).entries().get(7);
+        entry.setTranslatedSegmentTexts(List.of("新的译文", "魔法少女"));
+        index.update(a, 7, entry);
+        List<SearchIndex.Hit> hits = index.search("魔法少", 10);
+        Assertions.assertEquals(1, hits.size());
+        Assertions.assertEquals(7, hits.get(0).ordinal());
+        Assertions.assertEquals(1, hits.get(0).segment());
+        Assertions.assertTrue(index.search("第7句", 10).isEmpty(), "旧译文不应再命中");
+
+        // 另一个进程（或重启后）直接读 .spt.sdx
+        BigramIndex loaded = SearchIndex.load(a.toPath());
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(100, loaded.docCount());
+
+        writeSample("a.txt", 50, "改");
+        Assertions.assertNull(SearchIndex.load(a.toPath()), "源文件变了，旧索引作废");
+        index.refresh(a);
+        awaitIndexed(index);
+        Assertions.assertEquals(1, index.search("改8句", 10).size());
+        Assertions.assertEquals(1, index.search("魔法少", 10).size(), "未保存的编辑仍然有效");
+    }
+
+    @Test
+    void bigramIndexMatchesLinearScan() {
+        String[] texts = new String[3000];
+        Random random = new Random(42);
+        String alphabet = "あいうえおかきくけこ的一是了不在人有我他\n";
+        for (int i = 0; i < texts.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int k = 0; k < length; k++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            texts[i] = sb.toString();
+        }
+        BigramIndex index = BigramIndex.build(texts);
+        for (String query : new String[]{"あい", "的一是", "か", "不在人"}) {
+            int[] count = new int[1];
+            index.search(query.toCharArray(), new TreeMap<>(), (doc, text, offset) -> {
+                count[0]++;
+                return true;
+            });
+            int expected = 0;
+            for (String text : texts) {
+                for (String segment : text.split("\n", -1)) {
+                    if (segment.contains(query)) expected++;
+                }
+            }
+            Assertions.assertEquals(expected, count[0], query);
+        }
+    }
+
+    @Test
+    void findsTheOnlyMatchInLargeScripts() throws Exception {
+        File big = writeSample("big.txt", 100_000, "");
+        SearchIndex index = new SearchIndex();
+        index.setFiles(List.of(big));
+        awaitIndexed(index);
+        List<SearchIndex.Hit> hits = index.search("その99999", 10);
+        Assertions.assertEquals(1, hits.size());
+        Assertions.assertEquals(big, hits.get(0).file());
+        Assertions.assertEquals(99_999, hits.get(0).ordinal());
+        Assertions.assertFalse(hits.get(0).translated());
+    }
+
+    private static void awaitIndexed(SearchIndex index) throws InterruptedException {
+        for (int i = 0; i < 3000 && index.isBuilding(); i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertFalse(index.isBuilding());
+    }
+
+    private File writeSample(String name, int count, String prefix) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 20);
+            sb.append("○").append(meta).append("○ 原文その").append(i).append(i == 3 ? "X" : "").append("[\\r][\\n]\r\n");
+            sb.append("●").append(meta).append("● ").append(prefix.isEmpty() ? "第" : prefix).append(i)
+                    .append("句[\\r][\\n]第二段\r\n\r\n");
+        }
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+}
@@ -0,0 +1,117 @@
+package com.karaik.scripteditor.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+class TermStatisticsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** 按空格切词，记录被调用的次数和创建了几个实例。 */
+    private static final class SpaceTokenizer implements WordTokenizer {
+        static final AtomicInteger created = new AtomicInteger();
+        static final AtomicInteger calls = new AtomicInteger();
+
+        SpaceTokenizer() {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public String id() {
+            return "space";
+        }
+
+        @Override
+        public List<String> words(String sentence) {
+            calls.incrementAndGet();
+            return Arrays.asList(sentence.split(" "));
+        }
+    }
+
+    @Test
+    void parallelCountsMatchBoxedMapAndTopKMatchesFullSort() {
+        Random random = new Random(8);
+        List<String> sentences = new ArrayList<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = 1 + random.nextInt(8);
+            for (int w = 0; w < n; w++) {
+                String word = "w" + (int) Math.abs(random.nextGaussian() * 300);
+                expected.merge(word, 1, Integer::sum);
+                sb.append(w > 0 ? " " : "").append(word);
+            }
+            sentences.add(sb.toString());
+        }
+        sentences.add("");
+
+        SpaceTokenizer.created.set(0);
+        SpaceTokenizer.calls.set(0);
+        TermStatistics.Result result = new TermStatistics(SpaceTokenizer::new, 4, null).count(sentences);
+        Assertions.assertTrue(SpaceTokenizer.created.get() <= 4, "每个工作线程一个分词器");
+        Assertions.assertEquals(result.tokenizedSentences(), SpaceTokenizer.calls.get());
+        Assertions.assertTrue(result.tokenizedSentences() < 20_000, "重复的句子只切一次");
+
+        Assertions.assertEquals(expected.size(), result.distinctWords());
+        Assertions.assertEquals(expected.values().stream().mapToLong(Integer::longValue).sum(), result.totalWords());
+        expected.forEach((word, count) -> Assertions.assertEquals(count, result.count(word), word));
+
+        List<TermStatistics.Term> sorted = expected.entrySet().stream()
+                .filter(e -> e.getValue() >= 3)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry::getKey))
+                .map(e -> new TermStatistics.Term(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+        Assertions.assertEquals(sorted.subList(0, 50), result.top(50, 3));
+        Assertions.assertEquals(sorted, result.top(Integer.MAX_VALUE, 3));
+        Assertions.assertTrue(result.top(0, 1).isEmpty());
+    }
+
+    @Test
+    void rerunOnlyTokenizesNewSentences() {
+        Path file = tempDir.resolve("tokens.cache");
+        List<String> sentences = new ArrayList<>(List.of("a b c", "b c d", "c d e", "a b c"));
+
+        TokenCache cache = TokenCache.open(file, "space");
+        TermStatistics.Result first = new TermStatistics(SpaceTokenizer::new, 2, cache).count(sentences);
+        cache.save();
+        Assertions.assertEquals(3, first.tokenizedSentences());
+
+        sentences.set(2, "e f g");
+        TokenCache reopened = TokenCache.open(file, "space");
+        TermStatistics.Result second = new TermStatistics(SpaceTokenizer::new, 2, reopened).count(sentences);
+        Assertions.assertEquals(1, second.tokenizedSentences());
+        Assertions.assertEquals(2, second.cachedSentences());
+        Assertions.assertEquals(3, second.count("b"));
+        Assertions.assertEquals(1, second.count("g"));
+        Assertions.assertEquals(1, second.count("d"));
+        reopened.save();
+        TermStatistics.Result third = new TermStatistics(SpaceTokenizer::new, 2, TokenCache.open(file, "space"))
+                .count(sentences);
+        Assertions.assertEquals(0, third.tokenizedSentences());
+
+        // 分词器不同，缓存作废
+        TermStatistics.Result other = new TermStatistics(SpaceTokenizer::new, 2, TokenCache.open(file, "other"))
+                .count(sentences);
+        Assertions.assertEquals(3, other.tokenizedSentences());
+    }
+
+    @Test
+    void sentenceJoinsNormalizedSegments() {
+        Assertions.assertEquals("AB。ガ", TermStatistics.sentenceOf(Arrays.asList(" ＡＢ ", null, "", "ｶﾞ")));
+        Assertions.assertEquals("", TermStatistics.sentenceOf(List.of(" ", "")));
+    }
+}
@@ -0,0 +1,69 @@
+package com.karaik.scripteditor.search;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+class TranslationMemoryTest {
+
+    @Test
+    void exactMatchesComeFirstWithVariantsByFrequency() {
+        TranslationMemory memory = new TranslationMemory.Builder()
+                .add("おはようございます", "早上好")
+                .add("おはようございます", "早安")
+                .add("おはようございます", "早上好")
+                .add("おはようございます！", "早上好！")
+                .add("未翻訳の行", "未翻訳の行")
+                .add("空の訳", " ")
+                .build();
+        Assertions.assertEquals(2, memory.size());
+
+        List<TranslationMemory.Suggestion> suggestions = memory.lookup("おはようございます", 0.7, 5);
+        Assertions.assertEquals(3, suggestions.size());
+        Assertions.assertEquals("早上好", suggestions.get(0).translation());
+        Assertions.assertEquals(2, suggestions.get(0).occurrences());
+        Assertions.assertEquals(1.0, suggestions.get(0).score());
+        Assertions.assertEquals("早安", suggestions.get(1).translation());
+        Assertions.assertEquals("早上好！", suggestions.get(2).translation());
+        Assertions.assertTrue(suggestions.get(2).score() < 1.0);
+
+        Assertions.assertTrue(memory.lookup("未翻訳の行", 0.5, 5).isEmpty());
+        Assertions.assertTrue(memory.lookup("おはよう", 0.9, 5).isEmpty());
+    }
+
+    @Test
+    void pairsSegmentsWhenCountsMatch() {
+        SptEntry entry = new SptEntry("00001", "000010", "014",
+                "一行目[\\r][\\n]二行目", "第一行[\\r][\\n]第二行");
+        TranslationMemory memory = new TranslationMemory.Builder().add(entry).build();
+        Assertions.assertEquals(entry.getOriginalSegmentCount(), memory.size());
+        String first = entry.getOriginalSegment(0);
+        Assertions.assertEquals(entry.getTranslatedSegment(0), memory.lookup(first, 1.0, 1).get(0).translation());
+    }
+
+    @Test
+    void fuzzyLookupFindsNearMatchInALargeCorpus() {
+        Random random = new Random(7);
+        String kana = "あいうえおかきくけこさしすせそたちつてとなにぬねのはひふへほまみむめもやゆよらりるれろわをん";
+        TranslationMemory.Builder builder = new TranslationMemory.Builder();
+        String[] originals = new String[100_000];
+        for (int i = 0; i < originals.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 8 + random.nextInt(20);
+            for (int k = 0; k < length; k++) sb.append(kana.charAt(random.nextInt(kana.length())));
+            originals[i] = sb.toString();
+            builder.add(originals[i], "译文" + i);
+        }
+        TranslationMemory memory = builder.build();
+
+        // 改掉一个字，仍应找回原来的译文
+        String target = originals[4242];
+        String query = target.substring(0, 3) + "ー" + target.substring(4);
+        List<TranslationMemory.Suggestion> suggestions = memory.lookup(query, 0.7, 3);
+        Assertions.assertFalse(suggestions.isEmpty());
+        Assertions.assertEquals("译文4242", suggestions.get(0).translation());
+    }
+}
@@ -0,0 +1,124 @@
+package com.karaik.scripteditor.util;
+
+import com.karaik.scripteditor.entry.SptEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以旧的 split 解析为对照，确认流式解析结果一致并能给出出错行号。
+ */
+class SptParserTest {
+
+    private static final String SAMPLE = String.join("\n",
+            "○00008|0D0390|014○ 地獄のような日々。[\\r][\\n]",
+            "●00008|0D0390|014● 地狱般的日子。[\\r][\\n]",
+            "",
+            "  ○00009|0D03A0|020○   「あ[\\r][\\n]い」[\\r][\\n]  ",
+            "●00009|0D03A0|020●「啊[\\r][\\n]　咦」[\\r][\\n]",
+            "",
+            "○0000A|0D03B0○ 三元组不完整",
+            "●0000A|0D03B0● 跳过",
+            "○0000B|0D03C0|008○ 没有译文",
+            "",
+            "●0000C|0D03D0|008● 没有原文",
+            "○0000D|0D03E0|008|extra○ 多余字段[\\r][\\n]",
+            "●0000D|0D03E0|008|extra●",
+            "○0000E||08○",
+            "●0000E||08● 空地址") + "\r\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesLegacySplitParser() throws IOException {
+        for (String newline : new String[]{"\n", "\r\n", "\r", "\u000B", "\u0085", "\u2028"}) {
+            String content = SAMPLE.replace("\n", newline);
+            List<SptEntry> expected = legacyParse(content);
+
+            Path file = tempDir.resolve("sample.spt.txt");
+            Files.writeString(file, content, StandardCharsets.UTF_8);
+
+            assertSameEntries(expected, SptParser.parse(file).entries());
+            assertSameEntries(expected, SptParser.parse(new StringReader(content)).entries());
+        }
+    }
+
+    @Test
+    void reportsLineNumbersOfUnpairedLines() throws IOException {
+        SptParser.Result result = SptParser.parse(new StringReader(SAMPLE));
+        List<Integer> lines = new ArrayList<>();
+        result.problems().forEach(p -> lines.add(p.lineNumber()));
+        Assertions.assertEquals(List.of(7, 9, 11), lines);
+        Assertions.assertEquals(4, result.entries().size());
+    }
+
+    @Test
+    void recordsByteRangesOfEachLine() throws IOException {
+        byte[] bytes = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        SptParser.scan(ByteBuffer.wrap(bytes), c -> {
+            lines.add(slice(bytes, c.originalLineStart(), c.originalLineEnd()));
+            lines.add(slice(bytes, c.translateLineStart(), c.translateLineEnd()));
+        });
+        Assertions.assertEquals("○00008|0D0390|014○ 地獄のような日々。[\\r][\\n]", lines.get(0));
+        Assertions.assertEquals("●00008|0D0390|014● 地狱般的日子。[\\r][\\n]", lines.get(1));
+        Assertions.assertEquals("  ○00009|0D03A0|020○   「あ[\\r][\\n]い」[\\r][\\n]  ", lines.get(2));
+        Assertions.assertEquals("●0000E||08● 空地址", lines.get(lines.size() - 1));
+
+        List<String> viaChannel = new ArrayList<>();
+        SptParser.scan(Channels.newChannel(new java.io.ByteArrayInputStream(bytes)),
+                c -> viaChannel.add(slice(bytes, c.originalLineStart(), c.translateLineEnd())));
+        Assertions.assertEquals(4, viaChannel.size());
+    }
+
+    private static String slice(byte[] bytes, long from, long to) {
+        return new String(bytes, (int) from, (int) (to - from), StandardCharsets.UTF_8);
+    }
+
+    private static void assertSameEntries(List<SptEntry> expected, List<SptEntry> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            SptEntry e = expected.get(i);
+            SptEntry a = actual.get(i);
+            Assertions.assertEquals(e.getIndex(), a.getIndex());
+            Assertions.assertEquals(e.getAddress(), a.getAddress());
+            Assertions.assertEquals(e.getLength(), a.getLength());
+            Assertions.assertEquals(e.getFullOriginalText(), a.getFullOriginalText());
+            Assertions.assertEquals(e.getFullTranslatedText(), a.getFullTranslatedText());
+        }
+    }
+
+    // 改造前 FileHandlerController.parseSptContent 的实现，作为对照
+    private static List<SptEntry> legacyParse(String content) {
+        List<SptEntry> result = new ArrayList<>();
+        String[] lines = content.split("\\R");
+        for (int i = 0; i < lines.length - 1; i++) {
+            String ol = lines[i].trim();
+            String tl = lines[i + 1].trim();
+            if (ol.startsWith("○") && tl.startsWith("●")) {
+                String[] op = ol.split("○", 3);
+                String[] tp = tl.split("●", 3);
+                if (op.length > 1 && tp.length > 1) {
+                    String[] meta = op[1].split("\\|");
+                    if (meta.length >= 3) {
+                        result.add(new SptEntry(meta[0], meta[1], meta[2],
+                                (op.length > 2 ? op[2].trim() : ""),
+                                (tp.length > 2 ? tp[2].trim() : "")));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
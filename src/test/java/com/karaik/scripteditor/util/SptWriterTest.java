@@ -0,0 +1,123 @@
+package com.karaik.scripteditor.util;
+
+import com.karaik.scripteditor.entry.SptDocument;
+import com.karaik.scripteditor.entry.SptEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 以改造前的 String 拼接 + OutputStreamWriter 实现为对照，确认输出逐字节一致；
+ * 吞吐量对比标为 benchmark，只在 -Pbenchmark 下运行。
+ */
+class SptWriterTest {
+
+    private static final String SAMPLE = String.join("\n",
+            "○00001|000010|014○ 規範的な行[\\r][\\n]",
+            "●00001|000010|014● 规范行[\\r][\\n]",
+            "",
+            "  ○00002|000020|014○   前後に空白[\\r][\\n]  ",
+            "●00002|000020|014● 有空白",
+            "○00003|000030|014○ [\\r][\\n]空段[\\r][\\n][\\r][\\n]のある行",
+            "●00003|000030|014● ",
+            "○0000a|000040|014○ 小写也要原样[\\r][\\n]",
+            "●0000a|000040|014● 𠮷野家[\\r][\\n]",
+            "○00005|000050|014○ [\\r][\\n]",
+            "●00005|000050|014● 只有换行标记") + "\r\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesLegacyWriterByteForByte() throws IOException {
+        Path file = tempDir.resolve("sample.spt.txt");
+        Files.writeString(file, SAMPLE, StandardCharsets.UTF_8);
+        try (SptDocument document = SptDocument.open(file)) {
+            List<SptEntry> entries = document.getEntries();
+            entries.get(0).addTranslatedSegment("");
+            entries.get(1).getTranslatedSegments().get(0).set("孤立代理\uD800结尾");
+            entries.get(4).addTranslatedSegment("追加");
+
+            byte[] expected = writeLegacy(entries, tempDir.resolve("legacy.txt"));
+            Path viaEntries = tempDir.resolve("entries.txt");
+            SptWriter.saveToFile(entries, viaEntries.toFile());
+
+            Assertions.assertArrayEquals(expected, Files.readAllBytes(viaEntries));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void throughputAgainstLegacyWriter() throws IOException {
+        Path file = tempDir.resolve("large.spt.txt");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            String meta = String.format("%05X|%06X|%03X", i, i * 16, 40);
+            sb.append("○").append(meta).append("○ 「地獄のような日々が続いていた」その").append(i).append("[\\r][\\n]\n");
+            sb.append("●").append(meta).append("● 「地狱般的日子仍在继续」第").append(i).append("句[\\r][\\n]\n\n");
+        }
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+
+        try (SptDocument document = SptDocument.open(file)) {
+            List<SptEntry> entries = document.getEntries();
+            Path legacyOut = tempDir.resolve("legacy.txt");
+            Path entriesOut = tempDir.resolve("entries.txt");
+
+            double legacy = measure(() -> writeLegacy(entries, legacyOut), legacyOut);
+            double viaEntries = measure(() -> SptWriter.saveToFile(entries, entriesOut.toFile()), entriesOut);
+            System.out.printf("SptWriter 吞吐量：旧实现 %.1f MB/s，编码写出 %.1f MB/s%n", legacy, viaEntries);
+
+            byte[] expected = Files.readAllBytes(legacyOut);
+            Assertions.assertArrayEquals(expected, Files.readAllBytes(entriesOut));
+        }
+    }
+
+    private interface WriteAction {
+        void run() throws IOException;
+    }
+
+    // 预热一轮后取三轮中最快的一次
+    private static double measure(WriteAction action, Path out) throws IOException {
+        action.run();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Files.size(out) / (1024.0 * 1024.0) / (best / 1e9);
+    }
+
+    // 改造前 SptWriter.saveToFile 的实现，作为对照
+    private static byte[] writeLegacy(List<SptEntry> entries, Path out) throws IOException {
+        File outputFile = out.toFile();
+        try (FileOutputStream fos = new FileOutputStream(outputFile);
+             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
+             BufferedWriter writer = new BufferedWriter(osw)) {
+            for (SptEntry entry : entries) {
+                String index = entry.getIndex();
+                String address = entry.getAddress();
+                String length = entry.getLength();
+
+                String originalForFile = entry.getFullOriginalText();
+                String translatedForFile = entry.getFullTranslatedText();
+
+                writer.write("○" + index + "|" + address + "|" + length + "○ " + originalForFile + "\n");
+                writer.write("●" + index + "|" + address + "|" + length + "● " + translatedForFile + "\n");
+                writer.write("\n");
+            }
+        }
+        return Files.readAllBytes(out);
+    }
+}